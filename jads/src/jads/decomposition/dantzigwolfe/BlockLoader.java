@@ -46,6 +46,7 @@ public class BlockLoader {
 
                 for (int c = 0; c < nConstraints; c++) {
                     String conName = bufferedReader.readLine();
+                    if (data.model.getConstr(conName) == null) continue; // e.g. removed by the presolve
 
                     boolean continuous = false;
                     int consIndex = data.model.getConstr(conName).getIndex();
@@ -128,6 +129,11 @@ public class BlockLoader {
                     temp = bufferedReader.readLine();
                     while (temp != null && !(temp.length() > 5 && temp.substring(0, 5).equals("BLOCK")) && !(temp.length() >= 11 && temp.substring(0, 11).equals("MASTERCONSS"))) {
                         String conName = temp;
+                        if (data.model.getConstr(conName) == null) { // e.g. removed by the presolve
+                            temp = bufferedReader.readLine();
+                            continue;
+                        }
+
                         boolean continuous = false;
                         int consIndex = data.model.getConstr(conName).getIndex();
                         final MPLinConstr cons = data.model.getConstr(consIndex);
@@ -208,6 +214,7 @@ public class BlockLoader {
 
                 for (int v = 0; v < nVariables; v++) {
                     String varName = bufferedReader.readLine();
+                    if (data.model.getVar(varName) == null) continue; // e.g. removed by the presolve
                     int varIndex = data.model.getVar(varName).getIndex();
                     data.varsBlocks.get(varIndex).add(b);
                 }
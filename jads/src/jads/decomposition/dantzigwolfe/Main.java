@@ -19,6 +19,21 @@ public class Main {
         data.model = loader.loadModel(params.probFile);
         if (data.model == null) return;
         data.name =  data.model.getName();//.substring(0, data.model.getName().indexOf('.'));
+        if (params.profile)
+            System.out.println(new MPProfile(data.model.snapshot(), true));
+
+        // presolving formulation (constraints removed by the presolve are skipped by the blocks)
+        MPPresolve presolve = null;
+        if (params.usePresolvedModel) {
+            presolve = new MPPresolve(data.model);
+            MPModel presolvedModel = presolve.presolve();
+            if (presolvedModel == null) {
+                System.out.println("Presolve: model is infeasible.");
+                return;
+            }
+            System.out.printf("Presolve: removed %d variables and %d constraints.\n", presolve.getNRemovedVars(), presolve.getNRemovedConstrs());
+            data.model = presolvedModel;
+        }
 
         // reading block
         BlockLoader blockLoader = new BlockLoader(params, data);
@@ -30,6 +45,6 @@ public class Main {
         System.out.printf("Total wall-clock runtime: %.2f seconds\n", (System.currentTimeMillis() - startTimeMillis) / 1000.0);
         System.out.println();
         System.out.printf("Instance files: %s\n", Data.getInstance().name);
-        System.out.printf("LP objective value: %f\n", columnGeneration.solver.getObjValue());
+        System.out.printf("LP objective value: %f\n", columnGeneration.solver.getObjValue() + (presolve != null ? presolve.getObjOffset() : 0.));
     }
 }
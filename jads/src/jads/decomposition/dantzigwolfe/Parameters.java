@@ -11,6 +11,8 @@ public class Parameters {
 
     public boolean continuousInMaster = true;
     public boolean usePresolvedModel = false;
+    public boolean profile = false;
+    public boolean fastLoader = false;
     public int threads = Integer.MAX_VALUE;
     public int randomSeed = 0;
 
@@ -28,6 +30,8 @@ public class Parameters {
     }
 
     public MPLoader getLoader() {
+        if (probFile != null && LoaderBinary.isBinary(probFile)) return new LoaderBinary();
+        if (fastLoader) return new LoaderFast(threads);
         switch (solver) {
             case gurobi:
                 return new LoaderGurobi();
@@ -60,7 +64,7 @@ public class Parameters {
         outFile = args[++index];
 
         if (probFile.lastIndexOf(".") > 0) {
-            cpartFile = probFile.replace(".lp.gz", "").replace(".lp", "") + ".cpart";
+            cpartFile = probFile.replace(".lp.gz", "").replace(".lp", "").replace(MPBinary.EXTENSION, "") + ".cpart";
         }
         else {
             if (printUsage) usage();
@@ -75,6 +79,10 @@ public class Parameters {
                 threads = new Integer(args[++index]);
             else if (option.equals("-presolved"))
                 usePresolvedModel = true;
+            else if (option.equals("-profile"))
+                profile = true;
+            else if (option.equals("-fastloader"))
+                fastLoader = true;
 
                 // Reading pricing parameters
             else if (option.equals("-sollimit"))
@@ -132,6 +140,8 @@ public class Parameters {
         //System.out.println("    -clique            : Generate clique cuts.");
         System.out.println();
         System.out.println("    -presolved         : Use presolved model in the column generation.");
+        System.out.println("    -profile           : Print statistics of the structure of the model.");
+        System.out.println("    -fastloader        : Load the model with the (pure Java) fast LP/MPS loader.");
         System.out.println();
     }
 
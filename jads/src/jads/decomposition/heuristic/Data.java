@@ -7,9 +7,9 @@ import jads.mp.solvers.*;
 import jads.mp.util.*;
 
 import java.io.*;
+import java.nio.channels.*;
 import java.nio.file.*;
 import java.util.*;
-import java.util.zip.*;
 
 /**
  * This class contains a singleton object with the data required by the
@@ -32,6 +32,7 @@ public class Data {
     public int randomSeed = 2;
     public long timeLimitMillis = Long.MAX_VALUE;
     public int threads = Integer.MAX_VALUE;
+    public boolean profile = false;
 
     public String jdecFile = null, probFile = null, outFile = null, iniSolFile = null;
 
@@ -44,9 +45,13 @@ public class Data {
 
 
     public MPLoader getLoader() {
+        if (probFile != null && LoaderBinary.isBinary(probFile))
+            return new LoaderBinary();
         switch (loader) {
             case cplex:
                 return new LoaderCplex();
+            case fast:
+                return new LoaderFast(threads);
             case gurobi:
                 return new LoaderGurobi();
             case jads:
@@ -99,6 +104,12 @@ public class Data {
                 case "-timelimit":
                     timeLimitMillis = ( long ) (new Double(args[++index]) * 60_000);
                     break;
+                case "-profile":
+                    profile = true;
+                    break;
+                case "-fastloader":
+                    loader = Loader.fast;
+                    break;
 
                 // reading solver parameters
                 case "-gurobi":
@@ -129,7 +140,7 @@ public class Data {
         try {
             BufferedReader bufferedReader;
             if (jdecFile.endsWith(".gz"))
-                bufferedReader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(jdecFile))));
+                bufferedReader = new BufferedReader(new InputStreamReader(Channels.newInputStream(GzipChannel.open(Paths.get(jdecFile)))));
             else
                 bufferedReader = new BufferedReader(new InputStreamReader(new FileInputStream(jdecFile)));
             System.out.println("Loading decomposition(s) from " + jdecFile + "... ");
@@ -180,7 +191,10 @@ public class Data {
         if (model == null)
             return false;
 
-        name = Paths.get(probFile).getFileName().toString().replace(".gz", "").replace(".lp", "").replace(".mps", "");
+        name = Paths.get(probFile).getFileName().toString().replace(".gz", "").replace(".lp", "").replace(".mps", "").replace(MPBinary.EXTENSION, "");
+
+        if (profile)
+            System.out.println(new MPProfile(model.snapshot(), true));
 
         // reading initial solution (if any is specified)
         if (iniSolFile != null) loadSolution();
@@ -193,8 +207,8 @@ public class Data {
 
         try {
             BufferedReader bufferedReader;
-            if (jdecFile.endsWith(".gz"))
-                bufferedReader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(iniSolFile))));
+            if (iniSolFile.endsWith(".gz"))
+                bufferedReader = new BufferedReader(new InputStreamReader(Channels.newInputStream(GzipChannel.open(Paths.get(iniSolFile)))));
             else
                 bufferedReader = new BufferedReader(new InputStreamReader(new FileInputStream(iniSolFile)));
             System.out.println("Loading initial solution from " + iniSolFile + "... ");
@@ -210,6 +224,9 @@ public class Data {
 
                 initialSolution.setValue(varName, value);
             }
+
+            if (initialSolution.isComplete())
+                System.out.println("Initial solution: " + new MPEvaluator(model.snapshot()).evaluate(initialSolution.getX(), true));
         }
         catch (IOException e) {
             e.printStackTrace();
@@ -227,6 +244,8 @@ public class Data {
         System.out.println();
         System.out.println("    -seed <int>        : Random seed (default = " + randomSeed + ").");
         System.out.println("    -timelimit <double>: Time limit in minutes (default = INF).");
+        System.out.println("    -profile           : Print statistics of the structure of the model.");
+        System.out.println("    -fastloader        : Load the model with the (pure Java) fast LP/MPS loader.");
         System.out.println();
         System.out.println("    -cbc               : Use CBC solver" + (solver == Solver.cbc ? " (default)" : "") + ".");
         System.out.println("    -cplex             : Use Cplex solver" + (solver == Solver.cplex ? " (default)" : "") + ".");
@@ -245,7 +264,7 @@ public class Data {
 
 
     public enum Loader {
-        cplex, gurobi, jads
+        cplex, fast, gurobi, jads
     }
 
     public enum Solver {
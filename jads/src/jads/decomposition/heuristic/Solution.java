@@ -16,6 +16,9 @@ public class Solution {
     private boolean hasValue[];
     private double x[];
 
+    // incremental tracker of the objective and row activities (if any)
+    private MPActivityTracker tracker = null;
+
     public Solution(MPModel model) {
         this.model = model;
         hasValue = new boolean[model.getNVars()];
@@ -27,13 +30,15 @@ public class Solution {
 
         this.hasValue = Arrays.copyOf(solution.hasValue, solution.hasValue.length);
         this.x = Arrays.copyOf(solution.x, solution.x.length);
+        if (solution.tracker != null)
+            this.tracker = new MPActivityTracker(solution.tracker);
     }
 
 
     public double getObjective() {
         double obj = 0;
-        for (int i = 0; i < x.length; i++) {
-            obj += x[i] * model.getVar(i).getObj();
+        for (MPVar var : model.vars()) {
+            obj += x[var.getIndex()] * var.getObj();
         }
         return obj;
     }
@@ -47,6 +52,10 @@ public class Solution {
         return !hasValue[index] ? null : x[index];
     }
 
+    public MPActivityTracker getTracker() {
+        return tracker;
+    }
+
     public double[] getX() {
         return x;
     }
@@ -55,6 +64,12 @@ public class Solution {
         return hasValue[index];
     }
 
+    public boolean isComplete() {
+        for (boolean value : hasValue)
+            if (!value) return false;
+        return true;
+    }
+
     public boolean hasVar(String name) {
         MPVar var = model.getVar(name);
         return var != null && hasValue[var.getIndex()];
@@ -62,6 +77,7 @@ public class Solution {
 
     public void setValue(MPVar var, double value) {
         x[var.getIndex()] = var.isInteger() ? Math.round(value) : value;
+        if (tracker != null) tracker.setValue(var.getIndex(), x[var.getIndex()]);
     }
 
     public boolean setValue(String varName, double value) {
@@ -72,13 +88,28 @@ public class Solution {
         }
         hasValue[var.getIndex()] = true;
         x[var.getIndex()] = var.isInteger() ? Math.round(value) : value;
+        if (tracker != null) tracker.setValue(var.getIndex(), x[var.getIndex()]);
         return true;
     }
 
+    /**
+     * Starts tracking the objective and the activities of the constraints of
+     * this solution, which are then updated incrementally by every change of
+     * the solution (see {@link MPActivityTracker}).
+     *
+     * @return the tracker of this solution
+     */
+    public MPActivityTracker track() {
+        if (tracker == null)
+            tracker = new MPActivityTracker(model.snapshot(), x);
+        return tracker;
+    }
+
     public void update(double[] solution) {
         for (int i = 0; i < x.length; i++) {
             hasValue[i] = true;
             x[i] = solution[i];
+            if (tracker != null) tracker.setValue(i, x[i]);
         }
     }
 
@@ -88,6 +119,7 @@ public class Solution {
             if (var != null) {
                 x[var.getIndex()] = var.isInteger() ? Math.round(values[i]) : values[i];
                 hasValue[var.getIndex()] = true;
+                if (tracker != null) tracker.setValue(var.getIndex(), x[var.getIndex()]);
             }
         }
     }
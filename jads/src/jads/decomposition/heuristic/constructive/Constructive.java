@@ -36,12 +36,16 @@ public class Constructive {
     public Solution completeSolution(MPModel model, Solution solution) {
         if (solution == null) return solution;
 
-        // initializing original lb and ub arrays
-        double lb[] = new double[model.getNVars()];
-        double ub[] = new double[model.getNVars()];
+        // a complete solution is only validated, without calling the solver
+        if (solution.isComplete()) {
+            MPEvaluator.Evaluation evaluation = new MPEvaluator(model.snapshot()).evaluate(solution.getX(), true);
+            if (evaluation.feasible) return solution;
+            System.out.println("Solution is infeasible (" + evaluation + "); completing it...");
+        }
+
+        // fixing the variables of the solution (changes are reverted below)
+        int savepoint = model.savepoint();
         for (MPVar var : model.vars()) {
-            lb[var.getIndex()] = var.getLB();
-            ub[var.getIndex()] = var.getUB();
             if (solution.hasValue(var.getIndex()))
                 var.setBounds(solution.getValue(var.getIndex()), solution.getValue(var.getIndex()));
         }
@@ -61,8 +65,7 @@ public class Constructive {
         }
 
         // restoring model to its initial state
-        for (MPVar var : model.vars())
-            var.setBounds(lb[var.getIndex()], ub[var.getIndex()]);
+        model.rollback(savepoint);
         model.updateSolver();
 
         return solution;
@@ -17,7 +17,6 @@ public class LocalSearch {
     private final Data params = Data.getInstance();
 
     private MPModel model;
-    private double lb[], ub[];
 
     private int eta, step;
     private int etas[], steps[];
@@ -28,14 +27,6 @@ public class LocalSearch {
         this.eta = eta;
         this.step = step;
         this.reoptimize = reoptimize;
-
-        // initializing original lb and ub arrays
-        lb = new double[model.getNVars()];
-        ub = new double[model.getNVars()];
-        for (MPVar var : model.vars()) {
-            lb[var.getIndex()] = var.getLB();
-            ub[var.getIndex()] = var.getUB();
-        }
     }
 
 
@@ -51,6 +42,9 @@ public class LocalSearch {
 
         long startTimeMillis = System.currentTimeMillis();
 
+        // the objective and constraints are then updated incrementally
+        MPActivityTracker tracker = solution.track();
+
         etas = new int[decompositions.size()];
         steps = new int[decompositions.size()];
         for (int i = 0; i < decompositions.size(); i++) {
@@ -69,7 +63,9 @@ public class LocalSearch {
                 System.out.printf("%-8s Solving %d%s blocks (reference block: %d)...\n",
                   String.format("%.1fs", (System.currentTimeMillis() - startTimeMillis) / 1000.0),
                   subproblem.size(), subproblem.dec.name.isEmpty() ? "" : " '" + subproblem.dec.name + "'", subproblem.getBlocks().get(0).getIndex());
-                subproblem.updateModel(model, lb, ub, solution);
+                // the variables fixed by the subproblem are released by the rollback
+                int savepoint = model.savepoint();
+                subproblem.updateModel(model, solution);
                 solver.addSolution(solution.getX());
 
                 if (solver.solve()) {
@@ -78,6 +74,8 @@ public class LocalSearch {
                     if ((model.getObjective().getDirection() == MPObjective.MINIMIZE && deltaCost < 0)
                       || (model.getObjective().getDirection() == MPObjective.MAXIMIZE && deltaCost > 0)) {
                         System.out.println("          ---> solution cost has improved by " + deltaCost + " to " + solver.getObjValue());
+                        if (!tracker.isFeasible())
+                            System.out.println("          ---> warning: " + tracker.getNViolated() + " constraints are violated by the solution");
 
                         deltaGlobal += deltaCost;
                     }
@@ -85,6 +83,7 @@ public class LocalSearch {
                 else {
                     System.out.println("Solver did not end correctly....");
                 }
+                model.rollback(savepoint);
 
                 if (System.currentTimeMillis() >= maxTimeLimitMillis) {
                     System.out.println("Runtime limit reached...");
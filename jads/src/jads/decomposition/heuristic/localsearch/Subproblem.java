@@ -56,23 +56,14 @@ public class Subproblem {
         return blocks.size();
     }
 
-    public void updateModel(MPModel model, double lb[], double ub[], Solution solution) {
-        List<MPVar> vars = new ArrayList<>();
-        List<Double> vals = new ArrayList<>();
-
-        // fixing variables in the model
+    public void updateModel(MPModel model, Solution solution) {
+        // fixing variables in the model (the model is expected to be rolled
+        // back to its original bounds after the subproblem is solved)
         for (MPVar var : model.vars()) {
-            Double x = solution.getValue(var.getIndex());
-            if (x != null) {
-                vars.add(var);
-                vals.add(x);
-            }
+            if (hasVar[var.getIndex()]) continue;
 
-            if (hasVar[var.getIndex()]) {
-                var.setBounds(lb[var.getIndex()], ub[var.getIndex()]);
-            }
-            else if (dec.varsBlocks.get(var.getIndex()).isEmpty()) {
-                var.setBounds(lb[var.getIndex()], ub[var.getIndex()]);
+            Double x = solution.getValue(var.getIndex());
+            if (dec.varsBlocks.get(var.getIndex()).isEmpty()) {
                 hasVar[var.getIndex()] = true;
                 originalVars.add(var);
             }
@@ -83,7 +74,6 @@ public class Subproblem {
 
         // updating solver
         model.updateSolver();
-
     }
 
     public double updateSolution(MPModel model, Solution solution, double x[]) {
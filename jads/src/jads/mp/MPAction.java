@@ -1,5 +1,7 @@
 package jads.mp;
 
+import jads.mp.util.*;
+
 /**
  * This class represents actions that must be performed within the solvers, i.e.
  * updates that were not yet committed. Its main goal is to improve performance
@@ -13,6 +15,13 @@ public class MPAction {
     public final double coeff;
     public final MPLinConstr constr;
     public final MPVar variable;
+    public final MPLinConstr constrs[];
+    public final MPVar variables[];
+    public final int indices[];
+
+    // previous values (before the action), used to detect no-op changes
+    public final double prevLB, prevUB;
+    public final char prevType;
 
 
     /**
@@ -22,12 +31,8 @@ public class MPAction {
      * @param variable the variable related to the action
      */
     protected MPAction(ActionType type, MPVar variable) {
+        this(type, 0., null, variable, null, null, null, 0., 0., '?');
         assert type == ActionType.AddVar || type == ActionType.DelVar || type == ActionType.SetVarBounds || type == ActionType.SetVarType;
-
-        this.type = type;
-        this.coeff = 0.;
-        this.constr = null;
-        this.variable = variable;
     }
 
     /**
@@ -37,12 +42,44 @@ public class MPAction {
      * @param constr the constraint related to the action
      */
     protected MPAction(ActionType type, MPLinConstr constr) {
+        this(type, 0., constr, null, null, null, null, 0., 0., '?');
         assert type == ActionType.AddConstr || type == ActionType.DelConstr;
+    }
 
-        this.type = type;
-        this.coeff = 0.;
-        this.constr = constr;
-        this.variable = null;
+    /**
+     * Instantiates a new (batched) Action, related to several variables.
+     *
+     * @param type      the type of the action
+     * @param variables the variables related to the action
+     */
+    protected MPAction(ActionType type, MPVar variables[]) {
+        this(type, 0., null, null, null, variables, null, 0., 0., '?');
+        assert type == ActionType.AddVar;
+    }
+
+    /**
+     * Instantiates a new (batched) Action, related to several constraints.
+     *
+     * @param type    the type of the action
+     * @param constrs the constraints related to the action
+     */
+    protected MPAction(ActionType type, MPLinConstr constrs[]) {
+        this(type, 0., null, null, constrs, null, null, 0., 0., '?');
+        assert type == ActionType.AddConstr;
+    }
+
+    /**
+     * Instantiates a new (consolidated) deletion Action.
+     *
+     * @param type    the type of the action, i.e. ActionType.DelVar or
+     *                ActionType.DelConstr
+     * @param indices the (sorted) indices of the deleted variables or
+     *                constraints in the solver, i.e. before the compaction of
+     *                the model
+     */
+    protected MPAction(ActionType type, int indices[]) {
+        this(type, 0., null, null, null, null, indices, 0., 0., '?');
+        assert type == ActionType.DelConstr || type == ActionType.DelVar;
     }
 
     /**
@@ -54,14 +91,104 @@ public class MPAction {
      * @param variable the related variable (column)
      */
     protected MPAction(ActionType type, double coeff, MPLinConstr constr, MPVar variable) {
+        this(type, coeff, constr, variable, null, null, null, 0., 0., '?');
         assert type == ActionType.EditConstr;
+    }
 
+    /**
+     * Instantiates a new Action which changes the bounds of a variable.
+     *
+     * @param type     the type of the action, i.e. ActionType.SetVarBounds
+     * @param variable the variable related to the action
+     * @param prevLB   the lower bound of the variable before the action
+     * @param prevUB   the upper bound of the variable before the action
+     */
+    protected MPAction(ActionType type, MPVar variable, double prevLB, double prevUB) {
+        this(type, 0., null, variable, null, null, null, prevLB, prevUB, '?');
+        assert type == ActionType.SetVarBounds;
+    }
+
+    /**
+     * Instantiates a new Action which changes the type of a variable.
+     *
+     * @param type     the type of the action, i.e. ActionType.SetVarType
+     * @param variable the variable related to the action
+     * @param prevType the type of the variable before the action
+     */
+    protected MPAction(ActionType type, MPVar variable, char prevType) {
+        this(type, 0., null, variable, null, null, null, 0., 0., prevType);
+        assert type == ActionType.SetVarType;
+    }
+
+    private MPAction(ActionType type, double coeff, MPLinConstr constr, MPVar variable, MPLinConstr constrs[], MPVar variables[], int indices[], double prevLB, double prevUB, char prevType) {
         this.type = type;
         this.coeff = coeff;
         this.constr = constr;
         this.variable = variable;
+        this.constrs = constrs;
+        this.variables = variables;
+        this.indices = indices;
+        this.prevLB = prevLB;
+        this.prevUB = prevUB;
+        this.prevType = prevType;
+    }
+
+
+    /**
+     * Gets the (approximate) number of bytes used by this action, excluding
+     * the variables and constraints (which belong to the model).
+     *
+     * @return the number of bytes used by this action
+     */
+    public long getMemoryUsage() {
+        long bytes = MemorySizes.object(6 * MemorySizes.REFERENCE + 3 * 8 + 2);
+        if (constrs != null) bytes += MemorySizes.array(constrs.length, MemorySizes.REFERENCE);
+        if (variables != null) bytes += MemorySizes.array(variables.length, MemorySizes.REFERENCE);
+        if (indices != null) bytes += MemorySizes.array(indices.length, 4);
+        return bytes;
     }
 
+    /**
+     * Gets this action without the deleted variables and constraints, i.e. the
+     * action itself if it has no deleted element, a (batched) action with only
+     * the non-deleted elements, or null if the whole action is discarded.
+     *
+     * @return the action without the deleted variables and constraints
+     */
+    protected MPAction withoutDeleted() {
+        if (variable != null && variable.isDeleted() || constr != null && constr.isDeleted())
+            return null;
+
+        if (variables != null) {
+            int n = 0;
+            for (MPVar var : variables)
+                if (!var.isDeleted()) n++;
+            if (n == variables.length) return this;
+            if (n == 0) return null;
+
+            MPVar remaining[] = new MPVar[n];
+            n = 0;
+            for (MPVar var : variables)
+                if (!var.isDeleted()) remaining[n++] = var;
+            return new MPAction(type, remaining);
+        }
+
+        if (constrs != null) {
+            int n = 0;
+            for (MPLinConstr c : constrs)
+                if (!c.isDeleted()) n++;
+            if (n == constrs.length) return this;
+            if (n == 0) return null;
+
+            MPLinConstr remaining[] = new MPLinConstr[n];
+            n = 0;
+            for (MPLinConstr c : constrs)
+                if (!c.isDeleted()) remaining[n++] = c;
+            return new MPAction(type, remaining);
+        }
+
+        return this;
+    }
 
     /**
      * Enum with the possible action types.
@@ -0,0 +1,232 @@
+package jads.mp;
+
+import java.util.*;
+
+/**
+ * This class incrementally tracks the objective value and the activities of
+ * the constraints of a solution, over a snapshot of the model. Changing
+ * the value of a variable costs O(number of non-zero coefficients of the
+ * variable), using the compressed sparse column format of the matrix, so that
+ * local search moves and repair heuristics do not need a full evaluation of
+ * the solution (see {@link MPEvaluator}) per move.
+ * <p>
+ * The set of violated constraints is kept up to date, so that the
+ * feasibility of the solution (with respect to the constraints) is queried in
+ * constant time. Since activities are updated by differences, rounding errors
+ * may accumulate after many updates; {@link #refresh()} recomputes all values
+ * from scratch.
+ *
+ * @author Tulio Toffolo
+ */
+public class MPActivityTracker {
+
+    public final MPSnapshot model;
+    public final double tolerance;
+
+    private final double x[], activities[];
+    private double objValue;
+
+    // set of violated constraints, with the position of each one in the set
+    private final int violated[], position[];
+    private int nViolated = 0;
+
+
+    /**
+     * Instantiates a new Activity Tracker, with the default tolerance of
+     * {@link MPEvaluator}.
+     *
+     * @param model the snapshot of the model
+     * @param x     the initial values of the variables (by index), which are
+     *              copied
+     */
+    public MPActivityTracker(MPSnapshot model, double x[]) {
+        this(model, x, MPEvaluator.TOLERANCE);
+    }
+
+    /**
+     * Instantiates a new Activity Tracker.
+     *
+     * @param model     the snapshot of the model
+     * @param x         the initial values of the variables (by index), which
+     *                  are copied
+     * @param tolerance the tolerance for the violation of the constraints
+     */
+    public MPActivityTracker(MPSnapshot model, double x[], double tolerance) {
+        this.model = model;
+        this.tolerance = tolerance;
+        this.x = Arrays.copyOf(x, model.nVars);
+        this.activities = new double[model.nConstrs];
+        this.violated = new int[model.nConstrs];
+        this.position = new int[model.nConstrs];
+        refresh();
+    }
+
+    /**
+     * Instantiates a new Activity Tracker which is a copy of another one.
+     *
+     * @param tracker the tracker to be copied
+     */
+    public MPActivityTracker(MPActivityTracker tracker) {
+        this.model = tracker.model;
+        this.tolerance = tracker.tolerance;
+        this.x = tracker.x.clone();
+        this.activities = tracker.activities.clone();
+        this.objValue = tracker.objValue;
+        this.violated = tracker.violated.clone();
+        this.position = tracker.position.clone();
+        this.nViolated = tracker.nViolated;
+    }
+
+
+    /**
+     * Gets the activity of a constraint, i.e. the value of its left-hand side
+     * (without the constant, which is in the right-hand side).
+     *
+     * @param constr the index of the constraint
+     * @return the activity of the constraint
+     */
+    public double getActivity(int constr) {
+        return activities[constr];
+    }
+
+    /**
+     * Gets the difference in the objective value if a variable were set to a
+     * certain value.
+     *
+     * @param var   the index of the variable
+     * @param value the value
+     * @return the difference in the objective value
+     */
+    public double getDelta(int var, double value) {
+        return model.obj[var] * (value - x[var]);
+    }
+
+    /**
+     * Gets the number of violated constraints.
+     *
+     * @return the number of violated constraints
+     */
+    public int getNViolated() {
+        return nViolated;
+    }
+
+    /**
+     * Gets the (current) objective value.
+     *
+     * @return the objective value
+     */
+    public double getObjValue() {
+        return objValue;
+    }
+
+    /**
+     * Gets the value of a variable.
+     *
+     * @param var the index of the variable
+     * @return the value of the variable
+     */
+    public double getValue(int var) {
+        return x[var];
+    }
+
+    /**
+     * Gets the violation of a constraint, which is zero if the constraint is
+     * satisfied.
+     *
+     * @param constr the index of the constraint
+     * @return the violation of the constraint
+     */
+    public double getViolation(int constr) {
+        switch (model.senses[constr]) {
+            case MPLinConstr.LE:
+                return Math.max(0., activities[constr] - model.rhs[constr]);
+            case MPLinConstr.GE:
+                return Math.max(0., model.rhs[constr] - activities[constr]);
+            default:
+                return Math.abs(activities[constr] - model.rhs[constr]);
+        }
+    }
+
+    /**
+     * Gets the indices of the violated constraints (in no particular order).
+     *
+     * @return the indices of the violated constraints
+     */
+    public int[] getViolatedConstrs() {
+        return Arrays.copyOf(violated, nViolated);
+    }
+
+    /**
+     * Gets if all constraints are satisfied (within the tolerance). Bounds and
+     * integrality requirements are not considered.
+     *
+     * @return true if no constraint is violated and false otherwise
+     */
+    public boolean isFeasible() {
+        return nViolated == 0;
+    }
+
+    /**
+     * Recomputes the objective value, the activities and the set of violated
+     * constraints from scratch.
+     */
+    public void refresh() {
+        objValue = model.objConstant;
+        for (int j = 0; j < model.nVars; j++)
+            objValue += model.obj[j] * x[j];
+
+        nViolated = 0;
+        for (int r = 0; r < model.nConstrs; r++) {
+            double activity = 0.;
+            for (int i = model.rowStart[r]; i < model.rowStart[r + 1]; i++)
+                activity += model.rowValue[i] * x[model.rowIndex[i]];
+            activities[r] = activity;
+
+            position[r] = -1;
+            if (getViolation(r) > tolerance) {
+                position[r] = nViolated;
+                violated[nViolated++] = r;
+            }
+        }
+    }
+
+    /**
+     * Sets the value of a variable, updating the objective value, the
+     * activities of the constraints of the variable and the set of violated
+     * constraints.
+     *
+     * @param var   the index of the variable
+     * @param value the new value of the variable
+     */
+    public void setValue(int var, double value) {
+        double delta = value - x[var];
+        if (delta == 0.) return;
+
+        x[var] = value;
+        objValue += model.obj[var] * delta;
+        for (int i = model.colStart[var]; i < model.colStart[var + 1]; i++) {
+            int r = model.colIndex[i];
+            activities[r] += model.colValue[i] * delta;
+            updateViolated(r);
+        }
+    }
+
+
+    /**
+     * Adds a constraint to (or removes it from) the set of violated
+     * constraints, according to its activity.
+     */
+    private void updateViolated(int r) {
+        boolean isViolated = getViolation(r) > tolerance;
+        if (isViolated && position[r] < 0) {
+            position[r] = nViolated;
+            violated[nViolated++] = r;
+        }
+        else if (!isViolated && position[r] >= 0) {
+            int last = violated[--nViolated];
+            violated[position[r]] = last;
+            position[last] = position[r];
+            position[r] = -1;
+        }
+    }
+}
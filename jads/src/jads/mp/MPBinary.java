@@ -0,0 +1,266 @@
+package jads.mp;
+
+import jads.mp.util.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.function.*;
+
+/**
+ * This class writes and reads models in a compact binary format, which is
+ * loaded without any parsing: the arrays of the file are memory-mapped and
+ * copied (in bulk) to the model. Unlike the files written by {@link
+ * MPModel#save(Path)}, which store the internal structures of a model as they
+ * are, these files only store the data of the model, so that they are about
+ * three times smaller and may be exchanged between versions of the library.
+ * <p>
+ * A file (see {@link MappedFile}) contains a header (magic number, version of
+ * the format, name, direction and constant of the objective, dimensions and
+ * whether names are stored) and then the arrays: the constraint matrix in
+ * compressed sparse column format (column starts, row indices and values),
+ * the bounds, objective coefficients and types of the variables, the senses
+ * and right-hand sides of the constraints and, optionally, the pools of names
+ * of the variables and constraints (offsets and UTF-8 bytes). Each array is
+ * followed by its CRC-32 checksum. The names are read lazily (see {@link
+ * MPNames.Mode#Lazy}) from the mapped file.
+ *
+ * @author Tulio Toffolo
+ */
+public class MPBinary {
+
+    public static final String EXTENSION = ".mpb";
+
+    private static final int MAGIC = 0x4A4D5042, VERSION = 1;
+    private static final int PAGE = 1 << 24, NAMES_PAGE = 1 << 16;
+
+
+    private MPBinary() { }
+
+
+    /**
+     * Reads a model from a binary file, verifying the checksums of its arrays.
+     *
+     * @param path the path of the file
+     * @return the model
+     * @throws IOException if the file cannot be read, is not a binary model
+     *                     file or is corrupted
+     */
+    public static MPModel read(Path path) throws IOException {
+        return read(path, true);
+    }
+
+    /**
+     * Reads a model from a binary file.
+     *
+     * @param path   the path of the file
+     * @param verify true if the checksums of the arrays should be verified
+     *               (which reads the pools of names, otherwise only read when
+     *               the names are requested)
+     * @return the model
+     * @throws IOException if the file cannot be read, is not a binary model
+     *                     file or is corrupted
+     */
+    public static MPModel read(Path path, boolean verify) throws IOException {
+        try (MappedFile.Reader reader = new MappedFile.Reader(path)) {
+            if (reader.getInt() != MAGIC)
+                throw new IOException("not a binary model file: " + path);
+            int version = reader.getInt();
+            if (version > VERSION)
+                throw new IOException("unsupported version " + version + " of binary model file: " + path);
+
+            String name = reader.getString();
+            char direction = ( char ) reader.getInt();
+            double objConstant = reader.getDouble();
+            int nVars = reader.getInt(), nConstrs = reader.getInt(), nnz = reader.getInt();
+            boolean hasNames = reader.getInt() != 0;
+
+            int colStart[] = getInts(reader, nVars + 1, verify);
+            int colIndex[] = getInts(reader, nnz, verify);
+            double colValue[] = getDoubles(reader, nnz, verify);
+            double lb[] = getDoubles(reader, nVars, verify);
+            double ub[] = getDoubles(reader, nVars, verify);
+            double obj[] = getDoubles(reader, nVars, verify);
+            char types[] = getChars(reader, nVars, verify);
+            char senses[] = getChars(reader, nConstrs, verify);
+            double rhs[] = getDoubles(reader, nConstrs, verify);
+
+            IntFunction<String> varNames = null, constrNames = null;
+            if (hasNames) {
+                varNames = getNames(reader, nVars, verify);
+                constrNames = getNames(reader, nConstrs, verify);
+            }
+
+            // constraints are created empty, and filled by the columns
+            MPModel model = new MPModel(direction, name);
+            model.setNameMode(hasNames ? MPNames.Mode.Lazy : MPNames.Mode.None);
+            model.getObjective().setConstant(objConstant);
+            model.addConstrs(nConstrs, new int[nConstrs + 1], new int[0], new double[0], senses, rhs, constrNames);
+            model.addVars(nVars, lb, ub, obj, types, colStart, colIndex, colValue, varNames);
+            return model;
+        }
+    }
+
+    /**
+     * Writes a model to a binary file, from which it may be read by {@link
+     * #read(Path)}.
+     *
+     * @param model the model
+     * @param path  the path of the file
+     * @param names true if the names of the variables and constraints should be
+     *              written (if the model has names)
+     * @throws IOException if an I/O error occurs
+     */
+    public static void write(MPModel model, Path path, boolean names) throws IOException {
+        MPSnapshot snapshot = model.snapshot();
+        names &= model.hasNames();
+
+        try (MappedFile.Writer writer = new MappedFile.Writer(path)) {
+            writer.putInt(MAGIC);
+            writer.putInt(VERSION);
+            writer.putString(model.getName());
+            writer.putInt(snapshot.direction);
+            writer.putDouble(snapshot.objConstant);
+            writer.putInt(snapshot.nVars);
+            writer.putInt(snapshot.nConstrs);
+            writer.putInt(snapshot.nnz);
+            writer.putInt(names ? 1 : 0);
+
+            start(writer);
+            writer.putInts(snapshot.colStart, 0, snapshot.nVars + 1);
+            writer.putLong(writer.checksum());
+            start(writer);
+            writer.putInts(snapshot.colIndex, 0, snapshot.nnz);
+            writer.putLong(writer.checksum());
+            start(writer);
+            writer.putDoubles(snapshot.colValue, 0, snapshot.nnz);
+            writer.putLong(writer.checksum());
+
+            for (double values[] : new double[][]{ snapshot.lb, snapshot.ub, snapshot.obj }) {
+                start(writer);
+                writer.putDoubles(values, 0, snapshot.nVars);
+                writer.putLong(writer.checksum());
+            }
+            start(writer);
+            writer.putChars(snapshot.types, 0, snapshot.nVars);
+            writer.putLong(writer.checksum());
+
+            start(writer);
+            writer.putChars(snapshot.senses, 0, snapshot.nConstrs);
+            writer.putLong(writer.checksum());
+            start(writer);
+            writer.putDoubles(snapshot.rhs, 0, snapshot.nConstrs);
+            writer.putLong(writer.checksum());
+
+            if (names) {
+                putNames(writer, snapshot.nVars, j -> model.getVar(j).getName());
+                putNames(writer, snapshot.nConstrs, i -> model.getConstr(i).getName());
+            }
+        }
+    }
+
+
+    /**
+     * Maps the next array (of n elements) and verifies its checksum.
+     */
+    private static ByteBuffer[] map(MappedFile.Reader reader, long n, int elementSize, int pageSize, boolean verify) throws IOException {
+        reader.align();
+        ByteBuffer pages[] = reader.map(n, elementSize, pageSize);
+        long checksum = reader.getLong();
+        if (verify && MappedFile.checksum(pages) != checksum)
+            throw new IOException("corrupted binary model file (checksum mismatch)");
+        return pages;
+    }
+
+    private static char[] getChars(MappedFile.Reader reader, int n, boolean verify) throws IOException {
+        char values[] = new char[n];
+        int offset = 0;
+        for (ByteBuffer page : map(reader, n, 2, PAGE, verify)) {
+            CharBuffer buffer = page.asCharBuffer();
+            int length = buffer.remaining();
+            buffer.get(values, offset, length);
+            offset += length;
+        }
+        return values;
+    }
+
+    private static double[] getDoubles(MappedFile.Reader reader, int n, boolean verify) throws IOException {
+        double values[] = new double[n];
+        int offset = 0;
+        for (ByteBuffer page : map(reader, n, 8, PAGE, verify)) {
+            DoubleBuffer buffer = page.asDoubleBuffer();
+            int length = buffer.remaining();
+            buffer.get(values, offset, length);
+            offset += length;
+        }
+        return values;
+    }
+
+    private static int[] getInts(MappedFile.Reader reader, int n, boolean verify) throws IOException {
+        int values[] = new int[n];
+        int offset = 0;
+        for (ByteBuffer page : map(reader, n, 4, PAGE, verify)) {
+            IntBuffer buffer = page.asIntBuffer();
+            int length = buffer.remaining();
+            buffer.get(values, offset, length);
+            offset += length;
+        }
+        return values;
+    }
+
+    /**
+     * Maps the pool of names written by {@link #putNames(MappedFile.Writer,
+     * int, IntFunction)}, returning the function which reads the name of each
+     * element (on demand) from the mapped pool.
+     */
+    private static IntFunction<String> getNames(MappedFile.Reader reader, int n, boolean verify) throws IOException {
+        int offsets[] = getInts(reader, n + 1, verify);
+        ByteBuffer pool[] = map(reader, offsets[n], 1, NAMES_PAGE, verify);
+
+        return id -> {
+            int start = offsets[id], end = offsets[id + 1];
+            if (start == end) return null;
+
+            byte bytes[] = new byte[end - start];
+            for (int i = start; i < end; i++)
+                bytes[i - start] = pool[i / NAMES_PAGE].get(i % NAMES_PAGE);
+            return new String(bytes, StandardCharsets.UTF_8);
+        };
+    }
+
+    /**
+     * Writes the names of n elements: first the offsets of the names in the
+     * pool of (UTF-8) bytes, then the pool itself. Null (and empty) names are
+     * stored as empty.
+     */
+    private static void putNames(MappedFile.Writer writer, int n, IntFunction<String> names) throws IOException {
+        start(writer);
+        long offset = 0;
+        for (int id = 0; id < n; id++) {
+            writer.putInt(( int ) offset);
+            String name = names.apply(id);
+            if (name != null) offset += name.getBytes(StandardCharsets.UTF_8).length;
+            if (offset > Integer.MAX_VALUE) throw new IOException("names of the model are too long to be written");
+        }
+        writer.putInt(( int ) offset);
+        writer.putLong(writer.checksum());
+
+        start(writer);
+        for (int id = 0; id < n; id++) {
+            String name = names.apply(id);
+            if (name == null) continue;
+            byte bytes[] = name.getBytes(StandardCharsets.UTF_8);
+            writer.putBytes(bytes, 0, bytes.length);
+        }
+        writer.putLong(writer.checksum());
+    }
+
+    /**
+     * Starts an array, i.e. aligns the file and starts its checksum.
+     */
+    private static void start(MappedFile.Writer writer) throws IOException {
+        writer.align();
+        writer.checksum();
+    }
+}
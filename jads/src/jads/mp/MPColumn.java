@@ -1,9 +1,14 @@
 package jads.mp;
 
+import jads.mp.util.*;
+
 import java.util.*;
 
 /**
- * This class represents a Column.
+ * This class represents a Column, i.e. the coefficients of a new variable in
+ * existing constraints. It is only used as input when adding variables: once
+ * added, the coefficients are stored in the matrix of the model (see {@link
+ * MPMatrix}).
  *
  * @author Tulio Toffolo
  */
@@ -67,6 +72,18 @@ public class MPColumn extends LinkedHashMap<MPLinConstr, Double> implements Iter
 
     // endregion mirror methods for add
 
+    /**
+     * Gets the (approximate) number of bytes used by this Column, excluding
+     * the constraints (which belong to the model).
+     *
+     * @return the number of bytes used by this Column
+     */
+    public long getMemoryUsage() {
+        long bytes = MemorySizes.object(6 * MemorySizes.REFERENCE + 4 * 4 + 8 + 1);
+        bytes += MemorySizes.array(Math.max(16, Integer.highestOneBit(Math.max(1, size() * 4 / 3)) * 2), MemorySizes.REFERENCE);
+        return bytes + size() * (MemorySizes.LINKED_HASH_ENTRY + MemorySizes.object(8));
+    }
+
     @Override
     public Iterator<Map.Entry<MPLinConstr, Double>> iterator() {
         return entrySet().iterator();
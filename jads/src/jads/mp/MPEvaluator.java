@@ -0,0 +1,179 @@
+package jads.mp;
+
+import java.util.stream.*;
+
+/**
+ * This class evaluates solutions of a model without calling any solver: it
+ * computes the objective value, the activity of every constraint (a sparse
+ * matrix-vector product over the rows of a snapshot of the model), the
+ * violation of the constraints, bounds and integrality requirements and the
+ * list of violated constraints, in a single pass over the matrix. The rows may
+ * also be evaluated in parallel, by blocks.
+ * <p>
+ * An evaluator is immutable and may be shared by several threads.
+ *
+ * @author Tulio Toffolo
+ */
+public class MPEvaluator {
+
+    /**
+     * Default tolerance for the violation of constraints, bounds and
+     * integrality requirements.
+     */
+    public static final double TOLERANCE = 1e-6;
+
+    private static final int BLOCK_SIZE = 4096;
+
+    public final MPSnapshot model;
+    public final double tolerance;
+
+
+    /**
+     * Instantiates a new Evaluator, with the default tolerance.
+     *
+     * @param model the snapshot of the model
+     */
+    public MPEvaluator(MPSnapshot model) {
+        this(model, TOLERANCE);
+    }
+
+    /**
+     * Instantiates a new Evaluator.
+     *
+     * @param model     the snapshot of the model
+     * @param tolerance the tolerance for the violations
+     */
+    public MPEvaluator(MPSnapshot model, double tolerance) {
+        this.model = model;
+        this.tolerance = tolerance;
+    }
+
+
+    /**
+     * Evaluates a solution.
+     *
+     * @param x the values of the variables (by index)
+     * @return the evaluation of the solution
+     */
+    public Evaluation evaluate(double x[]) {
+        return evaluate(x, false);
+    }
+
+    /**
+     * Evaluates a solution, optionally computing the activities of the
+     * constraints in parallel (by blocks of rows).
+     *
+     * @param x        the values of the variables (by index)
+     * @param parallel true if the rows should be evaluated in parallel and
+     *                 false otherwise
+     * @return the evaluation of the solution
+     */
+    public Evaluation evaluate(double x[], boolean parallel) {
+        assert x.length >= model.nVars;
+
+        // objective, bounds and integrality
+        double objValue = model.objConstant, maxViolation = 0.;
+        for (int j = 0; j < model.nVars; j++) {
+            double value = x[j];
+            objValue += model.obj[j] * value;
+            maxViolation = Math.max(maxViolation, Math.max(model.lb[j] - value, value - model.ub[j]));
+            if (model.types[j] != MPVar.CONTINUOUS)
+                maxViolation = Math.max(maxViolation, Math.abs(value - Math.rint(value)));
+        }
+
+        // constraints
+        double activities[] = new double[model.nConstrs], violations[] = new double[model.nConstrs];
+        int nBlocks = (model.nConstrs + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        double blockViolation[] = new double[nBlocks];
+        IntStream blocks = IntStream.range(0, nBlocks);
+        (parallel ? blocks.parallel() : blocks).forEach(block -> {
+            int end = Math.min(model.nConstrs, (block + 1) * BLOCK_SIZE);
+            blockViolation[block] = evaluateRows(x, block * BLOCK_SIZE, end, activities, violations);
+        });
+
+        int nViolated = 0;
+        for (int block = 0; block < nBlocks; block++)
+            maxViolation = Math.max(maxViolation, blockViolation[block]);
+        for (int r = 0; r < model.nConstrs; r++)
+            if (violations[r] > tolerance) nViolated++;
+
+        int violatedConstrs[] = new int[nViolated];
+        for (int r = 0, k = 0; k < nViolated; r++)
+            if (violations[r] > tolerance) violatedConstrs[k++] = r;
+
+        return new Evaluation(objValue, activities, violations, violatedConstrs, maxViolation, maxViolation <= tolerance);
+    }
+
+    /**
+     * Gets if a solution is feasible, i.e. whether all its violations are
+     * within the tolerance.
+     *
+     * @param x the values of the variables (by index)
+     * @return true if the solution is feasible and false otherwise
+     */
+    public boolean isFeasible(double x[]) {
+        return evaluate(x).feasible;
+    }
+
+
+    /**
+     * Computes the activities and violations of the rows in [start, end),
+     * returning the maximum violation among them.
+     */
+    private double evaluateRows(double x[], int start, int end, double activities[], double violations[]) {
+        final int rowStart[] = model.rowStart, rowIndex[] = model.rowIndex;
+        final double rowValue[] = model.rowValue;
+
+        double maxViolation = 0.;
+        for (int r = start; r < end; r++) {
+            double activity = 0.;
+            for (int i = rowStart[r]; i < rowStart[r + 1]; i++)
+                activity += rowValue[i] * x[rowIndex[i]];
+
+            double violation;
+            switch (model.senses[r]) {
+                case MPLinConstr.LE:
+                    violation = activity - model.rhs[r];
+                    break;
+                case MPLinConstr.GE:
+                    violation = model.rhs[r] - activity;
+                    break;
+                default:
+                    violation = Math.abs(activity - model.rhs[r]);
+                    break;
+            }
+
+            activities[r] = activity;
+            violations[r] = Math.max(0., violation);
+            maxViolation = Math.max(maxViolation, violation);
+        }
+        return maxViolation;
+    }
+
+
+    /**
+     * This class represents the evaluation of a solution.
+     */
+    public static class Evaluation {
+
+        public final double objValue;
+        public final double activities[], violations[];
+        public final int violatedConstrs[];
+        public final double maxViolation;
+        public final boolean feasible;
+
+        private Evaluation(double objValue, double activities[], double violations[], int violatedConstrs[], double maxViolation, boolean feasible) {
+            this.objValue = objValue;
+            this.activities = activities;
+            this.violations = violations;
+            this.violatedConstrs = violatedConstrs;
+            this.maxViolation = maxViolation;
+            this.feasible = feasible;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("objective: %s, max violation: %g, violated constraints: %d", objValue, maxViolation, violatedConstrs.length);
+        }
+    }
+}
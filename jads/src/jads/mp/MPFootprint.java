@@ -0,0 +1,105 @@
+package jads.mp;
+
+import java.util.*;
+
+/**
+ * This class reports the (approximate) number of bytes retained by each
+ * component of a model: the data of the variables and constraints, the
+ * matrix, the handles of variables and constraints, the names, the custom
+ * coefficients, the pending actions and the undo log (see {@link
+ * MPModel#getFootprint()}).
+ * <p>
+ * The sizes are estimates for a 64-bit JVM with compressed references (see
+ * {@link jads.mp.util.MemorySizes}), computed from the capacities of the
+ * internal arrays and the number of entries of the internal maps, without
+ * traversing the heap. Pages shared (copy-on-write) with forks of the model
+ * are counted by every model which references them.
+ *
+ * @author Tulio Toffolo
+ */
+public class MPFootprint {
+
+    public final String name;
+    public final int nVars, nConstrs, nnz;
+
+    private final LinkedHashMap<String, Long> components = new LinkedHashMap<String, Long>();
+
+
+    /**
+     * Instantiates a new (empty) Footprint of a model.
+     *
+     * @param model the model
+     */
+    protected MPFootprint(MPModel model) {
+        this.name = model.getName();
+        this.nVars = model.getNVars();
+        this.nConstrs = model.getNConstrs();
+        this.nnz = model.getMatrix().getNNZ();
+    }
+
+
+    /**
+     * Gets the number of bytes of a component.
+     *
+     * @param component the name of the component
+     * @return the number of bytes of the component or 0 if there is no such
+     * component
+     */
+    public long getBytes(String component) {
+        return components.getOrDefault(component, 0L);
+    }
+
+    /**
+     * Gets the number of bytes (of the whole model) per non-zero coefficient
+     * of the matrix.
+     *
+     * @return the number of bytes per non-zero coefficient
+     */
+    public double getBytesPerNonzero() {
+        return nnz > 0 ? ( double ) getTotal() / nnz : Double.NaN;
+    }
+
+    /**
+     * Gets the (unmodifiable) map from the names of the components to their
+     * number of bytes, in the order in which they are reported.
+     *
+     * @return the map from the components to their number of bytes
+     */
+    public Map<String, Long> getComponents() {
+        return Collections.unmodifiableMap(components);
+    }
+
+    /**
+     * Gets the total number of bytes of the model.
+     *
+     * @return the total number of bytes of the model
+     */
+    public long getTotal() {
+        long total = 0;
+        for (long bytes : components.values())
+            total += bytes;
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        long total = getTotal();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Memory footprint of model %s (%d variables, %d constraints, %d non-zeros):\n", name, nVars, nConstrs, nnz));
+        for (Map.Entry<String, Long> entry : components.entrySet())
+            sb.append(String.format("    %-20s: %,15d bytes (%5.1f%%)\n", entry.getKey(), entry.getValue(), total > 0 ? 100. * entry.getValue() / total : 0.));
+        sb.append(String.format("    %-20s: %,15d bytes (%.1f bytes per non-zero)\n", "total", total, getBytesPerNonzero()));
+        return sb.toString();
+    }
+
+
+    /**
+     * Adds bytes to a component.
+     *
+     * @param component the name of the component
+     * @param bytes     the number of bytes
+     */
+    protected void add(String component, long bytes) {
+        components.merge(component, bytes, Long::sum);
+    }
+}
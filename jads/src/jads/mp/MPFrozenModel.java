@@ -0,0 +1,373 @@
+package jads.mp;
+
+/**
+ * This class represents an immutable (frozen) view of a model, which may be
+ * shared by several threads (solvers, feasibility checkers, pricing workers,
+ * etc.) without any synchronization. The view stores the bounds, types and
+ * objective coefficients of the variables, the constraints, the matrix in
+ * both compressed sparse row and column formats and the names of the
+ * variables and constraints, indexed in compact storages (see
+ * {@link MPNames.Mode#Compact}).
+ * <p>
+ * All data is computed when the view is created, and all fields are final,
+ * so that the view is safely published to other threads. The arrays are only
+ * accessible (by reference) within this package; other classes read them
+ * through the accessors of the view, which are small enough to be inlined in
+ * hot loops. Changes performed in the model after the view is created are not
+ * reflected in it. If the arrays themselves are needed (e.g. to be passed to
+ * the bulk API of a solver), a (mutable) snapshot should be taken instead
+ * (see {@link MPModel#snapshot()}).
+ *
+ * @author Tulio Toffolo
+ */
+public class MPFrozenModel {
+
+    public final String name;
+
+    // the arrays below are package-private, so that they may not be modified
+    // outside this package; classes of this package must only read them
+
+    final int nVars, nConstrs, nnz;
+
+    // variables and objective function
+    final double lb[], ub[], obj[];
+    final char types[];
+    final double objConstant;
+    final char direction;
+
+    // constraints
+    final char senses[];
+    final double rhs[];
+
+    // matrix in compressed sparse row format (rowIndex stores column indices)
+    final int rowStart[], rowIndex[];
+    final double rowValue[];
+
+    // matrix in compressed sparse column format (colIndex stores row indices)
+    final int colStart[], colIndex[];
+    final double colValue[];
+
+    // names of the variables and constraints (null if names are not stored)
+    private final MPNames varNames, constrNames;
+
+
+    /**
+     * Instantiates a new Frozen Model, i.e. an immutable view of a model.
+     *
+     * @param model the model
+     */
+    protected MPFrozenModel(MPModel model) {
+        // the arrays of a (private) snapshot are owned by the view
+        MPSnapshot snapshot = new MPSnapshot(model);
+        this.name = model.getName();
+
+        nVars = snapshot.nVars;
+        nConstrs = snapshot.nConstrs;
+        nnz = snapshot.nnz;
+        lb = snapshot.lb;
+        ub = snapshot.ub;
+        obj = snapshot.obj;
+        types = snapshot.types;
+        objConstant = snapshot.objConstant;
+        direction = snapshot.direction;
+        senses = snapshot.senses;
+        rhs = snapshot.rhs;
+        rowStart = snapshot.rowStart;
+        rowIndex = snapshot.rowIndex;
+        rowValue = snapshot.rowValue;
+        colStart = snapshot.colStart;
+        colIndex = snapshot.colIndex;
+        colValue = snapshot.colValue;
+
+        // the names are copied (by index) to compact storages, whose lookups
+        // only read the pool and the index, so that they may be shared
+        if (model.hasNames()) {
+            varNames = new MPNames(MPNames.Mode.Compact);
+            varNames.addRange(0, nVars, j -> model.getVar(j).getName());
+            constrNames = new MPNames(MPNames.Mode.Compact);
+            constrNames.addRange(0, nConstrs, r -> model.getConstr(r).getName());
+        }
+        else {
+            varNames = constrNames = null;
+        }
+    }
+
+
+    /**
+     * Gets the index of the constraint with a certain name.
+     *
+     * @param constrName the name of the constraint
+     * @return the index of the constraint with the name or -1 if there is no
+     * such constraint
+     * @throws UnsupportedOperationException if names are not stored
+     */
+    public int findConstr(String constrName) {
+        if (constrNames == null)
+            throw new UnsupportedOperationException("names are not stored in this model; elements may only be accessed by their indices");
+        return constrNames.find(constrName);
+    }
+
+    /**
+     * Gets the index of the variable with a certain name.
+     *
+     * @param varName the name of the variable
+     * @return the index of the variable with the name or -1 if there is no
+     * such variable
+     * @throws UnsupportedOperationException if names are not stored
+     */
+    public int findVar(String varName) {
+        if (varNames == null)
+            throw new UnsupportedOperationException("names are not stored in this model; elements may only be accessed by their indices");
+        return varNames.find(varName);
+    }
+
+    /**
+     * Gets the constraint of the i-th non-zero coefficient of the matrix in
+     * compressed sparse column format.
+     *
+     * @param i the position of the coefficient
+     * @return the index of the constraint of the coefficient
+     */
+    public int getColIndex(int i) {
+        return colIndex[i];
+    }
+
+    /**
+     * Gets the number of non-zero coefficients of a column (variable).
+     *
+     * @param var the index of the variable
+     * @return the number of non-zero coefficients of the variable
+     */
+    public int getColSize(int var) {
+        return colStart[var + 1] - colStart[var];
+    }
+
+    /**
+     * Gets the position of the first non-zero coefficient of a column
+     * (variable) in the compressed sparse column format; the coefficients of
+     * the variable are in positions [getColStart(var), getColStart(var + 1)).
+     *
+     * @param var the index of the variable (or the number of variables)
+     * @return the position of the first coefficient of the variable
+     */
+    public int getColStart(int var) {
+        return colStart[var];
+    }
+
+    /**
+     * Gets the value of the i-th non-zero coefficient of the columns.
+     *
+     * @param i the position of the coefficient
+     * @return the value of the coefficient
+     */
+    public double getColValue(int i) {
+        return colValue[i];
+    }
+
+    /**
+     * Gets the name of a constraint.
+     *
+     * @param constr the index of the constraint
+     * @return the name of the constraint, or null if names are not stored
+     */
+    public String getConstrName(int constr) {
+        return constrNames != null ? constrNames.get(constr) : null;
+    }
+
+    /**
+     * Gets the direction of the objective function.
+     *
+     * @return the direction of the objective function
+     */
+    public char getDirection() {
+        return direction;
+    }
+
+    /**
+     * Gets the lower bound of a variable.
+     *
+     * @param var the index of the variable
+     * @return the lower bound of the variable
+     */
+    public double getLB(int var) {
+        return lb[var];
+    }
+
+    /**
+     * Gets the number of constraints.
+     *
+     * @return the number of constraints
+     */
+    public int getNConstrs() {
+        return nConstrs;
+    }
+
+    /**
+     * Gets the number of non-zero coefficients of the matrix.
+     *
+     * @return the number of non-zero coefficients
+     */
+    public int getNNZ() {
+        return nnz;
+    }
+
+    /**
+     * Gets the number of variables.
+     *
+     * @return the number of variables
+     */
+    public int getNVars() {
+        return nVars;
+    }
+
+    /**
+     * Gets the coefficient of a variable in the objective function.
+     *
+     * @param var the index of the variable
+     * @return the coefficient of the variable in the objective function
+     */
+    public double getObj(int var) {
+        return obj[var];
+    }
+
+    /**
+     * Gets the constant of the objective function.
+     *
+     * @return the constant of the objective function
+     */
+    public double getObjConstant() {
+        return objConstant;
+    }
+
+    /**
+     * Gets the value of the objective function for a solution.
+     *
+     * @param x the values of the variables (by index)
+     * @return the value of the objective function
+     */
+    public double getObjValue(double x[]) {
+        double value = objConstant;
+        for (int j = 0; j < nVars; j++)
+            value += obj[j] * x[j];
+        return value;
+    }
+
+    /**
+     * Gets the right-hand side of a constraint (with the constant of the
+     * constraint moved to it).
+     *
+     * @param constr the index of the constraint
+     * @return the right-hand side of the constraint
+     */
+    public double getRhs(int constr) {
+        return rhs[constr];
+    }
+
+    /**
+     * Gets the activity of a constraint for a solution, i.e. the value of its
+     * left-hand side (without the constant, which is in the right-hand side).
+     *
+     * @param constr the index of the constraint
+     * @param x      the values of the variables (by index)
+     * @return the activity of the constraint
+     */
+    public double getRowActivity(int constr, double x[]) {
+        double activity = 0.;
+        for (int i = rowStart[constr]; i < rowStart[constr + 1]; i++)
+            activity += rowValue[i] * x[rowIndex[i]];
+        return activity;
+    }
+
+    /**
+     * Gets the variable of the i-th non-zero coefficient of the matrix in
+     * compressed sparse row format.
+     *
+     * @param i the position of the coefficient
+     * @return the index of the variable of the coefficient
+     */
+    public int getRowIndex(int i) {
+        return rowIndex[i];
+    }
+
+    /**
+     * Gets the number of non-zero coefficients of a row (constraint).
+     *
+     * @param constr the index of the constraint
+     * @return the number of non-zero coefficients of the constraint
+     */
+    public int getRowSize(int constr) {
+        return rowStart[constr + 1] - rowStart[constr];
+    }
+
+    /**
+     * Gets the position of the first non-zero coefficient of a row
+     * (constraint) in the compressed sparse row format; the coefficients of
+     * the constraint are in positions [getRowStart(constr),
+     * getRowStart(constr + 1)).
+     *
+     * @param constr the index of the constraint (or the number of constraints)
+     * @return the position of the first coefficient of the constraint
+     */
+    public int getRowStart(int constr) {
+        return rowStart[constr];
+    }
+
+    /**
+     * Gets the value of the i-th non-zero coefficient of the rows.
+     *
+     * @param i the position of the coefficient
+     * @return the value of the coefficient
+     */
+    public double getRowValue(int i) {
+        return rowValue[i];
+    }
+
+    /**
+     * Gets the sense of a constraint.
+     *
+     * @param constr the index of the constraint
+     * @return the sense of the constraint
+     */
+    public char getSense(int constr) {
+        return senses[constr];
+    }
+
+    /**
+     * Gets the type of a variable.
+     *
+     * @param var the index of the variable
+     * @return the type of the variable
+     */
+    public char getType(int var) {
+        return types[var];
+    }
+
+    /**
+     * Gets the upper bound of a variable.
+     *
+     * @param var the index of the variable
+     * @return the upper bound of the variable
+     */
+    public double getUB(int var) {
+        return ub[var];
+    }
+
+    /**
+     * Gets the name of a variable.
+     *
+     * @param var the index of the variable
+     * @return the name of the variable, or null if names are not stored
+     */
+    public String getVarName(int var) {
+        return varNames != null ? varNames.get(var) : null;
+    }
+
+    /**
+     * Gets if the names of variables and constraints are stored.
+     *
+     * @return true if names are stored and false otherwise
+     */
+    public boolean hasNames() {
+        return varNames != null;
+    }
+}
@@ -1,5 +1,7 @@
 package jads.mp;
 
+import jads.mp.util.*;
+
 import java.util.*;
 
 /**
@@ -11,86 +13,133 @@ public class MPLinConstr extends MPLinExpr implements Comparable<MPLinConstr>, M
 
     public static final char LE = '<', EQ = '=', GE = '>';
 
-    private final String name;
-    protected int index = -1;
-    private char sense = '?';
+    public final MPModel model;
+    protected final int row;
 
 
     /**
-     * Instantiates a new Linear Constraint.
+     * Instantiates a new Linear Constraint, i.e. a (lightweight) handle to a
+     * row of the model. The coefficients of the constraint are stored in the
+     * (shared) matrix of the model, and its constant and sense in the model.
      *
-     * @param model the model to add the constraint to
-     * @param index the index of the constraint
-     * @param lhs   the expression of the left-hand size of the constraint
-     * @param sense the sense of the constraint ('&lt;', '&gt;' or '=')
-     * @param name  the name of the constraint
+     * @param model the model of the constraint
+     * @param row   the position of the row of the constraint in the model
      */
-    protected MPLinConstr(MPModel model, int index, MPLinExpr lhs, char sense, String name) {
-        super(lhs);
-        assert sense == LE || sense == EQ || sense == GE : "invalid sense for constraint " + name;
+    protected MPLinConstr(MPModel model, int row) {
+        this.model = model;
+        this.row = row;
+    }
 
-        //this.model = model;
-        this.index = index;
-        this.sense = sense;
-        this.name = name;
 
-        for (Map.Entry<MPVar, Double> entry : coeffs())
-            entry.getKey().setCoeff(this, entry.getValue());
+    @Override
+    public Iterable<Map.Entry<MPVar, Double>> coeffs() {
+        return model.getMatrix().rowEntries(row);
     }
 
-    /**
-     * Instantiates a new Linear Constraint.
-     *
-     * @param model the model to add the constraint to
-     * @param index the index of the constraint
-     * @param lhs   the expression of the left-hand size of the constraint
-     * @param sense the sense of the constraint ('&lt;', '&gt;' or '=')
-     * @param rhs   the expression of the right-hand size of the constraint
-     * @param name  the name of the constraint
-     */
-    protected MPLinConstr(MPModel model, int index, MPLinExpr lhs, char sense, MPLinExpr rhs, String name) {
-        super(lhs);
-        addExpr(rhs, -1);
-        assert sense == LE || sense == EQ || sense == GE : "invalid sense for constraint " + name;
-
-        //this.model = model;
-        this.index = index;
-        this.sense = sense;
-        this.name = name;
+    @Override
+    public void forEachTerm(TermConsumer consumer) {
+        model.getMatrix().forEachInRow(row, consumer);
+    }
 
-        for (Map.Entry<MPVar, Double> entry : coeffs())
-            entry.getKey().setCoeff(this, entry.getValue());
+    @Override
+    public double getCoeff(MPVar variable) {
+        return model.getMatrix().get(row, variable.col);
     }
 
+    @Override
+    public double getConstant() {
+        return model.constrConstant.get(row);
+    }
 
     @Override
     public int getIndex() {
-        return index;
+        if (model.nDeletedConstrs > 0) model.compact();
+        return model.constrIndex.get(row);
     }
 
     @Override
     public String getName() {
-        return name;
+        return model.constrNames.get(row);
+    }
+
+    @Override
+    public int getNTerms() {
+        return model.getMatrix().getRowSize(row);
     }
 
     @Override
     public char getSense() {
-        return sense;
+        return model.constrSense.get(row);
+    }
+
+    @Override
+    public boolean hasVar(MPVar variable) {
+        return getCoeff(variable) != 0.;
+    }
+
+    /**
+     * Gets if this constraint was deleted from the model.
+     *
+     * @return true if the constraint was deleted and false otherwise
+     */
+    public boolean isDeleted() {
+        return model.constrIndex.get(row) < 0;
+    }
+
+    @Override
+    public MPLinExpr addConstant(double constant) {
+        model.constrConstant.set(row, getConstant() + constant);
+        return this;
+    }
+
+    @Override
+    public MPLinExpr addTerm(MPVar variable, double coeff) {
+        if (coeff != 0.)
+            setCoeff(variable, getCoeff(variable) + coeff);
+        return this;
     }
 
     @Override
     public int compareTo(MPLinConstr constr) {
-        return Integer.compare(index, constr.index);
+        return Integer.compare(model.constrIndex.get(row), constr.model.constrIndex.get(constr.row));
     }
 
     @Override
     public int hashCode() {
-        return name.hashCode();
+        return row;
     }
 
+    @Override
+    public void setConstant(double constant) {
+        model.constrConstant.set(row, constant);
+    }
+
+    /**
+     * Sets the coefficient of a variable in this constraint. If the model has
+     * a solver, the change is sent to it (as an EditConstr action) in the next
+     * update of the solver.
+     *
+     * @param variable the variable
+     * @param coeff    the new coefficient value
+     */
     @Override
     public void setCoeff(MPVar variable, double coeff) {
-        super.setCoeff(variable, coeff);
-        variable.setCoeff(this, coeff);
+        assert variable.model == model : "variable " + variable.getName() + " belongs to another model";
+        if (Math.abs(coeff) < MPModel.EPS) coeff = 0.;
+        model.getMatrix().set(row, variable.col, coeff);
+        model.addAction(new MPAction(MPAction.ActionType.EditConstr, coeff, this, variable));
+    }
+
+
+    @Override
+    public long getMemoryUsage() {
+        // the coefficients are stored in the matrix of the model
+        return super.getMemoryUsage() + MemorySizes.REFERENCE + 4;
+    }
+
+    @Override
+    protected void clear() {
+        setConstant(0.);
+        model.getMatrix().clearRow(row);
     }
 }
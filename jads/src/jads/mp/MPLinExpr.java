@@ -1,17 +1,36 @@
 package jads.mp;
 
+import jads.mp.util.*;
+
 import java.util.*;
 
 /**
  * This class represents a Linear Expression, used mainly to express Linear
  * Constraints.
+ * <p>
+ * The terms are stored in parallel (primitive) arrays of variables and
+ * coefficients. New terms are simply appended, and the arrays are lazily
+ * sorted and merged, i.e. duplicated variables are summed and zero
+ * coefficients are dropped, only when the expression is read. Terms are sorted
+ * by the column of the variable in the matrix of its model, which (unlike the
+ * index) never changes.
  *
  * @author Tulio Toffolo
  */
 public class MPLinExpr {
 
+    private static final MPVar EMPTY_VARS[] = new MPVar[0];
+    private static final double EMPTY_COEFFS[] = new double[0];
+
     private double constant = 0.;
-    private Map<MPVar, Double> coeffs = new LinkedHashMap<MPVar, Double>();
+
+    private MPVar vars[] = EMPTY_VARS;
+    private double coeffs[] = EMPTY_COEFFS;
+    private int size = 0;
+
+    // terms [0, sorted) are sorted by column and have no duplicates
+    private int sorted = 0;
+    private boolean hasZeros = false;
 
 
     /**
@@ -61,32 +80,24 @@ public class MPLinExpr {
 
     /**
      * Instantiates a new Linear Expression with an array of variables (and
-     * their coefficients).
+     * their coefficients). Coefficients of repeated variables are summed.
      *
      * @param coeffs    the coefficients of the variables
      * @param variables the array of variables
      */
     public MPLinExpr(double coeffs[], MPVar variables[]) {
-        assert variables.length == coeffs.length;
-
-        for (int i = 0; i < variables.length; i++) {
-            setCoeff(variables[i], coeffs[i]);
-        }
+        addTerms(variables, coeffs);
     }
 
     /**
      * Instantiates a new Linear Expression with an array of variables (and
-     * their coefficients).
+     * their coefficients). Coefficients of repeated variables are summed.
      *
      * @param variables the array of variables
      * @param coeffs    the coefficients of the variables
      */
     public MPLinExpr(MPVar variables[], double coeffs[]) {
-        assert variables.length == coeffs.length;
-
-        for (int i = 0; i < variables.length; i++) {
-            setCoeff(variables[i], coeffs[i]);
-        }
+        addTerms(variables, coeffs);
     }
 
     /**
@@ -96,8 +107,7 @@ public class MPLinExpr {
      * @param linearExpr the Linear Expression to be copied
      */
     public MPLinExpr(MPLinExpr linearExpr) {
-        this.constant = linearExpr.constant;
-        this.coeffs.putAll(linearExpr.coeffs);
+        this(linearExpr, 0.);
     }
 
     /**
@@ -108,8 +118,17 @@ public class MPLinExpr {
      * @param constant   constant to add to the Linear Expression
      */
     public MPLinExpr(MPLinExpr linearExpr, double constant) {
-        this.constant = linearExpr.constant + constant;
-        this.coeffs.putAll(linearExpr.coeffs);
+        this.constant = linearExpr.getConstant() + constant;
+        if (linearExpr.getClass() == MPLinExpr.class) {
+            linearExpr.normalize();
+            this.vars = Arrays.copyOf(linearExpr.vars, linearExpr.size);
+            this.coeffs = Arrays.copyOf(linearExpr.coeffs, linearExpr.size);
+            this.size = this.sorted = linearExpr.size;
+        }
+        else {
+            for (Map.Entry<MPVar, Double> entry : linearExpr.coeffs())
+                append(entry.getKey(), entry.getValue());
+        }
     }
 
 
@@ -121,7 +140,40 @@ public class MPLinExpr {
      * coefficients) in this Linear Expression.
      */
     public Iterable<Map.Entry<MPVar, Double>> coeffs() {
-        return coeffs.entrySet();
+        normalize();
+        return () -> new Iterator<Map.Entry<MPVar, Double>>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Map.Entry<MPVar, Double> next() {
+                if (next >= size) throw new NoSuchElementException();
+                Map.Entry<MPVar, Double> entry = new AbstractMap.SimpleImmutableEntry<>(vars[next], coeffs[next]);
+                next++;
+                return entry;
+            }
+        };
+    }
+
+    /**
+     * Calls the consumer for each non-zero variable (and its coefficient) in
+     * this Linear Expression, without boxing the coefficients.
+     *
+     * @param consumer the consumer of the terms
+     */
+    public void forEachTerm(TermConsumer consumer) {
+        normalize();
+
+        // local copies allow the consumer to add terms to this same expression
+        MPVar vars[] = this.vars;
+        double coeffs[] = this.coeffs;
+        int size = this.size;
+        for (int i = 0; i < size; i++)
+            consumer.accept(vars[i], coeffs[i]);
     }
 
     /**
@@ -146,25 +198,42 @@ public class MPLinExpr {
     public MPLinExpr addExpr(MPLinExpr linearExpr, double multiplier) {
         if (Math.abs(multiplier) < MPModel.EPS) return this;
 
-        for (Map.Entry<MPVar, Double> entry : linearExpr.coeffs())
-            addTerm(entry.getKey(), multiplier * entry.getValue());
+        linearExpr.forEachTerm((var, coeff) -> addTerm(var, multiplier * coeff));
         addConstant(multiplier * linearExpr.getConstant());
         return this;
     }
 
     /**
-     * Adds a term (variable and coefficient) to this Linear Expression.
+     * Adds a term (variable and coefficient) to this Linear Expression. The
+     * term is appended in constant time; repeated variables are only merged
+     * when the expression is read.
      *
      * @param variable the variable to be added
      * @param coeff    the coefficient of the variable
      * @return this (updated) Linear Expression
      */
     public MPLinExpr addTerm(MPVar variable, double coeff) {
-        Double currentCoeff = coeffs.get(variable);
-        if (currentCoeff != null)
-            coeff += currentCoeff;
+        assert variable != null : "null variables are invalid keys";
 
-        setCoeff(variable, coeff);
+        if (coeff != 0.)
+            append(variable, coeff);
+        return this;
+    }
+
+    /**
+     * Adds several terms (variables and coefficients) to this Linear
+     * Expression.
+     *
+     * @param variables the variables to be added
+     * @param coeffs    the coefficients of the variables
+     * @return this (updated) Linear Expression
+     */
+    public MPLinExpr addTerms(MPVar variables[], double coeffs[]) {
+        assert variables.length == coeffs.length;
+
+        ensureCapacity(size + variables.length);
+        for (int i = 0; i < variables.length; i++)
+            addTerm(variables[i], coeffs[i]);
         return this;
     }
 
@@ -182,6 +251,18 @@ public class MPLinExpr {
         return addTerm(variable, coeff);
     }
 
+    /**
+     * Adds several terms (variables and coefficients) to this Linear
+     * Expression.
+     *
+     * @param coeffs    the coefficients of the variables
+     * @param variables the variables to be added
+     * @return this (updated) Linear Expression
+     */
+    public MPLinExpr addTerms(double coeffs[], MPVar variables[]) {
+        return addTerms(variables, coeffs);
+    }
+
     /**
      * Adds a Linear Expression to this Linear Expression.
      *
@@ -204,10 +285,9 @@ public class MPLinExpr {
      * @return the coefficient of the variable passed as argument
      */
     public double getCoeff(MPVar variable) {
-        Double coeff = coeffs.get(variable);
-        if (coeff != null)
-            return coeff;
-        return 0.;
+        if (sorted < size) normalize();
+        int pos = find(variable);
+        return pos >= 0 ? coeffs[pos] : 0.;
     }
 
     /**
@@ -219,6 +299,29 @@ public class MPLinExpr {
         return constant;
     }
 
+    /**
+     * Gets the number of non-zero terms in this Linear Expression.
+     *
+     * @return the number of non-zero terms in this Linear Expression
+     */
+    public int getNTerms() {
+        normalize();
+        return size;
+    }
+
+    /**
+     * Gets the (approximate) number of bytes used by this Linear Expression,
+     * excluding the variables (which belong to the model).
+     *
+     * @return the number of bytes used by this Linear Expression
+     */
+    public long getMemoryUsage() {
+        long bytes = MemorySizes.object(8 + 2 * MemorySizes.REFERENCE + 4 + 4 + 1);
+        if (vars != EMPTY_VARS) bytes += MemorySizes.array(vars.length, MemorySizes.REFERENCE);
+        if (coeffs != EMPTY_COEFFS) bytes += MemorySizes.array(coeffs.length, 8);
+        return bytes;
+    }
+
     /**
      * Returns true if all coefficients in this Linear Expression are zero and
      * false otherwise.
@@ -227,7 +330,7 @@ public class MPLinExpr {
      * false otherwise.
      */
     public boolean isEmpty() {
-        return coeffs.isEmpty();
+        return getNTerms() == 0;
     }
 
     /**
@@ -247,7 +350,8 @@ public class MPLinExpr {
      * is not zero, and false otherwise.
      */
     public boolean hasVar(MPVar variable) {
-        return coeffs.containsKey(variable);
+        if (sorted < size) normalize();
+        return find(variable) >= 0;
     }
 
     /**
@@ -270,10 +374,15 @@ public class MPLinExpr {
     public void setCoeff(MPVar variable, double value) {
         assert variable != null : "null variables are invalid keys";
 
-        if (Math.abs(value) < MPModel.EPS && coeffs.containsKey(variable))
-            coeffs.remove(variable);
-        else if (Math.abs(value) >= MPModel.EPS)
-            coeffs.put(variable, value);
+        if (sorted < size) normalize();
+        int pos = find(variable);
+        if (pos >= 0) {
+            coeffs[pos] = Math.abs(value) < MPModel.EPS ? 0. : value;
+            hasZeros |= coeffs[pos] == 0.;
+        }
+        else if (Math.abs(value) >= MPModel.EPS) {
+            append(variable, value);
+        }
     }
 
 
@@ -282,6 +391,146 @@ public class MPLinExpr {
      */
     protected void clear() {
         constant = 0.;
-        coeffs.clear();
+        vars = EMPTY_VARS;
+        coeffs = EMPTY_COEFFS;
+        size = sorted = 0;
+        hasZeros = false;
+    }
+
+
+    /**
+     * Appends a term to the arrays, without checking for duplicates.
+     */
+    private void append(MPVar variable, double coeff) {
+        if (size == vars.length)
+            ensureCapacity(Math.max(4, size + (size >> 1)));
+
+        // the sorted prefix is extended whenever possible
+        if (sorted == size && (size == 0 || vars[size - 1].col < variable.col))
+            sorted++;
+
+        vars[size] = variable;
+        coeffs[size] = coeff;
+        size++;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > vars.length) {
+            vars = Arrays.copyOf(vars, capacity);
+            coeffs = Arrays.copyOf(coeffs, capacity);
+        }
+    }
+
+    /**
+     * Gets the position of a variable in the (normalized) arrays, or -1 if it
+     * is not in the expression.
+     */
+    private int find(MPVar variable) {
+        int low = 0, high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int key = vars[mid].col;
+            if (key < variable.col) low = mid + 1;
+            else if (key > variable.col) high = mid - 1;
+            else {
+                // checking identity (variables of different models may share a column)
+                for (int i = mid; i >= 0 && vars[i].col == key; i--)
+                    if (vars[i] == variable) return coeffs[i] != 0. ? i : -1;
+                for (int i = mid + 1; i < size && vars[i].col == key; i++)
+                    if (vars[i] == variable) return coeffs[i] != 0. ? i : -1;
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sorts and merges the appended terms and drops zero coefficients, so that
+     * all terms are sorted by variable column and have no duplicates.
+     */
+    private void normalize() {
+        if (sorted == size && !hasZeros) return;
+
+        // sorting the (unsorted) tail
+        sort(vars, coeffs, sorted, size);
+
+        // merging the sorted prefix with the tail, summing repeated variables
+        MPVar newVars[] = new MPVar[size];
+        double newCoeffs[] = new double[size];
+        int n = 0, i = 0, j = sorted;
+        while (i < sorted || j < size) {
+            int k = j >= size || (i < sorted && vars[i].col <= vars[j].col) ? i++ : j++;
+            if (n > 0 && newVars[n - 1] == vars[k]) {
+                newCoeffs[n - 1] += coeffs[k];
+            }
+            else {
+                if (n > 0 && Math.abs(newCoeffs[n - 1]) < MPModel.EPS) n--;
+                newVars[n] = vars[k];
+                newCoeffs[n] = coeffs[k];
+                n++;
+            }
+        }
+        if (n > 0 && Math.abs(newCoeffs[n - 1]) < MPModel.EPS) n--;
+
+        vars = newVars;
+        coeffs = newCoeffs;
+        size = sorted = n;
+        hasZeros = false;
+    }
+
+    /**
+     * Sorts (quicksort) the range [from, to) of the parallel arrays by
+     * variable column.
+     */
+    private static void sort(MPVar vars[], double coeffs[], int from, int to) {
+        while (to - from > 16) {
+            int pivot = vars[(from + to) >>> 1].col;
+            int i = from, j = to - 1;
+            while (i <= j) {
+                while (vars[i].col < pivot) i++;
+                while (vars[j].col > pivot) j--;
+                if (i <= j) swap(vars, coeffs, i++, j--);
+            }
+            // recursion on the smaller part, loop on the larger one
+            if (j - from < to - i) {
+                sort(vars, coeffs, from, j + 1);
+                from = i;
+            }
+            else {
+                sort(vars, coeffs, i, to);
+                to = j + 1;
+            }
+        }
+
+        // insertion sort for small ranges
+        for (int i = from + 1; i < to; i++)
+            for (int j = i; j > from && vars[j - 1].col > vars[j].col; j--)
+                swap(vars, coeffs, j - 1, j);
+    }
+
+    private static void swap(MPVar vars[], double coeffs[], int i, int j) {
+        MPVar var = vars[i];
+        vars[i] = vars[j];
+        vars[j] = var;
+
+        double coeff = coeffs[i];
+        coeffs[i] = coeffs[j];
+        coeffs[j] = coeff;
+    }
+
+
+    /**
+     * Functional interface to consume the terms of a Linear Expression without
+     * boxing the coefficients.
+     */
+    public interface TermConsumer {
+
+        /**
+         * Consumes a term of a Linear Expression.
+         *
+         * @param variable the variable
+         * @param coeff    the coefficient of the variable
+         */
+        void accept(MPVar variable, double coeff);
     }
 }
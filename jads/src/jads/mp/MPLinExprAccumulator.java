@@ -0,0 +1,202 @@
+package jads.mp;
+
+import java.util.*;
+
+/**
+ * This class represents a reusable accumulator for building (large) Linear
+ * Expressions. Coefficients are summed in a dense scratch array indexed by
+ * the (matrix) column of the variables, so that each term is added in O(1)
+ * without any hashing, and only the touched positions are visited when the
+ * expression is built or the accumulator is cleared.
+ *
+ * @author Tulio Toffolo
+ */
+public class MPLinExprAccumulator {
+
+    private double constant = 0.;
+
+    private double dense[];
+    private boolean touched[];
+    private MPVar vars[];
+    private int size = 0;
+
+
+    /**
+     * Instantiates a new Accumulator.
+     */
+    public MPLinExprAccumulator() {
+        this(16);
+    }
+
+    /**
+     * Instantiates a new Accumulator with the scratch array sized for all
+     * variables of a model.
+     *
+     * @param model the model whose variables will be accumulated
+     */
+    public MPLinExprAccumulator(MPModel model) {
+        this(Math.max(16, model.getMatrix().getNCols()));
+    }
+
+    /**
+     * Instantiates a new Accumulator.
+     *
+     * @param capacity the initial capacity of the scratch array
+     */
+    public MPLinExprAccumulator(int capacity) {
+        dense = new double[capacity];
+        touched = new boolean[capacity];
+        vars = new MPVar[Math.min(capacity, 16)];
+    }
+
+
+    /**
+     * Adds a constant to the accumulated expression.
+     *
+     * @param constant the constant
+     * @return this (updated) accumulator
+     */
+    public MPLinExprAccumulator addConstant(double constant) {
+        this.constant += constant;
+        return this;
+    }
+
+    /**
+     * Adds a Linear Expression to the accumulated expression.
+     *
+     * @param linearExpr the Linear Expression to be added
+     * @param multiplier the multiplier for all coefficients of the Linear
+     *                   Expression to be added
+     * @return this (updated) accumulator
+     */
+    public MPLinExprAccumulator addExpr(MPLinExpr linearExpr, double multiplier) {
+        linearExpr.forEachTerm((var, coeff) -> addTerm(var, multiplier * coeff));
+        constant += multiplier * linearExpr.getConstant();
+        return this;
+    }
+
+    /**
+     * Adds a term (variable and coefficient) to the accumulated expression.
+     *
+     * @param variable the variable to be added
+     * @param coeff    the coefficient of the variable
+     * @return this (updated) accumulator
+     */
+    public MPLinExprAccumulator addTerm(MPVar variable, double coeff) {
+        int col = variable.col;
+        if (col >= dense.length) {
+            int capacity = Math.max(col + 1, dense.length + (dense.length >> 1));
+            dense = Arrays.copyOf(dense, capacity);
+            touched = Arrays.copyOf(touched, capacity);
+        }
+
+        if (!touched[col]) {
+            if (size == vars.length)
+                vars = Arrays.copyOf(vars, size + (size >> 1) + 1);
+            touched[col] = true;
+            vars[size++] = variable;
+        }
+        dense[col] += coeff;
+        return this;
+    }
+
+    // region mirror methods for addExpr and addTerm
+
+    /**
+     * Adds a term (variable and coefficient) to the accumulated expression.
+     *
+     * @param coeff    the coefficient of the variable
+     * @param variable the variable to be added
+     * @return this (updated) accumulator
+     */
+    public MPLinExprAccumulator addTerm(double coeff, MPVar variable) {
+        return addTerm(variable, coeff);
+    }
+
+    /**
+     * Adds a Linear Expression to the accumulated expression.
+     *
+     * @param multiplier the multiplier for all coefficients of the Linear
+     *                   Expression to be added
+     * @param linearExpr the Linear Expression to be added
+     * @return this (updated) accumulator
+     */
+    public MPLinExprAccumulator addExpr(double multiplier, MPLinExpr linearExpr) {
+        return addExpr(linearExpr, multiplier);
+    }
+
+    // endregion mirror methods for addExpr and addTerm
+
+    /**
+     * Resets the accumulator, so that it can be reused. Only the positions
+     * touched since the last reset are visited.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            dense[vars[i].col] = 0.;
+            touched[vars[i].col] = false;
+            vars[i] = null;
+        }
+        size = 0;
+        constant = 0.;
+    }
+
+    /**
+     * Calls the consumer for each variable with a non-zero accumulated
+     * coefficient (in the order in which the variables were first added),
+     * without building a Linear Expression.
+     *
+     * @param consumer the consumer of the terms
+     */
+    public void forEachTerm(MPLinExpr.TermConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            double coeff = dense[vars[i].col];
+            if (Math.abs(coeff) >= MPModel.EPS)
+                consumer.accept(vars[i], coeff);
+        }
+    }
+
+    /**
+     * Gets the accumulated coefficient of a variable.
+     *
+     * @param variable the variable
+     * @return the accumulated coefficient of the variable
+     */
+    public double getCoeff(MPVar variable) {
+        return variable.col < dense.length ? dense[variable.col] : 0.;
+    }
+
+    /**
+     * Gets the accumulated constant.
+     *
+     * @return the accumulated constant
+     */
+    public double getConstant() {
+        return constant;
+    }
+
+    /**
+     * Builds a new Linear Expression with the accumulated (non-zero) terms.
+     * The accumulator is not cleared.
+     *
+     * @return the new Linear Expression
+     */
+    public MPLinExpr toLinExpr() {
+        MPVar exprVars[] = new MPVar[size];
+        double exprCoeffs[] = new double[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            double coeff = dense[vars[i].col];
+            if (Math.abs(coeff) >= MPModel.EPS) {
+                exprVars[n] = vars[i];
+                exprCoeffs[n] = coeff;
+                n++;
+            }
+        }
+
+        MPLinExpr expr = new MPLinExpr(constant);
+        if (n > 0)
+            expr.addTerms(Arrays.copyOf(exprVars, n), Arrays.copyOf(exprCoeffs, n));
+        return expr;
+    }
+}
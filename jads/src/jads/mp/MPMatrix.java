@@ -0,0 +1,527 @@
+package jads.mp;
+
+import jads.mp.util.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * This class represents the (sparse) constraint matrix of a model. Each
+ * non-zero coefficient is stored only once, in a pool of entries linked both
+ * by row and by column (orthogonal lists), so that the same storage serves
+ * the row view of a constraint ({@link MPLinConstr#coeffs()}) and the column
+ * view of a variable ({@link MPVar#coeffs()}).
+ * <p>
+ * Rows and columns are identified by positions ({@code MPLinConstr.row} and
+ * {@code MPVar.col}) which are assigned when the constraint or variable is
+ * added to the model and are never changed (nor reused), i.e. they are not
+ * affected by deletions or by the compaction of the model. The entries are
+ * kept in (paged) primitive arrays, and the slots of removed entries are
+ * reused. The pages are shared (copy-on-write) with the matrices of the forks
+ * of the model (see {@link MPModel#fork()}).
+ *
+ * @author Tulio Toffolo
+ */
+public class MPMatrix {
+
+    private static final int NONE = -1;
+
+    private final MPModel model;
+
+    // entries pool
+    private PagedIntArray entRow, entCol;
+    private PagedDoubleArray entVal;
+    private PagedIntArray nextInRow, prevInRow, nextInCol, prevInCol;
+    private int nEntries = 0, nnz = 0;
+    private int freeEntry = NONE;
+
+    // rows (constraints)
+    private PagedIntArray rowHead, rowTail, rowSize;
+    private int nRows = 0;
+
+    // columns (variables)
+    private PagedIntArray colHead, colTail, colSize;
+    private int nCols = 0;
+
+
+    /**
+     * Instantiates a new (empty) Matrix.
+     *
+     * @param model the model of the matrix
+     */
+    protected MPMatrix(MPModel model) {
+        this.model = model;
+
+        entRow = new PagedIntArray();
+        entCol = new PagedIntArray();
+        entVal = new PagedDoubleArray();
+        nextInRow = new PagedIntArray();
+        prevInRow = new PagedIntArray();
+        nextInCol = new PagedIntArray();
+        prevInCol = new PagedIntArray();
+
+        rowHead = new PagedIntArray();
+        rowTail = new PagedIntArray();
+        rowSize = new PagedIntArray();
+
+        colHead = new PagedIntArray();
+        colTail = new PagedIntArray();
+        colSize = new PagedIntArray();
+    }
+
+    /**
+     * Instantiates a new Matrix which shares (copy-on-write) all entries of
+     * another matrix.
+     *
+     * @param model  the model of the matrix (a fork of the model of the other
+     *               matrix)
+     * @param matrix the matrix to be copied
+     */
+    protected MPMatrix(MPModel model, MPMatrix matrix) {
+        this.model = model;
+
+        entRow = matrix.entRow.fork();
+        entCol = matrix.entCol.fork();
+        entVal = matrix.entVal.fork();
+        nextInRow = matrix.nextInRow.fork();
+        prevInRow = matrix.prevInRow.fork();
+        nextInCol = matrix.nextInCol.fork();
+        prevInCol = matrix.prevInCol.fork();
+        nEntries = matrix.nEntries;
+        nnz = matrix.nnz;
+        freeEntry = matrix.freeEntry;
+
+        rowHead = matrix.rowHead.fork();
+        rowTail = matrix.rowTail.fork();
+        rowSize = matrix.rowSize.fork();
+        nRows = matrix.nRows;
+
+        colHead = matrix.colHead.fork();
+        colTail = matrix.colTail.fork();
+        colSize = matrix.colSize.fork();
+        nCols = matrix.nCols;
+    }
+
+    /**
+     * Instantiates a new Matrix whose entries are memory-mapped from a file
+     * written by {@link #write(MappedFile.Writer)}.
+     *
+     * @param model  the model of the matrix
+     * @param reader the reader of the file
+     * @throws IOException if an I/O error occurs
+     */
+    protected MPMatrix(MPModel model, MappedFile.Reader reader) throws IOException {
+        this.model = model;
+
+        nEntries = reader.getInt();
+        nnz = reader.getInt();
+        freeEntry = reader.getInt();
+        nRows = reader.getInt();
+        nCols = reader.getInt();
+
+        entRow = PagedIntArray.map(reader, nEntries);
+        entCol = PagedIntArray.map(reader, nEntries);
+        entVal = PagedDoubleArray.map(reader, nEntries);
+        nextInRow = PagedIntArray.map(reader, nEntries);
+        prevInRow = PagedIntArray.map(reader, nEntries);
+        nextInCol = PagedIntArray.map(reader, nEntries);
+        prevInCol = PagedIntArray.map(reader, nEntries);
+
+        rowHead = PagedIntArray.map(reader, nRows);
+        rowTail = PagedIntArray.map(reader, nRows);
+        rowSize = PagedIntArray.map(reader, nRows);
+
+        colHead = PagedIntArray.map(reader, nCols);
+        colTail = PagedIntArray.map(reader, nCols);
+        colSize = PagedIntArray.map(reader, nCols);
+    }
+
+
+    /**
+     * Gets the number of columns ever added to the matrix. Columns of deleted
+     * variables are never reused, so that the position of a column also
+     * identifies its variable.
+     *
+     * @return the number of columns ever added to the matrix
+     */
+    public int getNCols() {
+        return nCols;
+    }
+
+    /**
+     * Gets the number of rows ever added to the matrix.
+     *
+     * @return the number of rows ever added to the matrix
+     */
+    public int getNRows() {
+        return nRows;
+    }
+
+    /**
+     * Gets the number of non-zero coefficients in the matrix.
+     *
+     * @return the number of non-zero coefficients in the matrix
+     */
+    public int getNNZ() {
+        return nnz;
+    }
+
+    /**
+     * Gets the (approximate) number of bytes used by the matrix, including
+     * the pages shared with the matrices of forks of the model.
+     *
+     * @return the number of bytes used by the matrix
+     */
+    public long getMemoryUsage() {
+        long bytes = MemorySizes.object(14 * MemorySizes.REFERENCE + 6 * 4);
+        for (PagedIntArray array : new PagedIntArray[]{ entRow, entCol, nextInRow, prevInRow, nextInCol, prevInCol,
+          rowHead, rowTail, rowSize, colHead, colTail, colSize })
+            bytes += array.getMemoryUsage();
+        return bytes + entVal.getMemoryUsage();
+    }
+
+    /**
+     * Gets an iterable over the coefficients of a column (variable).
+     *
+     * @param col the position of the column
+     * @return the iterable
+     */
+    public Iterable<Map.Entry<MPLinConstr, Double>> colEntries(int col) {
+        return () -> new Iterator<Map.Entry<MPLinConstr, Double>>() {
+            private int next = colHead.get(col);
+
+            @Override
+            public boolean hasNext() {
+                return next != NONE;
+            }
+
+            @Override
+            public Map.Entry<MPLinConstr, Double> next() {
+                if (next == NONE) throw new NoSuchElementException();
+                Map.Entry<MPLinConstr, Double> entry = new AbstractMap.SimpleImmutableEntry<>(model.constrAt(entRow.get(next)), entVal.get(next));
+                next = nextInCol.get(next);
+                return entry;
+            }
+        };
+    }
+
+    /**
+     * Gets an iterable over the coefficients of a row (constraint).
+     *
+     * @param row the position of the row
+     * @return the iterable
+     */
+    public Iterable<Map.Entry<MPVar, Double>> rowEntries(int row) {
+        return () -> new Iterator<Map.Entry<MPVar, Double>>() {
+            private int next = rowHead.get(row);
+
+            @Override
+            public boolean hasNext() {
+                return next != NONE;
+            }
+
+            @Override
+            public Map.Entry<MPVar, Double> next() {
+                if (next == NONE) throw new NoSuchElementException();
+                Map.Entry<MPVar, Double> entry = new AbstractMap.SimpleImmutableEntry<>(model.varAt(entCol.get(next)), entVal.get(next));
+                next = nextInRow.get(next);
+                return entry;
+            }
+        };
+    }
+
+    /**
+     * Calls the consumer for each coefficient of a row (constraint), without
+     * boxing the coefficients.
+     *
+     * @param row      the position of the row
+     * @param consumer the consumer of the terms
+     */
+    public void forEachInRow(int row, MPLinExpr.TermConsumer consumer) {
+        for (int e = rowHead.get(row); e != NONE; ) {
+            int next = nextInRow.get(e);
+            consumer.accept(model.varAt(entCol.get(e)), entVal.get(e));
+            e = next;
+        }
+    }
+
+    // region cursors over the entries of rows and columns (by positions)
+
+    // The methods below allow iterating over the entries of a row or column
+    // without creating handles of variables or constraints, e.g.
+    // for (int e = getFirstInCol(col); e >= 0; e = getNextInCol(e)), with
+    // the positions of the entries given by getEntryRow and getEntryCol.
+
+    protected int getFirstInCol(int col) {
+        return colHead.get(col);
+    }
+
+    protected int getFirstInRow(int row) {
+        return rowHead.get(row);
+    }
+
+    protected int getNextInCol(int entry) {
+        return nextInCol.get(entry);
+    }
+
+    protected int getNextInRow(int entry) {
+        return nextInRow.get(entry);
+    }
+
+    protected int getEntryCol(int entry) {
+        return entCol.get(entry);
+    }
+
+    protected int getEntryRow(int entry) {
+        return entRow.get(entry);
+    }
+
+    protected double getEntryValue(int entry) {
+        return entVal.get(entry);
+    }
+
+    // endregion cursors over the entries of rows and columns (by positions)
+
+    /**
+     * Gets a coefficient of the matrix.
+     *
+     * @param row the position of the row
+     * @param col the position of the column
+     * @return the coefficient, or zero if it is not in the matrix
+     */
+    public double get(int row, int col) {
+        int e = find(row, col);
+        return e != NONE ? entVal.get(e) : 0.;
+    }
+
+    /**
+     * Gets the variable of a column.
+     *
+     * @param col the position of the column
+     * @return the variable of the column
+     */
+    public MPVar getColVar(int col) {
+        return model.varAt(col);
+    }
+
+    /**
+     * Gets the constraint of a row.
+     *
+     * @param row the position of the row
+     * @return the constraint of the row
+     */
+    public MPLinConstr getRowConstr(int row) {
+        return model.constrAt(row);
+    }
+
+    /**
+     * Gets the number of non-zero coefficients of a column (variable).
+     *
+     * @param col the position of the column
+     * @return the number of non-zero coefficients of the column
+     */
+    public int getColSize(int col) {
+        return colSize.get(col);
+    }
+
+    /**
+     * Gets the number of non-zero coefficients of a row (constraint).
+     *
+     * @param row the position of the row
+     * @return the number of non-zero coefficients of the row
+     */
+    public int getRowSize(int row) {
+        return rowSize.get(row);
+    }
+
+
+    /**
+     * Adds an (empty) column to the matrix.
+     *
+     * @return the position of the new column
+     */
+    protected int addCol() {
+        colHead.set(nCols, NONE);
+        colTail.set(nCols, NONE);
+        colSize.set(nCols, 0);
+        return nCols++;
+    }
+
+    /**
+     * Adds an (empty) row to the matrix.
+     *
+     * @return the position of the new row
+     */
+    protected int addRow() {
+        rowHead.set(nRows, NONE);
+        rowTail.set(nRows, NONE);
+        rowSize.set(nRows, 0);
+        return nRows++;
+    }
+
+    /**
+     * Appends a (non-zero) coefficient to the matrix, without checking whether
+     * the position already has a coefficient.
+     *
+     * @param row   the position of the row
+     * @param col   the position of the column
+     * @param value the coefficient value
+     */
+    protected void append(int row, int col, double value) {
+        int e = newEntry();
+        entRow.set(e, row);
+        entCol.set(e, col);
+        entVal.set(e, value);
+
+        // linking the entry at the end of the row
+        int tail = rowTail.get(row);
+        nextInRow.set(e, NONE);
+        prevInRow.set(e, tail);
+        if (tail != NONE) nextInRow.set(tail, e);
+        else rowHead.set(row, e);
+        rowTail.set(row, e);
+        rowSize.set(row, rowSize.get(row) + 1);
+
+        // linking the entry at the end of the column
+        tail = colTail.get(col);
+        nextInCol.set(e, NONE);
+        prevInCol.set(e, tail);
+        if (tail != NONE) nextInCol.set(tail, e);
+        else colHead.set(col, e);
+        colTail.set(col, e);
+        colSize.set(col, colSize.get(col) + 1);
+
+        nnz++;
+    }
+
+    /**
+     * Removes all coefficients of a column (variable).
+     *
+     * @param col the position of the column
+     */
+    protected void clearCol(int col) {
+        for (int e = colHead.get(col); e != NONE; ) {
+            int next = nextInCol.get(e);
+            unlink(e);
+            e = next;
+        }
+    }
+
+    /**
+     * Removes all coefficients of a row (constraint).
+     *
+     * @param row the position of the row
+     */
+    protected void clearRow(int row) {
+        for (int e = rowHead.get(row); e != NONE; ) {
+            int next = nextInRow.get(e);
+            unlink(e);
+            e = next;
+        }
+    }
+
+    /**
+     * Sets a coefficient of the matrix. Coefficients with absolute value
+     * smaller than {@link MPModel#EPS} are removed.
+     *
+     * @param row   the position of the row
+     * @param col   the position of the column
+     * @param value the new coefficient value
+     */
+    protected void set(int row, int col, double value) {
+        int e = find(row, col);
+        if (Math.abs(value) < MPModel.EPS) {
+            if (e != NONE) unlink(e);
+        }
+        else if (e != NONE) {
+            entVal.set(e, value);
+        }
+        else {
+            append(row, col, value);
+        }
+    }
+
+    /**
+     * Writes the matrix (with its pool of entries, as is) to a file, from
+     * which it may be mapped by {@link #MPMatrix(MPModel, MappedFile.Reader)}.
+     *
+     * @param writer the writer of the file
+     * @throws IOException if an I/O error occurs
+     */
+    protected void write(MappedFile.Writer writer) throws IOException {
+        writer.putInt(nEntries);
+        writer.putInt(nnz);
+        writer.putInt(freeEntry);
+        writer.putInt(nRows);
+        writer.putInt(nCols);
+
+        entRow.write(writer, nEntries);
+        entCol.write(writer, nEntries);
+        entVal.write(writer, nEntries);
+        nextInRow.write(writer, nEntries);
+        prevInRow.write(writer, nEntries);
+        nextInCol.write(writer, nEntries);
+        prevInCol.write(writer, nEntries);
+
+        rowHead.write(writer, nRows);
+        rowTail.write(writer, nRows);
+        rowSize.write(writer, nRows);
+
+        colHead.write(writer, nCols);
+        colTail.write(writer, nCols);
+        colSize.write(writer, nCols);
+    }
+
+
+    /**
+     * Gets the entry at a position, scanning the shorter of the row and
+     * column lists, or NONE if there is no such entry.
+     */
+    private int find(int row, int col) {
+        if (rowSize.get(row) <= colSize.get(col)) {
+            for (int e = rowHead.get(row); e != NONE; e = nextInRow.get(e))
+                if (entCol.get(e) == col) return e;
+        }
+        else {
+            for (int e = colHead.get(col); e != NONE; e = nextInCol.get(e))
+                if (entRow.get(e) == row) return e;
+        }
+        return NONE;
+    }
+
+    private int newEntry() {
+        if (freeEntry != NONE) {
+            int e = freeEntry;
+            freeEntry = nextInRow.get(e);
+            return e;
+        }
+        return nEntries++;
+    }
+
+    /**
+     * Unlinks an entry from its row and column and moves it to the free list.
+     */
+    private void unlink(int e) {
+        int row = entRow.get(e), col = entCol.get(e);
+        int prev = prevInRow.get(e), next = nextInRow.get(e);
+
+        if (prev != NONE) nextInRow.set(prev, next);
+        else rowHead.set(row, next);
+        if (next != NONE) prevInRow.set(next, prev);
+        else rowTail.set(row, prev);
+        rowSize.set(row, rowSize.get(row) - 1);
+
+        prev = prevInCol.get(e);
+        next = nextInCol.get(e);
+        if (prev != NONE) nextInCol.set(prev, next);
+        else colHead.set(col, next);
+        if (next != NONE) prevInCol.set(next, prev);
+        else colTail.set(col, prev);
+        colSize.set(col, colSize.get(col) - 1);
+
+        // the free list is chained through nextInRow
+        nextInRow.set(e, freeEntry);
+        freeEntry = e;
+        nnz--;
+    }
+}
@@ -2,7 +2,12 @@ package jads.mp;
 
 import jads.mp.util.*;
 
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.nio.file.*;
 import java.util.*;
+import java.util.function.*;
 
 /**
  * This is the main Model class, responsible for representing the formulation.
@@ -16,12 +21,36 @@ public class MPModel {
     private String name = "";
     private MPSolver solver = null;
 
-    private List<MPLinConstr> constrs = new ArrayList<MPLinConstr>();
-    private List<MPVar> variables = new ArrayList<MPVar>();
-    private MPObjective objective = new MPObjective();
+    // true if the objective was modified since it was last sent to the solver
+    protected boolean objectiveChanged = true;
+    private MPObjective objective = new MPObjective(this);
+    private MPMatrix matrix = new MPMatrix(this);
 
-    private HashMap<String, MPLinConstr> constrsMap = new HashMap<String, MPLinConstr>();
-    private HashMap<String, MPVar> varsMap = new HashMap<String, MPVar>();
+    // data of the variables and constraints, stored by position (column or
+    // row) in paged arrays shared (copy-on-write) with the forks of the model
+    protected PagedIntArray varIndex = new PagedIntArray(), constrIndex = new PagedIntArray();
+    protected PagedDoubleArray varLB = new PagedDoubleArray(), varUB = new PagedDoubleArray();
+    protected PagedDoubleArray varObj = new PagedDoubleArray(), constrConstant = new PagedDoubleArray();
+    protected PagedCharArray varType = new PagedCharArray(), constrSense = new PagedCharArray();
+
+    // positions of the variables and constraints, by index (deleted ones are
+    // only removed by the compaction of the model)
+    private PagedIntArray varCols = new PagedIntArray(), constrRows = new PagedIntArray();
+    private int nVarCols = 0, nConstrRows = 0;
+
+    // (lightweight) handles of the variables and constraints, by position
+    private final PagedArray<MPVar> varHandles = new PagedArray<MPVar>();
+    private final PagedArray<MPLinConstr> constrHandles = new PagedArray<MPLinConstr>();
+
+    protected MPNames constrNames = new MPNames(MPNames.Mode.Eager);
+    protected MPNames varNames = new MPNames(MPNames.Mode.Eager);
+
+    // maximum number of layers of names (see fork()) before they are flattened
+    private static final int MAX_NAMES_DEPTH = 8;
+
+    // version of the format of the files written by save(Path) and the size
+    // of the (mapped) pages of the pools of names in these files
+    private static final int FILE_VERSION = 1, NAMES_PAGE = 1 << 16;
 
     /**
      * The customCoeffsMap stores references to coefficients which require
@@ -33,6 +62,17 @@ public class MPModel {
     private List<MPAction> actions = new LinkedList<MPAction>();
 
     protected int intVarCount = 0;
+    protected int nDeletedConstrs = 0, nDeletedVars = 0;
+
+    // deletions (positions in the solver) not yet sent to the solver
+    private final Deletions constrDeletions = new Deletions(), varDeletions = new Deletions();
+
+    // changes of variables recorded since the (oldest active) savepoint
+    private final UndoLog undoLog = new UndoLog();
+
+    // reusable objects of the (allocation-free) paths which add constraints
+    private final RowAppender rowAppender = new RowAppender();
+    private MPLinExprAccumulator scratch = null;
 
     /**
      * Instantiates a new Model.
@@ -70,6 +110,72 @@ public class MPModel {
         this.objective.setDirection(direction);
     }
 
+    /**
+     * Instantiates a new Model which shares (copy-on-write) all data of
+     * another model, i.e. a fork of the model.
+     *
+     * @param model the model to be forked
+     */
+    private MPModel(MPModel model) {
+        this.name = model.name;
+        this.matrix = new MPMatrix(this, model.matrix);
+
+        this.varIndex = model.varIndex.fork();
+        this.varLB = model.varLB.fork();
+        this.varUB = model.varUB.fork();
+        this.varObj = model.varObj.fork();
+        this.varType = model.varType.fork();
+        this.varCols = model.varCols.fork();
+        this.nVarCols = model.nVarCols;
+
+        this.constrIndex = model.constrIndex.fork();
+        this.constrConstant = model.constrConstant.fork();
+        this.constrSense = model.constrSense.fork();
+        this.constrRows = model.constrRows.fork();
+        this.nConstrRows = model.nConstrRows;
+
+        this.objective = new MPObjective(this, model.objective);
+        this.intVarCount = model.intVarCount;
+    }
+
+
+    /**
+     * Instantiates a new Model whose data are memory-mapped from a file (see
+     * {@link #map(Path)}).
+     *
+     * @param reader the reader of the file
+     */
+    private MPModel(MappedFile.Reader reader) throws IOException {
+        if (reader.getInt() != FILE_VERSION)
+            throw new IOException("unsupported version of model file");
+
+        this.name = reader.getString();
+        char direction = ( char ) reader.getInt();
+        double objConstant = reader.getDouble();
+        this.objective = new MPObjective(this, direction, objConstant, reader.getInt());
+        this.intVarCount = reader.getInt();
+        this.nVarCols = reader.getInt();
+        this.nConstrRows = reader.getInt();
+        boolean hasNames = reader.getInt() != 0;
+
+        this.matrix = new MPMatrix(this, reader);
+        int nCols = matrix.getNCols(), nRows = matrix.getNRows();
+
+        this.varIndex = PagedIntArray.map(reader, nCols);
+        this.varLB = PagedDoubleArray.map(reader, nCols);
+        this.varUB = PagedDoubleArray.map(reader, nCols);
+        this.varObj = PagedDoubleArray.map(reader, nCols);
+        this.varType = PagedCharArray.map(reader, nCols);
+        this.varCols = PagedIntArray.map(reader, nVarCols);
+
+        this.constrIndex = PagedIntArray.map(reader, nRows);
+        this.constrConstant = PagedDoubleArray.map(reader, nRows);
+        this.constrSense = PagedCharArray.map(reader, nRows);
+        this.constrRows = PagedIntArray.map(reader, nConstrRows);
+
+        this.varNames = mapNames(reader, hasNames, nCols, varIndex);
+        this.constrNames = mapNames(reader, hasNames, nRows, constrIndex);
+    }
 
     /**
      * Get an iterable of the changes made to the model.
@@ -90,15 +196,65 @@ public class MPModel {
      * @return the linear constraint
      */
     public MPLinConstr addConstr(MPLinExpr lhs, char sense, double rhs, String name, Object... nameArgs) {
-        lhs.addConstant(-rhs);
-        MPLinConstr constr = new MPLinConstr(this, constrs.size(), lhs, sense, nameArgs == null ? name : String.format(name, nameArgs));
-        constr.index = constrs.size();
-        lhs.addConstant(rhs); // undo previous operation
+        MPLinConstr constr = newConstr(lhs.getConstant() - rhs, sense);
 
-        constrs.add(constr);
-        constrsMap.put(constr.getName(), constr);
+        // the terms of an expression are unique, so they are simply appended
+        rowAppender.row = constr.row;
+        lhs.forEachTerm(rowAppender);
+        constrNames.add(constr.row, name, nameArgs);
 
-        addAction(new MPAction(MPAction.ActionType.AddConstr, constr));
+        if (solver != null) addAction(new MPAction(MPAction.ActionType.AddConstr, constr));
+        return constr;
+    }
+
+    /**
+     * Adds a linear constraint to the model, whose terms are read directly
+     * from the (accumulated) expression, without building a Linear Expression.
+     * The accumulator is not cleared.
+     *
+     * @param lhs   the left-hand side of the constraint
+     * @param sense the sense of the constraint ('&lt;', '&gt;' or '=')
+     * @param rhs   the right-hand side of the constraint
+     * @param name  the name  of the constraint
+     * @return the linear constraint
+     */
+    public MPLinConstr addConstr(MPLinExprAccumulator lhs, char sense, double rhs, String name, Object... nameArgs) {
+        MPLinConstr constr = newConstr(lhs.getConstant() - rhs, sense);
+
+        rowAppender.row = constr.row;
+        lhs.forEachTerm(rowAppender);
+        constrNames.add(constr.row, name, nameArgs);
+
+        if (solver != null) addAction(new MPAction(MPAction.ActionType.AddConstr, constr));
+        return constr;
+    }
+
+    /**
+     * Adds a linear constraint to the model, whose terms are read directly
+     * from the first nTerms positions of the arrays (which may therefore be
+     * reused by the caller for the next constraint). Each variable may appear
+     * at most once, and (near) zero coefficients are skipped.
+     *
+     * @param nTerms the number of terms of the left-hand side
+     * @param vars   the variables of the left-hand side
+     * @param coeffs the coefficients of the variables
+     * @param sense  the sense of the constraint ('&lt;', '&gt;' or '=')
+     * @param rhs    the right-hand side of the constraint
+     * @param name   the name  of the constraint
+     * @return the linear constraint
+     */
+    public MPLinConstr addConstr(int nTerms, MPVar vars[], double coeffs[], char sense, double rhs, String name, Object... nameArgs) {
+        assert vars.length >= nTerms && coeffs.length >= nTerms;
+        MPLinConstr constr = newConstr(-rhs, sense);
+
+        for (int i = 0; i < nTerms; i++) {
+            assert vars[i].model == this : "variable " + vars[i].getName() + " belongs to another model";
+            if (Math.abs(coeffs[i]) >= EPS)
+                matrix.append(constr.row, vars[i].col, coeffs[i]);
+        }
+        constrNames.add(constr.row, name, nameArgs);
+
+        if (solver != null) addAction(new MPAction(MPAction.ActionType.AddConstr, constr));
         return constr;
     }
 
@@ -112,7 +268,13 @@ public class MPModel {
      * @return the linear constraint
      */
     public MPLinConstr addConstr(MPLinExpr lhs, char sense, MPVar rhs, String name, Object... nameArgs) {
-        return addConstr(new MPLinExpr(lhs).addTerm(-1., rhs), sense, 0., name, nameArgs);
+        MPLinExprAccumulator terms = scratchAccumulator();
+        try {
+            return addConstr(terms.addExpr(lhs, 1.).addTerm(rhs, -1.), sense, 0., name, nameArgs);
+        }
+        finally {
+            terms.clear();
+        }
     }
 
     /**
@@ -125,7 +287,13 @@ public class MPModel {
      * @return the linear constraint
      */
     public MPLinConstr addConstr(MPLinExpr lhs, char sense, MPLinExpr rhs, String name, Object... nameArgs) {
-        return addConstr(new MPLinExpr(lhs).addExpr(-1., rhs), sense, 0., name, nameArgs);
+        MPLinExprAccumulator terms = scratchAccumulator();
+        try {
+            return addConstr(terms.addExpr(lhs, 1.).addExpr(rhs, -1.), sense, 0., name, nameArgs);
+        }
+        finally {
+            terms.clear();
+        }
     }
 
     /**
@@ -138,7 +306,13 @@ public class MPModel {
      * @return the linear constraint
      */
     public MPLinConstr addConstr(MPVar lhs, char sense, double rhs, String name, Object... nameArgs) {
-        return addConstr(new MPLinExpr(lhs), sense, rhs, name, nameArgs);
+        assert lhs.model == this : "variable " + lhs.getName() + " belongs to another model";
+        MPLinConstr constr = newConstr(-rhs, sense);
+        matrix.append(constr.row, lhs.col, 1.);
+        constrNames.add(constr.row, name, nameArgs);
+
+        if (solver != null) addAction(new MPAction(MPAction.ActionType.AddConstr, constr));
+        return constr;
     }
 
     /**
@@ -151,7 +325,54 @@ public class MPModel {
      * @return the linear constraint
      */
     public MPLinConstr addConstr(MPVar lhs, char sense, MPVar rhs, String name, Object... nameArgs) {
-        return addConstr(new MPLinExpr(lhs).addTerm(-1., rhs), sense, 0., name, nameArgs);
+        assert lhs.model == this && rhs.model == this : "variables belong to another model";
+        MPLinConstr constr = newConstr(0., sense);
+        if (lhs.col != rhs.col) {
+            matrix.append(constr.row, lhs.col, 1.);
+            matrix.append(constr.row, rhs.col, -1.);
+        }
+        constrNames.add(constr.row, name, nameArgs);
+
+        if (solver != null) addAction(new MPAction(MPAction.ActionType.AddConstr, constr));
+        return constr;
+    }
+
+    /**
+     * Adds several linear constraints to the model, given as rows of a matrix
+     * in compressed sparse row format. The coefficients of row {@code r} are
+     * {@code values[rowStart[r] .. rowStart[r + 1] - 1]}, for the variables
+     * with indices {@code varIndices[rowStart[r] .. rowStart[r + 1] - 1]}
+     * (each variable may appear at most once per row). A single action is
+     * created for all constraints.
+     *
+     * @param n          the number of constraints
+     * @param rowStart   the start of each row in the arrays of variable
+     *                   indices and values (with n + 1 elements)
+     * @param varIndices the indices of the variables of each row
+     * @param values     the coefficients of the variables of each row
+     * @param senses     the senses of the constraints ('&lt;', '&gt;' or '=')
+     * @param rhs        the right-hand sides of the constraints
+     * @param names      the function which gives the name of the i-th
+     *                   constraint (i = 0, ..., n - 1), or null if the
+     *                   constraints have no names
+     * @return the linear constraints
+     */
+    public MPLinConstr[] addConstrs(int n, int rowStart[], int varIndices[], double values[], char senses[], double rhs[], IntFunction<String> names) {
+        assert rowStart.length > n && senses.length >= n && rhs.length >= n;
+        if (nDeletedVars > 0) compact();
+
+        MPLinConstr newConstrs[] = new MPLinConstr[n];
+        for (int i = 0; i < n; i++) {
+            MPLinConstr constr = newConstr(-rhs[i], senses[i]);
+            for (int k = rowStart[i]; k < rowStart[i + 1]; k++)
+                if (Math.abs(values[k]) >= EPS)
+                    matrix.append(constr.row, varCols.get(varIndices[k]), values[k]);
+            newConstrs[i] = constr;
+        }
+        if (n > 0) constrNames.addRange(newConstrs[0].row, n, names);
+
+        if (solver != null) addAction(new MPAction(MPAction.ActionType.AddConstr, newConstrs));
+        return newConstrs;
     }
 
     // region mirror methods addEq, addLe and addGe
@@ -391,16 +612,8 @@ public class MPModel {
      * @return the created variable
      */
     public MPVar addVar(double lb, double ub, char type, String name, Object... nameArgs) {
-        MPVar variable = new MPVar(this, lb, ub, type, nameArgs == null ? name : String.format(name, nameArgs));
-        variable.index = variables.size();
-
-        assert !varsMap.containsKey(variable.getName());
-
-        variables.add(variable);
-        varsMap.put(variable.getName(), variable);
-
-        if (type == 'B' || type == 'I')
-            intVarCount++;
+        MPVar variable = newVar(lb, ub, type);
+        varNames.add(variable.col, name, nameArgs);
 
         addAction(new MPAction(MPAction.ActionType.AddVar, variable));
         return variable;
@@ -418,7 +631,7 @@ public class MPModel {
      * @return the created variable
      */
     public MPVar addVar(double lb, double ub, double obj, char type, String name, Object... nameArgs) {
-        MPVar variable = addVar(lb, ub, type, nameArgs == null ? name : String.format(name, nameArgs));
+        MPVar variable = addVar(lb, ub, type, name, nameArgs);
         objective.setCoeff(variable, obj);
         return variable;
     }
@@ -436,12 +649,82 @@ public class MPModel {
      * @return the created variable
      */
     public MPVar addVar(double lb, double ub, MPColumn column, char type, String name, Object... nameArgs) {
-        MPVar variable = addVar(lb, ub, column.obj, type, nameArgs == null ? name : String.format(name, nameArgs));
+        MPVar variable = addVar(lb, ub, column.obj, type, name, nameArgs);
         for (Map.Entry<MPLinConstr, Double> pair : column)
             pair.getKey().setCoeff(variable, pair.getValue());
         return variable;
     }
 
+    /**
+     * Adds several variables to the model. A single action is created for all
+     * variables.
+     *
+     * @param n     the number of variables
+     * @param lb    the lower bounds of the variables
+     * @param ub    the upper bounds of the variables
+     * @param obj   the coefficients of the variables in the objective function
+     *              (or null if all coefficients are zero)
+     * @param types the types of the variables ('C' for continuous, 'I' for
+     *              integer or 'B' for binary)
+     * @param names the function which gives the name of the i-th variable (i =
+     *              0, ..., n - 1), or null if the variables have no names
+     * @return the created variables
+     */
+    public MPVar[] addVars(int n, double lb[], double ub[], double obj[], char types[], IntFunction<String> names) {
+        assert lb.length >= n && ub.length >= n && types.length >= n && (obj == null || obj.length >= n);
+
+        MPVar newVars[] = new MPVar[n];
+        for (int i = 0; i < n; i++)
+            newVars[i] = newVar(lb[i], ub[i], types[i]);
+        if (n > 0) varNames.addRange(newVars[0].col, n, names);
+
+        if (obj != null)
+            for (int i = 0; i < n; i++)
+                if (obj[i] != 0.)
+                    objective.setCoeff(newVars[i], obj[i]);
+
+        addAction(new MPAction(MPAction.ActionType.AddVar, newVars));
+        return newVars;
+    }
+
+    /**
+     * Adds several variables to the model, with their columns given in
+     * compressed sparse column format: the coefficients of variable {@code i}
+     * are {@code values[colStart[i] .. colStart[i + 1] - 1]}, in the
+     * constraints with indices {@code constrIndices[colStart[i] .. colStart[i
+     * + 1] - 1]} (each constraint may appear at most once per column). A
+     * single action is created for all variables.
+     *
+     * @param n             the number of variables
+     * @param lb            the lower bounds of the variables
+     * @param ub            the upper bounds of the variables
+     * @param obj           the coefficients of the variables in the objective
+     *                      function (or null if all coefficients are zero)
+     * @param types         the types of the variables ('C' for continuous, 'I'
+     *                      for integer or 'B' for binary)
+     * @param colStart      the start of each column in the arrays of
+     *                      constraint indices and values (with n + 1
+     *                      elements)
+     * @param constrIndices the indices of the constraints of each column
+     * @param values        the coefficients of the constraints of each column
+     * @param names         the function which gives the name of the i-th
+     *                      variable (i = 0, ..., n - 1), or null if the
+     *                      variables have no names
+     * @return the created variables
+     */
+    public MPVar[] addVars(int n, double lb[], double ub[], double obj[], char types[], int colStart[], int constrIndices[], double values[], IntFunction<String> names) {
+        assert colStart.length > n;
+        if (nDeletedConstrs > 0) compact();
+
+        // the columns are filled before the action is processed by the solver
+        MPVar newVars[] = addVars(n, lb, ub, obj, types, names);
+        for (int i = 0; i < n; i++)
+            for (int k = colStart[i]; k < colStart[i + 1]; k++)
+                if (Math.abs(values[k]) >= EPS)
+                    matrix.append(constrRows.get(constrIndices[k]), newVars[i].col, values[k]);
+        return newVars;
+    }
+
     // region mirror methods addBinVar, addIntVar, addNumVar
 
     /**
@@ -575,66 +858,298 @@ public class MPModel {
 
     // endregion mirror methods addBoolVar, addIntVar, addVar
 
+    /**
+     * Compacts the model, i.e. removes the deleted variables and constraints
+     * from the lists of the model and updates the indices of the remaining
+     * ones. This method is automatically called whenever indices are required,
+     * so that deletions cost O(1) (amortized) and a sequence of deletions is
+     * handled by a single compaction.
+     */
+    public void compact() {
+        if (nDeletedVars > 0) {
+            int removed[] = new int[nDeletedVars], nRemoved = 0;
+            int nSynced = varDeletions.getNSynced();
+
+            int n = 0;
+            for (int i = 0; i < nVarCols; i++) {
+                int col = varCols.get(i);
+                if (varIndex.get(col) < 0) {
+                    if (i < nSynced) removed[nRemoved++] = i;
+                }
+                else {
+                    if (varIndex.get(col) != n) varIndex.set(col, n);
+                    if (i != n) varCols.set(n, col);
+                    n++;
+                }
+            }
+            nVarCols = n;
+            varDeletions.add(removed, nRemoved);
+            nDeletedVars = 0;
+        }
+
+        if (nDeletedConstrs > 0) {
+            int removed[] = new int[nDeletedConstrs], nRemoved = 0;
+            int nSynced = constrDeletions.getNSynced();
+
+            int n = 0;
+            for (int i = 0; i < nConstrRows; i++) {
+                int row = constrRows.get(i);
+                if (constrIndex.get(row) < 0) {
+                    if (i < nSynced) removed[nRemoved++] = i;
+                }
+                else {
+                    if (constrIndex.get(row) != n) constrIndex.set(row, n);
+                    if (i != n) constrRows.set(n, row);
+                    n++;
+                }
+            }
+            nConstrRows = n;
+            constrDeletions.add(removed, nRemoved);
+            nDeletedConstrs = 0;
+        }
+    }
+
     /**
      * Gets an iterable of the constraints of the model.
      *
      * @return an iterable of the constraints of the model
      */
     public Iterable<MPLinConstr> contrs() {
-        return constrs;
+        if (nDeletedConstrs > 0) compact();
+        return () -> new Iterator<MPLinConstr>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < nConstrRows;
+            }
+
+            @Override
+            public MPLinConstr next() {
+                if (next >= nConstrRows) throw new NoSuchElementException();
+                return constrAt(constrRows.get(next++));
+            }
+        };
     }
 
     /**
-     * Removes (deletes) a constraint from the model.
+     * Removes (deletes) a constraint from the model. The constraint is only
+     * marked as deleted, and the indices of the remaining constraints are
+     * updated by the next compaction of the model.
      *
      * @param constr the constraint to be removed.
      * @return true if the constraint is successfully removed and false
      * otherwise
      */
     public boolean delete(MPLinConstr constr) {
-        for (int i = constr.index; i < constrs.size() - 1; i++) {
-            constrs.set(i, constrs.get(i + 1));
-            constrs.get(i).index = i;
-        }
-        constrs.remove(constrs.size() - 1);
-        constrsMap.remove(constr.getName());
+        if (constr.model != this || constr.isDeleted())
+            return false;
 
-        addAction(new MPAction(MPAction.ActionType.DelConstr, constr));
+        constrIndex.set(constr.row, -1);
+        constrNames.remove(constr.row);
+        matrix.clearRow(constr.row);
+
+        nDeletedConstrs++;
+        if (nDeletedConstrs > nConstrRows / 2) compact();
         return true;
     }
 
     /**
-     * Removes (deletes) a variable from the model.
+     * Removes (deletes) a variable from the model. The variable is only marked
+     * as deleted, and the indices of the remaining variables are updated by
+     * the next compaction of the model.
      *
      * @param variable the variable
      * @return true if the constraint is successfully removed and false
      * otherwise
      */
     public boolean delete(MPVar variable) {
+        if (variable.model != this || variable.isDeleted())
+            return false;
+
         // removing variable from objective and all constraints
         objective.removeVar(variable);
-        MPLinConstr constrs[] = variable.getColumn().keySet().toArray(new MPLinConstr[variable.getColumn().keySet().size()]);
-        for (MPLinConstr c : constrs)
-            c.removeVar(variable);
-
-        // deleting variable from list of variables
-        for (int i = variable.index; i < variables.size() - 1; i++) {
-            variables.set(i, variables.get(i + 1));
-            variables.get(i).index = i;
-        }
-        variables.remove(variables.size() - 1);
-        varsMap.remove(variable.getName());
+        matrix.clearCol(variable.col);
+
+        varIndex.set(variable.col, -1);
+        varNames.remove(variable.col);
 
         // updating counter of integer variables
         if (variable.getType() == 'B' || variable.getType() == 'I')
             intVarCount--;
 
-        // creating action to update solvers
-        addAction(new MPAction(MPAction.ActionType.DelVar, variable));
-
+        nDeletedVars++;
+        if (nDeletedVars > nVarCols / 2) compact();
         return true;
     }
 
+    /**
+     * Removes (deletes) several constraints from the model.
+     *
+     * @param constrs the constraints to be removed
+     * @return the number of constraints successfully removed
+     */
+    public int deleteConstrs(Collection<MPLinConstr> constrs) {
+        int count = 0;
+        for (MPLinConstr constr : constrs)
+            if (delete(constr)) count++;
+        return count;
+    }
+
+    /**
+     * Removes (deletes) several variables from the model.
+     *
+     * @param variables the variables to be removed
+     * @return the number of variables successfully removed
+     */
+    public int deleteVars(Collection<MPVar> variables) {
+        int count = 0;
+        for (MPVar variable : variables)
+            if (delete(variable)) count++;
+        return count;
+    }
+
+    /**
+     * Creates a fork of the model, i.e. an independent copy which shares all
+     * data of the model (variables, constraints, matrix, objective and names)
+     * in copy-on-write pages: the fork costs time proportional to the number
+     * of pages (and not to the size of the model), and only the pages written
+     * afterwards (by the model or by the fork) are copied. Changes in the
+     * model are never seen by the fork, and vice-versa.
+     * <p>
+     * The fork has no solver, no pending actions, no savepoints and no custom
+     * coefficients. Its variables and constraints are different objects from
+     * those of the model, but have the same indices and names, so that they
+     * may be retrieved with {@link #getVar(int)} and {@link
+     * #getConstr(int)}. A model may be forked by several threads at once (each
+     * fork may then be used by a different thread), but it must not be
+     * modified while it is forked.
+     *
+     * @return the fork of the model
+     */
+    public synchronized MPModel fork() {
+        compact();
+
+        // the names are shared as (read-only) bases of new layers
+        if (varNames.getDepth() >= MAX_NAMES_DEPTH || constrNames.getDepth() >= MAX_NAMES_DEPTH)
+            setNameMode(varNames.mode);
+        MPNames varBase = varNames.freeze(), constrBase = constrNames.freeze();
+        varNames = new MPNames(varBase);
+        constrNames = new MPNames(constrBase);
+
+        MPModel fork = new MPModel(this);
+        fork.varNames = new MPNames(varBase);
+        fork.constrNames = new MPNames(constrBase);
+        return fork;
+    }
+
+    /**
+     * Creates an immutable (frozen) view of the model, with flat arrays for
+     * the variables, the objective and the constraints, the matrix in both
+     * compressed sparse row and column formats and a compact index of the
+     * names. The view may be shared by several threads without
+     * synchronization, and is not updated by later modifications of the
+     * model.
+     *
+     * @return the frozen view of the model
+     */
+    public synchronized MPFrozenModel freeze() {
+        compact();
+        return new MPFrozenModel(this);
+    }
+
+    /**
+     * Saves the model to a binary file, from which it may be memory-mapped by
+     * {@link #map(Path)}. The file stores the internal (paged) arrays of the
+     * model and of its matrix as they are, in the native byte order, so that
+     * it is written and mapped without any conversion. The solver, the
+     * pending actions, the savepoints and the custom coefficients are not
+     * saved.
+     *
+     * @param path the path of the file
+     * @throws IOException if an I/O error occurs
+     */
+    public synchronized void save(Path path) throws IOException {
+        compact();
+        int nCols = matrix.getNCols(), nRows = matrix.getNRows();
+
+        try (MappedFile.Writer writer = new MappedFile.Writer(path)) {
+            writer.putInt(FILE_VERSION);
+            writer.putString(name);
+            writer.putInt(objective.getDirection());
+            writer.putDouble(objective.getConstant());
+            writer.putInt(objective.getNTerms());
+            writer.putInt(intVarCount);
+            writer.putInt(nVarCols);
+            writer.putInt(nConstrRows);
+            writer.putInt(hasNames() ? 1 : 0);
+
+            matrix.write(writer);
+
+            varIndex.write(writer, nCols);
+            varLB.write(writer, nCols);
+            varUB.write(writer, nCols);
+            varObj.write(writer, nCols);
+            varType.write(writer, nCols);
+            varCols.write(writer, nVarCols);
+
+            constrIndex.write(writer, nRows);
+            constrConstant.write(writer, nRows);
+            constrSense.write(writer, nRows);
+            constrRows.write(writer, nConstrRows);
+
+            if (hasNames()) {
+                writeNames(writer, varNames, nCols);
+                writeNames(writer, constrNames, nRows);
+            }
+        }
+    }
+
+    /**
+     * Gets the (approximate) number of bytes retained by each component of
+     * the model, e.g. to find which structures dominate the heap usage of
+     * large models. The estimate takes time proportional to the number of
+     * variables, constraints, custom coefficients and pending actions (but
+     * not to the number of non-zero coefficients).
+     *
+     * @return the memory footprint of the model
+     */
+    public synchronized MPFootprint getFootprint() {
+        MPFootprint footprint = new MPFootprint(this);
+        footprint.add("variables", varIndex.getMemoryUsage() + varLB.getMemoryUsage() + varUB.getMemoryUsage()
+          + varObj.getMemoryUsage() + varType.getMemoryUsage() + varCols.getMemoryUsage());
+        footprint.add("constraints", constrIndex.getMemoryUsage() + constrConstant.getMemoryUsage()
+          + constrSense.getMemoryUsage() + constrRows.getMemoryUsage());
+        footprint.add("matrix", matrix.getMemoryUsage());
+
+        long handles = varHandles.getMemoryUsage() + constrHandles.getMemoryUsage();
+        for (int col = 0; col < nVarCols; col++)
+            if (varHandles.get(col) != null) handles += MemorySizes.object(MemorySizes.REFERENCE + 4);
+        for (int row = 0; row < nConstrRows; row++) {
+            MPLinConstr constr = constrHandles.get(row);
+            if (constr != null) handles += constr.getMemoryUsage();
+        }
+        footprint.add("handles", handles);
+
+        footprint.add("variable names", varNames.getMemoryUsage());
+        footprint.add("constraint names", constrNames.getMemoryUsage());
+
+        long customCoeffs = 0;
+        for (Map.Entry<Pair<MPVar, MPLinExpr>, String> entry : customCoeffsMap.entrySet()) {
+            customCoeffs += MemorySizes.LINKED_HASH_ENTRY + MemorySizes.object(2 * MemorySizes.REFERENCE) + MemorySizes.string(entry.getValue());
+            if (!(entry.getKey().second instanceof MPLinConstr))
+                customCoeffs += entry.getKey().second.getMemoryUsage();
+        }
+        footprint.add("custom coefficients", customCoeffs);
+
+        long pending = constrDeletions.getMemoryUsage() + varDeletions.getMemoryUsage();
+        for (MPAction action : actions)
+            pending += MemorySizes.LINKED_LIST_NODE + action.getMemoryUsage();
+        footprint.add("actions", pending);
+        footprint.add("undo log", undoLog.getMemoryUsage());
+        return footprint;
+    }
+
     /**
      * Gets if the model has any integer variable, i.e. whether it is not
      * continuous.
@@ -653,7 +1168,10 @@ public class MPModel {
      * @return the constraint at position {@code index}
      */
     public MPLinConstr getConstr(int index) {
-        return constrs.get(index);
+        if (nDeletedConstrs > 0) compact();
+        if (index < 0 || index >= nConstrRows)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + nConstrRows);
+        return constrAt(constrRows.get(index));
     }
 
     /**
@@ -663,7 +1181,18 @@ public class MPModel {
      * @return the constraint that has {@code constrName}
      */
     public MPLinConstr getConstr(String constrName) {
-        return constrsMap.get(constrName);
+        int row = constrNames.find(constrName);
+        return row >= 0 ? matrix.getRowConstr(row) : null;
+    }
+
+    /**
+     * Gets the (sparse) constraint matrix of the model, which stores each
+     * non-zero coefficient once and provides both row and column views.
+     *
+     * @return the constraint matrix of the model
+     */
+    public MPMatrix getMatrix() {
+        return matrix;
     }
 
     /**
@@ -672,7 +1201,7 @@ public class MPModel {
      * @return the number of constraints in the model
      */
     public int getNConstrs() {
-        return constrs.size();
+        return nConstrRows - nDeletedConstrs;
     }
 
     /**
@@ -681,7 +1210,7 @@ public class MPModel {
      * @return the number of variables in the model
      */
     public int getNVars() {
-        return variables.size();
+        return nVarCols - nDeletedVars;
     }
 
     /**
@@ -699,7 +1228,13 @@ public class MPModel {
      * @param objective the new objective function to be considered
      */
     public void setObjective(MPObjective objective) {
-        this.objective = objective;
+        if (objective == this.objective) return;
+
+        // the coefficients of the objective are stored in the model
+        this.objective.clear();
+        this.objective.setDirection(objective.getDirection());
+        this.objective.setConstant(objective.getConstant());
+        objective.forEachTerm((var, coeff) -> this.objective.setCoeff(var, coeff));
     }
 
     /**
@@ -721,6 +1256,50 @@ public class MPModel {
         this.name = name;
     }
 
+    /**
+     * Gets the mode in which the names of variables and constraints are stored.
+     *
+     * @return the mode in which names are stored
+     */
+    public MPNames.Mode getNameMode() {
+        return varNames.mode;
+    }
+
+    /**
+     * Sets the mode in which the names of variables and constraints are stored
+     * (see {@link MPNames}). The names already in the model are converted, or
+     * discarded if the new mode is {@link MPNames.Mode#None}, in which case
+     * variables and constraints may only be accessed by their indices.
+     *
+     * @param mode the new mode in which names are stored
+     */
+    public void setNameMode(MPNames.Mode mode) {
+        MPNames newVarNames = new MPNames(mode);
+        for (int col = 0; col < matrix.getNCols(); col++) {
+            newVarNames.add(col, varNames.get(col));
+            if (varIndex.get(col) < 0) newVarNames.remove(col);
+        }
+
+        MPNames newConstrNames = new MPNames(mode);
+        for (int row = 0; row < matrix.getNRows(); row++) {
+            newConstrNames.add(row, constrNames.get(row));
+            if (constrIndex.get(row) < 0) newConstrNames.remove(row);
+        }
+
+        varNames = newVarNames;
+        constrNames = newConstrNames;
+    }
+
+    /**
+     * Gets if the names of variables and constraints are stored, i.e. if they
+     * may be accessed by their names.
+     *
+     * @return true if names are stored and false otherwise
+     */
+    public boolean hasNames() {
+        return varNames.hasNames();
+    }
+
     /**
      * Gets the current solver of the model.
      *
@@ -736,8 +1315,12 @@ public class MPModel {
      * @param solver the solver
      */
     public void setSolver(MPSolver solver) {
+        compact();
         this.solver = solver;
+        objectiveChanged = false;
         actions.clear();
+        constrDeletions.clear(nConstrRows);
+        varDeletions.clear(nVarCols);
     }
 
     /**
@@ -747,7 +1330,10 @@ public class MPModel {
      * @return the variable at position {@code index}
      */
     public MPVar getVar(int index) {
-        return variables.get(index);
+        if (nDeletedVars > 0) compact();
+        if (index < 0 || index >= nVarCols)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + nVarCols);
+        return varAt(varCols.get(index));
     }
 
     /**
@@ -757,16 +1343,101 @@ public class MPModel {
      * @return the variable that has {@code varName}
      */
     public MPVar getVar(String varName) {
-        return varsMap.get(varName);
+        int col = varNames.find(varName);
+        return col >= 0 ? matrix.getColVar(col) : null;
+    }
+
+    /**
+     * Releases a savepoint (and all savepoints created after it), keeping the
+     * changes made since then. If no savepoint remains active, the changes are
+     * no longer recorded.
+     *
+     * @param savepoint the savepoint, as returned by {@link #savepoint()}
+     */
+    public void release(int savepoint) {
+        assert savepoint >= 0 && savepoint < undoLog.nSavepoints : "invalid savepoint";
+        undoLog.nSavepoints = savepoint;
+        if (savepoint == 0) undoLog.size = 0;
+    }
+
+    /**
+     * Rolls the model back to a savepoint, i.e. restores the bounds, types and
+     * objective coefficients that the variables had when the savepoint was
+     * created, and releases the savepoint (and all savepoints created after
+     * it). Only the recorded changes are reverted, so that the cost of the
+     * rollback (and of the next update of the solver, which receives only the
+     * inverse of the changes) is proportional to the number of changes.
+     * Variables and constraints added or deleted since the savepoint are kept
+     * as they are.
+     *
+     * @param savepoint the savepoint, as returned by {@link #savepoint()}
+     */
+    public void rollback(int savepoint) {
+        assert savepoint >= 0 && savepoint < undoLog.nSavepoints : "invalid savepoint";
+        int start = undoLog.savepointSizes[savepoint];
+        int nCols = undoLog.savepointCols[savepoint];
+
+        // changes are reverted in reverse order (those recorded while
+        // reverting are discarded below)
+        for (int i = undoLog.size - 1; i >= start; i--) {
+            MPVar var = undoLog.vars[i];
+            if (var.col >= nCols || var.isDeleted()) continue;
+
+            switch (undoLog.kinds[i]) {
+                case UndoLog.BOUNDS:
+                    var.setBounds(undoLog.prev1[i], undoLog.prev2[i]);
+                    break;
+                case UndoLog.TYPE:
+                    var.setType(( char ) undoLog.prev1[i]);
+                    break;
+                case UndoLog.OBJ:
+                    objective.setCoeff(var, undoLog.prev1[i]);
+                    break;
+            }
+        }
+
+        undoLog.size = start;
+        release(savepoint);
+    }
+
+    /**
+     * Creates a savepoint, so that the changes of bounds, types and objective
+     * coefficients of variables made from now on may be reverted with {@link
+     * #rollback(int)}. Savepoints may be nested. Changes are only recorded
+     * while there is an active savepoint.
+     *
+     * @return the savepoint
+     */
+    public int savepoint() {
+        return undoLog.push(matrix.getNCols());
+    }
+
+    /**
+     * Creates a frozen snapshot of the model, with the constraint matrix
+     * stored in compressed sparse row and column formats. The snapshot is not
+     * updated by later modifications of the model.
+     *
+     * @return the snapshot of the model
+     */
+    public MPSnapshot snapshot() {
+        return new MPSnapshot(this);
     }
 
     /**
      * Updates the solver with the latest modifications in the model.
      */
     public void updateSolver() {
+        compact();
+        compactActions();
+
         solver.updateModel();
-        solver.updateObjective();
+        if (objectiveChanged) {
+            solver.updateObjective();
+            objectiveChanged = false;
+        }
         actions.clear();
+        constrDeletions.clear(nConstrRows);
+        varDeletions.clear(nVarCols);
     }
 
     /**
@@ -775,7 +1446,21 @@ public class MPModel {
      * @return the iterable of the variables of the model
      */
     public Iterable<MPVar> vars() {
-        return variables;
+        if (nDeletedVars > 0) compact();
+        return () -> new Iterator<MPVar>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < nVarCols;
+            }
+
+            @Override
+            public MPVar next() {
+                if (next >= nVarCols) throw new NoSuchElementException();
+                return varAt(varCols.get(next++));
+            }
+        };
     }
 
 
@@ -787,4 +1472,382 @@ public class MPModel {
     protected void addAction(MPAction action) {
         if (solver != null) actions.add(action);
     }
+
+    /**
+     * Gets the constraint at a position (row) of the matrix, creating its
+     * handle if necessary.
+     *
+     * @param row the position of the constraint
+     * @return the constraint at the position
+     */
+    protected MPLinConstr constrAt(int row) {
+        MPLinConstr constr = constrHandles.get(row);
+        if (constr == null) constrHandles.set(row, constr = new MPLinConstr(this, row));
+        return constr;
+    }
+
+    /**
+     * Gets the variable at a position (column) of the matrix, creating its
+     * handle if necessary.
+     *
+     * @param col the position of the variable
+     * @return the variable at the position
+     */
+    protected MPVar varAt(int col) {
+        MPVar variable = varHandles.get(col);
+        if (variable == null) varHandles.set(col, variable = new MPVar(this, col));
+        return variable;
+    }
+
+
+    /**
+     * Compacts the (pending) actions before they are sent to the solver: the
+     * actions of deleted elements are discarded, deletions and additions are
+     * consolidated in single (batched) actions, modifications of elements not
+     * yet in the solver are dropped (they are sent with the element itself),
+     * successive modifications of an element are merged and modifications
+     * which restore the values in the solver are skipped. The actions are
+     * grouped by kind, in the order in which the solvers apply them.
+     */
+    private void compactActions() {
+        int nSyncedVars = varDeletions.getNSynced();
+        int nSyncedConstrs = constrDeletions.getNSynced();
+
+        ArrayList<MPVar> addedVars = new ArrayList<>();
+        ArrayList<MPLinConstr> addedConstrs = new ArrayList<>();
+        LinkedHashMap<MPVar, MPAction> boundsActions = new LinkedHashMap<>();
+        LinkedHashMap<MPVar, MPAction> typeActions = new LinkedHashMap<>();
+        LinkedHashMap<Long, MPAction> editActions = new LinkedHashMap<>();
+
+        for (MPAction action : actions) {
+            action = action.withoutDeleted();
+            if (action == null) continue;
+
+            switch (action.type) {
+                case AddVar:
+                    if (action.variables != null) Collections.addAll(addedVars, action.variables);
+                    else addedVars.add(action.variable);
+                    break;
+
+                case AddConstr:
+                    if (action.constrs != null) Collections.addAll(addedConstrs, action.constrs);
+                    else addedConstrs.add(action.constr);
+                    break;
+
+                case SetVarBounds:
+                    // the first action of a variable keeps the bounds in the solver
+                    if (action.variable.getIndex() < nSyncedVars)
+                        boundsActions.putIfAbsent(action.variable, action);
+                    break;
+
+                case SetVarType:
+                    if (action.variable.getIndex() < nSyncedVars)
+                        typeActions.putIfAbsent(action.variable, action);
+                    break;
+
+                case EditConstr:
+                    // the last action of a coefficient holds its current value
+                    if (action.constr.getIndex() < nSyncedConstrs && action.variable.getIndex() < nSyncedVars) {
+                        long key = (( long ) action.constr.row << 32) | action.variable.col;
+                        editActions.remove(key);
+                        editActions.put(key, action);
+                    }
+                    break;
+
+                default:
+                    break;
+            }
+        }
+
+        actions.clear();
+        if (varDeletions.size > 0)
+            actions.add(new MPAction(MPAction.ActionType.DelVar, varDeletions.toArray()));
+        if (constrDeletions.size > 0)
+            actions.add(new MPAction(MPAction.ActionType.DelConstr, constrDeletions.toArray()));
+        if (!addedVars.isEmpty())
+            actions.add(new MPAction(MPAction.ActionType.AddVar, addedVars.toArray(new MPVar[0])));
+        for (MPAction action : boundsActions.values())
+            if (action.variable.getLB() != action.prevLB || action.variable.getUB() != action.prevUB)
+                actions.add(action);
+        for (MPAction action : typeActions.values())
+            if (action.variable.getType() != action.prevType)
+                actions.add(action);
+        if (!addedConstrs.isEmpty())
+            actions.add(new MPAction(MPAction.ActionType.AddConstr, addedConstrs.toArray(new MPLinConstr[0])));
+        actions.addAll(editActions.values());
+    }
+
+    /**
+     * Adds a new (empty) constraint to the matrix and to the list of
+     * constraints of the model.
+     */
+    private MPLinConstr newConstr(double constant, char sense) {
+        assert sense == MPLinConstr.LE || sense == MPLinConstr.EQ || sense == MPLinConstr.GE : "invalid sense for constraint";
+
+        int row = matrix.addRow();
+        constrConstant.set(row, constant);
+        constrSense.set(row, sense);
+        constrIndex.set(row, nConstrRows);
+        constrRows.set(nConstrRows++, row);
+        return constrAt(row);
+    }
+
+    /**
+     * Adds a new variable to the matrix and to the list of variables of the
+     * model.
+     */
+    private MPVar newVar(double lb, double ub, char type) {
+        assert type != 'B' || lb >= 0. && ub <= 1.;
+
+        int col = matrix.addCol();
+        varLB.set(col, lb);
+        varUB.set(col, ub);
+        varObj.set(col, 0.);
+        varType.set(col, type);
+        varIndex.set(col, nVarCols);
+        varCols.set(nVarCols++, col);
+
+        if (type == 'B' || type == 'I')
+            intVarCount++;
+        return varAt(col);
+    }
+
+    /**
+     * Gets the (reusable) accumulator used to add constraints with terms on
+     * both sides, which must be cleared after use.
+     */
+    private MPLinExprAccumulator scratchAccumulator() {
+        if (scratch == null) scratch = new MPLinExprAccumulator(this);
+        return scratch;
+    }
+
+    /**
+     * Records the bounds of a variable before a change, if there is an active
+     * savepoint.
+     */
+    protected void logBounds(MPVar variable, double lb, double ub) {
+        if (undoLog.nSavepoints > 0) undoLog.add(UndoLog.BOUNDS, variable, lb, ub);
+    }
+
+    /**
+     * Records the objective coefficient of a variable before a change, if
+     * there is an active savepoint.
+     */
+    protected void logObj(MPVar variable, double obj) {
+        if (undoLog.nSavepoints > 0) undoLog.add(UndoLog.OBJ, variable, obj, 0.);
+    }
+
+    /**
+     * Records the type of a variable before a change, if there is an active
+     * savepoint.
+     */
+    protected void logType(MPVar variable, char type) {
+        if (undoLog.nSavepoints > 0) undoLog.add(UndoLog.TYPE, variable, type, 0.);
+    }
+
+    /**
+     * Creates a model whose data (matrix, bounds, types, objective, etc.) are
+     * memory-mapped (read-only) from a file written by {@link #save(Path)},
+     * so that they stay off-heap, in the page cache of the operating system,
+     * which is shared by all processes mapping the same file. Only the tables
+     * of pages and the (lightweight) handles of the variables and constraints
+     * used are kept in the heap, and the handles are only created on demand.
+     * <p>
+     * The model may be modified as any other: the pages written are copied to
+     * the heap first (as for forks, see {@link #fork()}), and the file itself
+     * is never modified, but it must not be modified (or overwritten) by
+     * others while the model is used. The names, if any, are stored in mode
+     * {@link MPNames.Mode#Lazy}: they are read from the file when requested,
+     * and indexed only when a variable or constraint is searched by name.
+     *
+     * @param path the path of the file
+     * @return the model
+     * @throws IOException if the file cannot be mapped or is not a model file
+     */
+    public static MPModel map(Path path) throws IOException {
+        try (MappedFile.Reader reader = new MappedFile.Reader(path)) {
+            return new MPModel(reader);
+        }
+    }
+
+    /**
+     * Maps the names written by {@link #writeNames(MappedFile.Writer, MPNames,
+     * int)} as lazy names; elements with negative indices (i.e. deleted) are
+     * removed from the index.
+     */
+    private static MPNames mapNames(MappedFile.Reader reader, boolean hasNames, int n, PagedIntArray indices) throws IOException {
+        if (!hasNames) {
+            MPNames names = new MPNames(MPNames.Mode.None);
+            names.addRange(0, n, null);
+            return names;
+        }
+
+        PagedIntArray offsets = PagedIntArray.map(reader, n + 1);
+        reader.align();
+        ByteBuffer pool[] = reader.map(offsets.get(n), 1, NAMES_PAGE);
+
+        MPNames names = new MPNames(MPNames.Mode.Lazy);
+        names.addRange(0, n, id -> {
+            int start = offsets.get(id), end = offsets.get(id + 1);
+            if (start == end) return null;
+
+            byte bytes[] = new byte[end - start];
+            for (int i = start; i < end; i++)
+                bytes[i - start] = pool[i / NAMES_PAGE].get(i % NAMES_PAGE);
+            return new String(bytes, StandardCharsets.UTF_8);
+        });
+        for (int id = 0; id < n; id++)
+            if (indices.get(id) < 0) names.remove(id);
+        return names;
+    }
+
+    /**
+     * Writes the names of the first n elements (positions): first the offsets
+     * of the names in the pool of (UTF-8) bytes, then the pool itself. Null
+     * (and empty) names are stored as empty.
+     */
+    private static void writeNames(MappedFile.Writer writer, MPNames names, int n) throws IOException {
+        writer.align();
+        long offset = 0;
+        for (int id = 0; id < n; id++) {
+            writer.putInt(( int ) offset);
+            String name = names.get(id);
+            if (name != null) offset += name.getBytes(StandardCharsets.UTF_8).length;
+            if (offset > Integer.MAX_VALUE) throw new IOException("names of the model are too long to be saved");
+        }
+        writer.putInt(( int ) offset);
+
+        writer.align();
+        for (int id = 0; id < n; id++) {
+            String name = names.get(id);
+            if (name == null) continue;
+            byte bytes[] = name.getBytes(StandardCharsets.UTF_8);
+            writer.putBytes(bytes, 0, bytes.length);
+        }
+    }
+
+
+    /**
+     * This class appends the terms it receives to a row of the matrix; it is
+     * reused by all constraints, so that no consumer is created per
+     * constraint.
+     */
+    private class RowAppender implements MPLinExpr.TermConsumer {
+
+        int row;
+
+        @Override
+        public void accept(MPVar variable, double coeff) {
+            assert variable.model == MPModel.this : "variable " + variable.getName() + " belongs to another model";
+            matrix.append(row, variable.col, coeff);
+        }
+    }
+
+    /**
+     * This class stores the (sorted) positions, in the solver, of the deleted
+     * elements (variables or constraints) which were already in the solver,
+     * i.e. the deletions not yet sent to the solver.
+     */
+    private static class Deletions {
+
+        private int positions[] = new int[0];
+        private int size = 0;
+        private int synced = 0;
+
+        /**
+         * Merges the positions of elements removed by a compaction, given as
+         * (sorted) indices of the model before the compaction.
+         */
+        void add(int removed[], int nRemoved) {
+            if (nRemoved == 0) return;
+
+            int merged[] = new int[size + nRemoved];
+            int n = 0, j = 0;
+            for (int i = 0; i < nRemoved; i++) {
+                // the position in the solver skips all previously removed ones
+                int position = removed[i] + j;
+                while (j < size && positions[j] <= position) {
+                    merged[n++] = positions[j++];
+                    position++;
+                }
+                merged[n++] = position;
+            }
+            while (j < size)
+                merged[n++] = positions[j++];
+
+            positions = merged;
+            size = n;
+        }
+
+        void clear(int synced) {
+            this.positions = new int[0];
+            this.size = 0;
+            this.synced = synced;
+        }
+
+        /**
+         * Gets the number of elements in the solver which are still in the
+         * model (even if deleted but not yet compacted).
+         */
+        int getNSynced() {
+            return synced - size;
+        }
+
+        long getMemoryUsage() {
+            return MemorySizes.object(MemorySizes.REFERENCE + 2 * 4) + MemorySizes.array(positions.length, 4);
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(positions, size);
+        }
+    }
+
+    /**
+     * This class stores the changes of variables (previous values) recorded
+     * since the oldest active savepoint, and the savepoints themselves.
+     */
+    private static class UndoLog {
+
+        static final byte BOUNDS = 0, TYPE = 1, OBJ = 2;
+
+        private byte kinds[] = new byte[16];
+        private MPVar vars[] = new MPVar[16];
+        private double prev1[] = new double[16], prev2[] = new double[16];
+        private int size = 0;
+
+        // size of the log and number of columns of the matrix at each savepoint
+        private int savepointSizes[] = new int[4], savepointCols[] = new int[4];
+        private int nSavepoints = 0;
+
+        void add(byte kind, MPVar var, double value1, double value2) {
+            if (size == kinds.length) {
+                int capacity = size + (size >> 1);
+                kinds = Arrays.copyOf(kinds, capacity);
+                vars = Arrays.copyOf(vars, capacity);
+                prev1 = Arrays.copyOf(prev1, capacity);
+                prev2 = Arrays.copyOf(prev2, capacity);
+            }
+            kinds[size] = kind;
+            vars[size] = var;
+            prev1[size] = value1;
+            prev2[size] = value2;
+            size++;
+        }
+
+        long getMemoryUsage() {
+            return MemorySizes.object(6 * MemorySizes.REFERENCE + 2 * 4) + MemorySizes.array(kinds.length, 1)
+              + MemorySizes.array(vars.length, MemorySizes.REFERENCE) + 2 * MemorySizes.array(prev1.length, 8)
+              + 2 * MemorySizes.array(savepointSizes.length, 4);
+        }
+
+        int push(int nCols) {
+            if (nSavepoints == savepointSizes.length) {
+                savepointSizes = Arrays.copyOf(savepointSizes, 2 * nSavepoints);
+                savepointCols = Arrays.copyOf(savepointCols, 2 * nSavepoints);
+            }
+            savepointSizes[nSavepoints] = size;
+            savepointCols[nSavepoints] = nCols;
+            return nSavepoints++;
+        }
+    }
 }
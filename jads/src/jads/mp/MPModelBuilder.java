@@ -0,0 +1,309 @@
+package jads.mp;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * This class allows a model to be built by several threads at once. Each
+ * thread (or task) appends its variables and constraints to its own segment,
+ * identified by a key (e.g. the time period or the facility generated by the
+ * task), without any synchronization. The segments are merged into the model
+ * by {@link #build()}, in increasing order of key, so that the resulting model
+ * does not depend on the scheduling of the threads.
+ * <p>
+ * Variables are referenced by (long) references, which combine the id of the
+ * segment of the variable and its position in the segment, so that threads
+ * never compete for indices. Variables already in the model may also be
+ * referenced (see {@link #ref(MPVar)}), and variables may be found by name
+ * (from any segment) while the model is built. Accesses to the model from
+ * the threads (finding names and indices) are synchronized on the model.
+ * <p>
+ * The model must not be modified by other means while it is built.
+ *
+ * @author Tulio Toffolo
+ */
+public class MPModelBuilder {
+
+    private final MPModel model;
+
+    private final AtomicInteger nextSegmentId = new AtomicInteger(1);
+    private final ConcurrentHashMap<Integer, Segment> segments = new ConcurrentHashMap<Integer, Segment>();
+    private final ConcurrentHashMap<String, Long> varRefs = new ConcurrentHashMap<String, Long>();
+
+    // variables of each segment (by id) created by the last build
+    private MPVar builtVars[][] = new MPVar[0][];
+
+
+    /**
+     * Instantiates a new Model Builder for a new (empty) model.
+     *
+     * @param name the name of the model
+     */
+    public MPModelBuilder(String name) {
+        this(new MPModel(name));
+    }
+
+    /**
+     * Instantiates a new Model Builder, which appends variables and
+     * constraints to an existing model.
+     *
+     * @param model the model
+     */
+    public MPModelBuilder(MPModel model) {
+        this.model = model;
+    }
+
+
+    /**
+     * Appends the variables and constraints of all segments to the model, in
+     * increasing order of key of the segments (and, within a segment, in the
+     * order in which they were added): first the variables of all segments,
+     * then their constraints. The segments are discarded afterwards, but the
+     * references of their variables remain valid for {@link #getVar(long)}
+     * until the next build.
+     *
+     * @return the model
+     */
+    public synchronized MPModel build() {
+        synchronized (model) {
+            return buildLocked();
+        }
+    }
+
+    /**
+     * Appends the segments to the model, which is locked by the caller.
+     */
+    private MPModel buildLocked() {
+        ArrayList<Segment> sorted = new ArrayList<Segment>(segments.values());
+        sorted.sort(Comparator.comparingInt(segment -> segment.key));
+
+        builtVars = new MPVar[nextSegmentId.get()][];
+        for (Segment segment : sorted) {
+            String names[] = segment.varNames;
+            builtVars[segment.id] = model.addVars(segment.nVars, segment.lb, segment.ub, segment.obj, segment.types,
+              names != null ? i -> names[i] : null);
+        }
+
+        for (Segment segment : sorted) {
+            int varIndices[] = new int[segment.nnz];
+            for (int k = 0; k < segment.nnz; k++)
+                varIndices[k] = getVar(segment.refs[k]).getIndex();
+
+            String names[] = segment.constrNames;
+            model.addConstrs(segment.nConstrs, segment.rowStart, varIndices, segment.values, segment.senses, segment.rhs,
+              names != null ? i -> names[i] : null);
+        }
+
+        segments.clear();
+        varRefs.clear();
+        return model;
+    }
+
+    /**
+     * Gets the reference of the variable with a certain name, among the
+     * variables already in the model and those added to the segments. If
+     * several variables have the same name, any of them may be returned.
+     *
+     * @param varName the name of the variable
+     * @return the reference of the variable or -1 if there is no such variable
+     */
+    public long findVar(String varName) {
+        Long ref = varRefs.get(varName);
+        if (ref != null) return ref;
+
+        // finding a name may index pending (lazy) names and getting an index
+        // may compact the model, so the model is locked
+        synchronized (model) {
+            MPVar var = model.hasNames() ? model.getVar(varName) : null;
+            return var != null ? var.getIndex() : -1;
+        }
+    }
+
+    /**
+     * Gets the model being built.
+     *
+     * @return the model
+     */
+    public MPModel getModel() {
+        return model;
+    }
+
+    /**
+     * Gets the variable of a reference, which must be either the reference of
+     * a variable of the model or of a variable of a segment merged by the last
+     * {@link #build()}.
+     *
+     * @param ref the reference
+     * @return the variable
+     */
+    public MPVar getVar(long ref) {
+        int segmentId = ( int ) (ref >>> 32), i = ( int ) ref;
+        if (segmentId != 0) return builtVars[segmentId][i];
+        synchronized (model) {
+            return model.getVar(i);
+        }
+    }
+
+    /**
+     * Gets the reference of a variable already in the model.
+     *
+     * @param var the variable
+     * @return the reference of the variable
+     * @throws IllegalArgumentException if the variable belongs to another
+     *                                  model
+     */
+    public long ref(MPVar var) {
+        if (var.model != model)
+            throw new IllegalArgumentException("variable " + var.getName() + " belongs to another model");
+
+        // getting an index may compact the model, so the model is locked
+        synchronized (model) {
+            return var.getIndex();
+        }
+    }
+
+    /**
+     * Creates a new segment, with a certain key. This method may be called by
+     * several threads at once.
+     *
+     * @param key the key of the segment, which defines the position of its
+     *            variables and constraints in the model
+     * @return the segment
+     * @throws IllegalArgumentException if there is already a segment with the
+     *                                  key
+     */
+    public Segment segment(int key) {
+        Segment segment = new Segment(key);
+        if (segments.putIfAbsent(key, segment) != null)
+            throw new IllegalArgumentException("there is already a segment with key " + key);
+        return segment;
+    }
+
+
+    /**
+     * This class represents a segment of the model, i.e. a sequence of
+     * variables and constraints appended by a single thread. A segment must
+     * not be used by several threads at once.
+     */
+    public class Segment {
+
+        public final int key;
+        private final int id;
+
+        // variables
+        private int nVars = 0;
+        private double lb[] = new double[16], ub[] = new double[16], obj[] = new double[16];
+        private char types[] = new char[16];
+        private String varNames[];
+
+        // constraints, in compressed sparse row format
+        private int nConstrs = 0, nnz = 0;
+        private int rowStart[] = new int[17];
+        private long refs[] = new long[64];
+        private double values[] = new double[64];
+        private char senses[] = new char[16];
+        private double rhs[] = new double[16];
+        private String constrNames[];
+
+        private Segment(int key) {
+            this.key = key;
+            this.id = nextSegmentId.getAndIncrement();
+            if (model.hasNames()) {
+                varNames = new String[16];
+                constrNames = new String[16];
+            }
+        }
+
+        /**
+         * Adds a linear constraint to the segment. Each variable may appear
+         * at most once in the constraint.
+         *
+         * @param vars   the references of the variables of the left-hand side
+         * @param coeffs the coefficients of the variables
+         * @param sense  the sense of the constraint ('&lt;', '&gt;' or '=')
+         * @param rhs    the right-hand side of the constraint
+         * @param name   the name of the constraint
+         */
+        public void addConstr(long vars[], double coeffs[], char sense, double rhs, String name, Object... nameArgs) {
+            assert vars.length == coeffs.length;
+            assert sense == MPLinConstr.LE || sense == MPLinConstr.EQ || sense == MPLinConstr.GE : "invalid sense for constraint";
+
+            if (nConstrs + 1 == rowStart.length) {
+                int capacity = nConstrs + (nConstrs >> 1) + 1;
+                rowStart = Arrays.copyOf(rowStart, capacity + 1);
+                senses = Arrays.copyOf(senses, capacity);
+                this.rhs = Arrays.copyOf(this.rhs, capacity);
+                if (constrNames != null) constrNames = Arrays.copyOf(constrNames, capacity);
+            }
+            if (nnz + vars.length > refs.length) {
+                int capacity = Math.max(nnz + vars.length, refs.length + (refs.length >> 1));
+                refs = Arrays.copyOf(refs, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+
+            System.arraycopy(vars, 0, refs, nnz, vars.length);
+            System.arraycopy(coeffs, 0, values, nnz, coeffs.length);
+            nnz += vars.length;
+
+            senses[nConstrs] = sense;
+            this.rhs[nConstrs] = rhs;
+            if (constrNames != null)
+                constrNames[nConstrs] = nameArgs == null || nameArgs.length == 0 ? name : String.format(name, nameArgs);
+            rowStart[++nConstrs] = nnz;
+        }
+
+        /**
+         * Adds a variable to the segment.
+         *
+         * @param lb   the lower bound of the variable
+         * @param ub   the upper bound of the variable
+         * @param obj  the coefficient of the variable in the objective function
+         * @param type the type of the variable ('C' for continuous, 'I' for
+         *             integer or 'B' for binary)
+         * @param name the name of the variable
+         * @return the reference of the variable
+         */
+        public long addVar(double lb, double ub, double obj, char type, String name, Object... nameArgs) {
+            if (nVars == types.length) {
+                int capacity = nVars + (nVars >> 1);
+                this.lb = Arrays.copyOf(this.lb, capacity);
+                this.ub = Arrays.copyOf(this.ub, capacity);
+                this.obj = Arrays.copyOf(this.obj, capacity);
+                types = Arrays.copyOf(types, capacity);
+                if (varNames != null) varNames = Arrays.copyOf(varNames, capacity);
+            }
+
+            long ref = (( long ) id << 32) | nVars;
+            this.lb[nVars] = lb;
+            this.ub[nVars] = ub;
+            this.obj[nVars] = obj;
+            types[nVars] = type;
+            if (varNames != null) {
+                String formatted = nameArgs == null || nameArgs.length == 0 ? name : String.format(name, nameArgs);
+                varNames[nVars] = formatted;
+                if (formatted != null) varRefs.put(formatted, ref);
+            }
+            nVars++;
+            return ref;
+        }
+
+        /**
+         * Gets the number of constraints in the segment.
+         *
+         * @return the number of constraints in the segment
+         */
+        public int getNConstrs() {
+            return nConstrs;
+        }
+
+        /**
+         * Gets the number of variables in the segment.
+         *
+         * @return the number of variables in the segment
+         */
+        public int getNVars() {
+            return nVars;
+        }
+    }
+}
@@ -0,0 +1,547 @@
+package jads.mp;
+
+import jads.mp.util.*;
+
+import java.nio.charset.*;
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * This class stores the names of the variables (or of the constraints) of a
+ * model, and the index from names to elements. Elements are identified by
+ * their (stable) position in the matrix of the model, and must be added in
+ * increasing order of position. The names may be stored in one of the
+ * following modes:
+ * <ul>
+ * <li>{@link Mode#Eager}: one String per element, indexed by a HashMap;</li>
+ * <li>{@link Mode#Compact}: a Latin-1 byte pool, indexed by an open-addressing
+ * hash table over the pool;</li>
+ * <li>{@link Mode#Lazy}: names are generated (only when requested) from their
+ * patterns and arguments; the compact pool and its index are only built (for
+ * the elements added since the last lookup) when a name is searched;</li>
+ * <li>{@link Mode#None}: names are not stored at all, so that elements may only
+ * be accessed by their indices.</li>
+ * </ul>
+ * A storage may also be a layer over another (read-only) storage, its base,
+ * which holds the names of the first elements; this allows the names to be
+ * shared by a model and its forks (see {@link MPModel#fork()}).
+ *
+ * @author Tulio Toffolo
+ */
+public class MPNames {
+
+    private static final int EMPTY = 0;
+
+    public final Mode mode;
+
+    private int nIds = 0;
+
+    // eager mode
+    private String strings[];
+    private HashMap<String, Integer> stringsMap;
+
+    // compact pool: the name of id is stored in pool[start[id] .. start[id + 1] - 1]
+    private byte pool[];
+    private int poolSize = 0;
+    private int start[];
+    private HashMap<Integer, String> wideNames; // names with non Latin-1 characters
+
+    // open-addressing (linear probing) index, whose slots store id + 1
+    private int slots[], slotHashes[];
+    private int nSlotsUsed = 0;
+
+    // lazy mode: names of ids in [rangeFirst[r], rangeFirst[r + 1]) are given by rangeNames[r]
+    private int rangeFirst[];
+    private IntFunction<String> rangeNames[];
+    private int nRanges = 0;
+    private int nIndexed = 0;
+    private BitSet removedIds;
+
+    // layer over a base: the names of elements [0, baseIds) are those of the base
+    private MPNames base = null;
+    private int baseIds = 0;
+    private BitSet baseRemoved = null;
+    private int depth = 0;
+
+
+    /**
+     * Instantiates a new (empty) storage of names.
+     *
+     * @param mode the mode in which names are stored
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes", "fallthrough" })
+    public MPNames(Mode mode) {
+        this.mode = mode;
+
+        switch (mode) {
+            case Eager:
+                strings = new String[16];
+                stringsMap = new HashMap<String, Integer>();
+                break;
+
+            case Lazy:
+                rangeFirst = new int[16];
+                rangeNames = new IntFunction[16];
+                removedIds = new BitSet();
+                // fall through: the pool is used to index lazy names
+
+            case Compact:
+                pool = new byte[256];
+                start = new int[17];
+                slots = new int[16];
+                slotHashes = new int[16];
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Instantiates a new (empty) storage of names, as a layer over a base
+     * storage (with the same mode), which must not be modified afterwards.
+     * New elements are added to the layer, and elements of the base removed
+     * through the layer are only removed from the layer.
+     *
+     * @param base the base storage
+     */
+    public MPNames(MPNames base) {
+        this(base.mode);
+        this.base = base;
+        this.baseIds = base.baseIds + base.nIds;
+        this.baseRemoved = new BitSet();
+        this.depth = base.depth + 1;
+    }
+
+
+    /**
+     * Gets the element (position) with a certain name.
+     *
+     * @param name the name
+     * @return the position of the element with the name or -1 if there is no
+     * such element
+     * @throws UnsupportedOperationException if names are not stored (mode
+     *                                       None)
+     */
+    public int find(String name) {
+        int id = findLocal(name);
+        if (id >= 0) return baseIds + id;
+
+        if (base != null) {
+            id = base.find(name);
+            if (id >= 0 && id < baseIds && !baseRemoved.get(id)) return id;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the name of an element (position).
+     *
+     * @param id the position of the element
+     * @return the name of the element, or null if names are not stored
+     */
+    public String get(int id) {
+        return id < baseIds ? base.get(id) : getLocal(id - baseIds);
+    }
+
+    /**
+     * Gets the depth of this storage, i.e. the number of bases below it.
+     *
+     * @return the depth of this storage
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Gets the (approximate) number of bytes used by this storage, including
+     * its bases (which may be shared with other storages).
+     *
+     * @return the number of bytes used by this storage
+     */
+    public long getMemoryUsage() {
+        long bytes = MemorySizes.object(16 * MemorySizes.REFERENCE + 7 * 4);
+        if (strings != null) {
+            bytes += MemorySizes.array(strings.length, MemorySizes.REFERENCE);
+            for (int i = 0; i < nIds; i++)
+                bytes += MemorySizes.string(strings[i]);
+        }
+        if (stringsMap != null)
+            bytes += MemorySizes.object(6 * MemorySizes.REFERENCE + 4 * 4) + stringsMap.size() * (MemorySizes.HASH_ENTRY + MemorySizes.object(4));
+        if (pool != null) bytes += MemorySizes.array(pool.length, 1);
+        if (start != null) bytes += MemorySizes.array(start.length, 4);
+        if (wideNames != null) {
+            for (String name : wideNames.values())
+                bytes += MemorySizes.HASH_ENTRY + MemorySizes.object(4) + MemorySizes.string(name) + name.length();
+        }
+        if (slots != null) bytes += MemorySizes.array(slots.length, 4) + MemorySizes.array(slotHashes.length, 4);
+        if (rangeFirst != null)
+            bytes += MemorySizes.array(rangeFirst.length, 4) + MemorySizes.array(rangeNames.length, MemorySizes.REFERENCE);
+        bytes += MemorySizes.bitSet(removedIds) + MemorySizes.bitSet(baseRemoved);
+        return base != null ? bytes + base.getMemoryUsage() : bytes;
+    }
+
+    /**
+     * Gets if names are stored, i.e. whether the mode is not None.
+     *
+     * @return true if names are stored and false otherwise
+     */
+    public boolean hasNames() {
+        return mode != Mode.None;
+    }
+
+
+    /**
+     * Adds the name of a new element. The name is only formatted (with
+     * String.format) if there are arguments and, in mode Lazy, only when it is
+     * requested.
+     *
+     * @param id       the position of the element
+     * @param name     the name (or format string)
+     * @param nameArgs the arguments of the format string
+     */
+    protected void add(int id, String name, Object... nameArgs) {
+        assert id == baseIds + nIds : "names must be added in increasing order of position";
+
+        if (mode == Mode.Lazy) {
+            if (nameArgs == null || nameArgs.length == 0)
+                addRange(id, 1, i -> name);
+            else
+                addRange(id, 1, i -> String.format(name, nameArgs));
+            return;
+        }
+
+        id -= baseIds;
+        String formatted = nameArgs == null || nameArgs.length == 0 ? name : String.format(name, nameArgs);
+        switch (mode) {
+            case Eager:
+                if (id == strings.length)
+                    strings = Arrays.copyOf(strings, id + (id >> 1));
+                strings[id] = formatted;
+                if (formatted != null) stringsMap.put(formatted, id);
+                break;
+
+            case Compact:
+                append(id, formatted);
+                if (formatted != null) insert(id, hash(formatted));
+                break;
+
+            default:
+                break;
+        }
+        nIds++;
+    }
+
+    /**
+     * Adds the names of several new elements, with consecutive positions.
+     *
+     * @param firstId the position of the first element
+     * @param n       the number of elements
+     * @param names   the function which gives the name of the i-th element (i =
+     *                0, ..., n - 1), or null if the elements have no names
+     */
+    protected void addRange(int firstId, int n, IntFunction<String> names) {
+        assert firstId == baseIds + nIds : "names must be added in increasing order of position";
+        if (n == 0) return;
+        if (names == null) names = i -> null;
+
+        if (mode == Mode.Lazy) {
+            if (nRanges == rangeFirst.length) {
+                rangeFirst = Arrays.copyOf(rangeFirst, nRanges + (nRanges >> 1));
+                rangeNames = Arrays.copyOf(rangeNames, nRanges + (nRanges >> 1));
+            }
+            rangeFirst[nRanges] = firstId - baseIds;
+            rangeNames[nRanges] = names;
+            nRanges++;
+            nIds += n;
+        }
+        else if (mode == Mode.None) {
+            nIds += n;
+        }
+        else {
+            for (int i = 0; i < n; i++)
+                add(firstId + i, names.apply(i));
+        }
+    }
+
+    /**
+     * Gets the storage which should be shared (as a base) by the layers
+     * created when the model is forked, i.e. this storage itself, or its base
+     * if this storage is an empty layer. The returned storage must not be
+     * modified afterwards.
+     *
+     * @return the storage to be shared
+     */
+    protected MPNames freeze() {
+        if (base != null && nIds == 0 && baseRemoved.isEmpty())
+            return base;
+
+        // lazy names are indexed now, so that the shared storage is only read
+        if (mode == Mode.Lazy) indexPending();
+        return this;
+    }
+
+    /**
+     * Removes the name of an element from the index, so that it is no longer
+     * found by {@link #find(String)}. The name itself is kept.
+     *
+     * @param id the position of the element
+     */
+    @SuppressWarnings("fallthrough")
+    protected void remove(int id) {
+        if (id < baseIds) {
+            baseRemoved.set(id);
+            return;
+        }
+
+        id -= baseIds;
+        switch (mode) {
+            case Eager:
+                Integer current = stringsMap.get(strings[id]);
+                if (current != null && current == id)
+                    stringsMap.remove(strings[id]);
+                break;
+
+            case Lazy:
+                if (id >= nIndexed) {
+                    removedIds.set(id);
+                    break;
+                }
+                // fall through
+
+            case Compact:
+                delete(id);
+                break;
+
+            default:
+                break;
+        }
+    }
+
+
+    /**
+     * Gets the (local) element with a certain name, ignoring the base.
+     */
+    @SuppressWarnings("fallthrough")
+    private int findLocal(String name) {
+        switch (mode) {
+            case Eager:
+                Integer id = stringsMap.get(name);
+                return id != null ? id : -1;
+
+            case Lazy:
+                indexPending();
+                // fall through
+
+            case Compact:
+                int hash = hash(name);
+                int mask = slots.length - 1;
+                for (int s = hash & mask; slots[s] != EMPTY; s = (s + 1) & mask)
+                    if (slotHashes[s] == hash && matches(slots[s] - 1, name))
+                        return slots[s] - 1;
+                return -1;
+
+            default:
+                throw new UnsupportedOperationException("names are not stored in this model; elements may only be accessed by their indices");
+        }
+    }
+
+    /**
+     * Gets the name of a (local) element, ignoring the base.
+     */
+    @SuppressWarnings("fallthrough")
+    private String getLocal(int id) {
+        switch (mode) {
+            case Eager:
+                return strings[id];
+
+            case Lazy:
+                if (id >= nIndexed) {
+                    int r = findRange(id);
+                    return rangeNames[r].apply(id - rangeFirst[r]);
+                }
+                // fall through: indexed names are read from the pool
+
+            case Compact:
+                if (wideNames != null && wideNames.containsKey(id))
+                    return wideNames.get(id);
+                return new String(pool, start[id], start[id + 1] - start[id], StandardCharsets.ISO_8859_1);
+
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Appends the (Latin-1) bytes of the name of an element to the pool.
+     */
+    private void append(int id, String name) {
+        if (id + 1 >= start.length)
+            start = Arrays.copyOf(start, id + (id >> 1) + 2);
+        if (name == null) name = "";
+
+        int length = name.length();
+        boolean latin1 = true;
+        for (int i = 0; i < length && latin1; i++)
+            latin1 = name.charAt(i) <= 0xFF;
+
+        if (!latin1) {
+            if (wideNames == null) wideNames = new HashMap<Integer, String>();
+            wideNames.put(id, name);
+            length = 0;
+        }
+
+        if (poolSize + length > pool.length)
+            pool = Arrays.copyOf(pool, Math.max(poolSize + length, pool.length + (pool.length >> 1)));
+        for (int i = 0; i < length; i++)
+            pool[poolSize + i] = ( byte ) name.charAt(i);
+
+        start[id] = poolSize;
+        poolSize += length;
+        start[id + 1] = poolSize;
+    }
+
+    /**
+     * Removes an element from the index (backward-shift deletion).
+     */
+    private void delete(int id) {
+        int mask = slots.length - 1;
+        int s = hash(id) & mask;
+        while (slots[s] != EMPTY && slots[s] != id + 1)
+            s = (s + 1) & mask;
+        if (slots[s] == EMPTY) return;
+
+        // shifting back the following entries of the cluster
+        int hole = s;
+        for (s = (s + 1) & mask; slots[s] != EMPTY; s = (s + 1) & mask) {
+            int home = slotHashes[s] & mask;
+            if (((s - home) & mask) >= ((s - hole) & mask)) {
+                slots[hole] = slots[s];
+                slotHashes[hole] = slotHashes[s];
+                hole = s;
+            }
+        }
+        slots[hole] = EMPTY;
+        nSlotsUsed--;
+    }
+
+    private int findRange(int id) {
+        int low = 0, high = nRanges - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (rangeFirst[mid] <= id) low = mid;
+            else high = mid - 1;
+        }
+        return low;
+    }
+
+    /**
+     * Computes the hash of the name of an element stored in the pool.
+     */
+    private int hash(int id) {
+        if (wideNames != null && wideNames.containsKey(id))
+            return hash(wideNames.get(id));
+
+        int h = 0;
+        for (int i = start[id]; i < start[id + 1]; i++)
+            h = 31 * h + (pool[i] & 0xFF);
+        return h ^ (h >>> 16);
+    }
+
+    private static int hash(String name) {
+        int h = 0;
+        for (int i = 0; i < name.length(); i++)
+            h = 31 * h + name.charAt(i);
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Builds the pool and index entries of the lazy names which were not yet
+     * indexed.
+     */
+    private void indexPending() {
+        if (nIndexed == nIds) return;
+        for (int id = nIndexed; id < nIds; id++) {
+            String name = getLocal(id);
+            append(id, name);
+            if (name != null && !removedIds.get(id))
+                insert(id, hash(name));
+            nIndexed = id + 1;
+        }
+        removedIds.clear();
+    }
+
+    /**
+     * Inserts an element in the index; an element with the same name is
+     * replaced.
+     */
+    private void insert(int id, int hash) {
+        if (2 * (nSlotsUsed + 1) > slots.length)
+            rehash(2 * slots.length);
+
+        int mask = slots.length - 1;
+        int s = hash & mask;
+        for (; slots[s] != EMPTY; s = (s + 1) & mask) {
+            if (slotHashes[s] == hash && matches(slots[s] - 1, id)) {
+                slots[s] = id + 1;
+                return;
+            }
+        }
+        slots[s] = id + 1;
+        slotHashes[s] = hash;
+        nSlotsUsed++;
+    }
+
+    /**
+     * Checks if the name of an element (in the pool) is equal to a String.
+     */
+    private boolean matches(int id, String name) {
+        if (wideNames != null && wideNames.containsKey(id))
+            return wideNames.get(id).equals(name);
+
+        int length = start[id + 1] - start[id];
+        if (length != name.length()) return false;
+        for (int i = 0; i < length; i++)
+            if ((pool[start[id] + i] & 0xFF) != name.charAt(i))
+                return false;
+        return true;
+    }
+
+    /**
+     * Checks if the names of two elements (in the pool) are equal.
+     */
+    private boolean matches(int id1, int id2) {
+        if (wideNames != null && (wideNames.containsKey(id1) || wideNames.containsKey(id2)))
+            return getLocal(id1).equals(getLocal(id2));
+
+        int length = start[id1 + 1] - start[id1];
+        if (length != start[id2 + 1] - start[id2]) return false;
+        for (int i = 0; i < length; i++)
+            if (pool[start[id1] + i] != pool[start[id2] + i])
+                return false;
+        return true;
+    }
+
+    private void rehash(int capacity) {
+        int oldSlots[] = slots, oldHashes[] = slotHashes;
+        slots = new int[capacity];
+        slotHashes = new int[capacity];
+
+        int mask = capacity - 1;
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldSlots[i] == EMPTY) continue;
+            int s = oldHashes[i] & mask;
+            while (slots[s] != EMPTY) s = (s + 1) & mask;
+            slots[s] = oldSlots[i];
+            slotHashes[s] = oldHashes[i];
+        }
+    }
+
+
+    /**
+     * Enum with the possible modes of storing names.
+     */
+    public enum Mode {
+        Eager, Compact, Lazy, None
+    }
+}
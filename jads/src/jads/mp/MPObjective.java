@@ -3,7 +3,10 @@ package jads.mp;
 import java.util.*;
 
 /**
- * This class represents a Linear Objective.
+ * This class represents a Linear Objective. The coefficients of the objective
+ * are not stored in the objective itself, but in the (columns of the) model,
+ * so that they are shared (copy-on-write) with the forks of the model; the
+ * terms are therefore visited in the order of the columns of the model.
  *
  * @author Tulio Toffolo
  */
@@ -12,25 +15,100 @@ public class MPObjective extends MPLinExpr {
     public static final char MINIMIZE = '-', MAXIMIZE = '+';
 
     public final String name;
+    public final MPModel model;
     private final int hashCode;
     protected char direction = MINIMIZE;
+    private int nTerms = 0;
 
 
     /**
      * Instantiates a new Linear Objective.
+     *
+     * @param model the model of the objective
      */
-    protected MPObjective() {
+    protected MPObjective(MPModel model) {
         super(0.);
         this.name = "objective";
+        this.model = model;
         this.hashCode = name.hashCode();
     }
 
+    /**
+     * Instantiates a new Linear Objective with the same constant, direction
+     * and number of terms of another objective, for a fork of its model.
+     *
+     * @param model     the model of the objective (fork)
+     * @param objective the objective to be copied
+     */
+    protected MPObjective(MPModel model, MPObjective objective) {
+        this(model);
+        this.direction = objective.direction;
+        this.nTerms = objective.nTerms;
+        setConstant(objective.getConstant());
+    }
+
+    /**
+     * Instantiates a new Linear Objective, whose coefficients are already
+     * stored in the model (e.g. memory-mapped from a file).
+     *
+     * @param model     the model of the objective
+     * @param direction the direction of the optimization
+     * @param constant  the constant of the objective
+     * @param nTerms    the number of non-zero coefficients of the objective
+     */
+    protected MPObjective(MPModel model, char direction, double constant, int nTerms) {
+        this(model);
+        this.direction = direction;
+        this.nTerms = nTerms;
+        setConstant(constant);
+    }
+
+
+    @Override
+    public MPLinExpr addTerm(MPVar variable, double coeff) {
+        if (coeff != 0.)
+            setCoeff(variable, getCoeff(variable) + coeff);
+        return this;
+    }
 
     @Override
     public void clear() {
-        for (Map.Entry<MPVar, Double> entry : coeffs())
-            entry.getKey().setObj(0.);
-        super.clear();
+        forEachTerm((var, coeff) -> setCoeff(var, 0.));
+        setConstant(0.);
+    }
+
+    @Override
+    public Iterable<Map.Entry<MPVar, Double>> coeffs() {
+        return () -> new Iterator<Map.Entry<MPVar, Double>>() {
+            private int next = nextTerm(0);
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public Map.Entry<MPVar, Double> next() {
+                if (next < 0) throw new NoSuchElementException();
+                Map.Entry<MPVar, Double> entry = new AbstractMap.SimpleImmutableEntry<>(model.varAt(next), model.varObj.get(next));
+                next = nextTerm(next + 1);
+                return entry;
+            }
+        };
+    }
+
+    @Override
+    public void forEachTerm(TermConsumer consumer) {
+        int nCols = model.getMatrix().getNCols();
+        for (int col = 0; col < nCols; col++) {
+            double coeff = model.varObj.get(col);
+            if (coeff != 0.) consumer.accept(model.varAt(col), coeff);
+        }
+    }
+
+    @Override
+    public double getCoeff(MPVar variable) {
+        return variable.getObj();
     }
 
     /**
@@ -52,11 +130,21 @@ public class MPObjective extends MPLinExpr {
         return name;
     }
 
+    @Override
+    public int getNTerms() {
+        return nTerms;
+    }
+
     @Override
     public int hashCode() {
         return hashCode;
     }
 
+    @Override
+    public boolean hasVar(MPVar variable) {
+        return variable.getObj() != 0.;
+    }
+
     /**
      * Sets the direction of the optimization, i.e. Objective.MINIMIZE ('-') or
      * Objective.MAXIMIZE ('+').
@@ -64,12 +152,41 @@ public class MPObjective extends MPLinExpr {
      * @param direction the direction, Objective.MINIMIZE or Objective.MAXIMIZE.
      */
     public void setDirection(char direction) {
+        if (this.direction != direction) model.objectiveChanged = true;
         this.direction = direction;
     }
 
+    @Override
+    public MPLinExpr addConstant(double constant) {
+        if (constant != 0.) model.objectiveChanged = true;
+        return super.addConstant(constant);
+    }
+
+    @Override
+    public void setConstant(double constant) {
+        if (constant != getConstant()) model.objectiveChanged = true;
+        super.setConstant(constant);
+    }
+
     @Override
     public void setCoeff(MPVar variable, double coeff) {
-        super.setCoeff(variable, coeff);
+        assert variable.model == model : "variable " + variable.getName() + " belongs to another model";
+        if (Math.abs(coeff) < MPModel.EPS) coeff = 0.;
+
+        double prevCoeff = variable.getObj();
+        if (prevCoeff == 0. && coeff != 0.) nTerms++;
+        else if (prevCoeff != 0. && coeff == 0.) nTerms--;
         variable.setObj(coeff);
     }
+
+
+    /**
+     * Gets the first column, starting from a position, with a non-zero
+     * coefficient in the objective, or -1 if there is none.
+     */
+    private int nextTerm(int col) {
+        int nCols = model.getMatrix().getNCols();
+        while (col < nCols && model.varObj.get(col) == 0.) col++;
+        return col < nCols ? col : -1;
+    }
 }
@@ -0,0 +1,538 @@
+package jads.mp;
+
+import java.util.*;
+
+/**
+ * This class implements a (pure Java) presolve of a model, which creates a
+ * reduced model, and the postsolve, which maps solutions (and duals) of the
+ * reduced model back to the original model. The following reductions are
+ * applied until no further reduction is found:
+ * <ul>
+ * <li>fixed variables (with equal bounds) are removed, and their
+ * contributions moved to the right-hand sides and to the objective
+ * constant;</li>
+ * <li>empty rows are removed (or the model is declared infeasible);</li>
+ * <li>singleton rows are converted into bounds of their variables;</li>
+ * <li>bounds are tightened by activity-based propagation, and rows which are
+ * always satisfied (given the bounds) are removed;</li>
+ * <li>dominated columns, i.e. variables which can be moved to one of their
+ * bounds without violating any row nor worsening the objective, are
+ * fixed;</li>
+ * <li>duplicate rows (equal up to a multiplier) are merged, keeping the
+ * tightest one.</li>
+ * </ul>
+ * The original model is not modified. The duals of the removed rows are set
+ * to zero by the postsolve, so they are only exact if those rows are not
+ * binding in the optimal solution.
+ *
+ * @author Tulio Toffolo
+ */
+public class MPPresolve {
+
+    private static final double INF = 1e20;
+    private static final int MAX_PASSES = 20;
+
+    // minimum (relative) improvement of a bound tightened by propagation
+    private static final double MIN_IMPROVEMENT = 1e-3;
+
+    public final MPModel model;
+
+    private MPFrozenModel frozen;
+    private double lb[], ub[], rhs[];
+    private boolean colRemoved[], rowRemoved[];
+    private int rowCount[];
+    private double objOffset = 0.;
+    private boolean infeasible = false;
+
+    // indices, in the original model, of the variables and constraints of the reduced model
+    private int colMap[], rowMap[];
+
+
+    /**
+     * Instantiates a new Presolve of a model.
+     *
+     * @param model the (original) model
+     */
+    public MPPresolve(MPModel model) {
+        this.model = model;
+    }
+
+
+    /**
+     * Gets the number of constraints removed by the presolve.
+     *
+     * @return the number of constraints removed by the presolve
+     */
+    public int getNRemovedConstrs() {
+        return frozen.nConstrs - rowMap.length;
+    }
+
+    /**
+     * Gets the number of variables removed by the presolve.
+     *
+     * @return the number of variables removed by the presolve
+     */
+    public int getNRemovedVars() {
+        return frozen.nVars - colMap.length;
+    }
+
+    /**
+     * Gets the contribution of the removed (fixed) variables to the objective
+     * function, which is also added to the constant of the objective of the
+     * reduced model.
+     *
+     * @return the contribution of the removed variables to the objective
+     */
+    public double getObjOffset() {
+        return objOffset;
+    }
+
+    /**
+     * Gets the index, in the original model, of a constraint of the reduced
+     * model.
+     *
+     * @param constr the index of the constraint in the reduced model
+     * @return the index of the constraint in the original model
+     */
+    public int getOriginalConstr(int constr) {
+        return rowMap[constr];
+    }
+
+    /**
+     * Gets the index, in the original model, of a variable of the reduced
+     * model.
+     *
+     * @param var the index of the variable in the reduced model
+     * @return the index of the variable in the original model
+     */
+    public int getOriginalVar(int var) {
+        return colMap[var];
+    }
+
+    /**
+     * Gets if the presolve proved the model to be infeasible.
+     *
+     * @return true if the model is infeasible and false otherwise
+     */
+    public boolean isInfeasible() {
+        return infeasible;
+    }
+
+    /**
+     * Presolves the model, creating the reduced model.
+     *
+     * @return the reduced model, or null if the model is infeasible
+     */
+    public MPModel presolve() {
+        frozen = model.freeze();
+        lb = frozen.lb.clone();
+        ub = frozen.ub.clone();
+        rhs = frozen.rhs.clone();
+
+        // bounds of integer variables are rounded (inwards), so that the values
+        // they are fixed at are always integer and within the original bounds
+        for (int j = 0; j < frozen.nVars; j++) {
+            if (frozen.types[j] == MPVar.CONTINUOUS) continue;
+            lb[j] = Math.ceil(lb[j] - MPModel.EPS);
+            ub[j] = Math.floor(ub[j] + MPModel.EPS);
+        }
+        colRemoved = new boolean[frozen.nVars];
+        rowRemoved = new boolean[frozen.nConstrs];
+        rowCount = new int[frozen.nConstrs];
+        for (int r = 0; r < frozen.nConstrs; r++)
+            rowCount[r] = frozen.getRowSize(r);
+
+        boolean changed = true;
+        for (int pass = 0; changed && !infeasible && pass < MAX_PASSES; pass++) {
+            changed = removeFixedCols();
+            changed |= !infeasible && removeSmallRows();
+            changed |= !infeasible && propagateBounds();
+            changed |= !infeasible && fixDominatedCols();
+            changed |= !infeasible && removeDuplicateRows();
+        }
+
+        if (infeasible) {
+            colMap = rowMap = new int[0];
+            return null;
+        }
+        return buildReduced();
+    }
+
+    /**
+     * Maps the duals of the constraints of the reduced model back to the
+     * original model. The duals of the removed constraints are zero.
+     *
+     * @param duals the duals of the constraints of the reduced model
+     * @return the duals of the constraints of the original model
+     */
+    public double[] postsolveDuals(double duals[]) {
+        double originalDuals[] = new double[frozen.nConstrs];
+        for (int i = 0; i < rowMap.length; i++)
+            originalDuals[rowMap[i]] = duals[i];
+        return originalDuals;
+    }
+
+    /**
+     * Maps a solution of the reduced model back to the original model, i.e.
+     * assigns the values of the removed (fixed) variables.
+     *
+     * @param x the values of the variables of the reduced model
+     * @return the values of the variables of the original model
+     */
+    public double[] postsolve(double x[]) {
+        double originalX[] = new double[frozen.nVars];
+        for (int j = 0; j < frozen.nVars; j++)
+            if (colRemoved[j]) originalX[j] = lb[j];
+        for (int k = 0; k < colMap.length; k++)
+            originalX[colMap[k]] = x[k];
+        return originalX;
+    }
+
+
+    // region reductions
+
+    /**
+     * Removes the variables whose bounds are equal.
+     */
+    private boolean removeFixedCols() {
+        boolean changed = false;
+        for (int j = 0; j < frozen.nVars; j++) {
+            if (colRemoved[j]) continue;
+            if (lb[j] > ub[j] + MPModel.EPS) {
+                infeasible = true;
+                return changed;
+            }
+            if (ub[j] - lb[j] <= MPModel.EPS && Math.abs(lb[j]) < INF) {
+                removeCol(j, lb[j]);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Removes the empty rows and converts the singleton rows into bounds.
+     */
+    private boolean removeSmallRows() {
+        boolean changed = false;
+        for (int r = 0; r < frozen.nConstrs && !infeasible; r++) {
+            if (rowRemoved[r] || rowCount[r] > 1) continue;
+
+            if (rowCount[r] == 0) {
+                if (isViolated(frozen.senses[r], 0., rhs[r]))
+                    infeasible = true;
+                removeRow(r);
+                changed = true;
+                continue;
+            }
+
+            int i = frozen.rowStart[r];
+            while (colRemoved[frozen.rowIndex[i]]) i++;
+            int j = frozen.rowIndex[i];
+            double a = frozen.rowValue[i], value = rhs[r] / a;
+
+            // a * x <= rhs is x <= rhs / a if a > 0 and x >= rhs / a otherwise
+            char sense = frozen.senses[r];
+            if (sense == MPLinConstr.EQ || (sense == MPLinConstr.LE) == (a > 0))
+                tightenUB(j, value, 0.);
+            if (sense == MPLinConstr.EQ || (sense == MPLinConstr.GE) == (a > 0))
+                tightenLB(j, value, 0.);
+            removeRow(r);
+            changed = true;
+        }
+        return changed;
+    }
+
+    /**
+     * Tightens the bounds of the variables by activity-based propagation, and
+     * removes the rows which are always satisfied.
+     */
+    private boolean propagateBounds() {
+        boolean changed = false;
+        for (int r = 0; r < frozen.nConstrs && !infeasible; r++) {
+            if (rowRemoved[r]) continue;
+
+            // minimum and maximum activities (and number of infinite contributions)
+            double minAct = 0., maxAct = 0.;
+            int minInf = 0, maxInf = 0;
+            for (int i = frozen.rowStart[r]; i < frozen.rowStart[r + 1]; i++) {
+                int j = frozen.rowIndex[i];
+                if (colRemoved[j]) continue;
+                double a = frozen.rowValue[i];
+                double lo = a > 0 ? lb[j] : ub[j], hi = a > 0 ? ub[j] : lb[j];
+                if (Math.abs(lo) >= INF) minInf++;
+                else minAct += a * lo;
+                if (Math.abs(hi) >= INF) maxInf++;
+                else maxAct += a * hi;
+            }
+
+            char sense = frozen.senses[r];
+            boolean hasLE = sense != MPLinConstr.GE, hasGE = sense != MPLinConstr.LE;
+            if (hasLE && minInf == 0 && minAct > rhs[r] + MPModel.EPS || hasGE && maxInf == 0 && maxAct < rhs[r] - MPModel.EPS) {
+                infeasible = true;
+                return changed;
+            }
+            if ((!hasLE || maxInf == 0 && maxAct <= rhs[r] + MPModel.EPS) && (!hasGE || minInf == 0 && minAct >= rhs[r] - MPModel.EPS)) {
+                removeRow(r);
+                changed = true;
+                continue;
+            }
+
+            for (int i = frozen.rowStart[r]; i < frozen.rowStart[r + 1]; i++) {
+                int j = frozen.rowIndex[i];
+                if (colRemoved[j]) continue;
+                double a = frozen.rowValue[i];
+
+                // the activity of the other variables gives a bound for variable j
+                if (hasLE) {
+                    double lo = a > 0 ? lb[j] : ub[j];
+                    boolean loInf = Math.abs(lo) >= INF;
+                    if (minInf == 0 || minInf == 1 && loInf) {
+                        double bound = (rhs[r] - (loInf ? minAct : minAct - a * lo)) / a;
+                        changed |= a > 0 ? tightenUB(j, bound, MIN_IMPROVEMENT) : tightenLB(j, bound, MIN_IMPROVEMENT);
+                    }
+                }
+                if (hasGE) {
+                    double hi = a > 0 ? ub[j] : lb[j];
+                    boolean hiInf = Math.abs(hi) >= INF;
+                    if (maxInf == 0 || maxInf == 1 && hiInf) {
+                        double bound = (rhs[r] - (hiInf ? maxAct : maxAct - a * hi)) / a;
+                        changed |= a > 0 ? tightenLB(j, bound, MIN_IMPROVEMENT) : tightenUB(j, bound, MIN_IMPROVEMENT);
+                    }
+                }
+                if (infeasible) return changed;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Fixes the dominated columns, i.e. the variables which may be moved to
+     * one of their bounds without violating any row (they have no "lock" in
+     * that direction) nor worsening the objective.
+     */
+    private boolean fixDominatedCols() {
+        double sign = frozen.direction == MPObjective.MINIMIZE ? 1. : -1.;
+
+        boolean changed = false;
+        for (int j = 0; j < frozen.nVars; j++) {
+            if (colRemoved[j]) continue;
+
+            int upLocks = 0, downLocks = 0;
+            for (int i = frozen.colStart[j]; i < frozen.colStart[j + 1]; i++) {
+                int r = frozen.colIndex[i];
+                if (rowRemoved[r]) continue;
+                char sense = frozen.senses[r];
+                if (sense != MPLinConstr.GE) {
+                    if (frozen.colValue[i] > 0) upLocks++;
+                    else downLocks++;
+                }
+                if (sense != MPLinConstr.LE) {
+                    if (frozen.colValue[i] > 0) downLocks++;
+                    else upLocks++;
+                }
+            }
+
+            double cost = sign * frozen.obj[j];
+            if (cost >= 0 && downLocks == 0 && Math.abs(lb[j]) < INF) {
+                removeCol(j, lb[j]);
+                changed = true;
+            }
+            else if (cost <= 0 && upLocks == 0 && Math.abs(ub[j]) < INF) {
+                removeCol(j, ub[j]);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Removes the rows which are equal to another row (up to a multiplier)
+     * and are implied by it.
+     */
+    private boolean removeDuplicateRows() {
+        HashMap<Long, List<Integer>> rowsByHash = new HashMap<Long, List<Integer>>();
+        int cols[][] = new int[frozen.nConstrs][];
+        double values[][] = new double[frozen.nConstrs][];
+        double scales[] = new double[frozen.nConstrs];
+
+        boolean changed = false;
+        for (int r = 0; r < frozen.nConstrs; r++) {
+            if (rowRemoved[r] || rowCount[r] < 2) continue;
+
+            // active entries of the row, sorted by variable and normalized by the first coefficient
+            Integer order[] = new Integer[rowCount[r]];
+            for (int i = frozen.rowStart[r], k = 0; i < frozen.rowStart[r + 1]; i++)
+                if (!colRemoved[frozen.rowIndex[i]]) order[k++] = i;
+            Arrays.sort(order, Comparator.comparingInt(i -> frozen.rowIndex[i]));
+
+            cols[r] = new int[order.length];
+            values[r] = new double[order.length];
+            scales[r] = 1. / frozen.rowValue[order[0]];
+            long hash = order.length;
+            for (int k = 0; k < order.length; k++) {
+                cols[r][k] = frozen.rowIndex[order[k]];
+                values[r][k] = frozen.rowValue[order[k]] * scales[r];
+                hash = 31 * hash + cols[r][k];
+                hash = 31 * hash + Math.round(values[r][k] * 1e6);
+            }
+
+            List<Integer> candidates = rowsByHash.computeIfAbsent(hash, h -> new ArrayList<Integer>());
+            for (int other : candidates) {
+                if (rowRemoved[other] || !Arrays.equals(cols[r], cols[other]) || !equals(values[r], values[other]))
+                    continue;
+
+                // the rows are compared as intervals of the (normalized) expression
+                double interval[] = interval(r, scales[r]), otherInterval[] = interval(other, scales[other]);
+                if (Math.max(interval[0], otherInterval[0]) > Math.min(interval[1], otherInterval[1]) + MPModel.EPS) {
+                    infeasible = true;
+                    return changed;
+                }
+                if (interval[0] <= otherInterval[0] && interval[1] >= otherInterval[1]) {
+                    removeRow(r);
+                    changed = true;
+                    break;
+                }
+                if (otherInterval[0] <= interval[0] && otherInterval[1] >= interval[1]) {
+                    removeRow(other);
+                    changed = true;
+                }
+            }
+            if (!rowRemoved[r]) candidates.add(r);
+        }
+        return changed;
+    }
+
+    // endregion reductions
+
+
+    /**
+     * Creates the reduced model, with the remaining variables and rows.
+     */
+    private MPModel buildReduced() {
+        int newIndex[] = new int[frozen.nVars];
+        int nCols = 0;
+        for (int j = 0; j < frozen.nVars; j++)
+            newIndex[j] = colRemoved[j] ? -1 : nCols++;
+
+        colMap = new int[nCols];
+        double newLB[] = new double[nCols], newUB[] = new double[nCols], newObj[] = new double[nCols];
+        char newTypes[] = new char[nCols];
+        for (int j = 0; j < frozen.nVars; j++) {
+            if (colRemoved[j]) continue;
+            int k = newIndex[j];
+            colMap[k] = j;
+            newLB[k] = lb[j];
+            newUB[k] = ub[j];
+            newObj[k] = frozen.obj[j];
+            newTypes[k] = frozen.types[j];
+        }
+
+        int nRows = 0, nnz = 0;
+        for (int r = 0; r < frozen.nConstrs; r++) {
+            if (rowRemoved[r]) continue;
+            nRows++;
+            nnz += rowCount[r];
+        }
+
+        rowMap = new int[nRows];
+        int rowStart[] = new int[nRows + 1], varIndices[] = new int[nnz];
+        double values[] = new double[nnz], newRhs[] = new double[nRows];
+        char newSenses[] = new char[nRows];
+        for (int r = 0, k = 0, n = 0; r < frozen.nConstrs; r++) {
+            if (rowRemoved[r]) continue;
+            rowMap[k] = r;
+            newSenses[k] = frozen.senses[r];
+            newRhs[k] = rhs[r];
+            for (int i = frozen.rowStart[r]; i < frozen.rowStart[r + 1]; i++) {
+                if (colRemoved[frozen.rowIndex[i]]) continue;
+                varIndices[n] = newIndex[frozen.rowIndex[i]];
+                values[n++] = frozen.rowValue[i];
+            }
+            rowStart[++k] = n;
+        }
+
+        MPModel reduced = new MPModel(frozen.direction, model.getName() + "-presolved");
+        reduced.setNameMode(model.getNameMode());
+        reduced.addVars(nCols, newLB, newUB, newObj, newTypes, frozen.hasNames() ? k -> frozen.getVarName(colMap[k]) : null);
+        reduced.addConstrs(nRows, rowStart, varIndices, values, newSenses, newRhs, frozen.hasNames() ? k -> frozen.getConstrName(rowMap[k]) : null);
+        reduced.getObjective().setConstant(frozen.objConstant + objOffset);
+        return reduced;
+    }
+
+    private static boolean equals(double values1[], double values2[]) {
+        for (int k = 0; k < values1.length; k++)
+            if (Math.abs(values1[k] - values2[k]) > 1e-9) return false;
+        return true;
+    }
+
+    /**
+     * Gets the interval [lo, hi] of feasible values of a row multiplied by a
+     * scale.
+     */
+    private double[] interval(int r, double scale) {
+        char sense = frozen.senses[r];
+        if (scale < 0) sense = sense == MPLinConstr.LE ? MPLinConstr.GE : sense == MPLinConstr.GE ? MPLinConstr.LE : sense;
+        double value = rhs[r] * scale;
+        return new double[]{ sense == MPLinConstr.LE ? -Double.MAX_VALUE : value, sense == MPLinConstr.GE ? Double.MAX_VALUE : value };
+    }
+
+    private static boolean isViolated(char sense, double activity, double rhs) {
+        switch (sense) {
+            case MPLinConstr.LE:
+                return activity > rhs + MPModel.EPS;
+            case MPLinConstr.GE:
+                return activity < rhs - MPModel.EPS;
+            default:
+                return Math.abs(activity - rhs) > MPModel.EPS;
+        }
+    }
+
+    /**
+     * Removes a variable, fixed at a certain value.
+     */
+    private void removeCol(int j, double value) {
+        if (frozen.types[j] != MPVar.CONTINUOUS) value = Math.max(lb[j], Math.min(ub[j], Math.rint(value)));
+        lb[j] = ub[j] = value;
+        colRemoved[j] = true;
+        objOffset += frozen.obj[j] * value;
+        for (int i = frozen.colStart[j]; i < frozen.colStart[j + 1]; i++) {
+            int r = frozen.colIndex[i];
+            if (rowRemoved[r]) continue;
+            rhs[r] -= frozen.colValue[i] * value;
+            rowCount[r]--;
+        }
+    }
+
+    private void removeRow(int r) {
+        rowRemoved[r] = true;
+    }
+
+    /**
+     * Tightens the lower bound of a variable, if the new bound improves the
+     * current one by more than a (relative) minimum improvement.
+     */
+    private boolean tightenLB(int j, double bound, double minImprovement) {
+        if (frozen.types[j] != MPVar.CONTINUOUS) bound = Math.ceil(bound - MPModel.EPS);
+        if (bound <= -INF || bound <= lb[j] + minImprovement * Math.max(1., Math.abs(bound))) return false;
+
+        lb[j] = Math.min(bound, ub[j] + 2 * MPModel.EPS);
+        if (bound > ub[j] + MPModel.EPS) infeasible = true;
+        else if (lb[j] > ub[j]) ub[j] = lb[j];
+        return true;
+    }
+
+    /**
+     * Tightens the upper bound of a variable, if the new bound improves the
+     * current one by more than a (relative) minimum improvement.
+     */
+    private boolean tightenUB(int j, double bound, double minImprovement) {
+        if (frozen.types[j] != MPVar.CONTINUOUS) bound = Math.floor(bound + MPModel.EPS);
+        if (bound >= INF || bound >= ub[j] - minImprovement * Math.max(1., Math.abs(bound))) return false;
+
+        ub[j] = Math.max(bound, lb[j] - 2 * MPModel.EPS);
+        if (bound < lb[j] - MPModel.EPS) infeasible = true;
+        else if (ub[j] < lb[j]) lb[j] = ub[j];
+        return true;
+    }
+}
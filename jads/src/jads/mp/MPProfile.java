@@ -0,0 +1,280 @@
+package jads.mp;
+
+import java.util.*;
+import java.util.stream.*;
+
+/**
+ * This class contains structural statistics of a model: numbers of non-zero
+ * coefficients and of variables of each type, histograms of the degrees of
+ * rows and columns, ranges of coefficients, bounds, objective coefficients
+ * and right-hand sides, counts of rows of special classes (set partitioning,
+ * packing and covering, knapsack, variable bound, etc.) and the connected
+ * components of the graph of variables and constraints.
+ * <p>
+ * The statistics are computed in a single pass over the rows and another over
+ * the columns of a snapshot of the model; the rows may be processed in
+ * parallel, by blocks. They are useful to choose decompositions and solver
+ * parameters.
+ *
+ * @author Tulio Toffolo
+ */
+public class MPProfile {
+
+    private static final int BLOCK_SIZE = 4096;
+
+    public final int nVars, nConstrs, nnz;
+    public final int nBinary, nInteger, nContinuous;
+
+    // histograms of degrees, in buckets [0], [1], [2], [3, 4], [5, 8], ..., [2^(k-1) + 1, 2^k]
+    public final int rowDegrees[], colDegrees[];
+    public final int maxRowDegree, maxColDegree;
+
+    // ranges of the absolute values of the non-zero numbers (NaN if there is none)
+    public final double minCoeff, maxCoeff, minObj, maxObj, minRhs, maxRhs, minBound, maxBound;
+
+    // rows of each class
+    public final int nEquality, nEmpty, nSingleton, nVarBound;
+    public final int nSetPartitioning, nSetPacking, nSetCovering, nCardinality, nKnapsack;
+
+    // connected components of the graph of variables and constraints
+    public final int nComponents, maxComponentVars;
+
+
+    /**
+     * Instantiates a new Profile of a model, processing its rows sequentially.
+     *
+     * @param model the snapshot of the model
+     */
+    public MPProfile(MPSnapshot model) {
+        this(model, false);
+    }
+
+    /**
+     * Instantiates a new Profile of a model.
+     *
+     * @param model    the snapshot of the model
+     * @param parallel true if the rows should be processed in parallel and
+     *                 false otherwise
+     */
+    public MPProfile(MPSnapshot model, boolean parallel) {
+        nVars = model.nVars;
+        nConstrs = model.nConstrs;
+        nnz = model.nnz;
+
+        // columns
+        int binary = 0, integer = 0;
+        int colHistogram[] = new int[32];
+        int maxDegree = 0;
+        Range obj = new Range(), bound = new Range();
+        for (int j = 0; j < nVars; j++) {
+            if (model.types[j] == MPVar.BINARY) binary++;
+            else if (model.types[j] == MPVar.INTEGER) integer++;
+
+            int degree = model.getColSize(j);
+            colHistogram[bucket(degree)]++;
+            maxDegree = Math.max(maxDegree, degree);
+
+            obj.add(model.obj[j]);
+            if (model.lb[j] > -1e20) bound.add(model.lb[j]);
+            if (model.ub[j] < 1e20) bound.add(model.ub[j]);
+        }
+        nBinary = binary;
+        nInteger = integer;
+        nContinuous = nVars - binary - integer;
+        colDegrees = Arrays.copyOf(colHistogram, bucket(maxDegree) + 1);
+        maxColDegree = maxDegree;
+        minObj = obj.min();
+        maxObj = obj.max();
+        minBound = bound.min();
+        maxBound = bound.max();
+
+        // rows (by blocks, possibly in parallel)
+        int nBlocks = (nConstrs + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        IntStream blocks = IntStream.range(0, nBlocks);
+        RowStats rows = (parallel ? blocks.parallel() : blocks)
+          .mapToObj(block -> new RowStats(model, block * BLOCK_SIZE, Math.min(nConstrs, (block + 1) * BLOCK_SIZE)))
+          .reduce(RowStats::merge).orElseGet(RowStats::new);
+
+        rowDegrees = Arrays.copyOf(rows.histogram, bucket(rows.maxDegree) + 1);
+        maxRowDegree = rows.maxDegree;
+        minCoeff = rows.coeffs.min();
+        maxCoeff = rows.coeffs.max();
+        minRhs = rows.rhs.min();
+        maxRhs = rows.rhs.max();
+        nEquality = rows.nEquality;
+        nEmpty = rows.nEmpty;
+        nSingleton = rows.nSingleton;
+        nVarBound = rows.nVarBound;
+        nSetPartitioning = rows.nSetPartitioning;
+        nSetPacking = rows.nSetPacking;
+        nSetCovering = rows.nSetCovering;
+        nCardinality = rows.nCardinality;
+        nKnapsack = rows.nKnapsack;
+
+        // connected components (union-find over the variables of each row)
+        int parent[] = new int[nVars];
+        for (int j = 0; j < nVars; j++) parent[j] = j;
+        for (int r = 0; r < nConstrs; r++)
+            for (int i = model.rowStart[r] + 1; i < model.rowStart[r + 1]; i++)
+                union(parent, model.rowIndex[model.rowStart[r]], model.rowIndex[i]);
+
+        int size[] = new int[nVars];
+        int components = 0, maxSize = 0;
+        for (int j = 0; j < nVars; j++) {
+            int root = find(parent, j);
+            if (size[root]++ == 0) components++;
+            maxSize = Math.max(maxSize, size[root]);
+        }
+        nComponents = components;
+        maxComponentVars = maxSize;
+    }
+
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Variables:   %d (%d binary, %d integer, %d continuous)\n", nVars, nBinary, nInteger, nContinuous));
+        sb.append(String.format("Constraints: %d (%d equalities)\n", nConstrs, nEquality));
+        sb.append(String.format("Non-zeros:   %d (density %.3g%%)\n", nnz, nVars > 0 && nConstrs > 0 ? 100. * nnz / nVars / nConstrs : 0.));
+        sb.append(String.format("Ranges:      matrix [%.0e, %.0e], objective [%.0e, %.0e], bounds [%.0e, %.0e], rhs [%.0e, %.0e]\n",
+          minCoeff, maxCoeff, minObj, maxObj, minBound, maxBound, minRhs, maxRhs));
+        sb.append(String.format("Row degrees:    %s (max %d)\n", histogram(rowDegrees), maxRowDegree));
+        sb.append(String.format("Column degrees: %s (max %d)\n", histogram(colDegrees), maxColDegree));
+        sb.append(String.format("Row classes: %d set partitioning, %d set packing, %d set covering, %d cardinality, %d knapsack, %d variable bound, %d singleton, %d empty\n",
+          nSetPartitioning, nSetPacking, nSetCovering, nCardinality, nKnapsack, nVarBound, nSingleton, nEmpty));
+        sb.append(String.format("Components:  %d (largest with %d variables)\n", nComponents, maxComponentVars));
+        return sb.toString();
+    }
+
+
+    /**
+     * Gets the bucket of a degree in the histograms.
+     */
+    private static int bucket(int degree) {
+        return degree <= 1 ? degree : 33 - Integer.numberOfLeadingZeros(degree - 1);
+    }
+
+    private static int find(int parent[], int j) {
+        while (parent[j] != j) {
+            parent[j] = parent[parent[j]];
+            j = parent[j];
+        }
+        return j;
+    }
+
+    private static String histogram(int histogram[]) {
+        StringBuilder sb = new StringBuilder();
+        for (int b = 0; b < histogram.length; b++) {
+            if (histogram[b] == 0) continue;
+            int lo = b <= 2 ? b : (1 << (b - 2)) + 1, hi = b <= 1 ? b : 1 << (b - 1);
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(lo == hi ? String.valueOf(lo) : lo + "-" + hi).append(": ").append(histogram[b]);
+        }
+        return sb.toString();
+    }
+
+    private static void union(int parent[], int j1, int j2) {
+        int root1 = find(parent, j1), root2 = find(parent, j2);
+        if (root1 != root2) parent[Math.max(root1, root2)] = Math.min(root1, root2);
+    }
+
+
+    /**
+     * This class stores the range of the absolute values of non-zero numbers.
+     */
+    private static class Range {
+
+        private double min = Double.POSITIVE_INFINITY, max = 0.;
+
+        void add(double value) {
+            value = Math.abs(value);
+            if (value == 0.) return;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        void merge(Range range) {
+            min = Math.min(min, range.min);
+            max = Math.max(max, range.max);
+        }
+
+        double min() {
+            return min == Double.POSITIVE_INFINITY ? Double.NaN : min;
+        }
+
+        double max() {
+            return max == 0. ? Double.NaN : max;
+        }
+    }
+
+    /**
+     * This class stores the statistics of a block of rows.
+     */
+    private static class RowStats {
+
+        int histogram[] = new int[32];
+        int maxDegree = 0;
+        Range coeffs = new Range(), rhs = new Range();
+        int nEquality, nEmpty, nSingleton, nVarBound;
+        int nSetPartitioning, nSetPacking, nSetCovering, nCardinality, nKnapsack;
+
+        RowStats() { }
+
+        RowStats(MPSnapshot model, int start, int end) {
+            for (int r = start; r < end; r++) {
+                int degree = model.getRowSize(r);
+                histogram[bucket(degree)]++;
+                maxDegree = Math.max(maxDegree, degree);
+                rhs.add(model.rhs[r]);
+
+                boolean allBinary = true, allInteger = true, allOnes = true, allNonNegative = true;
+                for (int i = model.rowStart[r]; i < model.rowStart[r + 1]; i++) {
+                    double a = model.rowValue[i];
+                    char type = model.types[model.rowIndex[i]];
+                    coeffs.add(a);
+                    allBinary &= type == MPVar.BINARY;
+                    allInteger &= type != MPVar.CONTINUOUS;
+                    allOnes &= a == 1.;
+                    allNonNegative &= a >= 0.;
+                }
+
+                char sense = model.senses[r];
+                double b = model.rhs[r];
+                if (sense == MPLinConstr.EQ) nEquality++;
+
+                if (degree == 0) nEmpty++;
+                else if (degree == 1) nSingleton++;
+                else if (degree == 2 && b == 0. && !allInteger) nVarBound++;
+                else if (allBinary && allOnes && b == 1.) {
+                    if (sense == MPLinConstr.EQ) nSetPartitioning++;
+                    else if (sense == MPLinConstr.LE) nSetPacking++;
+                    else nSetCovering++;
+                }
+                else if (allBinary && allOnes && b == Math.rint(b)) nCardinality++;
+                else if (allInteger && allNonNegative && sense == MPLinConstr.LE) nKnapsack++;
+            }
+        }
+
+        /**
+         * Merges the statistics of another block into this one (which is
+         * modified and returned).
+         */
+        RowStats merge(RowStats stats) {
+            for (int b = 0; b < histogram.length; b++)
+                histogram[b] += stats.histogram[b];
+            maxDegree = Math.max(maxDegree, stats.maxDegree);
+            coeffs.merge(stats.coeffs);
+            rhs.merge(stats.rhs);
+            nEquality += stats.nEquality;
+            nEmpty += stats.nEmpty;
+            nSingleton += stats.nSingleton;
+            nVarBound += stats.nVarBound;
+            nSetPartitioning += stats.nSetPartitioning;
+            nSetPacking += stats.nSetPacking;
+            nSetCovering += stats.nSetCovering;
+            nCardinality += stats.nCardinality;
+            nKnapsack += stats.nKnapsack;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package jads.mp;
+
+import java.util.*;
+
+/**
+ * This class represents a frozen snapshot of a model, stored in primitive
+ * arrays. The constraint matrix is available both in compressed sparse row
+ * (CSR) and compressed sparse column (CSC) formats, so that solvers may use
+ * their array-based (bulk) APIs and other algorithms may share a single
+ * cache-friendly layout.
+ * <p>
+ * Each constraint {@code r} is represented as {@code sum(a[r][j] * x[j])
+ * sense[r] rhs[r]}, i.e. the constant of the constraint is moved to the
+ * right-hand side. Changes performed in the model after the snapshot is taken
+ * are not reflected in it. The arrays are public fields which must not be
+ * modified by callers.
+ *
+ * @author Tulio Toffolo
+ */
+public class MPSnapshot {
+
+    // the arrays below are exposed for fast access and must not be modified by
+    // callers, as a snapshot may be shared by several threads
+
+    public final int nVars, nConstrs, nnz;
+
+    // variables and objective function
+    public final double lb[], ub[], obj[];
+    public final char types[];
+    public final double objConstant;
+    public final char direction;
+
+    // constraints
+    public final char senses[];
+    public final double rhs[];
+
+    // matrix in compressed sparse row format (rowIndex stores column indices)
+    public final int rowStart[], rowIndex[];
+    public final double rowValue[];
+
+    // matrix in compressed sparse column format (colIndex stores row indices)
+    public final int colStart[], colIndex[];
+    public final double colValue[];
+
+
+    /**
+     * Instantiates a new Snapshot of a model. All arrays are filled directly
+     * from the (positional) arrays and the matrix of the model, without
+     * creating handles of variables, constraints or coefficients; the column
+     * view is then obtained by transposing the row view.
+     *
+     * @param model the model
+     */
+    protected MPSnapshot(MPModel model) {
+        synchronized (model) {
+            model.compact();
+            MPMatrix matrix = model.getMatrix();
+            int nCols = matrix.getNCols(), nRows = matrix.getNRows();
+
+            nVars = model.getNVars();
+            nConstrs = model.getNConstrs();
+            nnz = matrix.getNNZ();
+
+            // variables and objective function
+            lb = new double[nVars];
+            ub = new double[nVars];
+            obj = new double[nVars];
+            types = new char[nVars];
+            for (int col = 0; col < nCols; col++) {
+                int j = model.varIndex.get(col);
+                if (j < 0) continue;
+                lb[j] = model.varLB.get(col);
+                ub[j] = model.varUB.get(col);
+                obj[j] = model.varObj.get(col);
+                types[j] = model.varType.get(col);
+            }
+            objConstant = model.getObjective().getConstant();
+            direction = model.getObjective().getDirection();
+
+            // constraints (rows), whose sizes give the starts of the rows
+            senses = new char[nConstrs];
+            rhs = new double[nConstrs];
+            rowStart = new int[nConstrs + 1];
+            for (int row = 0; row < nRows; row++) {
+                int r = model.constrIndex.get(row);
+                if (r < 0) continue;
+                senses[r] = model.constrSense.get(row);
+                rhs[r] = -model.constrConstant.get(row);
+                rowStart[r + 1] = matrix.getRowSize(row);
+            }
+            for (int r = 0; r < nConstrs; r++)
+                rowStart[r + 1] += rowStart[r];
+
+            rowIndex = new int[nnz];
+            rowValue = new double[nnz];
+            for (int row = 0; row < nRows; row++) {
+                int r = model.constrIndex.get(row);
+                if (r < 0) continue;
+                int k = rowStart[r];
+                for (int e = matrix.getFirstInRow(row); e >= 0; e = matrix.getNextInRow(e), k++) {
+                    rowIndex[k] = model.varIndex.get(matrix.getEntryCol(e));
+                    rowValue[k] = matrix.getEntryValue(e);
+                }
+            }
+        }
+
+        // columns are obtained by transposing the rows (counting sort)
+        colStart = new int[nVars + 1];
+        colIndex = new int[nnz];
+        colValue = new double[nnz];
+
+        for (int i = 0; i < nnz; i++)
+            colStart[rowIndex[i] + 1]++;
+        for (int j = 0; j < nVars; j++)
+            colStart[j + 1] += colStart[j];
+
+        int next[] = Arrays.copyOf(colStart, nVars);
+        for (int r = 0; r < nConstrs; r++) {
+            for (int i = rowStart[r]; i < rowStart[r + 1]; i++) {
+                int pos = next[rowIndex[i]]++;
+                colIndex[pos] = r;
+                colValue[pos] = rowValue[i];
+            }
+        }
+    }
+
+
+    /**
+     * Gets the number of non-zero coefficients of a column (variable).
+     *
+     * @param var the index of the variable
+     * @return the number of non-zero coefficients of the variable
+     */
+    public int getColSize(int var) {
+        return colStart[var + 1] - colStart[var];
+    }
+
+    /**
+     * Gets the number of non-zero coefficients of a row (constraint).
+     *
+     * @param constr the index of the constraint
+     * @return the number of non-zero coefficients of the constraint
+     */
+    public int getRowSize(int constr) {
+        return rowStart[constr + 1] - rowStart[constr];
+    }
+}
@@ -12,35 +12,19 @@ public class MPVar implements Comparable<MPVar> {
     public static final char BINARY = 'B', CONTINUOUS = 'C', INTEGER = 'I';
 
     public final MPModel model;
-
-    private final String name;
-
-    protected int index = -1;
-
-    private double lb = 0.0;
-    private double ub = Double.MAX_VALUE;
-    private char type = 'C';
-    private MPColumn column = new MPColumn();
+    protected final int col;
 
 
     /**
-     * Instantiates a new Variable.
+     * Instantiates a new Variable, i.e. a (lightweight) handle to a column of
+     * the model, whose data (bounds, type, etc.) are stored in the model.
      *
-     * @param model the model to which the variable will be added
-     * @param lb    the lower bound of the variable
-     * @param ub    the upper bound of the variable
-     * @param type  the type of the variable, i.e. Variable.BINARY ('B'),
-     *              Variable.CONTINUOUS ('C') or Variable.INTEGER ('I')
-     * @param name  the name of the variable
+     * @param model the model of the variable
+     * @param col   the position of the column of the variable in the model
      */
-    protected MPVar(MPModel model, double lb, double ub, char type, String name) {
+    protected MPVar(MPModel model, int col) {
         this.model = model;
-        this.lb = lb;
-        this.ub = ub;
-        this.type = type;
-        this.name = name;
-
-        assert type != 'B' || lb >= 0. && ub <= 1.;
+        this.col = col;
     }
 
 
@@ -51,12 +35,12 @@ public class MPVar implements Comparable<MPVar> {
      * @return the iterable
      */
     public Iterable<Map.Entry<MPLinConstr, Double>> coeffs() {
-        return column.entrySet();
+        return model.getMatrix().colEntries(col);
     }
 
     @Override
     public int compareTo(MPVar variable) {
-        return Integer.compare(index, variable.index);
+        return Integer.compare(model.varIndex.get(col), variable.model.varIndex.get(variable.col));
     }
 
     /**
@@ -67,19 +51,19 @@ public class MPVar implements Comparable<MPVar> {
      * argument
      */
     public double getCoeff(MPLinConstr constr) {
-        Double coeff = column.get(constr);
-        if (coeff == null)
-            return 0;
-        return coeff;
+        return model.getMatrix().get(constr.row, col);
     }
 
     /**
-     * Gets the index of this variable.
+     * Gets the index of this variable. If variables were deleted from the
+     * model, the model is compacted before the index is returned. The index of
+     * a deleted variable is -1.
      *
      * @return the index of this variable
      */
     public int getIndex() {
-        return index;
+        if (model.nDeletedVars > 0) model.compact();
+        return model.varIndex.get(col);
     }
 
     /**
@@ -88,7 +72,16 @@ public class MPVar implements Comparable<MPVar> {
      * @return the coefficient of this variable in the Objective
      */
     public double getObj() {
-        return column.obj;
+        return model.varObj.get(col);
+    }
+
+    /**
+     * Gets if this variable was deleted from the model.
+     *
+     * @return true if the variable was deleted and false otherwise
+     */
+    public boolean isDeleted() {
+        return model.varIndex.get(col) < 0;
     }
 
     /**
@@ -97,6 +90,7 @@ public class MPVar implements Comparable<MPVar> {
      * @return true if the variable is integer (or binary) and false otherwise
      */
     public boolean isInteger() {
+        char type = getType();
         return type == 'B' || type == 'I';
     }
 
@@ -106,7 +100,7 @@ public class MPVar implements Comparable<MPVar> {
      * @return the lower bound value
      */
     public double getLB() {
-        return lb;
+        return model.varLB.get(col);
     }
 
     /**
@@ -115,7 +109,7 @@ public class MPVar implements Comparable<MPVar> {
      * @return the name of this variable
      */
     public String getName() {
-        return name;
+        return model.varNames.get(col);
     }
 
     /**
@@ -126,7 +120,7 @@ public class MPVar implements Comparable<MPVar> {
      * coefficient.
      */
     public int getNConstrs() {
-        return column.size();
+        return model.getMatrix().getColSize(col);
     }
 
     /**
@@ -136,7 +130,7 @@ public class MPVar implements Comparable<MPVar> {
      * @return the type of this variable
      */
     public char getType() {
-        return type;
+        return model.varType.get(col);
     }
 
     /**
@@ -145,24 +139,29 @@ public class MPVar implements Comparable<MPVar> {
      * @return the upper bound value
      */
     public double getUB() {
-        return ub;
+        return model.varUB.get(col);
     }
 
     @Override
     public int hashCode() {
-        return name.hashCode();
+        return col;
     }
 
     /**
-     * Sets the lower and upper bounds of a variable already in the model.
+     * Sets the lower and upper bounds of a variable already in the model. If
+     * the bounds are not changed, no action is recorded.
      *
      * @param ub the new upper bound value.
      * @param lb the new lower bound value.
      */
     public void setBounds(double lb, double ub) {
-        this.lb = lb;
-        this.ub = ub;
-        model.addAction(new MPAction(MPAction.ActionType.SetVarBounds, this));
+        double prevLB = getLB(), prevUB = getUB();
+        if (prevLB == lb && prevUB == ub) return;
+
+        model.logBounds(this, prevLB, prevUB);
+        model.varLB.set(col, lb);
+        model.varUB.set(col, ub);
+        model.addAction(new MPAction(MPAction.ActionType.SetVarBounds, this, prevLB, prevUB));
     }
 
     /**
@@ -171,8 +170,7 @@ public class MPVar implements Comparable<MPVar> {
      * @param lb the new lower bound of this variable
      */
     public void setLB(double lb) {
-        this.lb = lb;
-        model.addAction(new MPAction(MPAction.ActionType.SetVarBounds, this));
+        setBounds(lb, getUB());
     }
 
     /**
@@ -181,8 +179,7 @@ public class MPVar implements Comparable<MPVar> {
      * @param ub the new lower bound of this variable
      */
     public void setUB(double ub) {
-        this.ub = ub;
-        model.addAction(new MPAction(MPAction.ActionType.SetVarBounds, this));
+        setBounds(getLB(), ub);
     }
 
     /**
@@ -191,42 +188,32 @@ public class MPVar implements Comparable<MPVar> {
      * @param type the new type for this variable ('B', 'C' or 'I')
      */
     public void setType(char type) {
-        if (this.type != type) {
-            if (this.type == CONTINUOUS && (type == BINARY || type == INTEGER))
+        type = Character.toUpperCase(type);
+        char prevType = getType();
+        if (prevType != type) {
+            if (prevType == CONTINUOUS && (type == BINARY || type == INTEGER))
                 model.intVarCount++;
+            else if (type == CONTINUOUS)
+                model.intVarCount--;
 
-            this.type = Character.toUpperCase(type);
-            model.addAction(new MPAction(MPAction.ActionType.SetVarType, this));
+            model.logType(this, prevType);
+            model.varType.set(col, type);
+            model.addAction(new MPAction(MPAction.ActionType.SetVarType, this, prevType));
         }
     }
 
 
-    /**
-     * Deletes this variable from all rows (constraints).
-     */
-    protected MPColumn getColumn() {
-        return column;
-    }
-
-    /**
-     * Sets the coefficient of this variable in a constraint.
-     *
-     * @param constr the constraint
-     * @param value  the coefficient value
-     */
-    protected void setCoeff(MPLinConstr constr, Double value) {
-        if (Math.abs(value) < MPModel.EPS && column.containsKey(constr))
-            column.remove(constr);
-        else if (Math.abs(value) >= MPModel.EPS)
-            column.put(constr, value);
-    }
-
     /**
      * Sets the coefficient of this variable in the Objective.
      *
      * @param obj the coefficient value
      */
     protected void setObj(double obj) {
-        column.obj = obj;
+        double prevObj = getObj();
+        if (prevObj != obj) {
+            model.logObj(this, prevObj);
+            model.objectiveChanged = true;
+        }
+        model.varObj.set(col, obj);
     }
 }
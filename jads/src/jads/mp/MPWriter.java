@@ -0,0 +1,291 @@
+package jads.mp;
+
+import jads.mp.util.*;
+
+import java.io.*;
+import java.nio.file.*;
+
+/**
+ * This class writes models in the LP (CPLEX) and (free) MPS formats without
+ * a solver: the rows (LP) or columns (MPS) are streamed directly from the
+ * arrays of the model to a {@link ByteWriter}, so that no copy of the model
+ * is created and no object is created per row, column or coefficient (except
+ * for names which are not stored as strings).
+ * <p>
+ * Variables and constraints without names are named "x" and "c" followed by
+ * their indices; the other names are written as they are, and thus must be
+ * valid in the format (e.g. must not contain spaces). Bounds with absolute
+ * value of at least 1e30 (e.g. Double.MAX_VALUE) are written as infinite.
+ * The objective function is named "obj". Custom coefficients are not
+ * written.
+ *
+ * @author Tulio Toffolo
+ */
+public class MPWriter {
+
+    private static final double INFINITY = 1e30;
+    private static final int LINE_LENGTH = 200;
+
+
+    private MPWriter() { }
+
+
+    /**
+     * Writes a model to a file, whose format is given by its extension: MPS
+     * (.mps), binary ({@link MPBinary#EXTENSION}) or LP (any other). Text
+     * files with extension .gz are gzipped.
+     *
+     * @param model    the model
+     * @param filePath the file path
+     * @throws IOException if an I/O error occurs
+     */
+    public static void write(MPModel model, String filePath) throws IOException {
+        if (filePath.endsWith(MPBinary.EXTENSION)) {
+            MPBinary.write(model, Paths.get(filePath), true);
+            return;
+        }
+
+        try (ByteWriter out = ByteWriter.open(Paths.get(filePath))) {
+            if (filePath.endsWith(".mps") || filePath.endsWith(".mps.gz"))
+                writeMPS(model, out);
+            else
+                writeLP(model, out);
+        }
+    }
+
+    /**
+     * Writes a model in the LP (CPLEX) format.
+     *
+     * @param model the model
+     * @param out   the writer
+     * @throws IOException if an I/O error occurs
+     */
+    public static void writeLP(MPModel model, ByteWriter out) throws IOException {
+        synchronized (model) {
+            model.compact();
+            MPMatrix matrix = model.getMatrix();
+            int nCols = matrix.getNCols(), nRows = matrix.getNRows();
+
+            if (model.getName() != null)
+                out.write("\\ Problem name: ").write(model.getName()).newLine();
+            out.write(model.getObjective().getDirection() == MPObjective.MAXIMIZE ? "Maximize" : "Minimize").newLine();
+            out.write(" obj:");
+            for (int col = 0; col < nCols; col++)
+                if (model.varIndex.get(col) >= 0 && model.varObj.get(col) != 0.)
+                    writeTerm(model, out, model.varObj.get(col), col);
+            if (model.getObjective().getConstant() != 0.)
+                writeTerm(model, out, model.getObjective().getConstant(), -1);
+            out.newLine();
+
+            out.write("Subject To").newLine();
+            for (int row = 0; row < nRows; row++) {
+                if (model.constrIndex.get(row) < 0) continue;
+
+                out.write(' ');
+                writeConstrName(model, out, row);
+                out.write(':');
+                int entry = matrix.getFirstInRow(row);
+                if (entry < 0)
+                    out.write(" 0");
+                for (; entry >= 0; entry = matrix.getNextInRow(entry))
+                    writeTerm(model, out, matrix.getEntryValue(entry), matrix.getEntryCol(entry));
+
+                char sense = model.constrSense.get(row);
+                out.write(sense == MPLinConstr.LE ? " <= " : sense == MPLinConstr.GE ? " >= " : " = ");
+                out.write(-model.constrConstant.get(row)).newLine();
+            }
+
+            out.write("Bounds").newLine();
+            for (int col = 0; col < nCols; col++) {
+                if (model.varIndex.get(col) < 0 || isBinary(model, col)) continue;
+
+                double lb = model.varLB.get(col), ub = model.varUB.get(col);
+                if (lb == ub) {
+                    out.write(' ');
+                    writeVarName(model, out, col);
+                    out.write(" = ").write(lb).newLine();
+                }
+                else if (lb <= -INFINITY && ub >= INFINITY) {
+                    out.write(' ');
+                    writeVarName(model, out, col);
+                    out.write(" free").newLine();
+                }
+                else if (lb != 0. || ub < INFINITY) {
+                    out.write(' ');
+                    if (lb <= -INFINITY) out.write("-inf <= ");
+                    else if (lb != 0.) out.write(lb).write(" <= ");
+                    writeVarName(model, out, col);
+                    if (ub < INFINITY) out.write(" <= ").write(ub);
+                    out.newLine();
+                }
+            }
+
+            writeLPSection(model, out, "Generals", false);
+            writeLPSection(model, out, "Binaries", true);
+            out.write("End").newLine();
+        }
+    }
+
+    /**
+     * Writes a model in the free MPS format.
+     *
+     * @param model the model
+     * @param out   the writer
+     * @throws IOException if an I/O error occurs
+     */
+    public static void writeMPS(MPModel model, ByteWriter out) throws IOException {
+        synchronized (model) {
+            model.compact();
+            MPMatrix matrix = model.getMatrix();
+            int nCols = matrix.getNCols(), nRows = matrix.getNRows();
+
+            out.write("NAME");
+            if (model.getName() != null) out.write(' ').write(model.getName());
+            out.newLine();
+            if (model.getObjective().getDirection() == MPObjective.MAXIMIZE)
+                out.write("OBJSENSE").newLine().write("    MAX").newLine();
+
+            out.write("ROWS").newLine().write(" N obj").newLine();
+            for (int row = 0; row < nRows; row++) {
+                if (model.constrIndex.get(row) < 0) continue;
+                char sense = model.constrSense.get(row);
+                out.write(sense == MPLinConstr.LE ? " L " : sense == MPLinConstr.GE ? " G " : " E ");
+                writeConstrName(model, out, row);
+                out.newLine();
+            }
+
+            out.write("COLUMNS").newLine();
+            boolean integer = false;
+            for (int col = 0; col < nCols; col++) {
+                if (model.varIndex.get(col) < 0) continue;
+
+                char type = model.varType.get(col);
+                if (integer != (type != MPVar.CONTINUOUS)) {
+                    integer = !integer;
+                    out.write(integer ? "    MARKER 'MARKER' 'INTORG'" : "    MARKER 'MARKER' 'INTEND'").newLine();
+                }
+
+                // the objective coefficient is written (even if zero) if the column is empty
+                int entry = matrix.getFirstInCol(col);
+                double obj = model.varObj.get(col);
+                if (obj != 0. || entry < 0) {
+                    out.write("    ");
+                    writeVarName(model, out, col);
+                    out.write(" obj ").write(obj).newLine();
+                }
+                for (; entry >= 0; entry = matrix.getNextInCol(entry)) {
+                    out.write("    ");
+                    writeVarName(model, out, col);
+                    out.write(' ');
+                    writeConstrName(model, out, matrix.getEntryRow(entry));
+                    out.write(' ').write(matrix.getEntryValue(entry)).newLine();
+                }
+            }
+            if (integer) out.write("    MARKER 'MARKER' 'INTEND'").newLine();
+
+            out.write("RHS").newLine();
+            if (model.getObjective().getConstant() != 0.)
+                out.write("    RHS obj ").write(-model.getObjective().getConstant()).newLine();
+            for (int row = 0; row < nRows; row++) {
+                if (model.constrIndex.get(row) < 0 || model.constrConstant.get(row) == 0.) continue;
+                out.write("    RHS ");
+                writeConstrName(model, out, row);
+                out.write(' ').write(-model.constrConstant.get(row)).newLine();
+            }
+
+            out.write("BOUNDS").newLine();
+            for (int col = 0; col < nCols; col++) {
+                if (model.varIndex.get(col) < 0) continue;
+
+                double lb = model.varLB.get(col), ub = model.varUB.get(col);
+                if (isBinary(model, col)) {
+                    writeBound(model, out, "BV", col, Double.NaN);
+                }
+                else if (lb == ub) {
+                    writeBound(model, out, "FX", col, lb);
+                }
+                else if (lb <= -INFINITY && ub >= INFINITY) {
+                    writeBound(model, out, "FR", col, Double.NaN);
+                }
+                else {
+                    // the upper bound is written first, as a negative one also sets lb = -inf
+                    if (ub < INFINITY) writeBound(model, out, "UP", col, ub);
+                    else if (model.varType.get(col) != MPVar.CONTINUOUS) writeBound(model, out, "PL", col, Double.NaN);
+
+                    if (lb <= -INFINITY) writeBound(model, out, "MI", col, Double.NaN);
+                    else if (lb != 0. || ub < 0.) writeBound(model, out, "LO", col, lb);
+                }
+            }
+            out.write("ENDATA").newLine();
+        }
+    }
+
+
+    /**
+     * Checks if the variable of a column is binary with bounds [0, 1], i.e.
+     * declared as binary (without explicit bounds).
+     */
+    private static boolean isBinary(MPModel model, int col) {
+        return model.varType.get(col) == MPVar.BINARY && model.varLB.get(col) == 0. && model.varUB.get(col) == 1.;
+    }
+
+    private static void writeBound(MPModel model, ByteWriter out, String type, int col, double value) throws IOException {
+        out.write(' ').write(type).write(" BND ");
+        writeVarName(model, out, col);
+        if (!Double.isNaN(value)) out.write(' ').write(value);
+        out.newLine();
+    }
+
+    private static void writeConstrName(MPModel model, ByteWriter out, int row) throws IOException {
+        String name = model.constrNames.get(row);
+        if (name != null && !name.isEmpty()) out.write(name);
+        else out.write('c').write(( long ) model.constrIndex.get(row));
+    }
+
+    /**
+     * Writes a section of integer (or binary) variables of an LP file, i.e.
+     * their names, several per line. Binary variables with bounds other than
+     * [0, 1] are written as general integers (with their bounds).
+     */
+    private static void writeLPSection(MPModel model, ByteWriter out, String section, boolean binaries) throws IOException {
+        int nCols = model.getMatrix().getNCols();
+        boolean empty = true;
+        for (int col = 0; col < nCols; col++) {
+            if (model.varIndex.get(col) < 0 || model.varType.get(col) == MPVar.CONTINUOUS || isBinary(model, col) != binaries)
+                continue;
+
+            if (empty) {
+                out.write(section).newLine();
+                empty = false;
+            }
+            else if (out.getLineLength() > LINE_LENGTH) {
+                out.newLine();
+            }
+            out.write(' ');
+            writeVarName(model, out, col);
+        }
+        if (!empty) out.newLine();
+    }
+
+    /**
+     * Writes a term (" + coeff name") of a linear expression, breaking the
+     * line if it is too long; the term is a constant if col is negative.
+     */
+    private static void writeTerm(MPModel model, ByteWriter out, double coeff, int col) throws IOException {
+        if (out.getLineLength() > LINE_LENGTH) out.newLine().write(' ');
+
+        out.write(coeff < 0 ? " - " : " + ");
+        if (col < 0) {
+            out.write(Math.abs(coeff));
+            return;
+        }
+        if (Math.abs(coeff) != 1.) out.write(Math.abs(coeff)).write(' ');
+        writeVarName(model, out, col);
+    }
+
+    private static void writeVarName(MPModel model, ByteWriter out, int col) throws IOException {
+        String name = model.varNames.get(col);
+        if (name != null && !name.isEmpty()) out.write(name);
+        else out.write('x').write(( long ) model.varIndex.get(col));
+    }
+}
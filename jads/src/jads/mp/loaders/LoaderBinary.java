@@ -0,0 +1,87 @@
+package jads.mp.loaders;
+
+import jads.mp.*;
+
+import java.io.*;
+import java.nio.file.*;
+
+/**
+ * This class provides a means of loading a model from a binary file written
+ * by {@link MPBinary#write(MPModel, Path, boolean)}, which is memory-mapped
+ * and copied to the model without any parsing. Files with other extensions
+ * (LP and MPS files) are loaded by {@link LoaderFast}.
+ * <p>
+ * The main method converts LP and MPS files to binary files, so that
+ * instances are parsed only once.
+ * <p>
+ * Usage: LoaderBinary &lt;input_file&gt; &lt;output_file&gt; [-nonames]
+ *
+ * @author Tulio Toffolo
+ */
+public class LoaderBinary implements MPLoader {
+
+    private final boolean verify;
+
+
+    /**
+     * Instantiates a new LoaderBinary, which verifies the checksums of the
+     * files.
+     */
+    public LoaderBinary() {
+        this(true);
+    }
+
+    /**
+     * Instantiates a new LoaderBinary.
+     *
+     * @param verify true if the checksums of the files should be verified
+     */
+    public LoaderBinary(boolean verify) {
+        this.verify = verify;
+    }
+
+    /**
+     * Checks if a file is a binary model file, by its extension.
+     *
+     * @param filePath the file path
+     * @return true if the file is a binary model file and false otherwise
+     */
+    public static boolean isBinary(String filePath) {
+        return filePath.endsWith(MPBinary.EXTENSION);
+    }
+
+    @Override
+    public MPModel loadModel(String filePath) {
+        if (!isBinary(filePath))
+            return new LoaderFast().loadModel(filePath);
+
+        System.out.println("Loading (binary) file " + filePath + "...");
+        try {
+            return MPBinary.read(Paths.get(filePath), verify);
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+
+    public static void main(String args[]) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: LoaderBinary <input_file> <output_file> [-nonames]");
+            System.out.println("    <input_file>  : path of the input (LP or MPS, possibly gzipped) file.");
+            System.out.println("    <output_file> : path of the output (binary, " + MPBinary.EXTENSION + ") file.");
+            System.out.println();
+            System.out.println("    -nonames           : Do not write the names of variables and constraints.");
+            return;
+        }
+
+        boolean names = !(args.length > 2 && args[2].equals("-nonames"));
+        MPModel model = new LoaderFast(Runtime.getRuntime().availableProcessors()).loadModel(args[0]);
+        if (model == null) System.exit(1);
+
+        long start = System.nanoTime();
+        MPBinary.write(model, Paths.get(args[1]), names);
+        System.out.printf("Model written to %s in %.1f seconds.\n", args[1], (System.nanoTime() - start) / 1e9);
+    }
+}
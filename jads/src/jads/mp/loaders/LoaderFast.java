@@ -0,0 +1,981 @@
+package jads.mp.loaders;
+
+import jads.mp.*;
+import jads.mp.util.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+/**
+ * This class provides a means of loading an LP (CPLEX-formatted) or (free)
+ * MPS file, possibly gzipped, much faster than {@link LoaderMP}: the file is
+ * memory-mapped (or decompressed into a direct buffer) and tokenized by a
+ * {@link ByteTokenizer}, names are looked up in {@link ByteNameIndex}es and
+ * numbers are parsed from the bytes of the tokens, so that no object is
+ * allocated per line or per token. The model is then built at once with
+ * {@link MPModel#addVars(int, double[], double[], double[], char[],
+ * IntFunction)} and {@link MPModel#addConstrs(int, int[], int[], double[],
+ * char[], double[], IntFunction)}.
+ * <p>
+ * Infinite values (in any of the formats, |value| &gt;= 1e30) are converted to
+ * Double.MAX_VALUE, as done by the other loaders. Ranged rows of MPS files are
+ * loaded as two constraints, the second one named with suffix "_range".
+ * Semi-continuous variables and SOS constraints are not supported.
+ * <p>
+ * Plain MPS files may be loaded by several threads (see {@link
+ * #loadMPS(Path, int)}).
+ *
+ * @author Tulio Toffolo
+ */
+public class LoaderFast implements MPLoader {
+
+    private static final double INFINITY = 1e30;
+    private static final long MAX_CHUNK = 1L << 28;
+
+    private enum Section {Objective, Constraints, Bounds, Generals, Binaries, Rows, Columns, Rhs, Ranges}
+
+    private final int threads;
+
+
+    /**
+     * Instantiates a new (single-threaded) LoaderFast.
+     */
+    public LoaderFast() {
+        this(1);
+    }
+
+    /**
+     * Instantiates a new LoaderFast, which loads plain MPS files with several
+     * threads.
+     *
+     * @param threads the maximum number of threads (limited to the number of
+     *                available processors)
+     */
+    public LoaderFast(int threads) {
+        this.threads = Math.max(1, Math.min(threads, Runtime.getRuntime().availableProcessors()));
+    }
+
+    @Override
+    public MPModel loadModel(String filePath) {
+        System.out.println("Loading (fast) file " + filePath + "...");
+        if (threads > 1 && filePath.endsWith(".mps")) {
+            try {
+                return loadMPS(Paths.get(filePath), threads);
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+
+        try (ByteTokenizer tokenizer = ByteTokenizer.open(Paths.get(filePath))) {
+            if (filePath.endsWith(".mps") || filePath.endsWith(".mps.gz"))
+                return loadMPS(tokenizer);
+            else
+                return loadLP(tokenizer);
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Loads a model in the LP (CPLEX) format.
+     *
+     * @param tokenizer the tokenizer of the input
+     * @return the loaded model
+     * @throws IOException if an I/O error occurs or the input is invalid
+     */
+    public MPModel loadLP(ByteTokenizer tokenizer) throws IOException {
+        Builder builder = new Builder();
+        ByteNameIndex constrNames = new ByteNameIndex();
+        char direction = MPObjective.MINIMIZE;
+        Section section = null;
+
+        // state of the current expression (of the objective or of a constraint)
+        double sign = 1., coeff = Double.NaN, lhsConstant = 0., rhsConstant = 0.;
+        char sense = 0;
+        int name = -1;
+        boolean hasTerms = false;
+
+        lines:
+        while (tokenizer.nextLine()) {
+            for (boolean first = true; tokenizer.nextLPToken(); first = false) {
+
+                // keywords (only recognized at the start of a line)
+                if (first && sense == 0 && !hasTerms) {
+                    boolean max = tokenizer.tokenEquals("max") || tokenizer.tokenEquals("maximize")
+                      || tokenizer.tokenEquals("maximise") || tokenizer.tokenEquals("maximum");
+                    Section keyword = keyword(tokenizer);
+                    if (keyword != null || tokenizer.tokenEquals("end")) {
+                        if (section == Section.Objective && !Double.isNaN(coeff))
+                            builder.constant += sign * coeff;
+                        sign = 1.;
+                        coeff = Double.NaN;
+                        if (keyword == null) break lines;
+
+                        section = keyword;
+                        if (section == Section.Objective)
+                            direction = max ? MPObjective.MAXIMIZE : MPObjective.MINIMIZE;
+                        if (tokenizer.peek() == ':')
+                            tokenizer.nextLPToken();
+                        continue;
+                    }
+                }
+                if (section == null)
+                    throw error(tokenizer, "unexpected token before the objective: " + tokenizer.tokenString());
+
+                switch (section) {
+                    case Objective:
+                    case Constraints:
+                        byte b = tokenizer.tokenByte(0);
+                        char tokenSense = sense(tokenizer);
+
+                        if (tokenizer.tokenIsNumber() || sense != 0 && (tokenizer.tokenEquals("inf") || tokenizer.tokenEquals("infinity"))) {
+                            double value = tokenizer.tokenIsNumber() ? number(tokenizer) : Double.MAX_VALUE;
+                            coeff = Double.isNaN(coeff) ? value : coeff * value;
+
+                            // the right-hand side (a constant) ends the constraint
+                            if (sense != 0) {
+                                rhsConstant += sign * coeff;
+                                builder.endRow(sense, rhsConstant - lhsConstant, name);
+                                sign = 1.;
+                                coeff = Double.NaN;
+                                lhsConstant = rhsConstant = 0.;
+                                sense = 0;
+                                name = -1;
+                                hasTerms = false;
+                            }
+                        }
+                        else if (tokenizer.tokenLength() == 1 && (b == '+' || b == '-')) {
+                            if (!Double.isNaN(coeff)) {
+                                if (section == Section.Objective) builder.constant += sign * coeff;
+                                else lhsConstant += sign * coeff;
+                                sign = 1.;
+                                coeff = Double.NaN;
+                            }
+                            if (b == '-') sign = -sign;
+                        }
+                        else if (tokenSense != 0) {
+                            if (section == Section.Objective || sense != 0)
+                                throw error(tokenizer, "unexpected comparator");
+                            if (!Double.isNaN(coeff)) lhsConstant += sign * coeff;
+                            sign = 1.;
+                            coeff = Double.NaN;
+                            sense = tokenSense;
+                        }
+                        else if (b == ':') {
+                            throw error(tokenizer, "unexpected ':'");
+                        }
+                        else if (tokenizer.peek() == ':') {
+                            if (section == Section.Constraints) {
+                                if (sense != 0 || hasTerms || !Double.isNaN(coeff))
+                                    throw error(tokenizer, "incomplete constraint before " + tokenizer.tokenString());
+                                name = constrNames.add(tokenizer);
+                            }
+                            tokenizer.nextLPToken();
+                        }
+                        else {
+                            if (sense != 0)
+                                throw error(tokenizer, "the right-hand side must be a constant");
+                            int var = builder.var(tokenizer);
+                            double value = sign * (Double.isNaN(coeff) ? 1. : coeff);
+                            if (section == Section.Objective) {
+                                builder.obj[var] += value;
+                            }
+                            else {
+                                builder.addTerm(var, value);
+                                hasTerms = true;
+                            }
+                            sign = 1.;
+                            coeff = Double.NaN;
+                        }
+                        break;
+
+                    case Bounds:
+                        bound(tokenizer, builder);
+                        break;
+
+                    case Generals:
+                        builder.types[builder.var(tokenizer)] = MPVar.INTEGER;
+                        break;
+
+                    case Binaries:
+                        int var = builder.var(tokenizer);
+                        builder.types[var] = MPVar.BINARY;
+                        builder.lb[var] = 0.;
+                        builder.ub[var] = 1.;
+                        break;
+                }
+            }
+        }
+        if (sense != 0 || hasTerms)
+            throw error(tokenizer, "incomplete constraint at the end of the file");
+
+        return builder.build("", direction, id -> builder.constrNameIds[id] >= 0 ? constrNames.getName(builder.constrNameIds[id]) : null);
+    }
+
+    /**
+     * Loads a model in the (free) MPS format, in which names have no spaces.
+     *
+     * @param tokenizer the tokenizer of the input
+     * @return the loaded model
+     * @throws IOException if an I/O error occurs or the input is invalid
+     */
+    public MPModel loadMPS(ByteTokenizer tokenizer) throws IOException {
+        MPSReader reader = new MPSReader();
+        reader.read(tokenizer, false);
+        return reader.build();
+    }
+
+    /**
+     * Loads a model from a (plain) file in the (free) MPS format with several
+     * threads. The sections before COLUMNS are read first; then the rest of
+     * the file is split at line boundaries into chunks, which are scanned in
+     * parallel for the end of the COLUMNS section. The COLUMNS section is
+     * then split into chunks, which are parsed in parallel into their own
+     * buffers and merged (in the order of the columns, joining columns split
+     * between two chunks) into the model. The remaining sections are read by
+     * the calling thread.
+     *
+     * @param path    the path of the file
+     * @param threads the number of threads
+     * @return the loaded model
+     * @throws IOException if an I/O error occurs or the input is invalid
+     */
+    public MPModel loadMPS(Path path, int threads) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MPSReader reader = new MPSReader();
+            ByteTokenizer tokenizer = new ByteTokenizer(channel);
+            if (!reader.read(tokenizer, true)) return reader.build();
+
+            long start = tokenizer.getPosition(), size = channel.size();
+            int nChunks = ( int ) Math.max(4L * threads, (size - start + MAX_CHUNK - 1) / MAX_CHUNK);
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                long bounds[] = splitLines(channel, start, size, nChunks);
+                long end = size;
+                for (long header : parallel(pool, nChunks, k -> findHeader(channel, bounds[k], bounds[k + 1]))) {
+                    if (header >= 0) {
+                        end = header;
+                        break;
+                    }
+                }
+
+                long columnBounds[] = splitLines(channel, start, end, nChunks);
+                List<Chunk> chunks = parallel(pool, nChunks, k -> {
+                    long from = columnBounds[k], to = columnBounds[k + 1];
+                    try {
+                        return reader.readColumns(new ByteTokenizer(channel.map(FileChannel.MapMode.READ_ONLY, from, to - from)));
+                    }
+                    catch (IOException e) {
+                        throw new IOException("COLUMNS chunk at byte " + from + ", " + e.getMessage(), e);
+                    }
+                });
+                for (Chunk chunk : chunks)
+                    reader.addColumns(chunk);
+
+                reader.read(new ByteTokenizer(channel, end), false);
+            }
+            finally {
+                pool.shutdown();
+            }
+            return reader.build();
+        }
+    }
+
+    private static void append(int c, int col, double value, int rowStart[], int next[], int varIndices[], double values[]) {
+        if (next[c] > rowStart[c] && varIndices[next[c] - 1] == col) {
+            values[next[c] - 1] += value;
+        }
+        else {
+            varIndices[next[c]] = col;
+            values[next[c]++] = value;
+        }
+    }
+
+    private static void bound(ByteTokenizer tokenizer, Builder builder) throws IOException {
+        // value (<=|>=|=) variable [(<=|>=) value]
+        if (isValue(tokenizer)) {
+            double value = value(tokenizer);
+            if (!tokenizer.nextLPToken() || sense(tokenizer) == 0) throw error(tokenizer, "missing comparator");
+            char sense = sense(tokenizer);
+            if (!tokenizer.nextLPToken()) throw error(tokenizer, "missing variable");
+            int var = builder.var(tokenizer);
+            setBound(builder, var, sense == MPLinConstr.LE ? MPLinConstr.GE : sense == MPLinConstr.GE ? MPLinConstr.LE : sense, value);
+            if (!tokenizer.nextLPToken()) return;
+            if ((sense = sense(tokenizer)) == 0) throw error(tokenizer, "missing comparator");
+            if (!tokenizer.nextLPToken()) throw error(tokenizer, "missing value");
+            setBound(builder, var, sense, value(tokenizer));
+        }
+
+        // variable (free | (<=|>=|=) value)
+        else {
+            int var = builder.var(tokenizer);
+            if (!tokenizer.nextLPToken()) throw error(tokenizer, "incomplete bound");
+            if (tokenizer.tokenEquals("free")) {
+                builder.lb[var] = -Double.MAX_VALUE;
+                builder.ub[var] = Double.MAX_VALUE;
+                return;
+            }
+            char sense = sense(tokenizer);
+            if (sense == 0) throw error(tokenizer, "missing comparator");
+            if (!tokenizer.nextLPToken()) throw error(tokenizer, "missing value");
+            setBound(builder, var, sense, value(tokenizer));
+        }
+        if (tokenizer.nextLPToken())
+            throw error(tokenizer, "unexpected token in bound: " + tokenizer.tokenString());
+    }
+
+    private static IOException error(ByteTokenizer tokenizer, String message) {
+        return new IOException("line " + tokenizer.getLineNumber() + ": " + message);
+    }
+
+    /**
+     * Gets the position of the first section header (i.e. the first line
+     * which starts with a character other than a space or an asterisk) of a
+     * part of a file, which must start at the start of a line.
+     */
+    private static long findHeader(FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        boolean lineStart = true;
+        for (int i = 0; i < buffer.limit(); i++) {
+            byte b = buffer.get(i);
+            if (lineStart && b != ' ' && b != '\t' && b != '*' && b != '\r' && b != '\n')
+                return from + i;
+            lineStart = b == '\n';
+        }
+        return -1;
+    }
+
+    private static boolean isValue(ByteTokenizer tokenizer) {
+        return tokenizer.tokenIsNumber() || tokenizer.tokenEquals("inf") || tokenizer.tokenEquals("infinity")
+          || tokenizer.tokenLength() == 1 && (tokenizer.tokenByte(0) == '+' || tokenizer.tokenByte(0) == '-');
+    }
+
+    private static Section keyword(ByteTokenizer tokenizer) {
+        if (tokenizer.tokenEquals("max") || tokenizer.tokenEquals("maximize") || tokenizer.tokenEquals("maximise")
+          || tokenizer.tokenEquals("maximum") || tokenizer.tokenEquals("min") || tokenizer.tokenEquals("minimize")
+          || tokenizer.tokenEquals("minimise") || tokenizer.tokenEquals("minimum"))
+            return Section.Objective;
+        if (tokenizer.tokenEquals("st") || tokenizer.tokenEquals("s.t.") || tokenizer.tokenEquals("st."))
+            return Section.Constraints;
+        if (tokenizer.tokenEquals("subject") || tokenizer.tokenEquals("such")) {
+            if (tokenizer.nextLPToken() && !tokenizer.tokenEquals("to") && !tokenizer.tokenEquals("that"))
+                tokenizer.undo();
+            return Section.Constraints;
+        }
+        if (tokenizer.tokenEquals("bounds") || tokenizer.tokenEquals("bound"))
+            return Section.Bounds;
+        if (tokenizer.tokenEquals("generals") || tokenizer.tokenEquals("general") || tokenizer.tokenEquals("gen")
+          || tokenizer.tokenEquals("integers") || tokenizer.tokenEquals("integer") || tokenizer.tokenEquals("ints")
+          || tokenizer.tokenEquals("int"))
+            return Section.Generals;
+        if (tokenizer.tokenEquals("binaries") || tokenizer.tokenEquals("binary") || tokenizer.tokenEquals("bins")
+          || tokenizer.tokenEquals("bin"))
+            return Section.Binaries;
+        return null;
+    }
+
+    private static void mpsBound(ByteTokenizer tokenizer, Builder builder) throws IOException {
+        String type = tokenizer.tokenString().toUpperCase();
+        boolean hasValue = !type.equals("FR") && !type.equals("MI") && !type.equals("PL") && !type.equals("BV");
+
+        // the name of the set of bounds is optional
+        int nTokens = tokenizer.countTokens();
+        if (nTokens == (hasValue ? 3 : 2) || type.equals("BV") && nTokens == 3) tokenizer.nextToken();
+        if (!tokenizer.nextToken()) throw error(tokenizer, "missing column name");
+        int var = builder.varNames.find(tokenizer);
+        if (var < 0) throw error(tokenizer, "unknown column " + tokenizer.tokenString());
+
+        double value = 0.;
+        if (hasValue) {
+            if (!tokenizer.nextToken()) throw error(tokenizer, "missing bound");
+            value = number(tokenizer);
+        }
+
+        switch (type) {
+            case "UP":
+                if (value < 0 && builder.lb[var] == 0.) builder.lb[var] = -Double.MAX_VALUE;
+                builder.ub[var] = value;
+                break;
+            case "LO":
+                builder.lb[var] = value;
+                break;
+            case "FX":
+                builder.lb[var] = builder.ub[var] = value;
+                break;
+            case "FR":
+                builder.lb[var] = -Double.MAX_VALUE;
+                builder.ub[var] = Double.MAX_VALUE;
+                break;
+            case "MI":
+                builder.lb[var] = -Double.MAX_VALUE;
+                break;
+            case "PL":
+                builder.ub[var] = Double.MAX_VALUE;
+                break;
+            case "BV":
+                builder.types[var] = MPVar.BINARY;
+                builder.lb[var] = 0.;
+                builder.ub[var] = 1.;
+                break;
+            case "LI":
+                builder.types[var] = MPVar.INTEGER;
+                builder.lb[var] = value;
+                break;
+            case "UI":
+                builder.types[var] = MPVar.INTEGER;
+                builder.ub[var] = value;
+                break;
+            default:
+                throw error(tokenizer, "unsupported bound type " + type);
+        }
+    }
+
+    private static double number(ByteTokenizer tokenizer) throws IOException {
+        try {
+            double value = tokenizer.tokenDouble();
+            return value >= INFINITY ? Double.MAX_VALUE : value <= -INFINITY ? -Double.MAX_VALUE : value;
+        }
+        catch (NumberFormatException e) {
+            throw error(tokenizer, e.getMessage());
+        }
+    }
+
+    private static char objSense(ByteTokenizer tokenizer) throws IOException {
+        if (tokenizer.tokenEquals("max") || tokenizer.tokenEquals("maximize"))
+            return MPObjective.MAXIMIZE;
+        if (tokenizer.tokenEquals("min") || tokenizer.tokenEquals("minimize"))
+            return MPObjective.MINIMIZE;
+        throw error(tokenizer, "invalid objective sense " + tokenizer.tokenString());
+    }
+
+    /**
+     * Runs tasks 0, ..., n - 1 in parallel (in a pool), returning their
+     * results in order.
+     */
+    private static <T> List<T> parallel(ForkJoinPool pool, int n, ChunkTask<T> task) throws IOException {
+        try {
+            return pool.submit(() -> IntStream.range(0, n).parallel().mapToObj(k -> {
+                try {
+                    return task.run(k);
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).collect(Collectors.toList())).get();
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException)
+                throw (( UncheckedIOException ) e.getCause()).getCause();
+            throw new IOException(e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private static int row(ByteTokenizer tokenizer, ByteNameIndex rows) throws IOException {
+        int row = rows.find(tokenizer);
+        if (row < 0) throw error(tokenizer, "unknown row " + tokenizer.tokenString());
+        return row;
+    }
+
+    private static char sense(ByteTokenizer tokenizer) {
+        byte b = tokenizer.tokenByte(0);
+        if (tokenizer.tokenLength() == 2 && b == '=') b = tokenizer.tokenByte(1);
+        return b == '<' ? MPLinConstr.LE : b == '>' ? MPLinConstr.GE : b == '=' ? MPLinConstr.EQ : 0;
+    }
+
+    private static void setBound(Builder builder, int var, char sense, double value) {
+        if (sense != MPLinConstr.LE) builder.lb[var] = value;
+        if (sense != MPLinConstr.GE) builder.ub[var] = value;
+    }
+
+    /**
+     * Splits a part of a file into (about) n parts which start at the start
+     * of lines, returning the n + 1 boundaries of the parts.
+     */
+    private static long[] splitLines(FileChannel channel, long from, long to, int n) throws IOException {
+        long bounds[] = new long[n + 1];
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        bounds[0] = from;
+        bounds[n] = to;
+        for (int k = 1; k < n; k++) {
+            long position = Math.max(bounds[k - 1], from + (to - from) * k / n - 1);
+
+            // moving to the byte after the next line break
+            search:
+            while (position < to) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read <= 0) break;
+                for (int i = 0; i < read && position < to; i++, position++) {
+                    if (buffer.get(i) == '\n') {
+                        position++;
+                        break search;
+                    }
+                }
+            }
+            bounds[k] = Math.min(position, to);
+        }
+        return bounds;
+    }
+
+    private static double value(ByteTokenizer tokenizer) throws IOException {
+        double sign = 1.;
+        while (tokenizer.tokenLength() == 1 && (tokenizer.tokenByte(0) == '+' || tokenizer.tokenByte(0) == '-')) {
+            if (tokenizer.tokenByte(0) == '-') sign = -sign;
+            if (!tokenizer.nextLPToken()) throw error(tokenizer, "missing value");
+        }
+        if (tokenizer.tokenEquals("inf") || tokenizer.tokenEquals("infinity"))
+            return sign * Double.MAX_VALUE;
+        return sign * number(tokenizer);
+    }
+
+
+    /**
+     * This interface is a task (which may throw an IOException) run for each
+     * chunk of a file.
+     */
+    private interface ChunkTask<T> {
+        T run(int k) throws IOException;
+    }
+
+    /**
+     * This class stores (in growing arrays) the columns and the matrix entries
+     * read from a part of the COLUMNS section of an MPS file, with the names
+     * of the columns in a local pool. The entries refer to the (local) indices
+     * of the columns and to the indices of the rows.
+     */
+    private static class Chunk {
+
+        byte names[] = new byte[1 << 12];
+        int nameStart[] = new int[257], hashes[] = new int[256];
+        byte states[] = new byte[256];
+        double obj[] = new double[256];
+        int nCols = 0;
+
+        int entryRow[] = new int[1024], entryCol[] = new int[1024];
+        double entryValue[] = new double[1024];
+        int nEntries = 0;
+
+        // state of the integer markers: -1 if there was no marker so far, 0 after INTEND and 1 after INTORG
+        byte state = -1;
+
+        /**
+         * Reads a line of the COLUMNS section, whose first token is the
+         * current token of the tokenizer.
+         */
+        void readLine(ByteTokenizer tokenizer, MPSReader reader) throws IOException {
+            if (tokenizer.nextToken() && tokenizer.tokenEquals("'marker'")) {
+                if (!tokenizer.nextToken()) throw error(tokenizer, "missing marker type");
+                state = ( byte ) (tokenizer.tokenEquals("'intorg'") ? 1 : 0);
+                return;
+            }
+            tokenizer.rewind();
+            tokenizer.nextToken();
+
+            // the entries of a column are usually contiguous
+            if (nCols == 0 || !tokenizer.tokenMatches(names, nameStart[nCols - 1], nameStart[nCols] - nameStart[nCols - 1]))
+                addColumn(tokenizer);
+            int col = nCols - 1;
+
+            while (tokenizer.nextToken()) {
+                int row = row(tokenizer, reader.rows);
+                if (!tokenizer.nextToken()) throw error(tokenizer, "missing coefficient");
+                double value = number(tokenizer);
+
+                if (row == reader.objRow) {
+                    obj[col] += value;
+                }
+                else if (reader.rowSense[row] != 'N') {
+                    if (nEntries == entryRow.length) {
+                        entryRow = Arrays.copyOf(entryRow, 2 * nEntries);
+                        entryCol = Arrays.copyOf(entryCol, 2 * nEntries);
+                        entryValue = Arrays.copyOf(entryValue, 2 * nEntries);
+                    }
+                    entryRow[nEntries] = row;
+                    entryCol[nEntries] = col;
+                    entryValue[nEntries++] = value;
+                }
+            }
+        }
+
+        private void addColumn(ByteTokenizer tokenizer) {
+            if (nCols + 1 == hashes.length) {
+                hashes = Arrays.copyOf(hashes, 2 * hashes.length);
+                nameStart = Arrays.copyOf(nameStart, hashes.length + 1);
+                states = Arrays.copyOf(states, hashes.length);
+                obj = Arrays.copyOf(obj, hashes.length);
+            }
+            int length = tokenizer.tokenLength();
+            if (nameStart[nCols] + length > names.length)
+                names = Arrays.copyOf(names, Math.max(2 * names.length, nameStart[nCols] + length));
+
+            tokenizer.copyToken(names, nameStart[nCols]);
+            nameStart[nCols + 1] = nameStart[nCols] + length;
+            hashes[nCols] = tokenizer.tokenHash();
+            states[nCols] = state;
+            nCols++;
+        }
+    }
+
+    /**
+     * This class reads an MPS file, storing its rows (including the free
+     * ones) and its matrix entries (in the order of the columns) until the
+     * model is built.
+     */
+    private static class MPSReader {
+
+        final Builder builder = new Builder();
+        final ByteNameIndex rows = new ByteNameIndex();
+        String name = "";
+        char direction = MPObjective.MINIMIZE;
+        Section section = null;
+
+        char rowSense[] = new char[1024];
+        double rowRhs[] = new double[1024], rowRange[] = new double[1024];
+        int objRow = -1;
+
+        int entryRow[] = new int[0], entryCol[] = new int[0];
+        double entryValue[] = new double[0];
+        int nEntries = 0;
+
+        // the last column and whether the columns are integer (after the last chunk of columns)
+        int col = -1;
+        boolean integer = false;
+
+        /**
+         * Merges the columns and the entries of a chunk (which follows the
+         * previous chunks) into the builder and the entries.
+         */
+        void addColumns(Chunk chunk) {
+            int cols[] = new int[chunk.nCols];
+            for (int c = 0; c < chunk.nCols; c++) {
+                int start = chunk.nameStart[c], length = chunk.nameStart[c + 1] - start;
+
+                // a column split between two chunks continues the last column
+                if (col < 0 || !builder.varNames.matches(col, chunk.names, start, length))
+                    col = builder.var(chunk.names, start, length, chunk.hashes[c]);
+                cols[c] = col;
+                if (chunk.states[c] >= 0 ? chunk.states[c] == 1 : integer)
+                    builder.types[col] = MPVar.INTEGER;
+                builder.obj[col] += chunk.obj[c];
+            }
+            if (chunk.state >= 0) integer = chunk.state == 1;
+
+            if (nEntries + chunk.nEntries > entryRow.length) {
+                int capacity = Math.max(2 * entryRow.length, nEntries + chunk.nEntries);
+                entryRow = Arrays.copyOf(entryRow, capacity);
+                entryCol = Arrays.copyOf(entryCol, capacity);
+                entryValue = Arrays.copyOf(entryValue, capacity);
+            }
+            for (int k = 0; k < chunk.nEntries; k++, nEntries++) {
+                entryRow[nEntries] = chunk.entryRow[k];
+                entryCol[nEntries] = cols[chunk.entryCol[k]];
+                entryValue[nEntries] = chunk.entryValue[k];
+            }
+        }
+
+        /**
+         * Builds the model: the constraints are the non-free rows followed by
+         * the second constraints of the ranged rows.
+         */
+        MPModel build() {
+            int nRows = rows.size(), nConstrs = 0;
+            int rowConstr[] = new int[nRows], rangeConstr[] = new int[nRows];
+            for (int r = 0; r < nRows; r++)
+                rowConstr[r] = rowSense[r] != 'N' ? nConstrs++ : -1;
+            int nBaseConstrs = nConstrs;
+            for (int r = 0; r < nRows; r++)
+                rangeConstr[r] = rowSense[r] != 'N' && !Double.isNaN(rowRange[r]) ? nConstrs++ : -1;
+
+            int constrRow[] = new int[nConstrs];
+            char senses[] = new char[nConstrs];
+            double rhs[] = new double[nConstrs];
+            for (int r = 0; r < nRows; r++) {
+                if (rowConstr[r] < 0) continue;
+                int c = rowConstr[r];
+                constrRow[c] = r;
+                senses[c] = rowSense[r];
+                rhs[c] = rowRhs[r];
+
+                if (rangeConstr[r] >= 0) {
+                    int c2 = rangeConstr[r];
+                    double range = rowRange[r];
+                    constrRow[c2] = r;
+                    if (senses[c] == MPLinConstr.EQ)
+                        senses[c] = range >= 0 ? MPLinConstr.GE : MPLinConstr.LE;
+                    senses[c2] = senses[c] == MPLinConstr.GE ? MPLinConstr.LE : MPLinConstr.GE;
+                    rhs[c2] = rowSense[r] == MPLinConstr.EQ ? rhs[c] + range
+                      : senses[c2] == MPLinConstr.LE ? rhs[c] + Math.abs(range) : rhs[c] - Math.abs(range);
+                }
+            }
+
+            // transposing the entries (stored by column) to rows, merging repeated entries
+            int rowStart[] = new int[nConstrs + 1];
+            for (int k = 0; k < nEntries; k++) {
+                rowStart[rowConstr[entryRow[k]] + 1]++;
+                if (rangeConstr[entryRow[k]] >= 0) rowStart[rangeConstr[entryRow[k]] + 1]++;
+            }
+            for (int c = 0; c < nConstrs; c++)
+                rowStart[c + 1] += rowStart[c];
+
+            int next[] = Arrays.copyOf(rowStart, nConstrs);
+            int varIndices[] = new int[rowStart[nConstrs]];
+            double values[] = new double[rowStart[nConstrs]];
+            for (int k = 0; k < nEntries; k++) {
+                append(rowConstr[entryRow[k]], entryCol[k], entryValue[k], rowStart, next, varIndices, values);
+                if (rangeConstr[entryRow[k]] >= 0)
+                    append(rangeConstr[entryRow[k]], entryCol[k], entryValue[k], rowStart, next, varIndices, values);
+            }
+
+            // compacting the rows (if repeated entries were merged)
+            int nnz = 0;
+            for (int c = 0; c < nConstrs; c++) {
+                int start = rowStart[c];
+                rowStart[c] = nnz;
+                for (int k = start; k < next[c]; k++) {
+                    varIndices[nnz] = varIndices[k];
+                    values[nnz++] = values[k];
+                }
+            }
+            rowStart[nConstrs] = nnz;
+
+            builder.setRows(nConstrs, rowStart, varIndices, values, senses, rhs);
+            return builder.build(name, direction, c -> c < nBaseConstrs ? rows.getName(constrRow[c]) : rows.getName(constrRow[c]) + "_range");
+        }
+
+        /**
+         * Reads lines until the end of the input (or, if stopAtColumns is
+         * true, until the header of the COLUMNS section).
+         *
+         * @return true if the reader stopped at the header of the COLUMNS
+         * section and false otherwise
+         */
+        boolean read(ByteTokenizer tokenizer, boolean stopAtColumns) throws IOException {
+            Chunk columns = null;
+
+            while (tokenizer.nextLine()) {
+                if (!tokenizer.nextToken() || tokenizer.tokenByte(0) == '*') continue;
+
+                // section headers (not indented)
+                if (!tokenizer.isIndented()) {
+                    if (columns != null) {
+                        addColumns(columns);
+                        columns = null;
+                    }
+
+                    if (tokenizer.tokenEquals("name")) {
+                        if (tokenizer.nextToken()) name = tokenizer.tokenString();
+                        section = null;
+                    }
+                    else if (tokenizer.tokenEquals("objsense")) {
+                        if (tokenizer.nextToken()) direction = objSense(tokenizer);
+                        section = Section.Objective;
+                    }
+                    else if (tokenizer.tokenEquals("rows")) section = Section.Rows;
+                    else if (tokenizer.tokenEquals("columns")) section = Section.Columns;
+                    else if (tokenizer.tokenEquals("rhs")) section = Section.Rhs;
+                    else if (tokenizer.tokenEquals("ranges")) section = Section.Ranges;
+                    else if (tokenizer.tokenEquals("bounds")) section = Section.Bounds;
+                    else if (tokenizer.tokenEquals("endata")) return false;
+                    else throw error(tokenizer, "unsupported section " + tokenizer.tokenString());
+
+                    if (section == Section.Columns && stopAtColumns) return true;
+                    continue;
+                }
+                if (section == null)
+                    throw error(tokenizer, "unexpected data outside of a section");
+
+                switch (section) {
+                    case Objective:
+                        direction = objSense(tokenizer);
+                        break;
+
+                    case Rows:
+                        char type = ( char ) (tokenizer.tokenByte(0) | 0x20);
+                        if (tokenizer.tokenLength() != 1 || type != 'n' && type != 'e' && type != 'l' && type != 'g')
+                            throw error(tokenizer, "invalid row type " + tokenizer.tokenString());
+                        if (!tokenizer.nextToken()) throw error(tokenizer, "missing row name");
+
+                        int row = rows.add(tokenizer);
+                        if (row == rowSense.length) {
+                            rowSense = Arrays.copyOf(rowSense, 2 * row);
+                            rowRhs = Arrays.copyOf(rowRhs, 2 * row);
+                            rowRange = Arrays.copyOf(rowRange, 2 * row);
+                        }
+                        rowSense[row] = type == 'n' ? 'N' : type == 'e' ? MPLinConstr.EQ : type == 'l' ? MPLinConstr.LE : MPLinConstr.GE;
+                        rowRange[row] = Double.NaN;
+                        if (type == 'n' && objRow < 0) objRow = row;
+                        break;
+
+                    case Columns:
+                        if (columns == null) columns = new Chunk();
+                        columns.readLine(tokenizer, this);
+                        break;
+
+                    case Rhs:
+                    case Ranges:
+                        // the name of the set of right-hand sides (or ranges) is optional
+                        if (tokenizer.countTokens() % 2 != 0) tokenizer.undo();
+                        while (tokenizer.nextToken()) {
+                            row = row(tokenizer, rows);
+                            if (!tokenizer.nextToken()) throw error(tokenizer, "missing value");
+                            double value = number(tokenizer);
+
+                            if (section == Section.Ranges) rowRange[row] = value;
+                            else if (row == objRow) builder.constant = -value;
+                            else rowRhs[row] = value;
+                        }
+                        break;
+
+                    case Bounds:
+                        mpsBound(tokenizer, builder);
+                        break;
+                }
+            }
+
+            if (columns != null) addColumns(columns);
+            return false;
+        }
+
+        /**
+         * Reads a chunk of (complete) lines of the COLUMNS section. This method
+         * only reads the rows, so that chunks may be read in parallel.
+         */
+        Chunk readColumns(ByteTokenizer tokenizer) throws IOException {
+            Chunk chunk = new Chunk();
+            while (tokenizer.nextLine())
+                if (tokenizer.nextToken() && tokenizer.tokenByte(0) != '*')
+                    chunk.readLine(tokenizer, this);
+            return chunk;
+        }
+    }
+
+    /**
+     * This class stores the variables and constraints read so far in (growing)
+     * arrays, from which the model is built at once.
+     */
+    private static class Builder {
+
+        final ByteNameIndex varNames = new ByteNameIndex();
+        double constant = 0.;
+
+        int nVars = 0;
+        double lb[] = new double[1024], ub[] = new double[1024], obj[] = new double[1024];
+        char types[] = new char[1024];
+        int rowPos[] = new int[1024];
+
+        int nConstrs = 0, nnz = 0;
+        char senses[] = new char[1024];
+        double rhs[] = new double[1024];
+        int constrNameIds[] = new int[1024];
+        int rowStart[] = new int[1025];
+        int varIndices[] = new int[4096];
+        double values[] = new double[4096];
+
+        /**
+         * Adds a term to the current (last) constraint, adding its
+         * coefficient to that of a previous term with the same variable.
+         */
+        void addTerm(int var, double value) {
+            int k = rowPos[var];
+            if (k >= rowStart[nConstrs] && k < nnz && varIndices[k] == var) {
+                values[k] += value;
+                return;
+            }
+            if (nnz == varIndices.length) {
+                varIndices = Arrays.copyOf(varIndices, 2 * nnz);
+                values = Arrays.copyOf(values, 2 * nnz);
+            }
+            rowPos[var] = nnz;
+            varIndices[nnz] = var;
+            values[nnz++] = value;
+        }
+
+        MPModel build(String name, char direction, IntFunction<String> constrNames) {
+            MPModel model = new MPModel(direction, name);
+            model.addVars(nVars, lb, ub, obj, types, varNames::getName);
+            model.addConstrs(nConstrs, rowStart, varIndices, values, senses, rhs, constrNames);
+            model.getObjective().setConstant(constant);
+            return model;
+        }
+
+        /**
+         * Ends the current constraint (whose terms were added by {@link
+         * #addTerm(int, double)}).
+         */
+        void endRow(char sense, double rhs, int name) {
+            if (nConstrs + 1 == senses.length) {
+                senses = Arrays.copyOf(senses, 2 * senses.length);
+                this.rhs = Arrays.copyOf(this.rhs, senses.length);
+                constrNameIds = Arrays.copyOf(constrNameIds, senses.length);
+                rowStart = Arrays.copyOf(rowStart, senses.length + 1);
+            }
+            senses[nConstrs] = sense;
+            this.rhs[nConstrs] = rhs;
+            constrNameIds[nConstrs] = name;
+            rowStart[++nConstrs] = nnz;
+        }
+
+        void setRows(int nConstrs, int rowStart[], int varIndices[], double values[], char senses[], double rhs[]) {
+            this.nConstrs = nConstrs;
+            this.rowStart = rowStart;
+            this.varIndices = varIndices;
+            this.values = values;
+            this.senses = senses;
+            this.rhs = rhs;
+            this.nnz = rowStart[nConstrs];
+        }
+
+        /**
+         * Gets the index of the variable named by the current token, adding
+         * a (continuous and non-negative) variable if there is none.
+         */
+        int var(ByteTokenizer tokenizer) {
+            int var = varNames.find(tokenizer);
+            if (var >= 0) return var;
+
+            newVar();
+            varNames.add(tokenizer);
+            return nVars++;
+        }
+
+        /**
+         * Gets the index of the variable with a given name, adding a
+         * (continuous and non-negative) variable if there is none.
+         */
+        int var(byte name[], int offset, int length, int hash) {
+            int var = varNames.find(name, offset, length, hash);
+            if (var >= 0) return var;
+
+            newVar();
+            varNames.add(name, offset, length, hash);
+            return nVars++;
+        }
+
+        private void newVar() {
+            if (nVars == lb.length) {
+                lb = Arrays.copyOf(lb, 2 * nVars);
+                ub = Arrays.copyOf(ub, 2 * nVars);
+                obj = Arrays.copyOf(obj, 2 * nVars);
+                types = Arrays.copyOf(types, 2 * nVars);
+                rowPos = Arrays.copyOf(rowPos, 2 * nVars);
+            }
+            lb[nVars] = 0.;
+            ub[nVars] = Double.MAX_VALUE;
+            types[nVars] = MPVar.CONTINUOUS;
+        }
+    }
+}
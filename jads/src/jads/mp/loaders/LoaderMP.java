@@ -4,7 +4,8 @@ import jads.mp.*;
 import jads.mp.util.*;
 
 import java.io.*;
-import java.util.zip.*;
+import java.nio.channels.*;
+import java.nio.file.*;
 
 /**
  * This class provides a means of loading an LP (CPLEX-formatted) or MPS file.
@@ -17,7 +18,7 @@ public class LoaderMP implements MPLoader {
 
         try {
             if (filePath.endsWith(".gz"))
-                bufferedReader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(filePath))));
+                bufferedReader = new BufferedReader(new InputStreamReader(Channels.newInputStream(GzipChannel.open(Paths.get(filePath)))));
             else
                 bufferedReader = new BufferedReader(new InputStreamReader(new FileInputStream(filePath)));
 
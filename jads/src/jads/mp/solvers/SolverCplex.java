@@ -229,46 +229,78 @@ public class SolverCplex extends MPSolver {
     @Override
     protected void updateModel() {
         try {
-            ArrayList<IloConversion> conversions = new ArrayList<IloConversion>();
+            // the actions are grouped by kind (deletions, variables, bounds,
+            // types, constraints and coefficients), so that each group is
+            // applied at once
+            int nBounds = 0, nConversions = 0, nEdits = 0;
             for (MPAction action : input.actions()) {
                 switch (action.type) {
                     case AddConstr:
-                        addConstraint(action.constr);
+                        if (action.constrs != null) addConstraints(action.constrs);
+                        else addConstraint(action.constr);
                         break;
 
                     case AddVar:
-                        addVar(action.variable);
+                        if (action.variables != null) addVars(action.variables);
+                        else addVar(action.variable);
                         break;
 
                     case DelConstr:
-                        IloRange constrToDelete = constrs.remove(action.constr.getIndex());
-                        cplex.delete(constrToDelete);
+                        cplex.delete(removeAll(constrs, action.indices, new IloRange[action.indices.length]));
                         break;
 
                     case DelVar:
-                        IloNumVar varToDelete = vars.remove(action.variable.getIndex());
-                        cplex.delete(varToDelete);
+                        cplex.delete(removeAll(vars, action.indices, new IloNumVar[action.indices.length]));
                         break;
 
                     case SetVarBounds:
-                        IloNumVar varToSetBounds = vars.get(action.variable.getIndex());
-                        varToSetBounds.setLB(action.variable.getLB());
-                        varToSetBounds.setUB(action.variable.getUB());
+                        nBounds++;
                         break;
 
                     case SetVarType:
-                        IloNumVar varToSetType = vars.get(action.variable.getIndex());
-                        IloConversion conversion = cplex.conversion(varToSetType,
-                          action.variable.getType() == MPVar.BINARY ? IloNumVarType.Int :
-                            action.variable.getType() == MPVar.BINARY ? IloNumVarType.Bool : IloNumVarType.Float);
-                        conversions.add(conversion);
+                        nConversions++;
+                        break;
+
+                    case EditConstr:
+                        nEdits++;
                         break;
+
+                    default:
+                        break;
+                }
+            }
+
+            // the Concert Java API has no array setter for bounds, so each
+            // variable costs one setLB and one setUB call
+            if (nBounds > 0) {
+                for (MPAction action : input.actions()) {
+                    if (action.type == MPAction.ActionType.SetVarBounds) {
+                        IloNumVar var = vars.get(action.variable.getIndex());
+                        var.setLB(action.variable.getLB());
+                        var.setUB(action.variable.getUB());
+                    }
+                }
+            }
+
+            // the conversions of types are added with a single call
+            if (nConversions > 0) {
+                IloConversion conversions[] = new IloConversion[nConversions];
+                nConversions = 0;
+                for (MPAction action : input.actions()) {
+                    if (action.type == MPAction.ActionType.SetVarType) {
+                        char type = action.variable.getType();
+                        conversions[nConversions++] = cplex.conversion(vars.get(action.variable.getIndex()),
+                          type == MPVar.BINARY ? IloNumVarType.Bool : type == MPVar.INTEGER ? IloNumVarType.Int : IloNumVarType.Float);
+                    }
                 }
+                cplex.add(conversions);
             }
-            cplex.add(conversions.toArray(new IloConversion[conversions.size()]));
+
+            if (nEdits > 0)
+                updateCoeffs(nEdits);
         }
         catch (IloException e) {
-            System.err.println("Error updating the objective function of model " + input.getName());
+            System.err.println("Error updating the model " + input.getName());
             e.printStackTrace();
         }
     }
@@ -276,11 +308,18 @@ public class SolverCplex extends MPSolver {
     @Override
     protected void updateObjective() {
         try {
-            IloLinearNumExpr expr = cplex.linearNumExpr(input.getObjective().getConstant());
-
-            for (Map.Entry<MPVar, Double> entry : input.getObjective().coeffs())
-                expr.addTerm(entry.getValue(), vars.get(entry.getKey().getIndex()));
-
+            // the terms are added with a single (array) call
+            MPObjective inputObjective = input.getObjective();
+            double coeffs[] = new double[inputObjective.getNTerms()];
+            IloNumVar cplexVars[] = new IloNumVar[coeffs.length];
+            int n[] = { 0 };
+            inputObjective.forEachTerm((var, coeff) -> {
+                coeffs[n[0]] = coeff;
+                cplexVars[n[0]++] = vars.get(var.getIndex());
+            });
+
+            IloLinearNumExpr expr = cplex.linearNumExpr(inputObjective.getConstant());
+            expr.addTerms(coeffs, cplexVars);
             objective.setExpr(expr);
         }
         catch (IloException e) {
@@ -290,6 +329,29 @@ public class SolverCplex extends MPSolver {
     }
 
 
+    private void updateCoeffs(int nEdits) throws IloException {
+        MPAction edits[] = new MPAction[nEdits];
+        nEdits = 0;
+        for (MPAction action : input.actions())
+            if (action.type == MPAction.ActionType.EditConstr)
+                edits[nEdits++] = action;
+
+        // the coefficients are changed row by row, with a single call per row
+        Arrays.sort(edits, Comparator.comparingInt(action -> action.constr.getIndex()));
+        for (int start = 0, end; start < edits.length; start = end) {
+            MPLinConstr constr = edits[start].constr;
+            for (end = start + 1; end < edits.length && edits[end].constr == constr; end++) ;
+
+            IloNumVar rowVars[] = new IloNumVar[end - start];
+            double coeffs[] = new double[end - start];
+            for (int i = start; i < end; i++) {
+                rowVars[i - start] = vars.get(edits[i].variable.getIndex());
+                coeffs[i - start] = edits[i].coeff;
+            }
+            cplex.setLinearCoefs(constrs.get(constr.getIndex()), rowVars, coeffs);
+        }
+    }
+
     private void buildDuals() throws IloException {
         duals = cplex.getDuals(constrs.toArray(new IloRange[constrs.size()]));
     }
@@ -301,9 +363,10 @@ public class SolverCplex extends MPSolver {
             cplex = new IloCplex();
             cplex.setName(input.getName());
 
-            createVariables();
-            createConstraints();
-            createObjective();
+            MPSnapshot snapshot = input.snapshot();
+            createVariables(snapshot);
+            createConstraints(snapshot);
+            createObjective(snapshot);
         }
         catch (IloException e) {
             System.err.println("Error while extracting model " + input.getName() + " to cplex.");
@@ -353,17 +416,30 @@ public class SolverCplex extends MPSolver {
     /* Creation of constraints, variables and objective function */
 
     private void addConstraint(MPLinConstr inputConstr) throws IloException {
+        constrs.add(( IloRange ) cplex.add(createRange(inputConstr)));
+    }
+
+    private void addConstraints(MPLinConstr inputConstrs[]) throws IloException {
+        IloRange ranges[] = new IloRange[inputConstrs.length];
+        for (int i = 0; i < inputConstrs.length; i++)
+            ranges[i] = createRange(inputConstrs[i]);
+
+        cplex.add(ranges);
+        Collections.addAll(constrs, ranges);
+    }
+
+    private IloRange createRange(MPLinConstr inputConstr) throws IloException {
         IloLinearNumExpr expr = cplex.linearNumExpr(inputConstr.getConstant());
 
         for (Map.Entry<MPVar, Double> entry : inputConstr.coeffs())
             expr.addTerm(entry.getValue(), vars.get(entry.getKey().getIndex()));
 
         if (inputConstr.getSense() == MPLinConstr.EQ)
-            constrs.add(cplex.addEq(expr, 0., inputConstr.getName()));
+            return cplex.eq(expr, 0., inputConstr.getName());
         else if (inputConstr.getSense() == MPLinConstr.LE)
-            constrs.add(cplex.addLe(expr, 0., inputConstr.getName()));
-        else if (inputConstr.getSense() == MPLinConstr.GE)
-            constrs.add(cplex.addGe(expr, 0., inputConstr.getName()));
+            return cplex.le(expr, 0., inputConstr.getName());
+        else
+            return cplex.ge(expr, 0., inputConstr.getName());
     }
 
     private void addVar(MPVar inputVariable) throws IloException {
@@ -380,33 +456,84 @@ public class SolverCplex extends MPSolver {
             vars.add(cplex.numVar(column, inputVariable.getLB(), inputVariable.getUB(), inputVariable.getName()));
     }
 
-    private void createConstraints() throws IloException {
-        for (MPLinConstr inputConstr : input.contrs())
-            addConstraint(inputConstr);
+    private void addVars(MPVar inputVars[]) throws IloException {
+        int n = inputVars.length;
+        double lb[] = new double[n], ub[] = new double[n];
+        IloNumVarType types[] = new IloNumVarType[n];
+        String names[] = input.hasNames() ? new String[n] : null;
+        for (int i = 0; i < n; i++) {
+            MPVar var = inputVars[i];
+            lb[i] = var.getLB();
+            ub[i] = var.getUB();
+            if (var.getType() == MPVar.BINARY && var.getLB() == 0. && var.getUB() == 1.)
+                types[i] = IloNumVarType.Bool;
+            else if (var.getType() == MPVar.INTEGER)
+                types[i] = IloNumVarType.Int;
+            else
+                types[i] = IloNumVarType.Float;
+            if (names != null) names[i] = var.getName();
+        }
+
+        IloNumVar newVars[] = cplex.numVarArray(n, lb, ub, types, names);
+        cplex.add(newVars);
+        vars.addAll(Arrays.asList(newVars));
+
+        // objective coefficients are set by updateObjective
+        for (int i = 0; i < n; i++)
+            for (Map.Entry<MPLinConstr, Double> entry : inputVars[i].coeffs())
+                if (constrs.size() > entry.getKey().getIndex())
+                    cplex.setLinearCoef(constrs.get(entry.getKey().getIndex()), newVars[i], entry.getValue());
+    }
+
+    private void createConstraints(MPSnapshot snapshot) throws IloException {
+        // gathering the variables of all rows, so that each row is built with a single call
+        IloNumVar rowVars[] = new IloNumVar[snapshot.nnz];
+        for (int i = 0; i < snapshot.nnz; i++)
+            rowVars[i] = vars.get(snapshot.rowIndex[i]);
+
+        for (int r = 0; r < snapshot.nConstrs; r++) {
+            IloLinearNumExpr expr = cplex.linearNumExpr();
+            expr.addTerms(rowVars, snapshot.rowValue, snapshot.rowStart[r], snapshot.getRowSize(r));
+
+            String name = input.getConstr(r).getName();
+            if (snapshot.senses[r] == MPLinConstr.EQ)
+                constrs.add(cplex.addEq(expr, snapshot.rhs[r], name));
+            else if (snapshot.senses[r] == MPLinConstr.LE)
+                constrs.add(cplex.addLe(expr, snapshot.rhs[r], name));
+            else if (snapshot.senses[r] == MPLinConstr.GE)
+                constrs.add(cplex.addGe(expr, snapshot.rhs[r], name));
+        }
     }
 
-    private void createObjective() throws IloException {
+    private void createObjective(MPSnapshot snapshot) throws IloException {
         MPObjective inputObjective = input.getObjective();
-        IloLinearNumExpr expr = cplex.linearNumExpr(inputObjective.getConstant());
+        IloLinearNumExpr expr = cplex.linearNumExpr(snapshot.objConstant);
 
-        for (Map.Entry<MPVar, Double> entry : inputObjective.coeffs())
-            expr.addTerm(entry.getValue(), vars.get(entry.getKey().getIndex()));
+        for (int j = 0; j < snapshot.nVars; j++)
+            if (snapshot.obj[j] != 0.)
+                expr.addTerm(snapshot.obj[j], vars.get(j));
 
-        if (inputObjective.getDirection() == MPObjective.MINIMIZE)
+        if (snapshot.direction == MPObjective.MINIMIZE)
             objective = cplex.addMinimize(expr, inputObjective.getName());
         else
             objective = cplex.addMaximize(expr, inputObjective.getName());
     }
 
-    private void createVariables() throws IloException {
-        for (MPVar inputVariable : input.vars()) {
-            if (inputVariable.getType() == MPVar.BINARY && inputVariable.getLB() == 0. && inputVariable.getUB() == 1.)
-                vars.add(cplex.boolVar(inputVariable.getName()));
-            else if (inputVariable.getType() == MPVar.INTEGER)
-                vars.add(cplex.intVar(( int ) Math.round(inputVariable.getLB()), ( int ) Math.round(inputVariable.getUB()), inputVariable.getName()));
+    private void createVariables(MPSnapshot snapshot) throws IloException {
+        IloNumVarType types[] = new IloNumVarType[snapshot.nVars];
+        String names[] = input.hasNames() ? new String[snapshot.nVars] : null;
+        for (int j = 0; j < snapshot.nVars; j++) {
+            if (snapshot.types[j] == MPVar.BINARY && snapshot.lb[j] == 0. && snapshot.ub[j] == 1.)
+                types[j] = IloNumVarType.Bool;
+            else if (snapshot.types[j] == MPVar.INTEGER)
+                types[j] = IloNumVarType.Int;
             else
-                vars.add(cplex.numVar(inputVariable.getLB(), inputVariable.getUB(), inputVariable.getName()));
+                types[j] = IloNumVarType.Float;
+            if (names != null) names[j] = input.getVar(j).getName();
         }
+
+        if (snapshot.nVars > 0)
+            vars.addAll(Arrays.asList(cplex.numVarArray(snapshot.nVars, snapshot.lb, snapshot.ub, types, names)));
     }
 
     // region Parameters getters and setters
@@ -576,4 +703,26 @@ public class SolverCplex extends MPSolver {
     }
 
     // endregion
+
+
+    /**
+     * Removes the elements at several (sorted) positions of a list, shifting
+     * the remaining elements only once.
+     *
+     * @param list    the list
+     * @param indices the sorted positions of the elements to be removed
+     * @param removed the array to be filled with the removed elements
+     * @return the array with the removed elements
+     */
+    private static <T> T[] removeAll(ArrayList<T> list, int indices[], T removed[]) {
+        int n = 0, k = 0;
+        for (int i = 0; i < list.size(); i++) {
+            if (k < indices.length && indices[k] == i)
+                removed[k++] = list.get(i);
+            else
+                list.set(n++, list.get(i));
+        }
+        list.subList(n, list.size()).clear();
+        return removed;
+    }
 }
@@ -217,54 +217,60 @@ public class SolverGurobi extends MPSolver {
     @Override
     public void updateModel() {
         try {
-            // dealing with variables first
+            // dealing with (consolidated) deletions first, so that the indices
+            // of the remaining elements match those of the model; the model is
+            // only updated once, after all removals
+            boolean deleted = false;
             for (MPAction action : input.actions()) {
                 switch (action.type) {
-                    case AddVar:
-                        addVar(action.variable);
-                        break;
-
                     case DelVar:
-                        GRBVar varToDelete = gurobi.getVar(action.variable.getIndex());
-                        gurobi.remove(varToDelete);
-                        gurobi.update();
-                        varUpdateRequired = true;
+                        updateVars();
+                        Set<GRBVar> deletedVars = new HashSet<GRBVar>();
+                        for (int index : action.indices) {
+                            gurobi.remove(vars[index]);
+                            deletedVars.add(vars[index]);
+                        }
+                        binVars.removeIf(deletedVars::contains);
+                        intVars.removeIf(deletedVars::contains);
+                        varUpdateRequired = deleted = true;
                         break;
 
-                    case SetVarBounds:
-                        GRBVar varToSetBounds = gurobi.getVar(action.variable.getIndex());
-                        varToSetBounds.set(GRB.DoubleAttr.LB, action.variable.getLB());
-                        varToSetBounds.set(GRB.DoubleAttr.UB, action.variable.getUB());
-                        break;
-
-                    case SetVarType:
-                        GRBVar varToSetType = gurobi.getVar(action.variable.getIndex());
-                        varToSetType.set(GRB.CharAttr.VType,
-                          action.variable.getType() == MPVar.BINARY ? GRB.INTEGER :
-                            action.variable.getType() == MPVar.BINARY ? GRB.BINARY : GRB.CONTINUOUS);
+                    case DelConstr:
+                        GRBConstr grbConstrs[] = gurobi.getConstrs();
+                        for (int index : action.indices)
+                            gurobi.remove(grbConstrs[index]);
+                        deleted = true;
                         break;
 
                     default:
                         break;
                 }
             }
-            gurobi.update();
+            if (deleted) gurobi.update();
 
-            // dealing with constraints
+            // dealing with (vectorized) bounds and types of existing variables
+            updateBounds();
+            updateTypes();
+
+            // dealing with new variables
+            boolean added = false;
             for (MPAction action : input.actions()) {
-                switch (action.type) {
-                    case AddConstr:
-                        addConstr(action.constr);
-                        break;
+                if (action.type == MPAction.ActionType.AddVar) {
+                    if (action.variables != null) addVars(action.variables);
+                    else addVar(action.variable);
+                    added = true;
+                }
+            }
+            if (added) gurobi.update();
 
-                    case DelConstr:
-                        GRBConstr constrToDelete = gurobi.getConstr(action.constr.getIndex());
-                        gurobi.remove(constrToDelete);
-                        gurobi.update();
-                        break;
+            // dealing with (vectorized) coefficients of existing constraints
+            updateCoeffs();
 
-                    default:
-                        break;
+            // dealing with constraints
+            for (MPAction action : input.actions()) {
+                if (action.type == MPAction.ActionType.AddConstr) {
+                    if (action.constrs != null) addConstrs(action.constrs);
+                    else addConstr(action.constr);
                 }
             }
             gurobi.update();
@@ -278,13 +284,23 @@ public class SolverGurobi extends MPSolver {
     @Override
     public void updateObjective() {
         try {
-            objective.clear();
-            objective.addConstant(input.getObjective().getConstant());
+            updateVars();
 
-            for (Map.Entry<MPVar, Double> entry : input.getObjective().coeffs())
-                objective.addTerm(entry.getValue(), gurobi.getVar(entry.getKey().getIndex()));
+            // the terms are added with a single (array) call
+            MPObjective inputObjective = input.getObjective();
+            double coeffs[] = new double[inputObjective.getNTerms()];
+            GRBVar grbVars[] = new GRBVar[coeffs.length];
+            int n[] = { 0 };
+            inputObjective.forEachTerm((var, coeff) -> {
+                coeffs[n[0]] = coeff;
+                grbVars[n[0]++] = vars[var.getIndex()];
+            });
 
-            gurobi.setObjective(objective, input.getObjective().getDirection() == MPObjective.MINIMIZE ? GRB.MINIMIZE : GRB.MAXIMIZE);
+            objective.clear();
+            objective.addConstant(inputObjective.getConstant());
+            objective.addTerms(coeffs, grbVars);
+
+            gurobi.setObjective(objective, inputObjective.getDirection() == MPObjective.MINIMIZE ? GRB.MINIMIZE : GRB.MAXIMIZE);
             gurobi.update();
         }
         catch (GRBException e) {
@@ -321,9 +337,10 @@ public class SolverGurobi extends MPSolver {
             gurobi = new GRBModel(env);
             gurobi.set(GRB.StringAttr.ModelName, input.getName());
 
-            createVariables();
-            createObjective();
-            createConstraints();
+            MPSnapshot snapshot = input.snapshot();
+            createVariables(snapshot);
+            createObjective(snapshot);
+            createConstraints(snapshot);
         }
         catch (GRBException e) {
             System.err.println("Error while extracting model " + input.getName() + " to gurobi.");
@@ -376,30 +393,105 @@ public class SolverGurobi extends MPSolver {
         }
     }
 
-    /* Relaxing and (un)relaxing the formulation */
+    private void updateBounds() throws GRBException {
+        int n = 0;
+        for (MPAction action : input.actions())
+            if (action.type == MPAction.ActionType.SetVarBounds) n++;
+        if (n == 0) return;
 
-    private void relaxModel() throws GRBException {
-        for (GRBVar binVar : binVars)
-            binVar.set(GRB.CharAttr.VType, GRB.CONTINUOUS);
+        updateVars();
+        GRBVar grbVars[] = new GRBVar[n];
+        double lb[] = new double[n], ub[] = new double[n];
+        n = 0;
+        for (MPAction action : input.actions()) {
+            if (action.type == MPAction.ActionType.SetVarBounds) {
+                grbVars[n] = vars[action.variable.getIndex()];
+                lb[n] = action.variable.getLB();
+                ub[n++] = action.variable.getUB();
+            }
+        }
+
+        gurobi.set(GRB.DoubleAttr.LB, grbVars, lb);
+        gurobi.set(GRB.DoubleAttr.UB, grbVars, ub);
+    }
+
+    private void updateCoeffs() throws GRBException {
+        int n = 0;
+        for (MPAction action : input.actions())
+            if (action.type == MPAction.ActionType.EditConstr) n++;
+        if (n == 0) return;
 
-        for (GRBVar intVar : intVars)
-            intVar.set(GRB.CharAttr.VType, GRB.CONTINUOUS);
+        updateVars();
+        GRBConstr allConstrs[] = gurobi.getConstrs();
+        GRBConstr grbConstrs[] = new GRBConstr[n];
+        GRBVar grbVars[] = new GRBVar[n];
+        double coeffs[] = new double[n];
+        n = 0;
+        for (MPAction action : input.actions()) {
+            if (action.type == MPAction.ActionType.EditConstr) {
+                grbConstrs[n] = allConstrs[action.constr.getIndex()];
+                grbVars[n] = vars[action.variable.getIndex()];
+                coeffs[n++] = action.coeff;
+            }
+        }
+
+        gurobi.chgCoeffs(grbConstrs, grbVars, coeffs);
+    }
+
+    private void updateTypes() throws GRBException {
+        int n = 0;
+        for (MPAction action : input.actions())
+            if (action.type == MPAction.ActionType.SetVarType) n++;
+        if (n == 0) return;
+
+        updateVars();
+        GRBVar grbVars[] = new GRBVar[n];
+        char types[] = new char[n];
+        n = 0;
+        for (MPAction action : input.actions()) {
+            if (action.type == MPAction.ActionType.SetVarType) {
+                grbVars[n] = vars[action.variable.getIndex()];
+                types[n++] = (action.variable.getType() == MPVar.BINARY) ? GRB.BINARY : (action.variable.getType() == MPVar.INTEGER) ? GRB.INTEGER : GRB.CONTINUOUS;
+            }
+        }
 
+        // the lists of integer variables are kept, so that the model may be (un)relaxed
+        Set<GRBVar> changedVars = new HashSet<GRBVar>(Arrays.asList(grbVars));
+        binVars.removeIf(changedVars::contains);
+        intVars.removeIf(changedVars::contains);
+        for (int i = 0; i < n; i++) {
+            if (types[i] == GRB.BINARY) binVars.add(grbVars[i]);
+            else if (types[i] == GRB.INTEGER) intVars.add(grbVars[i]);
+        }
+
+        if (!relaxed)
+            gurobi.set(GRB.CharAttr.VType, grbVars, types);
+    }
+
+    /* Relaxing and (un)relaxing the formulation */
+
+    private void relaxModel() throws GRBException {
+        setTypes(binVars, GRB.CONTINUOUS);
+        setTypes(intVars, GRB.CONTINUOUS);
         gurobi.update();
         relaxed = true;
     }
 
     private void unrelaxModel() throws GRBException {
-        for (GRBVar binVar : binVars)
-            binVar.set(GRB.CharAttr.VType, GRB.BINARY);
-
-        for (GRBVar intVar : intVars)
-            intVar.set(GRB.CharAttr.VType, GRB.INTEGER);
-
+        setTypes(binVars, GRB.BINARY);
+        setTypes(intVars, GRB.INTEGER);
         gurobi.update();
         relaxed = false;
     }
 
+    private void setTypes(ArrayList<GRBVar> grbVars, char type) throws GRBException {
+        if (grbVars.isEmpty()) return;
+
+        char types[] = new char[grbVars.size()];
+        Arrays.fill(types, type);
+        gurobi.set(GRB.CharAttr.VType, grbVars.toArray(new GRBVar[grbVars.size()]), types);
+    }
+
     /* Creation of constraints, variables and objective function */
 
     private void addConstr(MPLinConstr constr) throws GRBException {
@@ -419,6 +511,28 @@ public class SolverGurobi extends MPSolver {
             gurobi.addConstr(expr, GRB.GREATER_EQUAL, 0.0, constr.getName());
     }
 
+    private void addConstrs(MPLinConstr inputConstrs[]) throws GRBException {
+        updateVars();
+
+        GRBLinExpr exprs[] = new GRBLinExpr[inputConstrs.length];
+        char senses[] = new char[inputConstrs.length];
+        double rhs[] = new double[inputConstrs.length];
+        String names[] = input.hasNames() ? new String[inputConstrs.length] : null;
+
+        for (int i = 0; i < inputConstrs.length; i++) {
+            MPLinConstr constr = inputConstrs[i];
+            exprs[i] = new GRBLinExpr();
+            for (Map.Entry<MPVar, Double> entry : constr.coeffs())
+                exprs[i].addTerm(entry.getValue(), vars[entry.getKey().getIndex()]);
+
+            senses[i] = constr.getSense() == MPLinConstr.EQ ? GRB.EQUAL : constr.getSense() == MPLinConstr.LE ? GRB.LESS_EQUAL : GRB.GREATER_EQUAL;
+            rhs[i] = -constr.getConstant();
+            if (names != null) names[i] = constr.getName();
+        }
+
+        gurobi.addConstrs(exprs, senses, rhs, names);
+    }
+
     private void addVar(MPVar inputVariable) throws GRBException {
         varUpdateRequired = true;
 
@@ -440,30 +554,99 @@ public class SolverGurobi extends MPSolver {
         else if (type == GRB.INTEGER) intVars.add(var);
     }
 
-    private void createConstraints() throws GRBException {
-        for (MPLinConstr inputConstr : input.contrs())
-            addConstr(inputConstr);
+    private void addVars(MPVar inputVars[]) throws GRBException {
+        varUpdateRequired = true;
+
+        int n = inputVars.length;
+        double lb[] = new double[n], ub[] = new double[n], obj[] = new double[n];
+        char types[] = new char[n];
+        String names[] = input.hasNames() ? new String[n] : null;
+        GRBColumn columns[] = null;
+        GRBConstr grbConstrs[] = null;
+
+        for (int i = 0; i < n; i++) {
+            MPVar var = inputVars[i];
+            lb[i] = var.getLB();
+            ub[i] = var.getUB();
+            obj[i] = var.getObj();
+            types[i] = (var.getType() == MPVar.BINARY) ? GRB.BINARY : (var.getType() == MPVar.INTEGER) ? GRB.INTEGER : GRB.CONTINUOUS;
+            if (names != null) names[i] = var.getName();
+
+            // columns are only built if some variable is in existing constraints
+            if (var.getNConstrs() > 0) {
+                if (columns == null) {
+                    columns = new GRBColumn[n];
+                    for (int k = 0; k < n; k++) columns[k] = new GRBColumn();
+                    grbConstrs = gurobi.getConstrs();
+                }
+                for (Map.Entry<MPLinConstr, Double> entry : var.coeffs())
+                    if (grbConstrs.length > entry.getKey().getIndex())
+                        columns[i].addTerm(entry.getValue(), grbConstrs[entry.getKey().getIndex()]);
+            }
+        }
 
+        char grbTypes[] = types;
+        if (relaxed) {
+            grbTypes = new char[n];
+            Arrays.fill(grbTypes, GRB.CONTINUOUS);
+        }
+
+        GRBVar newVars[] = columns == null ? gurobi.addVars(lb, ub, obj, grbTypes, names)
+          : gurobi.addVars(lb, ub, obj, grbTypes, names, columns);
+
+        for (int i = 0; i < n; i++) {
+            if (types[i] == GRB.BINARY) binVars.add(newVars[i]);
+            else if (types[i] == GRB.INTEGER) intVars.add(newVars[i]);
+        }
+    }
+
+    private void createConstraints(MPSnapshot snapshot) throws GRBException {
+        // gathering the variables of all rows, so that each row is added with a single call
+        GRBVar rowVars[] = new GRBVar[snapshot.nnz];
+        for (int i = 0; i < snapshot.nnz; i++)
+            rowVars[i] = vars[snapshot.rowIndex[i]];
+
+        GRBLinExpr exprs[] = new GRBLinExpr[snapshot.nConstrs];
+        char senses[] = new char[snapshot.nConstrs];
+        String names[] = input.hasNames() ? new String[snapshot.nConstrs] : null;
+
+        for (int r = 0; r < snapshot.nConstrs; r++) {
+            exprs[r] = new GRBLinExpr();
+            exprs[r].addTerms(snapshot.rowValue, rowVars, snapshot.rowStart[r], snapshot.getRowSize(r));
+            senses[r] = snapshot.senses[r] == MPLinConstr.EQ ? GRB.EQUAL : snapshot.senses[r] == MPLinConstr.LE ? GRB.LESS_EQUAL : GRB.GREATER_EQUAL;
+            if (names != null) names[r] = input.getConstr(r).getName();
+        }
+
+        gurobi.addConstrs(exprs, senses, snapshot.rhs, names);
         gurobi.update();
     }
 
-    private void createObjective() throws GRBException {
-        updateVars();
+    private void createObjective(MPSnapshot snapshot) throws GRBException {
         objective = new GRBLinExpr();
-        objective.addConstant(input.getObjective().getConstant());
+        objective.addConstant(snapshot.objConstant);
 
-        for (Map.Entry<MPVar, Double> entry : input.getObjective().coeffs())
-            objective.addTerm(entry.getValue(), gurobi.getVar(entry.getKey().getIndex()));
+        for (int j = 0; j < snapshot.nVars; j++)
+            if (snapshot.obj[j] != 0.)
+                objective.addTerm(snapshot.obj[j], vars[j]);
 
-        gurobi.setObjective(objective, input.getObjective().getDirection() == MPObjective.MINIMIZE ? GRB.MINIMIZE : GRB.MAXIMIZE);
+        gurobi.setObjective(objective, snapshot.direction == MPObjective.MINIMIZE ? GRB.MINIMIZE : GRB.MAXIMIZE);
     }
 
-    private void createVariables() throws GRBException {
-        for (MPVar variable : input.vars())
-            addVar(variable);
+    private void createVariables(MPSnapshot snapshot) throws GRBException {
+        char types[] = new char[snapshot.nVars];
+        String names[] = input.hasNames() ? new String[snapshot.nVars] : null;
+        for (int j = 0; j < snapshot.nVars; j++) {
+            types[j] = (snapshot.types[j] == MPVar.BINARY) ? GRB.BINARY : (snapshot.types[j] == MPVar.INTEGER) ? GRB.INTEGER : GRB.CONTINUOUS;
+            if (names != null) names[j] = input.getVar(j).getName();
+        }
 
+        vars = gurobi.addVars(snapshot.lb, snapshot.ub, snapshot.obj, types, names);
         gurobi.update();
-        vars = gurobi.getVars();
+
+        for (int j = 0; j < snapshot.nVars; j++) {
+            if (types[j] == GRB.BINARY) binVars.add(vars[j]);
+            else if (types[j] == GRB.INTEGER) intVars.add(vars[j]);
+        }
     }
 
     // region Parameters initializer, getters and setters
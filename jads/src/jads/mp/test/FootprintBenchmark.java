@@ -0,0 +1,85 @@
+package jads.mp.test;
+
+import jads.mp.*;
+
+import java.util.*;
+
+/**
+ * This class measures the memory footprint and the build time of synthetic
+ * models with 10^5, 10^6, ... non-zero coefficients (up to a maximum), as a
+ * baseline for the model layer. For each size, it reports the build time, the
+ * footprint estimated by {@link MPModel#getFootprint()} (in bytes per
+ * non-zero) and the growth of the used heap measured after garbage collection
+ * (which also includes the handles kept by the benchmark).
+ * <p>
+ * The models have random sparse rows with a fixed number of non-zeros each,
+ * over ten times as many variables as constraints. The heap must be large
+ * enough for the largest model (e.g. -Xmx8g for 10^7 non-zeros).
+ * <p>
+ * Usage: FootprintBenchmark [maxNnz] [nnzPerRow] [eager|compact|lazy|none]
+ *
+ * @author Tulio Toffolo
+ */
+public class FootprintBenchmark {
+
+    public static void main(String args[]) {
+        long maxNnz = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000;
+        int nnzPerRow = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        MPNames.Mode nameMode = args.length > 2 ? parseMode(args[2]) : MPNames.Mode.Eager;
+
+        System.out.printf("non-zeros per row: %d, names: %s\n\n", nnzPerRow, nameMode);
+        System.out.printf("%12s %12s %12s %10s %14s %14s\n", "non-zeros", "variables", "constraints", "build (ms)", "estimated B/nz", "measured B/nz");
+        for (long nnz = 100_000; nnz <= maxNnz; nnz *= 10) {
+            int nConstrs = ( int ) (nnz / nnzPerRow), nVars = 10 * nConstrs;
+
+            long heapBefore = usedHeap();
+            long start = System.nanoTime();
+            MPModel model = buildModel(nVars, nConstrs, nnzPerRow, nameMode);
+            long buildTime = System.nanoTime() - start;
+            long heapAfter = usedHeap();
+
+            MPFootprint footprint = model.getFootprint();
+            System.out.printf("%,12d %,12d %,12d %10.0f %14.1f %14.1f\n", footprint.nnz, nVars, nConstrs, buildTime / 1e6,
+              footprint.getBytesPerNonzero(), ( double ) (heapAfter - heapBefore) / footprint.nnz);
+            if (nnz * 10 > maxNnz) {
+                System.out.println();
+                System.out.print(footprint);
+            }
+        }
+    }
+
+    private static MPModel buildModel(int nVars, int nConstrs, int nnzPerRow, MPNames.Mode nameMode) {
+        Random random = new Random(0);
+        MPModel model = new MPModel("footprint-benchmark");
+        model.setNameMode(nameMode);
+
+        MPVar vars[] = new MPVar[nVars];
+        for (int j = 0; j < nVars; j++)
+            vars[j] = model.addVar(0., 1., 1. + random.nextInt(100), MPVar.BINARY, "x%d", j);
+
+        MPVar rowVars[] = new MPVar[nnzPerRow];
+        double rowCoeffs[] = new double[nnzPerRow];
+        for (int i = 0; i < nConstrs; i++) {
+            for (int k = 0; k < nnzPerRow; k++) {
+                // distinct variables in each row: one per slice of the variables
+                int slice = nVars / nnzPerRow;
+                rowVars[k] = vars[k * slice + random.nextInt(slice)];
+                rowCoeffs[k] = 1. + random.nextInt(10);
+            }
+            model.addConstr(new MPLinExpr(rowVars, rowCoeffs), MPLinConstr.GE, 1., "c%d", i);
+        }
+        return model;
+    }
+
+    private static MPNames.Mode parseMode(String mode) {
+        for (MPNames.Mode value : MPNames.Mode.values())
+            if (value.name().equalsIgnoreCase(mode)) return value;
+        throw new IllegalArgumentException("invalid name mode: " + mode);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,144 @@
+package jads.mp.test;
+
+import jads.mp.*;
+import jads.mp.loaders.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * This class measures the throughput (in MB/s of input) of the loaders on
+ * generated LP and MPS files of (approximately) a given size, plain and
+ * gzipped. {@link LoaderFast} is measured on all files (and with several
+ * threads on the plain MPS file) and {@link LoaderMP} on the plain LP file, as
+ * a baseline. Each file is loaded a few times and the
+ * best time is reported, so that the files are in the page cache. The times
+ * include building the models, and the throughput is given in MB of text,
+ * i.e. of the uncompressed files.
+ * <p>
+ * The models have random sparse rows with 10 non-zeros each, over ten times
+ * as many variables as constraints, with integer and bounded variables. The
+ * heap must be large enough for the models (e.g. -Xmx8g for 1 GB files).
+ * <p>
+ * Usage: LoaderBenchmark [sizeMB] [directory] [runs] [threads]
+ *
+ * @author Tulio Toffolo
+ */
+public class LoaderBenchmark {
+
+    private static final int NNZ_PER_ROW = 10;
+
+    public static void main(String args[]) throws IOException {
+        int sizeMB = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        Path directory = Paths.get(args.length > 1 ? args[1] : System.getProperty("java.io.tmpdir"));
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        // roughly 450 bytes of the LP file per constraint (and its ten variables)
+        int nConstrs = ( int ) Math.max(1, sizeMB * 1_000_000L / 450), nVars = 10 * nConstrs;
+
+        System.out.printf("generating models with %,d variables and %,d constraints...\n\n", nVars, nConstrs);
+        Path lp = directory.resolve("loader-benchmark.lp"), mps = directory.resolve("loader-benchmark.mps");
+        Path lpGz = directory.resolve("loader-benchmark.lp.gz"), mpsGz = directory.resolve("loader-benchmark.mps.gz");
+        writeLP(lp, nVars, nConstrs, false);
+        writeLP(lpGz, nVars, nConstrs, true);
+        writeMPS(mps, nVars, nConstrs, false);
+        writeMPS(mpsGz, nVars, nConstrs, true);
+
+        System.out.printf("%-12s %-24s %12s %10s %10s\n", "loader", "file", "text (MB)", "time (ms)", "MB/s");
+        measure("LoaderFast", new LoaderFast(), lp, lp, runs);
+        measure("LoaderFast", new LoaderFast(), lpGz, lp, runs);
+        measure("LoaderFast", new LoaderFast(), mps, mps, runs);
+        measure("LoaderFast", new LoaderFast(), mpsGz, mps, runs);
+        if (threads > 1)
+            measure("LoaderFast/" + threads, new LoaderFast(threads), mps, mps, runs);
+        measure("LoaderMP", new LoaderMP(), lp, lp, 1);
+
+        for (Path path : new Path[]{ lp, lpGz, mps, mpsGz })
+            Files.deleteIfExists(path);
+    }
+
+    /**
+     * Measures the best time to load a file, reporting the throughput in MB
+     * of text (i.e. of the uncompressed file) per second.
+     */
+    private static void measure(String name, MPLoader loader, Path path, Path text, int runs) throws IOException {
+        PrintStream out = System.out;
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < runs; run++) {
+            System.gc();
+            System.setOut(new PrintStream(new ByteArrayOutputStream()));
+            long start = System.nanoTime();
+            MPModel model = loader.loadModel(path.toString());
+            best = Math.min(best, System.nanoTime() - start);
+            System.setOut(out);
+            if (model == null) throw new IOException("failed to load " + path);
+        }
+
+        double mb = Files.size(text) / 1e6;
+        System.out.printf("%-12s %-24s %12.1f %10.0f %10.1f\n", name, path.getFileName(), mb, best / 1e6, mb / (best / 1e9));
+    }
+
+    private static Writer open(Path path, boolean gzip) throws IOException {
+        OutputStream stream = Files.newOutputStream(path);
+        if (gzip) stream = new GZIPOutputStream(stream, 1 << 16);
+        return new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.US_ASCII), 1 << 20);
+    }
+
+    private static void writeLP(Path path, int nVars, int nConstrs, boolean gzip) throws IOException {
+        Random random = new Random(0);
+        try (Writer writer = open(path, gzip)) {
+            writer.write("\\ generated by LoaderBenchmark\nMinimize\n obj:");
+            for (int j = 0; j < nVars; j++)
+                writer.write((j % 10 == 9 ? "\n " : " ") + "+ " + (1 + random.nextInt(100)) + " x" + j);
+
+            writer.write("\nSubject To\n");
+            for (int i = 0; i < nConstrs; i++) {
+                writer.write(" c" + i + ":");
+                for (int k = 0, slice = nVars / NNZ_PER_ROW; k < NNZ_PER_ROW; k++)
+                    writer.write(" + " + (0.5 + random.nextInt(1000) / 8.) + " x" + (k * slice + random.nextInt(slice)));
+                writer.write(" >= " + (1 + random.nextInt(10)) + "\n");
+            }
+
+            writer.write("Bounds\n");
+            for (int j = 0; j < nVars; j += 2)
+                writer.write(" 0 <= x" + j + " <= " + (1 + random.nextInt(100)) + "\n");
+            writer.write("Generals\n");
+            for (int j = 0; j < nVars; j += 4)
+                writer.write(" x" + j + (j % 40 == 36 ? "\n" : ""));
+            writer.write("\nEnd\n");
+        }
+    }
+
+    private static void writeMPS(Path path, int nVars, int nConstrs, boolean gzip) throws IOException {
+        // a model with the same number of non-zeros, generated by column
+        Random random = new Random(0);
+        try (Writer writer = open(path, gzip)) {
+            writer.write("NAME loader-benchmark\nROWS\n N obj\n");
+            for (int i = 0; i < nConstrs; i++)
+                writer.write(" G c" + i + "\n");
+
+            writer.write("COLUMNS\n");
+            int nnzPerCol = Math.max(1, NNZ_PER_ROW * nConstrs / nVars);
+            for (int j = 0; j < nVars; j++) {
+                if (j % 4 == 0) writer.write("    MARKER 'MARKER' 'INTORG'\n");
+                writer.write("    x" + j + " obj " + (1 + random.nextInt(100)) + "\n");
+                int rows[] = random.ints(0, nConstrs).distinct().limit(nnzPerCol).sorted().toArray();
+                for (int row : rows)
+                    writer.write("    x" + j + " c" + row + " " + (0.5 + random.nextInt(1000) / 8.) + "\n");
+                if (j % 4 == 0) writer.write("    MARKER 'MARKER' 'INTEND'\n");
+            }
+
+            writer.write("RHS\n");
+            for (int i = 0; i < nConstrs; i++)
+                writer.write("    RHS c" + i + " " + (1 + random.nextInt(10)) + "\n");
+            writer.write("BOUNDS\n");
+            for (int j = 0; j < nVars; j += 2)
+                writer.write(" UP BND x" + j + " " + (1 + random.nextInt(100)) + "\n");
+            writer.write("ENDATA\n");
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package jads.mp.test;
+
+import jads.mp.*;
+
+import java.util.*;
+
+/**
+ * This class checks {@link MPPresolve} against brute force on small random
+ * mixed integer models: the optimum of the reduced model must match the
+ * optimum of the original model, and postsolved optimal solutions must be
+ * feasible (and optimal) in the original model. The optima are computed by
+ * enumerating the values of the integer variables and, for each of them, the
+ * vertices of the polytope of the continuous variables (all bounds are
+ * finite, so that an optimal vertex exists if the polytope is not empty).
+ * <p>
+ * Most models are built around a random point, so that they are feasible;
+ * some bounds of integer variables are fractional, so that rounding is also
+ * checked. The rows of the reduced model must be the rows of the original
+ * model given by the mapping of the presolve (restricted to the remaining
+ * columns), and the duals of the reduced model must be mapped back to these
+ * rows, with zero for the removed ones.
+ * <p>
+ * Usage: PresolveCheck [nModels] [seed]
+ *
+ * @author Tulio Toffolo
+ */
+public class PresolveCheck {
+
+    private static final double TOLERANCE = 1e-6;
+
+    public static void main(String args[]) {
+        int nModels = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+
+        int nInfeasible = 0, nFeasible = 0, nRemoved = 0;
+        for (int i = 0; i < nModels; i++) {
+            Random random = new Random(seed + i);
+            MPModel model = buildModel(random);
+            MPSnapshot original = model.snapshot();
+            double optimum = optimize(original, null);
+
+            MPPresolve presolve = new MPPresolve(model);
+            MPModel reduced = presolve.presolve();
+            if (reduced == null) {
+                if (optimum != Double.POSITIVE_INFINITY)
+                    throw new AssertionError("model " + (seed + i) + ": feasible model presolved as infeasible");
+                nInfeasible++;
+                continue;
+            }
+
+            MPSnapshot snapshotReduced = reduced.snapshot();
+            checkRows(seed + i, presolve, original, snapshotReduced);
+            checkDuals(seed + i, presolve, original, snapshotReduced, random);
+
+            double x[] = new double[snapshotReduced.nVars];
+            double reducedOptimum = optimize(snapshotReduced, x);
+            if (optimum == Double.POSITIVE_INFINITY) {
+                if (reducedOptimum != Double.POSITIVE_INFINITY)
+                    throw new AssertionError("model " + (seed + i) + ": infeasible model presolved as feasible");
+                nInfeasible++;
+                continue;
+            }
+            if (Math.abs(optimum - reducedOptimum) > TOLERANCE * Math.max(1., Math.abs(optimum)))
+                throw new AssertionError("model " + (seed + i) + ": optimum " + optimum + " but reduced optimum " + reducedOptimum);
+
+            MPEvaluator.Evaluation evaluation = new MPEvaluator(original).evaluate(presolve.postsolve(x));
+            double value = original.direction == MPObjective.MINIMIZE ? evaluation.objValue : -evaluation.objValue;
+            if (!evaluation.feasible || Math.abs(value - optimum) > TOLERANCE * Math.max(1., Math.abs(optimum)))
+                throw new AssertionError("model " + (seed + i) + ": postsolved solution is infeasible or not optimal");
+
+            nFeasible++;
+            nRemoved += presolve.getNRemovedVars() + presolve.getNRemovedConstrs();
+        }
+
+        System.out.printf("models: %d (infeasible: %d, feasible: %d), removed variables and constraints: %d\n",
+          nModels, nInfeasible, nFeasible, nRemoved);
+        System.out.println("all checks passed");
+    }
+
+    private static MPModel buildModel(Random random) {
+        MPModel model = new MPModel(random.nextBoolean() ? MPObjective.MINIMIZE : MPObjective.MAXIMIZE, "presolve-check");
+
+        // variables (at most three continuous ones) and a point within their bounds
+        int nVars = 2 + random.nextInt(5), nContinuous = 0;
+        MPVar vars[] = new MPVar[nVars];
+        double point[] = new double[nVars];
+        for (int j = 0; j < nVars; j++) {
+            double lb = random.nextInt(3) - 1, ub = lb + random.nextInt(4);
+            if (nContinuous < 3 && random.nextInt(3) == 0) {
+                nContinuous++;
+                if (random.nextBoolean()) ub += 0.5;
+                vars[j] = model.addVar(lb, ub, random.nextInt(7) - 3, MPVar.CONTINUOUS, "y%d", j);
+                point[j] = lb + (ub - lb) * random.nextInt(5) / 4;
+            }
+            else {
+                if (random.nextInt(8) == 0) lb += 0.5;
+                if (random.nextInt(8) == 0) ub -= 0.5;
+                vars[j] = model.addVar(lb, ub, random.nextInt(7) - 3, MPVar.INTEGER, "x%d", j);
+                int range = ( int ) (Math.floor(ub) - Math.ceil(lb));
+                point[j] = Math.ceil(lb) + (range >= 0 ? random.nextInt(range + 1) : 0);
+            }
+        }
+        boolean feasible = random.nextInt(10) != 0 && Arrays.stream(vars).allMatch(var -> Math.ceil(var.getLB()) <= var.getUB());
+
+        // constraints, satisfied by the point if the model should be feasible
+        int nConstrs = random.nextInt(7);
+        for (int i = 0; i < nConstrs; i++) {
+            MPLinExpr expr = new MPLinExpr();
+            int nTerms = 1 + random.nextInt(3);
+            for (int k = 0; k < nTerms; k++)
+                expr.addTerm(vars[random.nextInt(nVars)], random.nextInt(7) - 3);
+
+            char sense = "<=>".charAt(random.nextInt(3));
+            double rhs = random.nextInt(15) - 3;
+            if (feasible) {
+                double activity = 0.;
+                for (int j = 0; j < nVars; j++)
+                    activity += expr.getCoeff(vars[j]) * point[j];
+                rhs = sense == MPLinConstr.EQ ? activity : sense == MPLinConstr.LE ? activity + random.nextInt(3) : activity - random.nextInt(3);
+            }
+            model.addConstr(expr, sense, rhs, "c%d", i);
+
+            // a multiple of the constraint, so that duplicate rows are also presolved
+            if (random.nextInt(4) == 0)
+                model.addConstr(new MPLinExpr(expr).addExpr(expr, 1), sense, 2 * rhs + (feasible ? 0 : random.nextInt(3) - 1), "d%d", i);
+        }
+        return model;
+    }
+
+    /**
+     * Checks that the duals of the reduced model are mapped to the
+     * corresponding constraints of the original model, and that the duals of
+     * the removed constraints are zero.
+     */
+    private static void checkDuals(long id, MPPresolve presolve, MPSnapshot original, MPSnapshot reduced, Random random) {
+        double duals[] = new double[reduced.nConstrs];
+        for (int i = 0; i < duals.length; i++)
+            duals[i] = random.nextInt(9) - 4 + 0.25;
+
+        double originalDuals[] = presolve.postsolveDuals(duals);
+        if (originalDuals.length != original.nConstrs)
+            throw new AssertionError("model " + id + ": postsolved duals have length " + originalDuals.length);
+
+        boolean kept[] = new boolean[original.nConstrs];
+        for (int i = 0; i < duals.length; i++) {
+            int r = presolve.getOriginalConstr(i);
+            kept[r] = true;
+            if (originalDuals[r] != duals[i])
+                throw new AssertionError("model " + id + ": dual of constraint " + i + " mapped to a different value");
+        }
+        for (int r = 0; r < original.nConstrs; r++)
+            if (!kept[r] && originalDuals[r] != 0.)
+                throw new AssertionError("model " + id + ": dual of removed constraint " + r + " is not zero");
+    }
+
+    /**
+     * Checks that each row of the reduced model is the row of the original
+     * model given by the mapping, restricted to the remaining columns.
+     */
+    private static void checkRows(long id, MPPresolve presolve, MPSnapshot original, MPSnapshot reduced) {
+        int colOf[] = new int[original.nVars];
+        Arrays.fill(colOf, -1);
+        for (int k = 0; k < reduced.nVars; k++)
+            colOf[presolve.getOriginalVar(k)] = k;
+
+        for (int i = 0; i < reduced.nConstrs; i++) {
+            int r = presolve.getOriginalConstr(i);
+            double row[] = new double[reduced.nVars];
+            for (int p = original.rowStart[r]; p < original.rowStart[r + 1]; p++)
+                if (colOf[original.rowIndex[p]] >= 0)
+                    row[colOf[original.rowIndex[p]]] += original.rowValue[p];
+            for (int p = reduced.rowStart[i]; p < reduced.rowStart[i + 1]; p++)
+                row[reduced.rowIndex[p]] -= reduced.rowValue[p];
+
+            for (double difference : row)
+                if (Math.abs(difference) > TOLERANCE)
+                    throw new AssertionError("model " + id + ": constraint " + i + " differs from the original constraint " + r);
+        }
+    }
+
+    /**
+     * Computes the optimal value of a model (as a minimization), or infinity
+     * if the model is infeasible, by enumerating the values of its integer
+     * variables and the vertices of the polytope of its continuous variables.
+     */
+    private static double optimize(MPSnapshot model, double best[]) {
+        int n = model.nVars;
+        int nContinuous = 0, continuous[] = new int[n];
+        int lb[] = new int[n], ub[] = new int[n];
+        double x[] = new double[n];
+        for (int j = 0; j < n; j++) {
+            if (model.types[j] == MPVar.CONTINUOUS) {
+                if (model.lb[j] > model.ub[j] + TOLERANCE) return Double.POSITIVE_INFINITY;
+                continuous[nContinuous++] = j;
+                continue;
+            }
+            lb[j] = ( int ) Math.ceil(model.lb[j] - MPModel.EPS);
+            ub[j] = ( int ) Math.floor(model.ub[j] + MPModel.EPS);
+            if (ub[j] < lb[j]) return Double.POSITIVE_INFINITY;
+            x[j] = lb[j];
+        }
+
+        // hyperplanes which may define vertices: rows and bounds of continuous variables
+        int nPlanes = model.nConstrs + 2 * nContinuous;
+        double planes[][] = new double[nPlanes][nContinuous];
+        for (int r = 0; r < model.nConstrs; r++)
+            for (int p = model.rowStart[r]; p < model.rowStart[r + 1]; p++)
+                for (int c = 0; c < nContinuous; c++)
+                    if (model.rowIndex[p] == continuous[c]) planes[r][c] += model.rowValue[p];
+        for (int c = 0; c < nContinuous; c++) {
+            planes[model.nConstrs + 2 * c][c] = 1.;
+            planes[model.nConstrs + 2 * c + 1][c] = 1.;
+        }
+
+        MPEvaluator evaluator = new MPEvaluator(model);
+        double optimum = Double.POSITIVE_INFINITY;
+        int chosen[] = new int[nContinuous];
+        while (true) {
+            // the right-hand sides of the hyperplanes, given the integer variables
+            double rhs[] = new double[nPlanes];
+            for (int r = 0; r < model.nConstrs; r++) {
+                rhs[r] = model.rhs[r];
+                for (int p = model.rowStart[r]; p < model.rowStart[r + 1]; p++)
+                    if (model.types[model.rowIndex[p]] != MPVar.CONTINUOUS)
+                        rhs[r] -= model.rowValue[p] * x[model.rowIndex[p]];
+            }
+            for (int c = 0; c < nContinuous; c++) {
+                rhs[model.nConstrs + 2 * c] = model.lb[continuous[c]];
+                rhs[model.nConstrs + 2 * c + 1] = model.ub[continuous[c]];
+            }
+
+            // all subsets of hyperplanes (of size nContinuous), in increasing order
+            for (int c = 0; c < nContinuous; c++) chosen[c] = c;
+            while (nContinuous <= nPlanes) {
+                if (solve(planes, rhs, chosen, continuous, x)) {
+                    MPEvaluator.Evaluation evaluation = evaluator.evaluate(x);
+                    double value = model.direction == MPObjective.MINIMIZE ? evaluation.objValue : -evaluation.objValue;
+                    if (evaluation.feasible && value < optimum - 1e-9) {
+                        optimum = value;
+                        if (best != null) System.arraycopy(x, 0, best, 0, n);
+                    }
+                }
+
+                int c = nContinuous - 1;
+                while (c >= 0 && chosen[c] == nPlanes - nContinuous + c) c--;
+                if (c < 0) break;
+                chosen[c]++;
+                for (int d = c + 1; d < nContinuous; d++) chosen[d] = chosen[d - 1] + 1;
+            }
+
+            int j = 0;
+            while (j < n && (model.types[j] == MPVar.CONTINUOUS || x[j] == ub[j])) {
+                if (model.types[j] != MPVar.CONTINUOUS) x[j] = lb[j];
+                j++;
+            }
+            if (j == n) return optimum;
+            x[j]++;
+        }
+    }
+
+    /**
+     * Solves the (square) system of the chosen hyperplanes by Gaussian
+     * elimination, storing the values of the continuous variables in x.
+     *
+     * @return true if the system has a single solution and false otherwise
+     */
+    private static boolean solve(double planes[][], double rhs[], int chosen[], int continuous[], double x[]) {
+        int k = chosen.length;
+        double a[][] = new double[k][k + 1];
+        for (int i = 0; i < k; i++) {
+            System.arraycopy(planes[chosen[i]], 0, a[i], 0, k);
+            a[i][k] = rhs[chosen[i]];
+        }
+
+        for (int c = 0; c < k; c++) {
+            int pivot = c;
+            for (int i = c + 1; i < k; i++)
+                if (Math.abs(a[i][c]) > Math.abs(a[pivot][c])) pivot = i;
+            if (Math.abs(a[pivot][c]) < 1e-9) return false;
+
+            double tmp[] = a[c];
+            a[c] = a[pivot];
+            a[pivot] = tmp;
+            for (int i = 0; i < k; i++) {
+                if (i == c || a[i][c] == 0.) continue;
+                double factor = a[i][c] / a[c][c];
+                for (int d = c; d <= k; d++)
+                    a[i][d] -= factor * a[c][d];
+            }
+        }
+        for (int c = 0; c < k; c++)
+            x[continuous[c]] = a[c][k] / a[c][c];
+        return true;
+    }
+}
@@ -0,0 +1,82 @@
+package jads.mp.test;
+
+import jads.mp.*;
+
+import java.util.*;
+
+/**
+ * This class checks that {@link MPProfile} computes the same statistics when
+ * the rows are processed sequentially and in parallel, on random models with
+ * rows of every class (set partitioning, packing and covering, cardinality,
+ * knapsack, variable bound, singleton and empty rows).
+ * <p>
+ * Usage: ProfileCheck [nConstrs] [nModels] [seed]
+ *
+ * @author Tulio Toffolo
+ */
+public class ProfileCheck {
+
+    public static void main(String args[]) {
+        int nConstrs = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int nModels = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+
+        for (int i = 0; i < nModels; i++) {
+            MPSnapshot model = buildModel(new Random(seed + i), nConstrs).snapshot();
+            MPProfile sequential = new MPProfile(model, false), parallel = new MPProfile(model, true);
+
+            String difference = compare(sequential, parallel);
+            if (difference != null)
+                throw new AssertionError("model " + (seed + i) + ": sequential and parallel profiles differ in " + difference);
+            if (i == 0) System.out.print(sequential);
+        }
+        System.out.println("all checks passed");
+    }
+
+    private static MPModel buildModel(Random random, int nConstrs) {
+        MPModel model = new MPModel("profile-check");
+
+        int nVars = Math.max(10, nConstrs / 2);
+        MPVar vars[] = new MPVar[nVars];
+        for (int j = 0; j < nVars; j++) {
+            int kind = random.nextInt(3);
+            if (kind == 0) vars[j] = model.addVar(0., 1., random.nextInt(10), MPVar.BINARY, "x%d", j);
+            else if (kind == 1) vars[j] = model.addVar(0., 10., random.nextInt(10), MPVar.INTEGER, "x%d", j);
+            else vars[j] = model.addVar(-5., 5., random.nextDouble(), MPVar.CONTINUOUS, "x%d", j);
+        }
+
+        for (int i = 0; i < nConstrs; i++) {
+            int degree = random.nextInt(8);
+            boolean ones = random.nextBoolean();
+            MPLinExpr expr = new MPLinExpr();
+            for (int k = 0; k < degree; k++)
+                expr.addTerm(vars[random.nextInt(nVars)], ones ? 1. : random.nextInt(9) - 2);
+            double rhs = random.nextInt(3) == 0 ? 1. : random.nextInt(3) == 0 ? 0. : random.nextInt(20);
+            model.addConstr(expr, "<=>".charAt(random.nextInt(3)), rhs, "c%d", i);
+        }
+        return model;
+    }
+
+    /**
+     * Compares the fields of two profiles, returning the name of the first
+     * field which differs (or null if all fields are equal).
+     */
+    private static String compare(MPProfile a, MPProfile b) {
+        if (!Arrays.equals(a.rowDegrees, b.rowDegrees)) return "rowDegrees";
+        if (!Arrays.equals(a.colDegrees, b.colDegrees)) return "colDegrees";
+
+        int intsA[] = { a.nVars, a.nConstrs, a.nnz, a.nBinary, a.nInteger, a.nContinuous, a.maxRowDegree, a.maxColDegree,
+          a.nEquality, a.nEmpty, a.nSingleton, a.nVarBound, a.nSetPartitioning, a.nSetPacking, a.nSetCovering,
+          a.nCardinality, a.nKnapsack, a.nComponents, a.maxComponentVars };
+        int intsB[] = { b.nVars, b.nConstrs, b.nnz, b.nBinary, b.nInteger, b.nContinuous, b.maxRowDegree, b.maxColDegree,
+          b.nEquality, b.nEmpty, b.nSingleton, b.nVarBound, b.nSetPartitioning, b.nSetPacking, b.nSetCovering,
+          b.nCardinality, b.nKnapsack, b.nComponents, b.maxComponentVars };
+        for (int k = 0; k < intsA.length; k++)
+            if (intsA[k] != intsB[k]) return "counter " + k + " (" + intsA[k] + " != " + intsB[k] + ")";
+
+        double doublesA[] = { a.minCoeff, a.maxCoeff, a.minObj, a.maxObj, a.minRhs, a.maxRhs, a.minBound, a.maxBound };
+        double doublesB[] = { b.minCoeff, b.maxCoeff, b.minObj, b.maxObj, b.minRhs, b.maxRhs, b.minBound, b.maxBound };
+        if (!Arrays.equals(doublesA, doublesB)) return "ranges";
+        return null;
+    }
+}
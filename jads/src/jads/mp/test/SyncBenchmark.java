@@ -0,0 +1,173 @@
+package jads.mp.test;
+
+import gurobi.*;
+import jads.mp.*;
+import jads.mp.solvers.*;
+
+import java.util.*;
+
+/**
+ * This class measures the cost of synchronizing a model with Gurobi. The same
+ * sequence of changes (bounds, types, objective coefficients and deletions of
+ * variables) is applied, round by round, to two copies of a model:
+ * <ul>
+ * <li>by the previous per-action path, i.e. {@code getVar(i).set(...)} for
+ * every attribute of every changed variable, an {@code update()} after every
+ * deletion and the whole objective rebuilt term by term at every update;</li>
+ * <li>by {@link MPModel#updateSolver()}, which applies each round of changes
+ * with array calls and only sends the objective if it changed.</li>
+ * </ul>
+ * The attributes of both Gurobi models are compared at the end. The CPLEX
+ * wrapper is not measured, as its bounds are still set per variable (the
+ * Concert Java API has no array setter for them).
+ * <p>
+ * Usage: SyncBenchmark [nVars] [nChanges] [nRounds]
+ *
+ * @author Tulio Toffolo
+ */
+public class SyncBenchmark {
+
+    private static final int BOUNDS = 0, TYPE = 1, OBJ = 2, DELETE = 3;
+
+    public static void main(String args[]) throws GRBException {
+        int nVars = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int nChanges = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int nRounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        // the per-action model is not attached to its solver, which is only
+        // used to extract it, so that its changes are sent by this class
+        MPModel perActionModel = buildModel(nVars), batchedModel = buildModel(nVars);
+        GRBModel gurobi = new SolverGurobi(perActionModel, false).getGRBModel();
+        batchedModel.setSolver(new SolverGurobi(batchedModel, false));
+
+        // the same changes are replayed in both modes: kinds, indices (among
+        // the current variables) and values
+        Random random = new Random(0);
+        int kinds[][] = new int[nRounds][nChanges], indices[][] = new int[nRounds][nChanges];
+        double values[][] = new double[nRounds][nChanges];
+        int n = nVars;
+        for (int round = 0; round < nRounds; round++) {
+            for (int i = 0; i < nChanges; i++) {
+                int p = random.nextInt(100);
+                kinds[round][i] = p < 70 ? BOUNDS : p < 85 ? TYPE : p < 97 || n <= 1 ? OBJ : DELETE;
+                indices[round][i] = random.nextInt(n);
+                values[round][i] = random.nextInt(5);
+                if (kinds[round][i] == DELETE) n--;
+            }
+        }
+
+        long perActionTime = 0, batchedTime = 0;
+        for (int round = 0; round < nRounds; round++) {
+            // both times include applying the changes to the model
+            long start = System.nanoTime();
+            for (int i = 0; i < nChanges; i++)
+                applyPerAction(perActionModel, gurobi, kinds[round][i], indices[round][i], values[round][i]);
+            gurobi.update();
+            gurobi.update();
+            rebuildObjective(perActionModel, gurobi);
+            perActionTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < nChanges; i++)
+                apply(batchedModel, kinds[round][i], indices[round][i], values[round][i]);
+            batchedModel.updateSolver();
+            batchedTime += System.nanoTime() - start;
+        }
+
+        compare(gurobi, (( SolverGurobi ) batchedModel.getSolver()).getGRBModel());
+
+        System.out.printf("variables: %d, changes per round: %d, rounds: %d\n", nVars, nChanges, nRounds);
+        System.out.printf("per-action synchronization: %.2f ms per round\n", perActionTime / 1e6 / nRounds);
+        System.out.printf("batched synchronization:    %.2f ms per round\n", batchedTime / 1e6 / nRounds);
+    }
+
+    /**
+     * Applies a change to a model, whose solver is synchronized later.
+     */
+    private static void apply(MPModel model, int kind, int index, double value) {
+        MPVar var = model.getVar(index);
+        switch (kind) {
+            case BOUNDS:
+                var.setBounds(value, value + 1 + index % 5);
+                break;
+
+            case TYPE:
+                var.setType(var.isInteger() ? MPVar.CONTINUOUS : MPVar.INTEGER);
+                break;
+
+            case OBJ:
+                model.getObjective().setCoeff(var, value);
+                break;
+
+            case DELETE:
+                model.delete(var);
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Applies a change to a model and sends it to Gurobi by the previous
+     * per-action path.
+     */
+    private static void applyPerAction(MPModel model, GRBModel gurobi, int kind, int index, double value) throws GRBException {
+        apply(model, kind, index, value);
+        switch (kind) {
+            case BOUNDS:
+                gurobi.getVar(index).set(GRB.DoubleAttr.LB, value);
+                gurobi.getVar(index).set(GRB.DoubleAttr.UB, value + 1 + index % 5);
+                break;
+
+            case TYPE:
+                gurobi.getVar(index).set(GRB.CharAttr.VType, model.getVar(index).isInteger() ? GRB.INTEGER : GRB.CONTINUOUS);
+                break;
+
+            case DELETE:
+                gurobi.remove(gurobi.getVar(index));
+                gurobi.update();
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    private static MPModel buildModel(int nVars) {
+        MPModel model = new MPModel("sync-benchmark");
+        MPVar vars[] = new MPVar[nVars];
+        for (int i = 0; i < nVars; i++)
+            vars[i] = model.addVar(0., 10., 1., 'C', "x%d", i);
+
+        // a simple chain of constraints, so that the model is not trivial
+        for (int i = 0; i + 1 < nVars; i++)
+            model.addConstr(new MPLinExpr(new MPVar[]{ vars[i], vars[i + 1] }, new double[]{ 1., 1. }), '>', 1., "c%d", i);
+
+        return model;
+    }
+
+    private static void compare(GRBModel gurobi1, GRBModel gurobi2) throws GRBException {
+        GRBVar vars1[] = gurobi1.getVars(), vars2[] = gurobi2.getVars();
+        if (vars1.length != vars2.length)
+            throw new AssertionError("the models have different numbers of variables");
+        for (GRB.DoubleAttr attr : new GRB.DoubleAttr[]{ GRB.DoubleAttr.LB, GRB.DoubleAttr.UB, GRB.DoubleAttr.Obj })
+            if (!Arrays.equals(gurobi1.get(attr, vars1), gurobi2.get(attr, vars2)))
+                throw new AssertionError("the models have different values of attribute " + attr);
+        if (!Arrays.equals(gurobi1.get(GRB.CharAttr.VType, vars1), gurobi2.get(GRB.CharAttr.VType, vars2)))
+            throw new AssertionError("the models have different types of variables");
+    }
+
+    /**
+     * Rebuilds the objective term by term, as the previous path did at every
+     * update of the solver.
+     */
+    private static void rebuildObjective(MPModel model, GRBModel gurobi) throws GRBException {
+        GRBLinExpr objective = new GRBLinExpr();
+        objective.addConstant(model.getObjective().getConstant());
+        for (MPVar var : model.vars())
+            if (var.getObj() != 0.)
+                objective.addTerm(var.getObj(), gurobi.getVar(var.getIndex()));
+        gurobi.setObjective(objective, GRB.MINIMIZE);
+    }
+}
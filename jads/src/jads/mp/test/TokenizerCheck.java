@@ -0,0 +1,80 @@
+package jads.mp.test;
+
+import jads.mp.util.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * This class checks that {@link ByteTokenizer#tokenDouble()} parses numbers
+ * exactly as {@link Double#parseDouble(String)} does: on edge cases (long
+ * mantissas which would overflow a long, many leading or trailing zeros,
+ * extreme exponents, subnormal numbers) and on random numbers, formatted
+ * either by {@link Double#toString(double)} or as random digit strings.
+ * <p>
+ * Usage: TokenizerCheck [nRandom] [seed]
+ *
+ * @author Tulio Toffolo
+ */
+public class TokenizerCheck {
+
+    private static final String EDGE_CASES[] = {
+      "0", "-0", "+0", "0.0", ".5", "5.", "-.5e-3", "1", "-1", "+1.5", "1e0", "1E+2", "1e-2",
+      "9007199254740991", "9007199254740992", "9007199254740993", "18014398509481985",
+      "123456789012345678", "999999999999999999", "9999999999999999999", "99999999999999999999",
+      "9223372036854775807", "9223372036854775808", "18446744073709551615", "18446744073709551617",
+      "0.99999999999999999999", "0.9999999999999999999", "0.999999999999999999", "1.00000000000000000001",
+      "1.0000000000000000000", "100000000000000000000000", "0.000000000000000000000000001",
+      "3.14159265358979323846264338327950288", "2.718281828459045235360287", "0.1", "0.2", "0.3",
+      "1e22", "1e23", "1e-22", "1e-23", "123456789e-22", "123456789e22", "1.7976931348623157e308",
+      "1.7976931348623159e308", "2e308", "4.9e-324", "2.4703282292062327e-324", "2.4703282292062328e-324",
+      "2.2250738585072011e-308", "2.2250738585072012e-308", "1e-400", "1e+100000", "1e-100000",
+      "00000000000000000000000001.5", "0.00000000000000000000012345678901234567890", "-9.223372036854775808e18"
+    };
+
+    public static void main(String args[]) throws IOException {
+        int nRandom = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+
+        int nChecked = 0;
+        for (String number : EDGE_CASES) {
+            check(number);
+            nChecked++;
+        }
+
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < nRandom; i++) {
+            if (random.nextBoolean()) {
+                check(Double.toString(Double.longBitsToDouble(random.nextLong())).replace("NaN", "1"));
+            }
+            else {
+                // random digits, with a random decimal point and exponent
+                sb.setLength(0);
+                if (random.nextInt(4) == 0) sb.append('-');
+                int nDigits = 1 + random.nextInt(30), point = random.nextInt(nDigits + 1);
+                for (int k = 0; k < nDigits; k++) {
+                    if (k == point) sb.append('.');
+                    sb.append(( char ) ('0' + (random.nextInt(3) == 0 ? 9 : random.nextInt(10))));
+                }
+                if (random.nextBoolean()) sb.append('e').append(random.nextInt(80) - 40);
+                check(sb.toString());
+            }
+            nChecked++;
+        }
+        System.out.printf("numbers: %d\n", nChecked);
+        System.out.println("all checks passed");
+    }
+
+    private static void check(String number) throws IOException {
+        ByteTokenizer tokenizer = new ByteTokenizer(ByteBuffer.wrap(number.getBytes(StandardCharsets.US_ASCII)));
+        if (!tokenizer.nextLine() || !tokenizer.nextToken())
+            throw new AssertionError("no token in " + number);
+
+        double expected = Double.parseDouble(number), value = tokenizer.tokenDouble();
+        if (Double.doubleToLongBits(value) != Double.doubleToLongBits(expected))
+            throw new AssertionError(number + ": parsed as " + value + " instead of " + expected);
+    }
+}
@@ -0,0 +1,193 @@
+package jads.mp.util;
+
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * This class maps names, given as the current token of a {@link
+ * ByteTokenizer} (or as a sequence of bytes with the hash code computed by
+ * {@link ByteTokenizer#tokenHash()}), to consecutive ids (0, 1, 2, ...). The
+ * bytes of the names are stored in a single pool and the ids in an
+ * open-addressing hash table, so that looking up a name allocates no object.
+ *
+ * @author Tulio Toffolo
+ */
+public class ByteNameIndex {
+
+    private byte pool[] = new byte[1 << 16];
+    private int poolSize = 0;
+
+    private int nameStart[] = new int[1025];
+    private int hashes[] = new int[1024];
+    private int n = 0;
+
+    // slots of the hash table: the hash of the name (high bits) and id + 1 (low bits), or 0 if empty
+    private long slots[] = new long[2048];
+
+
+    /**
+     * Adds the current token of a tokenizer, which must not be in the index.
+     *
+     * @param tokenizer the tokenizer
+     * @return the id of the new name
+     */
+    public int add(ByteTokenizer tokenizer) {
+        return add(tokenizer, tokenizer.tokenHash());
+    }
+
+    /**
+     * Adds a name, which must not be in the index.
+     *
+     * @param bytes  the array with the bytes of the name
+     * @param offset the position of the name in the array
+     * @param length the length of the name
+     * @param hash   the hash code of the name
+     * @return the id of the new name
+     */
+    public int add(byte bytes[], int offset, int length, int hash) {
+        reserve(length);
+        System.arraycopy(bytes, offset, pool, poolSize, length);
+        return append(length, hash);
+    }
+
+    /**
+     * Gets the id of a name.
+     *
+     * @param bytes  the array with the bytes of the name
+     * @param offset the position of the name in the array
+     * @param length the length of the name
+     * @param hash   the hash code of the name
+     * @return the id of the name or -1 if it is not in the index
+     */
+    public int find(byte bytes[], int offset, int length, int hash) {
+        int mask = slots.length - 1;
+        for (int s = hash & mask; slots[s] != 0; s = (s + 1) & mask) {
+            int id = ( int ) slots[s] - 1;
+            if (( int ) (slots[s] >>> 32) == hash && matches(id, bytes, offset, length))
+                return id;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the id of the current token of a tokenizer.
+     *
+     * @param tokenizer the tokenizer
+     * @return the id of the token or -1 if it is not in the index
+     */
+    public int find(ByteTokenizer tokenizer) {
+        int hash = tokenizer.tokenHash();
+        int mask = slots.length - 1;
+        for (int s = hash & mask; slots[s] != 0; s = (s + 1) & mask) {
+            int id = ( int ) slots[s] - 1;
+            if (( int ) (slots[s] >>> 32) == hash && tokenizer.tokenMatches(pool, nameStart[id], nameStart[id + 1] - nameStart[id]))
+                return id;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the id of the current token of a tokenizer, adding it to the index
+     * if it is not there.
+     *
+     * @param tokenizer the tokenizer
+     * @return the id of the token
+     */
+    public int findOrAdd(ByteTokenizer tokenizer) {
+        int id = find(tokenizer);
+        return id >= 0 ? id : add(tokenizer, tokenizer.tokenHash());
+    }
+
+    /**
+     * Gets the name with a given id (decoded as UTF-8).
+     *
+     * @param id the id
+     * @return the name
+     */
+    public String getName(int id) {
+        return new String(pool, nameStart[id], nameStart[id + 1] - nameStart[id], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets if the current token of a tokenizer is the name with a given id.
+     *
+     * @param id        the id
+     * @param tokenizer the tokenizer
+     * @return true if the token is the name with the given id and false
+     * otherwise
+     */
+    public boolean matches(int id, ByteTokenizer tokenizer) {
+        return tokenizer.tokenMatches(pool, nameStart[id], nameStart[id + 1] - nameStart[id]);
+    }
+
+    /**
+     * Gets if a sequence of bytes is the name with a given id.
+     *
+     * @param id     the id
+     * @param bytes  the array with the bytes
+     * @param offset the position of the bytes in the array
+     * @param length the number of bytes
+     * @return true if the bytes are the name with the given id and false
+     * otherwise
+     */
+    public boolean matches(int id, byte bytes[], int offset, int length) {
+        if (nameStart[id + 1] - nameStart[id] != length) return false;
+        for (int i = nameStart[id], k = offset; k < offset + length; i++, k++)
+            if (pool[i] != bytes[k]) return false;
+        return true;
+    }
+
+    /**
+     * Gets the number of names in the index.
+     *
+     * @return the number of names
+     */
+    public int size() {
+        return n;
+    }
+
+
+    private int add(ByteTokenizer tokenizer, int hash) {
+        int length = tokenizer.tokenLength();
+        reserve(length);
+        tokenizer.copyToken(pool, poolSize);
+        return append(length, hash);
+    }
+
+    /**
+     * Registers a name whose bytes were copied to the end of the pool.
+     */
+    private int append(int length, int hash) {
+        poolSize += length;
+
+        if (n + 1 == hashes.length) {
+            hashes = Arrays.copyOf(hashes, 2 * hashes.length);
+            nameStart = Arrays.copyOf(nameStart, hashes.length + 1);
+        }
+        hashes[n] = hash;
+        nameStart[n + 1] = poolSize;
+        int id = n++;
+
+        if (2 * n > slots.length) rehash();
+        else insert(id);
+        return id;
+    }
+
+    private void reserve(int length) {
+        if (poolSize + length > pool.length)
+            pool = Arrays.copyOf(pool, Math.max(2 * pool.length, poolSize + length));
+    }
+
+    private void insert(int id) {
+        int mask = slots.length - 1;
+        int s = hashes[id] & mask;
+        while (slots[s] != 0) s = (s + 1) & mask;
+        slots[s] = ( long ) hashes[id] << 32 | id + 1;
+    }
+
+    private void rehash() {
+        slots = new long[2 * slots.length];
+        for (int id = 0; id < n; id++)
+            insert(id);
+    }
+}
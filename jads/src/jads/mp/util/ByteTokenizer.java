@@ -0,0 +1,522 @@
+package jads.mp.util;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+
+/**
+ * This class splits (ASCII or UTF-8) text into lines and tokens working
+ * directly on the bytes of a buffer: tokens are only delimited (by their
+ * positions in the buffer), so that no object is allocated per line or per
+ * token, and numbers are parsed from the bytes themselves.
+ * <p>
+ * The input may be a file, which is memory-mapped by windows of at most 1 GB
+ * (so that files larger than 2 GB are also supported), a channel (e.g. of a
+ * decompressed stream), which is read into a large direct buffer, or a buffer
+ * (e.g. a slice of a mapped file). A line never spans two windows: the window
+ * is moved (or refilled) at the start of a line which it does not contain
+ * completely.
+ *
+ * @author Tulio Toffolo
+ */
+public class ByteTokenizer implements Closeable {
+
+    private static final int WINDOW = 1 << 30;
+    private static final int STREAM_BUFFER = 1 << 26;
+    private static final double POW10[] = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // source: a mapped file, a channel or (if both are null) a single buffer
+    private final FileChannel file;
+    private final ReadableByteChannel channel;
+    private final long fileSize;
+    private long windowOffset = 0;
+    private boolean eof;
+
+    private ByteBuffer window;
+    private int lineStart = 0, lineEnd = 0, nextLine = 0;
+    private int start = 0, end = 0;
+    private long lineNumber = 0;
+
+
+    /**
+     * Instantiates a new Tokenizer over the (remaining) bytes of a buffer.
+     *
+     * @param buffer the buffer
+     */
+    public ByteTokenizer(ByteBuffer buffer) {
+        this.file = null;
+        this.channel = null;
+        this.fileSize = buffer.remaining();
+        this.window = buffer.slice();
+        this.eof = true;
+    }
+
+    /**
+     * Instantiates a new Tokenizer over the bytes read from a channel, which
+     * are stored in a direct buffer (of at least 64 MB).
+     *
+     * @param channel the channel
+     */
+    public ByteTokenizer(ReadableByteChannel channel) {
+        this.file = null;
+        this.channel = channel;
+        this.fileSize = -1;
+        this.window = ByteBuffer.allocateDirect(STREAM_BUFFER);
+        (( Buffer ) window).limit(0);
+        this.eof = false;
+    }
+
+    /**
+     * Instantiates a new Tokenizer over a file, which is memory-mapped.
+     *
+     * @param file the channel of the file
+     * @throws IOException if the file cannot be mapped
+     */
+    public ByteTokenizer(FileChannel file) throws IOException {
+        this(file, 0);
+    }
+
+    /**
+     * Instantiates a new Tokenizer over a file, which is memory-mapped, from a
+     * given position (which should be the start of a line). The lines are
+     * numbered from that position.
+     *
+     * @param file     the channel of the file
+     * @param position the position (in bytes) of the file
+     * @throws IOException if the file cannot be mapped
+     */
+    public ByteTokenizer(FileChannel file, long position) throws IOException {
+        this.file = file;
+        this.channel = null;
+        this.fileSize = file.size();
+        this.windowOffset = position;
+        this.window = file.map(FileChannel.MapMode.READ_ONLY, position, Math.min(fileSize - position, WINDOW));
+        this.eof = position + window.limit() == fileSize;
+    }
+
+    /**
+     * Opens a file: plain files are memory-mapped, while gzipped files (with
+     * extension .gz) are decompressed (by other threads, see {@link
+     * GzipChannel}) into a direct buffer.
+     *
+     * @param path the path of the file
+     * @return the tokenizer of the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static ByteTokenizer open(Path path) throws IOException {
+        if (path.toString().endsWith(".gz"))
+            return new ByteTokenizer(GzipChannel.open(path));
+        return new ByteTokenizer(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        if (file != null) file.close();
+        if (channel != null) channel.close();
+    }
+
+    /**
+     * Gets the number of the current line (starting from 1).
+     *
+     * @return the number of the current line
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Gets the number of bytes of the input which precede the next line, i.e.
+     * the number of bytes consumed so far.
+     *
+     * @return the number of bytes consumed
+     */
+    public long getPosition() {
+        return windowOffset + nextLine;
+    }
+
+    /**
+     * Gets if the current line starts with a space (or tab), i.e. whether it
+     * is indented.
+     *
+     * @return true if the current line starts with a space and false otherwise
+     */
+    public boolean isIndented() {
+        return lineStart < lineEnd && isSpace(window.get(lineStart));
+    }
+
+    /**
+     * Counts the tokens (delimited by spaces or tabs) of the current line
+     * which follow the current token, without moving to them.
+     *
+     * @return the number of remaining tokens in the line
+     */
+    public int countTokens() {
+        int count = 0;
+        for (int i = end; i < lineEnd; ) {
+            while (i < lineEnd && isSpace(window.get(i))) i++;
+            if (i < lineEnd) count++;
+            while (i < lineEnd && !isSpace(window.get(i))) i++;
+        }
+        return count;
+    }
+
+    /**
+     * Moves to the next line.
+     *
+     * @return true if there is a next line and false if the end of the input
+     * was reached
+     * @throws IOException if an I/O error occurs
+     */
+    public boolean nextLine() throws IOException {
+        int from = nextLine;
+        int newline;
+        while ((newline = indexOf(( byte ) '\n', from)) < 0 && !eof)
+            from = refill(from);
+
+        if (newline < 0) {
+            if (from >= window.limit()) return false;
+            newline = window.limit();
+        }
+
+        lineStart = from;
+        lineEnd = newline;
+        nextLine = Math.min(newline + 1, window.limit());
+        if (lineEnd > lineStart && window.get(lineEnd - 1) == '\r') lineEnd--;
+
+        start = end = lineStart;
+        lineNumber++;
+        return true;
+    }
+
+    /**
+     * Moves to the next token of the current line, delimited by spaces (or
+     * tabs).
+     *
+     * @return true if there is a next token in the line and false otherwise
+     */
+    public boolean nextToken() {
+        int i = end;
+        while (i < lineEnd && isSpace(window.get(i))) i++;
+        start = i;
+        while (i < lineEnd && !isSpace(window.get(i))) i++;
+        end = i;
+        return start < end;
+    }
+
+    /**
+     * Moves to the next token of the current line in the LP format, i.e. a
+     * token delimited by spaces or by the operators +, -, :, &lt;, &gt; and =
+     * (which are tokens themselves, with &lt;=, &gt;=, =&lt; and =&gt; as
+     * single tokens). Numbers (with exponents) are single tokens, and a
+     * backslash starts a comment which runs until the end of the line.
+     *
+     * @return true if there is a next token in the line and false otherwise
+     */
+    public boolean nextLPToken() {
+        int i = end;
+        while (i < lineEnd && isSpace(window.get(i))) i++;
+        start = i;
+        if (i >= lineEnd || window.get(i) == '\\') {
+            start = end = lineEnd;
+            return false;
+        }
+
+        byte b = window.get(i++);
+        if (b == '<' || b == '>' || b == '=') {
+            if (i < lineEnd && (window.get(i) == '=' || window.get(i) == '<' || window.get(i) == '>')) i++;
+        }
+        else if (isDigit(b) || b == '.') {
+            while (i < lineEnd && (isDigit(window.get(i)) || window.get(i) == '.')) i++;
+            if (i + 1 < lineEnd && (window.get(i) | 0x20) == 'e') {
+                int j = i + 1;
+                if (window.get(j) == '+' || window.get(j) == '-') j++;
+                if (j < lineEnd && isDigit(window.get(j))) {
+                    i = j;
+                    while (i < lineEnd && isDigit(window.get(i))) i++;
+                }
+            }
+        }
+        else if (!isLPOperator(b)) {
+            while (i < lineEnd && !isSpace(window.get(i)) && !isLPOperator(window.get(i))) i++;
+        }
+        end = i;
+        return true;
+    }
+
+    /**
+     * Moves back to the start of the current token, so that it is returned
+     * again by the next call of {@link #nextToken()} or {@link
+     * #nextLPToken()}.
+     */
+    public void undo() {
+        end = start;
+    }
+
+    /**
+     * Gets the first byte (other than spaces) of the current line which
+     * follows the current token, without moving to it.
+     *
+     * @return the next byte of the line or 0 if there is none
+     */
+    public byte peek() {
+        int i = end;
+        while (i < lineEnd && isSpace(window.get(i))) i++;
+        return i < lineEnd ? window.get(i) : 0;
+    }
+
+    /**
+     * Moves back to the start of the current line, so that its first token is
+     * returned again by the next call of {@link #nextToken()} or {@link
+     * #nextLPToken()}.
+     */
+    public void rewind() {
+        start = end = lineStart;
+    }
+
+    /**
+     * Skips the remaining tokens of the current line.
+     */
+    public void skipLine() {
+        start = end = lineEnd;
+    }
+
+    // region current token
+
+    /**
+     * Copies the bytes of the current token to an array.
+     *
+     * @param dst    the array
+     * @param offset the position of the array where the token is copied
+     */
+    public void copyToken(byte dst[], int offset) {
+        for (int i = start; i < end; i++)
+            dst[offset++] = window.get(i);
+    }
+
+    /**
+     * Gets a byte of the current token.
+     *
+     * @param k the position of the byte in the token
+     * @return the k-th byte of the token
+     */
+    public byte tokenByte(int k) {
+        return window.get(start + k);
+    }
+
+    /**
+     * Parses the current token as a double. Infinite values may be written as
+     * "inf" or "infinity" (in any case, possibly after a sign).
+     *
+     * @return the value of the token
+     * @throws NumberFormatException if the token is not a number
+     */
+    public double tokenDouble() {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (window.get(i) == '+' || window.get(i) == '-'))
+            negative = window.get(i++) == '-';
+
+        if (i < end && (window.get(i) | 0x20) == 'i') {
+            if (!equalsIgnoreCase(i, "inf") && !equalsIgnoreCase(i, "infinity"))
+                throw new NumberFormatException("invalid number: " + tokenString());
+            return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+
+        // significant digits (at most 18, so that the mantissa cannot overflow)
+        // and decimal exponent; dropping a non-zero digit makes the value inexact
+        long mantissa = 0;
+        int nDigits = 0, exponent = 0;
+        boolean hasDigits = false, truncated = false;
+        for (; i < end && isDigit(window.get(i)); i++, hasDigits = true) {
+            if (nDigits < 18) {
+                mantissa = 10 * mantissa + (window.get(i) - '0');
+                if (mantissa != 0) nDigits++;
+            }
+            else {
+                exponent++;
+                truncated |= window.get(i) != '0';
+            }
+        }
+        if (i < end && window.get(i) == '.') {
+            for (i++; i < end && isDigit(window.get(i)); i++, hasDigits = true) {
+                if (nDigits < 18) {
+                    mantissa = 10 * mantissa + (window.get(i) - '0');
+                    if (mantissa != 0) nDigits++;
+                    exponent--;
+                }
+                else {
+                    truncated |= window.get(i) != '0';
+                }
+            }
+        }
+        if (!hasDigits)
+            throw new NumberFormatException("invalid number: " + tokenString());
+
+        if (i < end && (window.get(i) | 0x20) == 'e') {
+            i++;
+            boolean negativeExp = false;
+            if (i < end && (window.get(i) == '+' || window.get(i) == '-'))
+                negativeExp = window.get(i++) == '-';
+            if (i >= end) throw new NumberFormatException("invalid number: " + tokenString());
+
+            int exp = 0;
+            for (; i < end && isDigit(window.get(i)); i++)
+                exp = Math.min(10 * exp + (window.get(i) - '0'), 100_000);
+            exponent += negativeExp ? -exp : exp;
+        }
+        if (i != end)
+            throw new NumberFormatException("invalid number: " + tokenString());
+
+        // exact (and correctly rounded) when the mantissa and the power of ten are exact doubles
+        double value;
+        if (!truncated && mantissa < 1L << 53 && exponent >= -22 && exponent <= 22)
+            value = exponent >= 0 ? mantissa * POW10[exponent] : mantissa / POW10[-exponent];
+        else
+            value = Math.abs(Double.parseDouble(tokenString()));
+        return negative ? -value : value;
+    }
+
+    /**
+     * Gets if the current token is equal to a (lowercase ASCII) string,
+     * ignoring case.
+     *
+     * @param string the string
+     * @return true if the token is equal to the string and false otherwise
+     */
+    public boolean tokenEquals(String string) {
+        return end - start == string.length() && equalsIgnoreCase(start, string);
+    }
+
+    /**
+     * Gets a (FNV-1a) hash code of the bytes of the current token.
+     *
+     * @return the hash code of the token
+     */
+    public int tokenHash() {
+        int hash = 0x811c9dc5;
+        for (int i = start; i < end; i++)
+            hash = (hash ^ window.get(i)) * 0x01000193;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Gets if the current token starts as a number, i.e. with a digit or a
+     * decimal point (possibly after a sign).
+     *
+     * @return true if the token starts as a number and false otherwise
+     */
+    public boolean tokenIsNumber() {
+        int i = start;
+        if (i < end && (window.get(i) == '+' || window.get(i) == '-')) i++;
+        return i < end && (isDigit(window.get(i)) || window.get(i) == '.');
+    }
+
+    /**
+     * Gets the length (in bytes) of the current token.
+     *
+     * @return the length of the token
+     */
+    public int tokenLength() {
+        return end - start;
+    }
+
+    /**
+     * Gets if the bytes of the current token are equal to a sequence of bytes.
+     *
+     * @param bytes  the array with the sequence of bytes
+     * @param offset the position of the sequence in the array
+     * @param length the length of the sequence
+     * @return true if the token is equal to the sequence and false otherwise
+     */
+    public boolean tokenMatches(byte bytes[], int offset, int length) {
+        if (end - start != length) return false;
+        for (int i = start; i < end; i++)
+            if (window.get(i) != bytes[offset++]) return false;
+        return true;
+    }
+
+    /**
+     * Gets the current token as a string (decoded as UTF-8), which is the only
+     * method that allocates an object per token.
+     *
+     * @return the token
+     */
+    public String tokenString() {
+        byte bytes[] = new byte[end - start];
+        copyToken(bytes, 0);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // endregion current token
+
+
+    private boolean equalsIgnoreCase(int from, String string) {
+        if (end - from != string.length()) return false;
+        for (int k = 0; k < string.length(); k++)
+            if ((window.get(from + k) | 0x20) != string.charAt(k)) return false;
+        return true;
+    }
+
+    private int indexOf(byte b, int from) {
+        int limit = window.limit();
+        for (int i = from; i < limit; i++)
+            if (window.get(i) == b) return i;
+        return -1;
+    }
+
+    /**
+     * Moves (or refills) the window so that it starts at a position of the
+     * current window, returning the new index of that position.
+     */
+    private int refill(int from) throws IOException {
+        if (file != null) {
+            if (from == 0 && window.limit() == WINDOW)
+                throw new IOException("line " + (lineNumber + 1) + " is too long");
+            windowOffset += from;
+            window = file.map(FileChannel.MapMode.READ_ONLY, windowOffset, Math.min(fileSize - windowOffset, WINDOW));
+            eof = windowOffset + window.limit() == fileSize;
+        }
+        else {
+            // the remaining bytes are moved to the start of the buffer (which grows if they fill it)
+            (( Buffer ) window).position(from);
+            if (from == 0 && window.limit() == window.capacity()) {
+                ByteBuffer larger = ByteBuffer.allocateDirect(2 * window.capacity());
+                larger.put(window);
+                window = larger;
+            }
+            else {
+                window.compact();
+            }
+            windowOffset += from;
+
+            while (window.hasRemaining()) {
+                if (channel.read(window) < 0) {
+                    eof = true;
+                    break;
+                }
+            }
+            (( Buffer ) window).flip();
+        }
+
+        nextLine -= from;
+        return 0;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isLPOperator(byte b) {
+        return b == '+' || b == '-' || b == ':' || b == '<' || b == '>' || b == '=' || b == '\\';
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\f';
+    }
+}
@@ -0,0 +1,238 @@
+package jads.mp.util;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.zip.*;
+
+/**
+ * This class writes (ASCII or UTF-8) text into a large byte buffer, which is
+ * flushed to an output stream when full, so that text files of several GB
+ * may be written without creating objects per line or per number. It is the
+ * counterpart of {@link ByteTokenizer}.
+ * <p>
+ * Numbers are formatted from their values: integers digit by digit, and
+ * doubles in the shortest decimal notation (with at most 15 significant
+ * digits) which is parsed back to the same double, which is the case of the
+ * coefficients of most models. Other doubles are written by {@link
+ * Double#toString(double)}, which also parses back to the same double.
+ *
+ * @author Tulio Toffolo
+ */
+public class ByteWriter implements Closeable {
+
+    private static final int BUFFER = 1 << 20;
+    private static final double POW10[] = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15
+    };
+
+    private final OutputStream stream;
+    private final byte buffer[] = new byte[BUFFER];
+    private final byte digits[] = new byte[20];
+    private int pos = 0;
+
+    // number of bytes flushed and position (in the whole output) of the current line
+    private long flushed = 0, lineStart = 0;
+
+
+    /**
+     * Instantiates a new Writer.
+     *
+     * @param stream the output stream
+     */
+    public ByteWriter(OutputStream stream) {
+        this.stream = stream;
+    }
+
+    /**
+     * Creates (or truncates) a file; files with extension .gz are gzipped
+     * (with the fastest compression level).
+     *
+     * @param path the path of the file
+     * @return the writer of the file
+     * @throws IOException if the file cannot be created
+     */
+    public static ByteWriter open(Path path) throws IOException {
+        OutputStream stream = Files.newOutputStream(path);
+        if (path.toString().endsWith(".gz")) {
+            stream = new GZIPOutputStream(stream, 1 << 16) {
+                {
+                    def.setLevel(Deflater.BEST_SPEED);
+                }
+            };
+        }
+        return new ByteWriter(stream);
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        stream.close();
+    }
+
+    /**
+     * Writes the buffered bytes to the output stream.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void flush() throws IOException {
+        stream.write(buffer, 0, pos);
+        flushed += pos;
+        pos = 0;
+    }
+
+    /**
+     * Gets the number of bytes written since the start of the current line.
+     *
+     * @return the length of the current line
+     */
+    public int getLineLength() {
+        return ( int ) (flushed + pos - lineStart);
+    }
+
+    /**
+     * Ends the current line.
+     *
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public ByteWriter newLine() throws IOException {
+        write('\n');
+        lineStart = flushed + pos;
+        return this;
+    }
+
+    /**
+     * Writes a byte (e.g. an ASCII character).
+     *
+     * @param b the byte
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public ByteWriter write(char b) throws IOException {
+        if (pos == BUFFER) flush();
+        buffer[pos++] = ( byte ) b;
+        return this;
+    }
+
+    /**
+     * Writes a double, in the shortest notation (with at most 15 significant
+     * digits) which is parsed back to it, if any; infinite values are written
+     * as "inf" or "-inf".
+     *
+     * @param value the value
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public ByteWriter write(double value) throws IOException {
+        if (value == 0.) return write('0');
+        if (Double.isInfinite(value)) return write(value > 0 ? "inf" : "-inf");
+        if (value < 0) {
+            write('-');
+            value = -value;
+        }
+
+        if (value < 1e15 && value == ( long ) value)
+            return write(( long ) value);
+
+        // the smallest number of decimals d such that value = m / 10^d, with m < 10^15 (both exact)
+        if (value >= 1e-5 && value < 1e15) {
+            int intDigits = value < 1. ? 0 : countDigits(( long ) value);
+            for (int d = 1; intDigits + d <= 15; d++) {
+                long mantissa = Math.round(value * POW10[d]);
+                if (mantissa / POW10[d] == value)
+                    return writeDecimal(mantissa, d);
+            }
+        }
+        return write(Double.toString(value));
+    }
+
+    /**
+     * Writes a long.
+     *
+     * @param value the value
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public ByteWriter write(long value) throws IOException {
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) return write(Long.toString(value));
+            write('-');
+            value = -value;
+        }
+
+        int n = 0;
+        do {
+            digits[n++] = ( byte ) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+
+        if (BUFFER - pos < n) flush();
+        while (n > 0)
+            buffer[pos++] = digits[--n];
+        return this;
+    }
+
+    /**
+     * Writes a string: ASCII characters are copied one by one, while other
+     * strings are encoded in UTF-8.
+     *
+     * @param value the string
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public ByteWriter write(String value) throws IOException {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) >= 0x80) {
+                byte bytes[] = value.getBytes(StandardCharsets.UTF_8);
+                for (byte b : bytes)
+                    write(( char ) (b & 0xFF));
+                return this;
+            }
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (pos == BUFFER) flush();
+            buffer[pos++] = ( byte ) value.charAt(i);
+        }
+        return this;
+    }
+
+
+    private static int countDigits(long value) {
+        int n = 1;
+        while (value >= 10) {
+            value /= 10;
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Writes mantissa / 10^decimals, with the decimal point.
+     */
+    private ByteWriter writeDecimal(long mantissa, int decimals) throws IOException {
+        int n = 0;
+        do {
+            digits[n++] = ( byte ) ('0' + mantissa % 10);
+            mantissa /= 10;
+        } while (mantissa != 0);
+
+        if (n <= decimals) {
+            write('0').write('.');
+            for (int i = n; i < decimals; i++)
+                write('0');
+        }
+        else {
+            while (n > decimals)
+                write(( char ) digits[--n]);
+            write('.');
+        }
+        while (n > 0)
+            write(( char ) digits[--n]);
+        return this;
+    }
+}
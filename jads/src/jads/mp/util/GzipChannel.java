@@ -0,0 +1,475 @@
+package jads.mp.util;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+/**
+ * This class is a channel over the decompressed bytes of a gzipped file,
+ * which are inflated by other threads while they are read (e.g. parsed), so
+ * that reading a gzipped file takes about the time of the slowest of the two
+ * tasks instead of their sum.
+ * <p>
+ * Each inflating thread fills a ring of large blocks, which are given back to
+ * it once they are read, so that it never runs more than a few blocks ahead
+ * of the reader. Files with several members (concatenated gzip streams, as
+ * written by bgzip or by pigz with independent blocks) are inflated in
+ * parallel: the file is split into parts which start at (candidate) headers
+ * of members, and each part is inflated by its own thread. As the headers are
+ * only recognized by their first bytes, a part is only used once the previous
+ * part ends exactly where it starts; otherwise, it is discarded and the bytes
+ * are inflated from the end of the previous part. Files with a single member
+ * are thus inflated by a single thread, as are the members which span
+ * several parts.
+ * <p>
+ * The checksum and the size of each member are verified. Bytes after the last
+ * member which do not start another member are ignored, as done by {@link
+ * GZIPInputStream}.
+ *
+ * @author Tulio Toffolo
+ */
+public class GzipChannel implements ReadableByteChannel {
+
+    private static final int BLOCK = 1 << 22, RING = 4, INPUT = 1 << 20;
+    private static final long MIN_PART = 1L << 23;
+    private static final int FHCRC = 2, FEXTRA = 4, FNAME = 8, FCOMMENT = 16;
+
+    private final FileChannel file;
+    private final long fileSize;
+    private final ExecutorService executor;
+
+    // candidate starts of the parts and the maximum number of parts inflated at once
+    private final long partStarts[];
+    private final int maxParts;
+    private int nextPart = 1;
+
+    // parts being inflated (in order), the part being read and its block being read
+    private final ArrayDeque<Part> parts = new ArrayDeque<>();
+    private final ConcurrentLinkedQueue<byte[]> spareBlocks = new ConcurrentLinkedQueue<>();
+    private Part part;
+    private Block block;
+    private int blockPos;
+
+    // position (of the file) where the bytes read so far end
+    private long end = 0;
+    private boolean open = true;
+
+
+    /**
+     * Instantiates a new GzipChannel.
+     *
+     * @param path    the path of the (gzipped) file
+     * @param threads the maximum number of inflating threads
+     * @throws IOException if the file cannot be opened
+     */
+    public GzipChannel(Path path, int threads) throws IOException {
+        this.file = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileSize = file.size();
+        this.maxParts = Math.max(1, threads);
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "gzip-" + path.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        int nParts = threads > 1 ? ( int ) Math.min(4 * threads, fileSize / MIN_PART) : 1;
+        partStarts = findParts(Math.max(1, nParts));
+        part = submit(new Part(0, partStarts.length > 1 ? partStarts[1] : fileSize));
+        submitParts();
+    }
+
+    /**
+     * Opens a gzipped file, which is inflated by (at most) as many threads as
+     * available processors.
+     *
+     * @param path the path of the file
+     * @return the channel of the decompressed bytes of the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static GzipChannel open(Path path) throws IOException {
+        return new GzipChannel(path, Runtime.getRuntime().availableProcessors());
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        if (!open) return;
+        open = false;
+        if (part != null) part.cancel();
+        for (Part other : parts)
+            other.cancel();
+        parts.clear();
+        part = null;
+        block = null;
+        executor.shutdown();
+        file.close();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Reads decompressed bytes into a buffer, waiting for them only if no
+     * byte was read yet, i.e. fewer bytes than the remaining bytes of the
+     * buffer may be read.
+     *
+     * @param dst the buffer
+     * @return the number of bytes read, or -1 at the end of the file
+     * @throws IOException if the file is not in gzip format or is corrupted
+     */
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (!open) throw new ClosedChannelException();
+
+        int n = 0;
+        while (dst.hasRemaining()) {
+            if (block == null || blockPos == block.length) {
+                if (block != null) part.recycle(block);
+                block = nextBlock(n == 0);
+                blockPos = 0;
+                if (block == null) break;
+            }
+            int length = Math.min(dst.remaining(), block.length - blockPos);
+            dst.put(block.data, blockPos, length);
+            blockPos += length;
+            n += length;
+        }
+        return n == 0 && part == null ? -1 : n;
+    }
+
+
+    /**
+     * Finds the candidate starts of the parts of the file: the first
+     * candidate header of a member after each multiple of the size of the
+     * file divided by the number of parts.
+     */
+    private long[] findParts(int nParts) throws IOException {
+        long starts[] = new long[nParts];
+        int count = 1;
+        byte buffer[] = new byte[INPUT];
+
+        for (int k = 1; k < nParts; k++) {
+            long position = Math.max(k * (fileSize / nParts), starts[count - 1] + 1);
+            long limit = Math.min(fileSize, (k + 1) * (fileSize / nParts));
+            search:
+            while (position + 10 <= limit) {
+                int length = file.read(ByteBuffer.wrap(buffer), position);
+                if (length < 10) break;
+                for (int i = 0; i + 10 <= length; i++) {
+                    if (isHeader(buffer, i)) {
+                        starts[count++] = position + i;
+                        break search;
+                    }
+                }
+                position += length - 9;
+            }
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    /**
+     * Gets the next block of decompressed bytes, moving to the next part at
+     * the end of each part; returns null at the end of the file or if no
+     * block is available and wait is false.
+     */
+    private Block nextBlock(boolean wait) throws IOException {
+        while (part != null) {
+            Block next;
+            try {
+                next = wait ? part.blocks.take() : part.blocks.poll();
+            }
+            catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+            if (next == null) return null;
+            if (next.data != null) return next;
+
+            // end of the part (the channel is closed if the part failed, stopping the other parts)
+            if (part.error != null) {
+                IOException error = part.error;
+                close();
+                throw error;
+            }
+            end = part.finish;
+            part.release();
+            part = nextPart();
+        }
+        return null;
+    }
+
+    /**
+     * Gets the part which starts at the end of the bytes read so far: the
+     * next submitted part, if it starts there, or a new part otherwise (which
+     * ends at the next candidate start). Parts which start before are
+     * discarded.
+     */
+    private Part nextPart() {
+        while (!parts.isEmpty() && parts.peekFirst().start < end)
+            parts.pollFirst().cancel();
+        if (parts.isEmpty())
+            while (nextPart < partStarts.length && partStarts[nextPart] < end)
+                nextPart++;
+        submitParts();
+
+        if (end >= fileSize) return null;
+        if (!parts.isEmpty() && parts.peekFirst().start == end) return parts.pollFirst();
+
+        long partEnd = !parts.isEmpty() ? parts.peekFirst().start : nextPart < partStarts.length ? partStarts[nextPart] : fileSize;
+        return submit(new Part(end, partEnd));
+    }
+
+    private Part submit(Part newPart) {
+        executor.submit(newPart);
+        return newPart;
+    }
+
+    /**
+     * Submits the next parts (speculatively), so that up to maxParts parts
+     * are inflated at once.
+     */
+    private void submitParts() {
+        while (parts.size() + 1 < maxParts && nextPart < partStarts.length) {
+            long partEnd = nextPart + 1 < partStarts.length ? partStarts[nextPart + 1] : fileSize;
+            parts.addLast(submit(new Part(partStarts[nextPart++], partEnd)));
+        }
+    }
+
+    /**
+     * Checks if the bytes at a position of a buffer may be the (fixed) header
+     * of a member: magic number, deflate method, no reserved flags, valid
+     * extra flags and a known operating system.
+     */
+    private static boolean isHeader(byte buffer[], int i) {
+        int os = buffer[i + 9] & 0xFF;
+        return buffer[i] == ( byte ) 0x1F && buffer[i + 1] == ( byte ) 0x8B && buffer[i + 2] == 8 && (buffer[i + 3] & 0xE0) == 0
+          && (buffer[i + 8] == 0 || buffer[i + 8] == 2 || buffer[i + 8] == 4) && (os <= 13 || os == 255);
+    }
+
+
+    /**
+     * This class represents a block of decompressed bytes; the last block of
+     * a part has no data.
+     */
+    private static class Block {
+
+        final byte data[];
+        final int length;
+
+        Block(byte data[], int length) {
+            this.data = data;
+            this.length = length;
+        }
+    }
+
+    /**
+     * This class reads the (compressed) bytes of the file sequentially from a
+     * position.
+     */
+    private class Input {
+
+        final byte buffer[] = new byte[INPUT];
+        long offset;
+        int pos = 0, limit = 0;
+
+        Input(long position) {
+            this.offset = position;
+        }
+
+        boolean fill() throws IOException {
+            if (pos < limit) return true;
+            offset += limit;
+            pos = limit = 0;
+            int n = file.read(ByteBuffer.wrap(buffer), offset);
+            if (n <= 0) return false;
+            limit = n;
+            return true;
+        }
+
+        long position() {
+            return offset + pos;
+        }
+
+        int read() throws IOException {
+            if (!fill()) throw new EOFException("unexpected end of gzip file");
+            return buffer[pos++] & 0xFF;
+        }
+
+        int readInt() throws IOException {
+            return read() | read() << 8 | read() << 16 | read() << 24;
+        }
+    }
+
+    /**
+     * This class inflates the members of the file from a position until the
+     * end of a member reaches a given position (the start of the next part).
+     */
+    private class Part implements Callable<Void> {
+
+        final long start, end;
+        final BlockingQueue<Block> blocks = new LinkedBlockingQueue<>();
+        final BlockingQueue<byte[]> ring = new ArrayBlockingQueue<>(RING);
+        int nAllocated = 0;
+        volatile boolean cancelled = false;
+
+        // position where the inflated members end and error, if any (set before the last block)
+        long finish;
+        IOException error;
+
+        Part(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public Void call() {
+            try {
+                inflate();
+            }
+            catch (IOException e) {
+                if (cancelled) return null;
+                error = e;
+            }
+            catch (InterruptedException e) {
+                return null;
+            }
+            blocks.add(new Block(null, 0));
+            return null;
+        }
+
+        /**
+         * Cancels the part, whose thread stops when it needs another block
+         * (the thread is not interrupted, which would close the file).
+         */
+        void cancel() {
+            cancelled = true;
+        }
+
+        void recycle(Block block) {
+            ring.add(block.data);
+        }
+
+        /**
+         * Gives the blocks of the (finished) part back to the spare blocks.
+         */
+        void release() {
+            spareBlocks.addAll(ring);
+            ring.clear();
+        }
+
+        private void inflate() throws IOException, InterruptedException {
+            Input input = new Input(start);
+            Inflater inflater = new Inflater(true);
+            CRC32 crc = new CRC32();
+            byte out[] = null;
+            int length = 0;
+
+            try {
+                if (!readHeader(input)) {
+                    if (start == 0) throw new ZipException("not in gzip format");
+                    finish = fileSize;
+                    return;
+                }
+
+                while (true) {
+                    inflater.reset();
+                    crc.reset();
+                    long size = 0;
+
+                    while (!inflater.finished()) {
+                        if (out == null) {
+                            out = takeBlock();
+                            if (out == null) return;
+                            length = 0;
+                        }
+                        if (inflater.needsInput()) {
+                            if (!input.fill()) throw new EOFException("unexpected end of gzip file");
+                            inflater.setInput(input.buffer, input.pos, input.limit - input.pos);
+                            input.pos = input.limit;
+                        }
+
+                        int n = inflater.inflate(out, length, out.length - length);
+                        if (n == 0 && inflater.needsDictionary()) throw new ZipException("invalid gzip file");
+                        crc.update(out, length, n);
+                        length += n;
+                        size += n;
+                        if (length == out.length) {
+                            blocks.add(new Block(out, length));
+                            out = null;
+                        }
+                    }
+                    input.pos = input.limit - inflater.getRemaining();
+
+                    if (input.readInt() != ( int ) crc.getValue() || input.readInt() != ( int ) size)
+                        throw new ZipException("corrupted gzip file (checksum mismatch)");
+
+                    // stops at the first member which ends after the end of the part (or at the last member)
+                    finish = input.position();
+                    if (finish >= end) break;
+                    if (!readHeader(input)) {
+                        finish = fileSize;
+                        break;
+                    }
+                }
+                if (out != null && length > 0) blocks.add(new Block(out, length));
+            }
+            catch (DataFormatException e) {
+                throw new ZipException("invalid gzip file: " + e.getMessage());
+            }
+            finally {
+                inflater.end();
+            }
+        }
+
+        /**
+         * Reads the header of a member, returning false if the input ends or
+         * if it does not start with the magic number.
+         */
+        private boolean readHeader(Input input) throws IOException {
+            if (!input.fill() || input.read() != 0x1F || !input.fill() || input.read() != 0x8B) return false;
+            if (input.read() != 8) throw new ZipException("unsupported compression method");
+
+            int flags = input.read();
+            for (int i = 0; i < 6; i++)
+                input.read();
+            if ((flags & FEXTRA) != 0) {
+                int length = input.read() | input.read() << 8;
+                for (int i = 0; i < length; i++)
+                    input.read();
+            }
+            if ((flags & FNAME) != 0)
+                while (input.read() != 0) ;
+            if ((flags & FCOMMENT) != 0)
+                while (input.read() != 0) ;
+            if ((flags & FHCRC) != 0) {
+                input.read();
+                input.read();
+            }
+            return true;
+        }
+
+        /**
+         * Takes a free block of the ring, waiting for the reader to give one
+         * back if all blocks of the ring are in use; returns null if the part
+         * is cancelled.
+         */
+        private byte[] takeBlock() throws InterruptedException {
+            if (cancelled) return null;
+
+            byte block[] = ring.poll();
+            if (block == null && nAllocated < RING) {
+                nAllocated++;
+                block = spareBlocks.poll();
+                return block != null ? block : new byte[BLOCK];
+            }
+            while (block == null && !cancelled)
+                block = ring.poll(10, TimeUnit.MILLISECONDS);
+            return cancelled ? null : block;
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package jads.mp.util;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.zip.*;
+
+/**
+ * This class contains a writer and a reader of binary files whose (large)
+ * arrays are memory-mapped when read, so that their contents stay off-heap
+ * (in the page cache of the operating system, which is shared by all
+ * processes reading the same file) and are only loaded on demand.
+ * <p>
+ * A file is a sequence of scalars (ints, longs, doubles and strings) and
+ * arrays, written in the native byte order; the reader detects the byte order
+ * of the file. Each array starts at a multiple of {@link #ALIGNMENT} bytes and
+ * is mapped as a sequence of read-only pages, so that arrays larger than 2 GB
+ * may also be mapped. Arrays may be protected by CRC-32 checksums (see
+ * {@link Writer#checksum()} and {@link #checksum(ByteBuffer[])}).
+ *
+ * @author Tulio Toffolo
+ */
+public class MappedFile {
+
+    public static final int ALIGNMENT = 4096;
+
+    private static final int BYTE_ORDER_MARK = 0x01020304;
+    private static final long MAX_CHUNK = 1L << 30;
+
+
+    private MappedFile() { }
+
+
+    /**
+     * Computes the CRC-32 checksum of the (mapped) pages of an array, which
+     * reads all of them.
+     *
+     * @param pages the pages of the array
+     * @return the checksum of the bytes of the array
+     */
+    public static long checksum(ByteBuffer pages[]) {
+        CRC32 crc = new CRC32();
+        for (ByteBuffer page : pages)
+            crc.update(page.duplicate());
+        return crc.getValue();
+    }
+
+
+    /**
+     * This class writes a file sequentially.
+     */
+    public static class Writer implements Closeable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.nativeOrder());
+        private long position = 0;
+
+        // checksum of the bytes written since the last call of checksum(),
+        // which is updated up to (buffer) position crcStart
+        private final CRC32 crc = new CRC32();
+        private int crcStart = 0;
+
+        /**
+         * Instantiates a new Writer, creating (or truncating) a file.
+         *
+         * @param path the path of the file
+         * @throws IOException if the file cannot be created
+         */
+        public Writer(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            putInt(BYTE_ORDER_MARK);
+        }
+
+        /**
+         * Starts an array, i.e. pads the file up to the next multiple of
+         * {@link #ALIGNMENT} bytes. The elements of an array may then be
+         * written by several calls of the same put method.
+         *
+         * @throws IOException if an I/O error occurs
+         */
+        public void align() throws IOException {
+            while (position % ALIGNMENT != 0) {
+                ensure(1);
+                buffer.put(( byte ) 0);
+                position++;
+            }
+        }
+
+        /**
+         * Gets the CRC-32 checksum of the bytes written since the last call of
+         * this method (or since the file was created), and starts a new one.
+         * The checksum of an array is obtained by calling this method right
+         * after {@link #align()} and again after the array is written.
+         *
+         * @return the checksum of the bytes written since the last call
+         */
+        public long checksum() {
+            updateChecksum();
+            long value = crc.getValue();
+            crc.reset();
+            return value;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            channel.close();
+        }
+
+        public void putBytes(byte values[], int offset, int length) throws IOException {
+            while (length > 0) {
+                ensure(1);
+                int n = Math.min(length, buffer.remaining());
+                buffer.put(values, offset, n);
+                offset += n;
+                length -= n;
+                position += n;
+            }
+        }
+
+        public void putChars(char values[], int offset, int length) throws IOException {
+            while (length > 0) {
+                ensure(2);
+                int n = Math.min(length, buffer.remaining() / 2);
+                buffer.asCharBuffer().put(values, offset, n);
+                buffer.position(buffer.position() + 2 * n);
+                offset += n;
+                length -= n;
+                position += 2 * n;
+            }
+        }
+
+        public void putDouble(double value) throws IOException {
+            ensure(8);
+            buffer.putDouble(value);
+            position += 8;
+        }
+
+        public void putDoubles(double values[], int offset, int length) throws IOException {
+            while (length > 0) {
+                ensure(8);
+                int n = Math.min(length, buffer.remaining() / 8);
+                buffer.asDoubleBuffer().put(values, offset, n);
+                buffer.position(buffer.position() + 8 * n);
+                offset += n;
+                length -= n;
+                position += 8 * n;
+            }
+        }
+
+        public void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+            position += 4;
+        }
+
+        public void putInts(int values[], int offset, int length) throws IOException {
+            while (length > 0) {
+                ensure(4);
+                int n = Math.min(length, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(values, offset, n);
+                buffer.position(buffer.position() + 4 * n);
+                offset += n;
+                length -= n;
+                position += 4 * n;
+            }
+        }
+
+        public void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+            position += 8;
+        }
+
+        /**
+         * Writes a string (which may be null) in UTF-8, after its length.
+         *
+         * @param value the string
+         * @throws IOException if an I/O error occurs
+         */
+        public void putString(String value) throws IOException {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte bytes[] = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            putBytes(bytes, 0, bytes.length);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) flush();
+        }
+
+        private void flush() throws IOException {
+            updateChecksum();
+            crcStart = 0;
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+
+        private void updateChecksum() {
+            ByteBuffer written = buffer.duplicate();
+            (( Buffer ) written).limit(buffer.position());
+            (( Buffer ) written).position(crcStart);
+            crc.update(written);
+            crcStart = buffer.position();
+        }
+    }
+
+    /**
+     * This class reads a file sequentially, mapping its arrays. The mapped
+     * pages remain valid after the reader is closed.
+     */
+    public static class Reader implements Closeable {
+
+        private final FileChannel channel;
+        private final ByteBuffer scalar = ByteBuffer.allocate(8);
+        private final ByteOrder order;
+        private long position = 0;
+
+        /**
+         * Instantiates a new Reader.
+         *
+         * @param path the path of the file
+         * @throws IOException if the file cannot be opened or was not written
+         *                     by a {@link Writer}
+         */
+        public Reader(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            int mark = getInt();
+            if (mark == BYTE_ORDER_MARK) {
+                order = ByteOrder.BIG_ENDIAN;
+            }
+            else if (Integer.reverseBytes(mark) == BYTE_ORDER_MARK) {
+                order = ByteOrder.LITTLE_ENDIAN;
+                scalar.order(order);
+            }
+            else {
+                channel.close();
+                throw new IOException("invalid mapped file: " + path);
+            }
+        }
+
+        /**
+         * Skips the padding before an array (see {@link Writer#align()}).
+         */
+        public void align() {
+            position = (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        public double getDouble() throws IOException {
+            return read(8).getDouble(0);
+        }
+
+        public int getInt() throws IOException {
+            return read(4).getInt(0);
+        }
+
+        public long getLong() throws IOException {
+            return read(8).getLong(0);
+        }
+
+        /**
+         * Reads a string written by {@link Writer#putString(String)}.
+         *
+         * @return the string (which may be null)
+         * @throws IOException if an I/O error occurs
+         */
+        public String getString() throws IOException {
+            int length = getInt();
+            if (length < 0) return null;
+
+            ByteBuffer bytes = ByteBuffer.allocate(length);
+            while (bytes.hasRemaining())
+                if (channel.read(bytes, position + bytes.position()) < 0) throw new EOFException();
+            position += length;
+            return new String(bytes.array(), StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Maps an array, which must start at the current position (after
+         * {@link #align()}), as a sequence of read-only pages.
+         *
+         * @param length      the number of elements of the array
+         * @param elementSize the size of each element (in bytes)
+         * @param pageSize    the number of elements per page (the last page may
+         *                    be smaller)
+         * @return the pages of the array, with the byte order of the file
+         * @throws IOException if the array cannot be mapped
+         */
+        public ByteBuffer[] map(long length, int elementSize, int pageSize) throws IOException {
+            long pageBytes = ( long ) pageSize * elementSize;
+            int nPages = ( int ) ((length + pageSize - 1) / pageSize);
+            long pagesPerChunk = Math.max(1, MAX_CHUNK / pageBytes);
+
+            ByteBuffer pages[] = new ByteBuffer[nPages];
+            for (int first = 0; first < nPages; first += pagesPerChunk) {
+                long chunkStart = first * pageBytes;
+                long chunkBytes = Math.min(pagesPerChunk * pageBytes, length * elementSize - chunkStart);
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position + chunkStart, chunkBytes);
+
+                for (int p = first; p < nPages && p < first + pagesPerChunk; p++) {
+                    int start = ( int ) ((p - first) * pageBytes);
+                    ByteBuffer page = chunk.duplicate();
+                    (( Buffer ) page).position(start);
+                    (( Buffer ) page).limit(( int ) Math.min(chunkBytes, start + pageBytes));
+                    pages[p] = page.slice().order(order);
+                }
+            }
+            position += length * elementSize;
+            return pages;
+        }
+
+        private ByteBuffer read(int bytes) throws IOException {
+            scalar.clear();
+            scalar.limit(bytes);
+            while (scalar.hasRemaining())
+                if (channel.read(scalar, position + scalar.position()) < 0) throw new EOFException();
+            position += bytes;
+            return scalar;
+        }
+    }
+}
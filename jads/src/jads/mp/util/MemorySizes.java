@@ -0,0 +1,89 @@
+package jads.mp.util;
+
+import java.util.*;
+
+/**
+ * This class contains estimates of the (shallow) sizes, in bytes, of objects
+ * and arrays in a 64-bit JVM with compressed references (the default for heaps
+ * smaller than 32 GB): 12-byte object headers, 16-byte array headers, 4-byte
+ * references and sizes aligned to 8 bytes.
+ *
+ * @author Tulio Toffolo
+ */
+public class MemorySizes {
+
+    public static final int OBJECT_HEADER = 12, ARRAY_HEADER = 16, REFERENCE = 4, ALIGNMENT = 8;
+
+    /**
+     * Estimated size of an entry of a HashMap (hash, key, value and next) plus
+     * its slot in the table (with the default load factor).
+     */
+    public static final long HASH_ENTRY = object(3 * REFERENCE + 4) + 2 * REFERENCE;
+
+    /**
+     * Estimated size of an entry of a LinkedHashMap, which also links the
+     * entries in insertion order.
+     */
+    public static final long LINKED_HASH_ENTRY = object(5 * REFERENCE + 4) + 2 * REFERENCE;
+
+    /**
+     * Estimated size of a node of a LinkedList.
+     */
+    public static final long LINKED_LIST_NODE = object(3 * REFERENCE);
+
+
+    private MemorySizes() { }
+
+
+    /**
+     * Aligns a size to the alignment of objects.
+     *
+     * @param size the size
+     * @return the aligned size
+     */
+    public static long align(long size) {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /**
+     * Gets the size of an array.
+     *
+     * @param length      the length of the array
+     * @param elementSize the size of each element (in bytes)
+     * @return the size of the array
+     */
+    public static long array(long length, int elementSize) {
+        return align(ARRAY_HEADER + length * elementSize);
+    }
+
+    /**
+     * Gets the size of a BitSet (including its array of words).
+     *
+     * @param bitSet the BitSet
+     * @return the size of the BitSet
+     */
+    public static long bitSet(BitSet bitSet) {
+        return bitSet == null ? 0 : object(REFERENCE + 5) + array(bitSet.size() / 64, 8);
+    }
+
+    /**
+     * Gets the size of an object (with its header).
+     *
+     * @param fieldsSize the total size of the fields of the object
+     * @return the size of the object
+     */
+    public static long object(int fieldsSize) {
+        return align(OBJECT_HEADER + fieldsSize);
+    }
+
+    /**
+     * Gets the size of a String (with its array of characters), assuming that
+     * it has only Latin-1 characters (compact strings).
+     *
+     * @param string the string
+     * @return the size of the string
+     */
+    public static long string(String string) {
+        return string == null ? 0 : object(REFERENCE + 4 + 2) + array(string.length(), 1);
+    }
+}
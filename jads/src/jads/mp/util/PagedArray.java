@@ -0,0 +1,58 @@
+package jads.mp.util;
+
+import java.util.*;
+
+/**
+ * This class represents a growable array of objects stored in fixed-size
+ * pages, which are only allocated when a position of the page is written.
+ * Reading a position of a page never written returns null.
+ *
+ * @author Tulio Toffolo
+ */
+public class PagedArray<T> {
+
+    private static final int SHIFT = 10, PAGE = 1 << SHIFT, MASK = PAGE - 1;
+
+    private Object pages[][] = new Object[1][];
+
+
+    /**
+     * Gets the object at a position.
+     *
+     * @param i the position
+     * @return the object at position i, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int i) {
+        int p = i >>> SHIFT;
+        return p < pages.length && pages[p] != null ? ( T ) pages[p][i & MASK] : null;
+    }
+
+    /**
+     * Sets the object at a position.
+     *
+     * @param i      the position
+     * @param object the new object
+     */
+    public void set(int i, T object) {
+        int p = i >>> SHIFT;
+        if (p >= pages.length)
+            pages = Arrays.copyOf(pages, Math.max(p + 1, pages.length + (pages.length >> 1)));
+        if (pages[p] == null)
+            pages[p] = new Object[PAGE];
+        pages[p][i & MASK] = object;
+    }
+
+    /**
+     * Gets the (approximate) number of bytes used by this array, excluding
+     * the objects stored in it.
+     *
+     * @return the number of bytes used by this array
+     */
+    public long getMemoryUsage() {
+        long bytes = MemorySizes.object(MemorySizes.REFERENCE) + MemorySizes.array(pages.length, MemorySizes.REFERENCE);
+        for (Object page[] : pages)
+            if (page != null) bytes += MemorySizes.array(page.length, MemorySizes.REFERENCE);
+        return bytes;
+    }
+}
@@ -0,0 +1,188 @@
+package jads.mp.util;
+
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+
+/**
+ * This class represents a growable array of ints stored in fixed-size
+ * pages, which may be shared (copy-on-write) between several arrays: {@link
+ * #fork()} only copies the table of pages, and a shared page is copied by an
+ * array only when the array writes to it.
+ * <p>
+ * The pages may also be memory-mapped (read-only) from a file (see {@link
+ * #map(MappedFile.Reader, int)}), in which case they stay off-heap until
+ * they are written, when they are copied to the heap.
+ * <p>
+ * The array grows as positions are written, which is expected to happen in
+ * increasing order; a position must be written before it is read.
+ *
+ * @author Tulio Toffolo
+ */
+public class PagedIntArray {
+
+    private static final int SHIFT = 10, PAGE = 1 << SHIFT, MASK = PAGE - 1;
+    private static final int MIN_PAGE = 16;
+    private static final IntBuffer NO_MAPPED_PAGES[] = new IntBuffer[0];
+
+    private int pages[][];
+    private boolean shared[];
+
+    // memory-mapped pages (read-only), used for the positions whose page is null
+    private final IntBuffer mapped[];
+
+
+    /**
+     * Instantiates a new (empty) Paged Array.
+     */
+    public PagedIntArray() {
+        this.pages = new int[1][];
+        this.shared = new boolean[1];
+        this.mapped = NO_MAPPED_PAGES;
+    }
+
+    private PagedIntArray(int pages[][], IntBuffer mapped[]) {
+        this.pages = pages;
+        this.shared = new boolean[pages.length];
+        this.mapped = mapped;
+        Arrays.fill(shared, true);
+    }
+
+
+    /**
+     * Gets the value at a position.
+     *
+     * @param i the position
+     * @return the value at position i
+     */
+    public int get(int i) {
+        int page[] = pages[i >>> SHIFT];
+        return page != null ? page[i & MASK] : mapped[i >>> SHIFT].get(i & MASK);
+    }
+
+    /**
+     * Sets the value at a position, copying its page first if it is shared.
+     *
+     * @param i     the position
+     * @param value the new value
+     */
+    public void set(int i, int value) {
+        page(i)[i & MASK] = value;
+    }
+
+    /**
+     * Creates a copy of this array which shares all (current) pages with it.
+     * Both arrays copy a shared page before writing to it, so that changes
+     * in one of them are never seen by the other.
+     *
+     * @return the copy of this array
+     */
+    public PagedIntArray fork() {
+        Arrays.fill(shared, true);
+        return new PagedIntArray(pages.clone(), mapped);
+    }
+
+    /**
+     * Gets the (approximate) number of bytes used by this array in the heap,
+     * including the pages shared with other arrays but excluding the contents
+     * of memory-mapped pages.
+     *
+     * @return the number of bytes used by this array
+     */
+    public long getMemoryUsage() {
+        long bytes = MemorySizes.object(3 * MemorySizes.REFERENCE)
+          + MemorySizes.array(pages.length, MemorySizes.REFERENCE) + MemorySizes.array(shared.length, 1);
+        for (int page[] : pages)
+            if (page != null) bytes += MemorySizes.array(page.length, 4);
+        if (mapped.length > 0)
+            bytes += MemorySizes.array(mapped.length, MemorySizes.REFERENCE) + mapped.length * MemorySizes.object(48);
+        return bytes;
+    }
+
+    /**
+     * Writes the first positions of this array (as a single array) to a file,
+     * from which it may be mapped by {@link #map(MappedFile.Reader, int)}.
+     *
+     * @param writer the writer of the file
+     * @param length the number of positions to write
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(MappedFile.Writer writer, int length) throws IOException {
+        writer.align();
+        int buffer[] = null;
+        for (int p = 0; p * PAGE < length; p++) {
+            int n = Math.min(PAGE, length - p * PAGE);
+            if (pages[p] != null && pages[p].length >= n) {
+                writer.putInts(pages[p], 0, n);
+            }
+            else {
+                // page (partially) mapped: its values are read one by one
+                if (buffer == null) buffer = new int[PAGE];
+                for (int k = 0; k < n; k++)
+                    buffer[k] = get(p * PAGE + k);
+                writer.putInts(buffer, 0, n);
+            }
+        }
+    }
+
+
+    /**
+     * Creates an array whose pages are memory-mapped from a file, at the
+     * position of the reader. The file must have been written by {@link
+     * #write(MappedFile.Writer, int)}, and must not be modified while the array
+     * (or any of its forks) is used.
+     *
+     * @param reader the reader of the file
+     * @param length the number of positions of the array
+     * @return the array
+     * @throws IOException if an I/O error occurs
+     */
+    public static PagedIntArray map(MappedFile.Reader reader, int length) throws IOException {
+        reader.align();
+        ByteBuffer bytes[] = reader.map(length, 4, PAGE);
+        IntBuffer mapped[] = new IntBuffer[bytes.length];
+        for (int p = 0; p < bytes.length; p++)
+            mapped[p] = bytes[p].asIntBuffer();
+        return new PagedIntArray(new int[Math.max(1, mapped.length)][], mapped);
+    }
+
+
+    /**
+     * Gets the (writable) page of a position, allocating, growing or copying
+     * it if necessary.
+     */
+    private int[] page(int i) {
+        int p = i >>> SHIFT, offset = i & MASK;
+        if (p >= pages.length) {
+            int capacity = Math.max(p + 1, pages.length + (pages.length >> 1));
+            pages = Arrays.copyOf(pages, capacity);
+            shared = Arrays.copyOf(shared, capacity);
+        }
+
+        int page[] = pages[p];
+        if (page == null && p < mapped.length) {
+            // the mapped page is copied to the heap
+            page = new int[mapped[p].capacity()];
+            mapped[p].duplicate().get(page);
+        }
+        else if (page == null) {
+            page = new int[p == 0 ? MIN_PAGE : PAGE];
+        }
+        else if (offset >= page.length) {
+            page = Arrays.copyOf(page, Math.min(PAGE, Math.max(offset + 1, 2 * page.length)));
+        }
+        else if (shared[p]) {
+            page = page.clone();
+        }
+        else {
+            return page;
+        }
+
+        // the page was allocated, grown or copied, and is now owned by this array
+        if (offset >= page.length)
+            page = Arrays.copyOf(page, Math.min(PAGE, Math.max(offset + 1, 2 * page.length)));
+        pages[p] = page;
+        shared[p] = false;
+        return page;
+    }
+}